@@ -2,11 +2,15 @@ package com.github.alexishuf.fastersparql.client;
 
 import com.github.alexishuf.fastersparql.client.exceptions.UnacceptableSparqlConfiguration;
 import com.github.alexishuf.fastersparql.client.model.SparqlEndpoint;
+import com.github.alexishuf.fastersparql.client.parser.fragment.ByteArrayFragmentParser;
 import com.github.alexishuf.fastersparql.client.parser.fragment.FragmentParser;
 import com.github.alexishuf.fastersparql.client.parser.row.RowParser;
+import com.github.alexishuf.fastersparql.client.parser.row.StringArrayRowParser;
+import com.github.alexishuf.fastersparql.client.replica.ReplicaGroupClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Queue;
@@ -127,6 +131,45 @@ public class FasterSparql {
         return factory().createFor(SparqlEndpoint.parse(augmentedUri));
     }
 
+    /**
+     * Creates a {@link ReplicaGroupClient} that spreads queries over replicas of the same
+     * dataset, with one {@link SparqlClient} per endpoint.
+     *
+     * @param endpoints the endpoints of each replica
+     * @param rowParser the {@link RowParser} to use with all replicas
+     * @param fragmentParser the {@link FragmentParser} to use with all replicas
+     * @return a new {@link ReplicaGroupClient} whose ownership is given to the caller.
+     * @throws UnacceptableSparqlConfiguration if the configuration of any endpoint is unfeasible.
+     */
+    public static <R, F> ReplicaGroupClient<R, F>
+    replicaGroup(List<SparqlEndpoint> endpoints, RowParser<R> rowParser,
+                 FragmentParser<F> fragmentParser) {
+        SparqlClientFactory factory = factory();
+        List<SparqlClient<R, F>> clients = new ArrayList<>(endpoints.size());
+        try {
+            for (SparqlEndpoint endpoint : endpoints)
+                clients.add(factory.createFor(endpoint, rowParser, fragmentParser));
+            return new ReplicaGroupClient<>(clients);
+        } catch (Throwable t) {
+            for (SparqlClient<R, F> client : clients)
+                client.close();
+            throw t;
+        }
+    }
+
+    /**
+     * Equivalent to {@link FasterSparql#replicaGroup(List, RowParser, FragmentParser)} with
+     * {@link SparqlEndpoint#parse(String)}d {@code augmentedUris},
+     * {@link StringArrayRowParser} and {@link ByteArrayFragmentParser}.
+     */
+    public static ReplicaGroupClient<String[], byte[]> replicaGroup(String... augmentedUris) {
+        List<SparqlEndpoint> endpoints = new ArrayList<>(augmentedUris.length);
+        for (String uri : augmentedUris)
+            endpoints.add(SparqlEndpoint.parse(uri));
+        return replicaGroup(endpoints, StringArrayRowParser.INSTANCE,
+                            ByteArrayFragmentParser.INSTANCE);
+    }
+
     private static final Queue<Runnable> shutdownHooks = new ConcurrentLinkedQueue<>();
 
     /**
@@ -4,17 +4,25 @@ import com.github.alexishuf.fastersparql.client.exceptions.InvalidSparqlQuery;
 import com.github.alexishuf.fastersparql.client.exceptions.InvalidSparqlQueryType;
 import com.github.alexishuf.fastersparql.client.exceptions.SparqlClientServerException;
 import com.github.alexishuf.fastersparql.client.exceptions.UnacceptableSparqlConfiguration;
+import com.github.alexishuf.fastersparql.client.model.DownloadOptions;
+import com.github.alexishuf.fastersparql.client.model.DownloadStats;
 import com.github.alexishuf.fastersparql.client.model.Graph;
 import com.github.alexishuf.fastersparql.client.model.Results;
 import com.github.alexishuf.fastersparql.client.model.SparqlConfiguration;
 import com.github.alexishuf.fastersparql.client.model.SparqlEndpoint;
 import com.github.alexishuf.fastersparql.client.parser.results.InvalidSparqlResultsException;
+import com.github.alexishuf.fastersparql.client.util.GraphDownloader;
+import com.github.alexishuf.fastersparql.client.util.async.AsyncTask;
+import com.github.alexishuf.fastersparql.client.util.reactive.AskSubscriber;
 import com.github.alexishuf.fastersparql.client.util.reactive.AsyncIterable;
+import com.github.alexishuf.fastersparql.client.util.sparql.SparqlUtils;
 import org.checkerframework.checker.mustcall.qual.MustCall;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.reactivestreams.Publisher;
 import org.reactivestreams.Subscriber;
 
+import java.nio.channels.WritableByteChannel;
+
 /**
  * A {@link SparqlClient} allows submitting queries to remote SPARQL endpoints.
  *
@@ -116,6 +124,26 @@ public interface SparqlClient<R, F> extends AutoCloseable {
         return query(sparql, null);
     }
 
+    /**
+     * Evaluate {@code sparql} as an ASK query.
+     *
+     * If {@code sparql} is a SELECT query, it will be rewritten into an ASK query, avoiding
+     * the transfer of more than one row. Implementations may further avoid materializing
+     * rows from the results.
+     *
+     * @param sparql the SPARQL ASK or SELECT query
+     * @param configuration see {@link SparqlClient#query(CharSequence, SparqlConfiguration)}
+     * @return an {@link AsyncTask} that completes with {@code true} iff the query has at least
+     *         one solution, or completes exceptionally with errors listed in
+     *         {@link SparqlClient#query(CharSequence, SparqlConfiguration)}.
+     */
+    default AsyncTask<Boolean> ask(CharSequence sparql,
+                                   @Nullable SparqlConfiguration configuration) {
+        AskSubscriber<R> subscriber = new AskSubscriber<>();
+        query(SparqlUtils.toAsk(sparql), configuration).publisher().subscribe(subscriber);
+        return subscriber.result();
+    }
+
     /**
      * Execute a CONSTRUCT or DESCRIBE SPARQL query and obtain fragments of the RDF serialization
      * as they arrive.
@@ -155,6 +183,41 @@ public interface SparqlClient<R, F> extends AutoCloseable {
         return queryGraph(sparql, null);
     }
 
+    /**
+     * Execute a CONSTRUCT or DESCRIBE query and write the serialized graph into {@code dest}.
+     *
+     * Implementations should avoid materializing fragments as objects: the default
+     * implementation writes the fragments produced by
+     * {@link SparqlClient#queryGraph(CharSequence, SparqlConfiguration)} using a
+     * {@link GraphDownloader}, which is efficient only if {@code F} is {@code byte[]},
+     * {@link java.nio.ByteBuffer} or a {@link CharSequence}.
+     *
+     * @param sparql the SPARQL CONSTRUCT or DESCRIBE query
+     * @param configuration see {@link SparqlClient#queryGraph(CharSequence, SparqlConfiguration)}
+     * @param dest where to write the serialization (e.g., a {@link java.nio.channels.FileChannel}).
+     *             It will not be closed.
+     * @param options whether to compress the serialization and whether to count triples.
+     * @return an {@link AsyncTask} that completes with {@link DownloadStats} after the whole
+     *         serialization has been written to {@code dest} or completes exceptionally
+     *         with any of the errors listed in
+     *         {@link SparqlClient#queryGraph(CharSequence, SparqlConfiguration)} or with an
+     *         {@link java.io.IOException} raised by {@code dest}.
+     */
+    default AsyncTask<DownloadStats> downloadGraph(CharSequence sparql,
+                                                   @Nullable SparqlConfiguration configuration,
+                                                   WritableByteChannel dest,
+                                                   DownloadOptions options) {
+        return new GraphDownloader(dest, options).download(queryGraph(sparql, configuration));
+    }
+
+    /**
+     * {@link SparqlClient#downloadGraph(CharSequence, SparqlConfiguration, WritableByteChannel, DownloadOptions)}
+     * with null {@link SparqlConfiguration} and {@link DownloadOptions#DEFAULT}.
+     */
+    default AsyncTask<DownloadStats> downloadGraph(CharSequence sparql, WritableByteChannel dest) {
+        return downloadGraph(sparql, null, dest, DownloadOptions.DEFAULT);
+    }
+
 
     /**
      * Closes the client, releasing all resources.
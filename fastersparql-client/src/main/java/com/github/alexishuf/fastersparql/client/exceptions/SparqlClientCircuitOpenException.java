@@ -0,0 +1,14 @@
+package com.github.alexishuf.fastersparql.client.exceptions;
+
+import com.github.alexishuf.fastersparql.client.model.SparqlEndpoint;
+
+/**
+ * A request was not sent because the
+ * {@link com.github.alexishuf.fastersparql.client.util.health.CircuitBreaker} of the
+ * endpoint is open after too many recent failures.
+ */
+public class SparqlClientCircuitOpenException extends SparqlClientServerException {
+    public SparqlClientCircuitOpenException(SparqlEndpoint endpoint, String message) {
+        super(endpoint, message);
+    }
+}
@@ -0,0 +1,12 @@
+package com.github.alexishuf.fastersparql.client.exceptions;
+
+/**
+ * A query was stopped because its
+ * {@link com.github.alexishuf.fastersparql.client.util.async.Deadline} expired or was
+ * cancelled. Rows delivered before this error are valid partial results.
+ */
+public class SparqlClientTimeoutException extends SparqlClientException {
+    public SparqlClientTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,48 @@
+package com.github.alexishuf.fastersparql.client.model;
+
+import java.util.Objects;
+
+/**
+ * Options for {@link com.github.alexishuf.fastersparql.client.SparqlClient#downloadGraph(CharSequence, SparqlConfiguration, java.nio.channels.WritableByteChannel, DownloadOptions)}.
+ */
+public final class DownloadOptions {
+    public static final DownloadOptions DEFAULT = new DownloadOptions(false, false);
+
+    private final boolean gzip;
+    private final boolean countTriples;
+
+    private DownloadOptions(boolean gzip, boolean countTriples) {
+        this.gzip = gzip;
+        this.countTriples = countTriples;
+    }
+
+    /** Whether the serialization is gzip-compressed before being written. */
+    public boolean gzip() { return gzip; }
+
+    /**
+     * Whether the serialization should be parsed (without storing anything) to count
+     * triples. This costs CPU time and is only supported for N-Triples, N-Quads and Turtle.
+     */
+    public boolean countTriples() { return countTriples; }
+
+    public DownloadOptions withGzip(boolean value) {
+        return new DownloadOptions(value, countTriples);
+    }
+
+    public DownloadOptions withCountTriples(boolean value) {
+        return new DownloadOptions(gzip, value);
+    }
+
+    @Override public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof DownloadOptions)) return false;
+        DownloadOptions that = (DownloadOptions) o;
+        return gzip == that.gzip && countTriples == that.countTriples;
+    }
+
+    @Override public int hashCode() { return Objects.hash(gzip, countTriples); }
+
+    @Override public String toString() {
+        return "DownloadOptions{gzip="+gzip+", countTriples="+countTriples+"}";
+    }
+}
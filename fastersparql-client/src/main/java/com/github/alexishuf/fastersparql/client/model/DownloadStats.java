@@ -0,0 +1,51 @@
+package com.github.alexishuf.fastersparql.client.model;
+
+import com.github.alexishuf.fastersparql.client.util.MediaType;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.Objects;
+
+/**
+ * Outcome of a completed {@link com.github.alexishuf.fastersparql.client.SparqlClient#downloadGraph(CharSequence, SparqlConfiguration, java.nio.channels.WritableByteChannel, DownloadOptions)}.
+ */
+public final class DownloadStats {
+    private final @Nullable MediaType mediaType;
+    private final long bytesReceived, bytesWritten, triples;
+
+    public DownloadStats(@Nullable MediaType mediaType, long bytesReceived,
+                         long bytesWritten, long triples) {
+        this.mediaType = mediaType;
+        this.bytesReceived = bytesReceived;
+        this.bytesWritten = bytesWritten;
+        this.triples = triples;
+    }
+
+    /** Media type of the serialization, as reported by the server. */
+    public @Nullable MediaType mediaType() { return mediaType; }
+
+    /** Size of the serialization, in bytes, before compression. */
+    public long bytesReceived() { return bytesReceived; }
+
+    /** Bytes written to the destination channel. */
+    public long bytesWritten() { return bytesWritten; }
+
+    /** Number of triples (or quads), or {@code -1} if not counted. */
+    public long triples() { return triples; }
+
+    @Override public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof DownloadStats)) return false;
+        DownloadStats that = (DownloadStats) o;
+        return bytesReceived == that.bytesReceived && bytesWritten == that.bytesWritten
+                && triples == that.triples && Objects.equals(mediaType, that.mediaType);
+    }
+
+    @Override public int hashCode() {
+        return Objects.hash(mediaType, bytesReceived, bytesWritten, triples);
+    }
+
+    @Override public String toString() {
+        return "DownloadStats{mediaType="+mediaType+", bytesReceived="+bytesReceived
+                +", bytesWritten="+bytesWritten+", triples="+triples+"}";
+    }
+}
@@ -10,6 +10,7 @@ public class RDFMediaTypes {
     public static final MediaType TRIG = new MediaType("application", "trig");
     public static final MediaType TTL = new MediaType("text", "turtle");
     public static final MediaType NT = new MediaType("application", "n-triples");
+    public static final MediaType NQ = new MediaType("application", "n-quads");
     public static final MediaType N3 = new MediaType("text", "n3");
     public static final MediaType JSONLD = new MediaType("application", "ld+json");
     public static final MediaType RDFXML = new MediaType("application", "rdf+xml");
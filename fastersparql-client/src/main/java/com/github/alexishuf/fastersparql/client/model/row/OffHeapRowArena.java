@@ -0,0 +1,242 @@
+package com.github.alexishuf.fastersparql.client.model.row;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Append-only storage of rows encoded into direct (off-heap) {@link ByteBuffer} chunks.
+ *
+ * <p>Each row is encoded as its N-Triples terms (see
+ * {@link RowOperations#getNT(Object, int, String)}) in UTF-8, prefixed by lengths and decoded
+ * with {@link RowOperations#set(Object, int, String, Object)}. Thus this is only usable with row
+ * types whose {@link RowOperations#restoresNT()}. A stored row is identified by a
+ * {@code long} handle.</p>
+ *
+ * <p>Chunks are taken from and returned to a global bounded pool. Since the JVM only frees
+ * direct buffers once they are garbage collected, recycling chunks avoids both the allocation
+ * cost and the native memory held by unreachable chunks. {@link OffHeapRowArena#close()} (or
+ * {@link OffHeapRowArena#releaseChunksBefore(int)}) must be called once rows are no longer
+ * needed. Instances are not thread-safe.</p>
+ */
+public final class OffHeapRowArena<R> implements AutoCloseable {
+    /** Size of pooled chunks. Rows larger than this get an exclusive non-pooled chunk. */
+    public static final int CHUNK_BYTES = 256*1024;
+    private static final int MAX_POOLED_CHUNKS = 256;
+    private static final ConcurrentLinkedQueue<ByteBuffer> POOL = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger POOLED = new AtomicInteger();
+
+    private final RowOperations rowOps;
+    private final List<String> vars;
+    private final List<@Nullable ByteBuffer> chunks = new ArrayList<>();
+    private int firstLiveChunk, lastChunkUsed;
+    private long liveBytes;
+    private byte[] scratch = new byte[256];
+    private int scratchLen;
+    private boolean closed;
+
+    /**
+     * Create an empty arena for rows with the given {@code vars}.
+     *
+     * @throws IllegalArgumentException if {@code rowOps} does not
+     *         {@link RowOperations#restoresNT()}.
+     */
+    public OffHeapRowArena(RowOperations rowOps, List<String> vars) {
+        if (!rowOps.restoresNT())
+            throw new IllegalArgumentException(rowOps+" cannot restore rows from N-Triples");
+        this.rowOps = rowOps;
+        this.vars = vars;
+    }
+
+    public List<String> vars() { return vars; }
+
+    /** Bytes held in chunks not yet released. */
+    public long liveBytes() { return liveBytes; }
+
+    /* --- --- --- encoding --- --- --- */
+
+    /**
+     * Encode {@code row} into an internal scratch buffer, exposed by
+     * {@link OffHeapRowArena#encoded()} and {@link OffHeapRowArena#encodedLength()}
+     * until the next call.
+     *
+     * @return hash of the encoded row.
+     */
+    public int encode(@Nullable R row) {
+        int pos = 0;
+        for (int i = 0, n = vars.size(); i < n; i++) {
+            String nt = rowOps.getNT(row, i, vars.get(i));
+            byte[] bytes = nt == null ? null : nt.getBytes(UTF_8);
+            int len = bytes == null ? 0 : bytes.length;
+            ensureScratch(pos + 4 + len);
+            pos = putInt(scratch, pos, bytes == null ? -1 : len);
+            if (bytes != null) {
+                System.arraycopy(bytes, 0, scratch, pos, len);
+                pos += len;
+            }
+        }
+        scratchLen = pos;
+        int h = 0x811c9dc5;
+        for (int i = 0; i < pos; i++)
+            h = (h ^ scratch[i]) * 0x01000193;
+        return h ^ (h >>> 16);
+    }
+
+    /** The bytes written by the last {@link OffHeapRowArena#encode(Object)}. */
+    public byte[] encoded() { return scratch; }
+
+    /** Number of meaningful bytes in {@link OffHeapRowArena#encoded()}. */
+    public int encodedLength() { return scratchLen; }
+
+    /* --- --- --- storage --- --- --- */
+
+    /** Store {@code row} and return its handle. */
+    public long add(@Nullable R row) {
+        encode(row);
+        return addEncoded();
+    }
+
+    /** Store the row last encoded with {@link OffHeapRowArena#encode(Object)}. */
+    public long addEncoded() {
+        if (closed)
+            throw new IllegalStateException("add() on closed "+this);
+        int required = 4 + scratchLen;
+        int last = chunks.size()-1;
+        ByteBuffer chunk = last < firstLiveChunk ? null : chunks.get(last);
+        if (chunk == null || chunk.capacity() - lastChunkUsed < required) {
+            chunk = acquire(required);
+            chunks.add(chunk);
+            liveBytes += chunk.capacity();
+            lastChunkUsed = 0;
+            ++last;
+        }
+        int offset = lastChunkUsed;
+        chunk.putInt(offset, scratchLen);
+        ByteBuffer view = chunk.duplicate();
+        view.position(offset+4);
+        view.put(scratch, 0, scratchLen);
+        lastChunkUsed += required;
+        return ((long) last << 32) | offset;
+    }
+
+    /** Whether the row at {@code handle} equals the last {@link OffHeapRowArena#encode(Object)}ed. */
+    public boolean equalsEncoded(long handle) {
+        ByteBuffer chunk = chunk(handle);
+        int offset = (int) handle;
+        if (chunk.getInt(offset) != scratchLen)
+            return false;
+        for (int i = 0, o = offset+4; i < scratchLen; i++, o++) {
+            if (chunk.get(o) != scratch[i]) return false;
+        }
+        return true;
+    }
+
+    /** Decode the row stored at {@code handle}. */
+    public R get(long handle) {
+        ByteBuffer chunk = chunk(handle);
+        int pos = (int) handle + 4;
+        @SuppressWarnings("unchecked") R row = (R) rowOps.createEmpty(vars);
+        byte[] bytes = null;
+        for (int i = 0, n = vars.size(); i < n; i++) {
+            int len = chunk.getInt(pos);
+            pos += 4;
+            if (len >= 0) {
+                if (bytes == null || bytes.length < len)
+                    bytes = new byte[Math.max(len, 64)];
+                ByteBuffer view = chunk.duplicate();
+                view.position(pos);
+                view.get(bytes, 0, len);
+                rowOps.set(row, i, vars.get(i), new String(bytes, 0, len, UTF_8));
+                pos += len;
+            }
+        }
+        return row;
+    }
+
+    /** Index of the chunk that holds the row with the given handle. */
+    public static int chunkIndex(long handle) { return (int) (handle >>> 32); }
+
+    /**
+     * Release all chunks before the given chunk index. Handles into released chunks become
+     * invalid.
+     */
+    public void releaseChunksBefore(int chunkIndex) {
+        int end = Math.min(chunkIndex, chunks.size());
+        for (int i = firstLiveChunk; i < end; i++) {
+            ByteBuffer chunk = chunks.get(i);
+            if (chunk != null) {
+                chunks.set(i, null);
+                liveBytes -= chunk.capacity();
+                release(chunk);
+            }
+        }
+        firstLiveChunk = Math.max(firstLiveChunk, end);
+    }
+
+    /** Release all chunks, invalidating all handles. The arena can still be used. */
+    public void clear() {
+        releaseChunksBefore(chunks.size());
+        chunks.clear();
+        firstLiveChunk = 0;
+        lastChunkUsed = 0;
+    }
+
+    @Override public void close() {
+        if (closed) return;
+        closed = true;
+        clear();
+        scratch = new byte[0];
+    }
+
+    @Override public String toString() {
+        return "OffHeapRowArena{vars="+vars+", chunks="+(chunks.size()-firstLiveChunk)
+                +", liveBytes="+liveBytes+(closed ? ", closed" : "")+"}";
+    }
+
+    /* --- --- --- implementation details --- --- --- */
+
+    private ByteBuffer chunk(long handle) {
+        int idx = chunkIndex(handle);
+        ByteBuffer chunk = idx < chunks.size() ? chunks.get(idx) : null;
+        if (chunk == null)
+            throw new IllegalArgumentException("handle "+handle+" is not live in "+this);
+        return chunk;
+    }
+
+    private void ensureScratch(int capacity) {
+        if (scratch.length < capacity)
+            scratch = Arrays.copyOf(scratch, Math.max(capacity, scratch.length*2));
+    }
+
+    private static int putInt(byte[] a, int pos, int value) {
+        a[pos  ] = (byte) (value >>> 24);
+        a[pos+1] = (byte) (value >>> 16);
+        a[pos+2] = (byte) (value >>>  8);
+        a[pos+3] = (byte)  value;
+        return pos+4;
+    }
+
+    private static ByteBuffer acquire(int required) {
+        if (required > CHUNK_BYTES)
+            return ByteBuffer.allocateDirect(required);
+        ByteBuffer chunk = POOL.poll();
+        if (chunk == null)
+            return ByteBuffer.allocateDirect(CHUNK_BYTES);
+        POOLED.decrementAndGet();
+        return chunk;
+    }
+
+    private static void release(ByteBuffer chunk) {
+        if (chunk.capacity() == CHUNK_BYTES && POOLED.incrementAndGet() <= MAX_POOLED_CHUNKS)
+            POOL.add(chunk);
+        else if (chunk.capacity() == CHUNK_BYTES)
+            POOLED.decrementAndGet();
+    }
+}
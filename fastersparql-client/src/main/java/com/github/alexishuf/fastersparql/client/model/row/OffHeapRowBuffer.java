@@ -0,0 +1,100 @@
+package com.github.alexishuf.fastersparql.client.model.row;
+
+import com.github.alexishuf.fastersparql.client.util.ItemBuffer;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An {@link ItemBuffer} of rows whose contents are stored in an {@link OffHeapRowArena}.
+ *
+ * <p>Only the {@code long} handles are kept on the heap, in a circular array. Chunks of the
+ * arena are released as soon as all rows in them are removed, and all chunks are released
+ * on {@link OffHeapRowBuffer#close()}.</p>
+ *
+ * <p>{@link OffHeapRowBuffer#get(int)} decodes the row. The last {@code CACHED_ROWS} decoded
+ * rows are kept (indexed by their position since the buffer creation), so that readers
+ * that are close to each other, such as the subscribers of a
+ * {@link com.github.alexishuf.fastersparql.client.util.reactive.TeeProcessor} replaying its
+ * history, share the decoded row object instead of decoding it again. As with on-heap
+ * buffers, callers must not mutate rows obtained from {@code get()}. Instances are not
+ * thread-safe.</p>
+ */
+public final class OffHeapRowBuffer<R> implements ItemBuffer<R> {
+    private static final int CACHED_ROWS = 64;
+    private final OffHeapRowArena<R> arena;
+    private long[] handles = new long[64];
+    private int first, size;
+    /* number of rows ever removed: the position of get(i) since creation is removed+i */
+    private long removed;
+    private final long[] cachedPositions = new long[CACHED_ROWS];
+    private final Object[] cachedRows = new Object[CACHED_ROWS];
+
+    public OffHeapRowBuffer(RowOperations rowOps, List<String> vars) {
+        this.arena = new OffHeapRowArena<>(rowOps, vars);
+        Arrays.fill(cachedPositions, -1);
+    }
+
+    @Override public int size() { return size; }
+
+    @Override public void add(R item) {
+        if (size == handles.length) {
+            long[] grown = new long[handles.length*2];
+            int tail = handles.length - first;
+            System.arraycopy(handles, first, grown, 0, tail);
+            System.arraycopy(handles, 0, grown, tail, first);
+            handles = grown;
+            first = 0;
+        }
+        handles[(first + size) & (handles.length-1)] = arena.add(item);
+        ++size;
+    }
+
+    @Override public R get(int i) {
+        if (i < 0 || i >= size)
+            throw new IndexOutOfBoundsException("index="+i+", size="+size);
+        long position = removed + i;
+        int slot = (int) (position & (CACHED_ROWS-1));
+        if (cachedPositions[slot] != position) {
+            cachedRows[slot] = arena.get(handles[(first + i) & (handles.length-1)]);
+            cachedPositions[slot] = position;
+        }
+        //noinspection unchecked
+        return (R) cachedRows[slot];
+    }
+
+    @Override public void removeFirst(int n) {
+        if (n < 0 || n > size)
+            throw new IllegalArgumentException("Cannot remove first "+n+" elements out of "+size);
+        for (int i = 0, end = Math.min(n, CACHED_ROWS); i < end; i++) {
+            int slot = (int) ((removed + i) & (CACHED_ROWS-1));
+            cachedPositions[slot] = -1;
+            cachedRows[slot] = null;
+        }
+        removed += n;
+        first = (first + n) & (handles.length-1);
+        size -= n;
+        if (size == 0) {
+            arena.clear();
+            first = 0;
+        } else {
+            arena.releaseChunksBefore(OffHeapRowArena.chunkIndex(handles[first]));
+        }
+    }
+
+    @Override public void close() {
+        removeFirst(size);
+        first = 0;
+        arena.close();
+        handles = new long[1];
+    }
+
+    @Override public String toString() {
+        int boundSize = Math.min(size, 16);
+        long[] shown = new long[boundSize];
+        for (int i = 0; i < boundSize; i++)
+            shown[i] = handles[(first + i) & (handles.length-1)];
+        return "OffHeapRowBuffer{size="+size+", handles="+Arrays.toString(shown)
+                +(boundSize < size ? "..." : "")+", arena="+arena+"}";
+    }
+}
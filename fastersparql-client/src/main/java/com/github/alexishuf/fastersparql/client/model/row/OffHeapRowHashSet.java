@@ -0,0 +1,89 @@
+package com.github.alexishuf.fastersparql.client.model.row;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@link RowSet} whose rows are stored encoded in an {@link OffHeapRowArena}.
+ *
+ * <p>The hash table is an open-addressing pair of primitive arrays (row handles and hashes),
+ * thus adding a row allocates no long-lived heap objects. Rows are compared by their encoded
+ * bytes. The arena is released on {@link OffHeapRowHashSet#close()}. Instances are not
+ * thread-safe.</p>
+ */
+public final class OffHeapRowHashSet<R> implements RowSet<R> {
+    private static final long FREE = -1;
+    private final OffHeapRowArena<R> arena;
+    private long[] handles;
+    private int[] hashes;
+    private int size;
+
+    public OffHeapRowHashSet(RowOperations rowOps, List<String> vars) {
+        this.arena = new OffHeapRowArena<>(rowOps, vars);
+        this.handles = newHandles(1024);
+        this.hashes = new int[1024];
+    }
+
+    public int size() { return size; }
+
+    @Override public boolean add(@Nullable R row) {
+        int hash = arena.encode(row);
+        int slot = find(hash);
+        if (handles[slot] != FREE)
+            return false;
+        handles[slot] = arena.addEncoded();
+        hashes[slot] = hash;
+        if (++size*2 > handles.length)
+            rehash();
+        return true;
+    }
+
+    @Override public boolean contains(@Nullable R row) {
+        return handles[find(arena.encode(row))] != FREE;
+    }
+
+    @Override public void close() {
+        size = 0;
+        handles = newHandles(1);
+        hashes = new int[1];
+        arena.close();
+    }
+
+    @Override public String toString() {
+        return "OffHeapRowHashSet{size="+size+", arena="+arena+"}";
+    }
+
+    /** Slot with the last encoded row or the free slot where it would be inserted */
+    private int find(int hash) {
+        int mask = handles.length-1;
+        for (int i = hash & mask; ; i = (i+1) & mask) {
+            long handle = handles[i];
+            if (handle == FREE || (hashes[i] == hash && arena.equalsEncoded(handle)))
+                return i;
+        }
+    }
+
+    private void rehash() {
+        long[] oldHandles = handles;
+        int[] oldHashes = hashes;
+        handles = newHandles(oldHandles.length*2);
+        hashes = new int[handles.length];
+        int mask = handles.length-1;
+        for (int j = 0; j < oldHandles.length; j++) {
+            if (oldHandles[j] == FREE) continue;
+            int i = oldHashes[j] & mask;
+            while (handles[i] != FREE)
+                i = (i+1) & mask;
+            handles[i] = oldHandles[j];
+            hashes[i] = oldHashes[j];
+        }
+    }
+
+    private static long[] newHandles(int capacity) {
+        long[] array = new long[capacity];
+        Arrays.fill(array, FREE);
+        return array;
+    }
+}
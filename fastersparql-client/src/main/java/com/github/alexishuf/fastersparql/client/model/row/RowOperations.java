@@ -42,6 +42,24 @@ public interface RowOperations {
      */
     @Nullable Object get(@Nullable Object row, int idx, String var);
 
+    /**
+     * Copy the value of the {@code fromIdx}-th variable ({@code var}) of {@code from} into
+     * the {@code toIdx}-th variable of {@code to}.
+     *
+     * <p>The default implementation {@link RowOperations#set(Object, int, String, Object)}s
+     * the result of {@link RowOperations#get(Object, int, String)}. Implementations whose
+     * values are primitives should override this to avoid boxing.</p>
+     *
+     * @param from the row to read from. If {@code null}, {@code null} will be set on {@code to}
+     * @param fromIdx the index of {@code var} in the vars of {@code from}
+     * @param to the row to write to.
+     * @param toIdx the index of {@code var} in the vars of {@code to}
+     * @param var the name of the variable being copied
+     */
+    default void copy(@Nullable Object from, int fromIdx, Object to, int toIdx, String var) {
+        set(to, toIdx, var, get(from, fromIdx, var));
+    }
+
     /**
      * Same as {@link RowOperations#get(Object, int, String)}, but converts the returned object
      * to a String representing the RDF term in N-Triples syntax.
@@ -58,6 +76,18 @@ public interface RowOperations {
      */
     @Nullable String getNT(@Nullable Object row, int idx, String var);
 
+    /**
+     * Whether values obtained from {@link RowOperations#getNT(Object, int, String)} can be
+     * given to {@link RowOperations#set(Object, int, String, Object)} to restore a value
+     * equal to the one originally in the row.
+     *
+     * <p>Operators that serialize rows as N-Triples (e.g., to spill them to disk) must only
+     * do so if this returns {@code true}.</p>
+     *
+     * @return {@code true} iff rows can be restored from their N-Triples serialization.
+     */
+    default boolean restoresNT() { return false; }
+
     /**
      * Create a new row with {@code null} set for each variable in {@code vars}.
      *
@@ -2,7 +2,7 @@ package com.github.alexishuf.fastersparql.client.model.row;
 
 import org.checkerframework.checker.nullness.qual.Nullable;
 
-public interface RowSet<R> {
+public interface RowSet<R> extends AutoCloseable {
     class Adapter {
         private final RowOperations rowOps;
         private final Object row;
@@ -21,4 +21,7 @@ public interface RowSet<R> {
 
     boolean add(@Nullable R row);
     boolean contains(@Nullable R row);
+
+    /** Release resources held by this set. The set must not be used afterwards. */
+    @Override default void close() { }
 }
@@ -0,0 +1,427 @@
+package com.github.alexishuf.fastersparql.client.model.row;
+
+import com.github.alexishuf.fastersparql.client.util.FasterSparqlProperties;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A concurrent intern table mapping RDF terms (in N-Triples syntax) to {@code long} ids.
+ *
+ * <p>Term bytes are stored (UTF-8 encoded) in append-only direct (off-heap) {@link ByteBuffer}
+ * chunks, and the id of a term encodes the generation, the chunk and the offset within the
+ * chunk, thus {@link TermDictionary#term(long)} needs no index. The hash index that maps terms
+ * to ids is a pair of on-heap primitive arrays, so interned terms do not create per-term
+ * objects.</p>
+ *
+ * <p>Terms are interned into the current <strong>generation</strong>. Once allocating a new
+ * chunk would exceed {@code maxBytes}, a new generation is started and older generations that
+ * are not pinned by a {@link Lease} are retired, releasing their memory. A term has a single
+ * id among all live generations. Ids obtained while holding a {@link Lease} (see
+ * {@link TermDictionary#acquire()}) remain valid until the lease is closed. Ids obtained
+ * without a lease remain valid until the dictionary next fills up. Only if leased generations
+ * hold all {@code maxBytes}, {@link TermDictionary#intern(CharSequence)} throws
+ * {@link FullException}.</p>
+ *
+ * <p>Generations are numbered sequentially and ids carry the low {@code TAG_BITS} (20) bits of
+ * that number. {@link TermDictionary#term(long)} detects ids of a retired generation as long as
+ * fewer than 2<sup>20</sup> generations were started since it was retired (with the default
+ * limits, that is over 2<sup>20</sup> times {@code maxBytes} of interned terms). Beyond that, a
+ * stale id may alias a live generation and decode to an unrelated term.</p>
+ *
+ * <p>The id {@link TermDictionary#NULL_ID} ({@code 0}) is never assigned and represents
+ * an unbound value.</p>
+ */
+public final class TermDictionary {
+    /** An id never assigned to any term. Represents an unbound variable. */
+    public static final long NULL_ID = 0;
+    private static final int DEF_CHUNK_BYTES = 1024*1024;
+    private static final int MIN_TABLE_CAPACITY = 1024;
+    /* id layout: [tag:TAG_BITS][chunk index + 1:CHUNK_BITS][offset:32] */
+    private static final int TAG_BITS = 20, CHUNK_BITS = 12;
+    private static final long TAG_MASK = (1L << TAG_BITS) - 1;
+    private static final int MAX_CHUNKS = (1 << CHUNK_BITS) - 1;
+
+    private static final class GlobalHolder {
+        static final TermDictionary INSTANCE
+                = new TermDictionary(FasterSparqlProperties.termDictMaxBytes());
+    }
+
+    private static final class Generation {
+        final long number, tag;
+        volatile ByteBuffer[] chunks = new ByteBuffer[0];
+        int allocatedBytes, lastChunkUsed, leases;
+        /* open-addressing index: ids[i] == NULL_ID marks a free slot */
+        long[] ids = new long[MIN_TABLE_CAPACITY];
+        int[] hashes = new int[MIN_TABLE_CAPACITY];
+        int size;
+
+        Generation(long number) {
+            this.number = number;
+            this.tag = number & TAG_MASK;
+        }
+    }
+
+    private final StampedLock lock = new StampedLock();
+    private final @Positive int maxBytes, chunkBytes;
+    /* live generations, oldest first. The last one is where new terms are interned */
+    private volatile Generation[] generations = {new Generation(1)};
+    private int allocatedBytes;
+
+    /**
+     * Thrown when a new term cannot be interned because generations pinned by {@link Lease}s
+     * already use the {@code maxBytes} given at construction.
+     */
+    public static class FullException extends IllegalStateException {
+        public FullException(int size, int maxBytes) {
+            super("TermDictionary with "+size+" leased terms has no space left within "
+                  +maxBytes+" bytes");
+        }
+    }
+
+    /**
+     * Pins all generations live at {@link TermDictionary#acquire()} and all generations
+     * started afterwards, so that ids interned while the lease is open remain valid until
+     * {@link Lease#close()}.
+     */
+    public final class Lease implements AutoCloseable {
+        private @Nullable Generation pinned;
+
+        private Lease(Generation pinned) { this.pinned = pinned; }
+
+        /** Un-pin the generations. This method is idempotent. */
+        @Override public void close() {
+            long stamp = lock.writeLock();
+            try {
+                if (pinned != null) {
+                    --pinned.leases;
+                    pinned = null;
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * The global dictionary, bounded by {@link FasterSparqlProperties#termDictMaxBytes()} and
+     * shared by {@link com.github.alexishuf.fastersparql.client.model.row.impl.TermIdArrayOperations}
+     * and {@link com.github.alexishuf.fastersparql.client.parser.row.TermIdArrayRowParser}.
+     */
+    public static TermDictionary global() { return GlobalHolder.INSTANCE; }
+
+    public TermDictionary(@Positive int maxBytes) {
+        this(maxBytes, Math.min(maxBytes, DEF_CHUNK_BYTES));
+    }
+
+    public TermDictionary(@Positive int maxBytes, @Positive int chunkBytes) {
+        if (maxBytes < 1 || chunkBytes < 1)
+            throw new IllegalArgumentException("maxBytes and chunkBytes must be positive");
+        this.maxBytes = maxBytes;
+        this.chunkBytes = chunkBytes;
+    }
+
+    public @Positive int maxBytes() { return maxBytes; }
+
+    /** Number of interned terms in live generations. */
+    public @NonNegative int size() {
+        long stamp = lock.readLock();
+        try {
+            return size(generations);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** Number of off-heap bytes allocated for storing terms of live generations. */
+    public @NonNegative int allocatedBytes() {
+        long stamp = lock.readLock();
+        try {
+            return allocatedBytes;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** Number of live generations. */
+    public @Positive int generations() {
+        return generations.length;
+    }
+
+    /**
+     * Pin the live generations (and all generations started later) until the returned
+     * {@link Lease} is closed.
+     *
+     * <p>Rows of ids must only be used while a lease acquired before the ids were interned
+     * is open. Closing the lease does not release memory by itself, generations are only
+     * retired once the dictionary is full.</p>
+     *
+     * @return a new open {@link Lease}.
+     */
+    public Lease acquire() {
+        long stamp = lock.writeLock();
+        try {
+            Generation oldest = generations[0];
+            ++oldest.leases;
+            return new Lease(oldest);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Get the id for {@code term}, interning it if needed.
+     *
+     * @param term an RDF term in N-Triples syntax or {@code null}
+     * @return {@link TermDictionary#NULL_ID} if {@code term} is null, else the id of the term.
+     * @throws FullException if {@code term} is not yet interned and leased generations leave
+     *                       no space for it.
+     */
+    public long intern(@Nullable CharSequence term) {
+        return term == null ? NULL_ID : intern(term.toString().getBytes(UTF_8));
+    }
+
+    /** Equivalent to {@link TermDictionary#intern(byte[], int, int)} for the whole array. */
+    public long intern(byte @Nullable [] utf8) {
+        return utf8 == null ? NULL_ID : intern(utf8, 0, utf8.length);
+    }
+
+    /**
+     * Get the id for the term encoded as UTF-8 in {@code utf8[begin:begin+len]}, interning it
+     * if needed. This does not copy nor decode the bytes of an already interned term.
+     *
+     * @throws FullException if the term is not yet interned and leased generations leave
+     *                       no space for it.
+     */
+    public long intern(byte[] utf8, int begin, int len) {
+        int hash = hash(utf8, begin, len);
+        long stamp = lock.readLock();
+        try {
+            long id = find(utf8, begin, len, hash);
+            if (id != NULL_ID)
+                return id;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        stamp = lock.writeLock();
+        try {
+            long id = find(utf8, begin, len, hash);
+            if (id == NULL_ID) {
+                id = append(utf8, begin, len);
+                insert(generations[generations.length-1], id, hash);
+            }
+            return id;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Get the id of {@code term} without interning it.
+     *
+     * @return the id or {@link TermDictionary#NULL_ID} if {@code term} is null or not interned.
+     */
+    public long find(@Nullable CharSequence term) {
+        if (term == null)
+            return NULL_ID;
+        byte[] utf8 = term.toString().getBytes(UTF_8);
+        int hash = hash(utf8, 0, utf8.length);
+        long stamp = lock.readLock();
+        try {
+            return find(utf8, 0, utf8.length, hash);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Get the term (in N-Triples syntax) for the given id.
+     *
+     * @param id an id returned by {@link TermDictionary#intern(CharSequence)} or
+     *           {@link TermDictionary#NULL_ID}.
+     * @return {@code null} if {@code id == NULL_ID}, else the interned term.
+     * @throws IllegalArgumentException if {@code id} was not assigned by this dictionary or
+     *                                  if its generation has been retired
+     */
+    public @Nullable String term(long id) {
+        if (id == NULL_ID)
+            return null;
+        ByteBuffer chunk = chunk(id);
+        int offset = (int) id, capacity = chunk.capacity();
+        int len = offset <= capacity-4 ? chunk.getInt(offset) : -1;
+        if (len < 0 || len > capacity-4-offset)
+            throw new IllegalArgumentException("id "+id+" is not a term start in "+this);
+        byte[] bytes = new byte[len];
+        ByteBuffer view = chunk.duplicate();
+        view.position(offset+4);
+        view.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    @Override public String toString() {
+        return "TermDictionary{size="+size()+", allocatedBytes="+allocatedBytes()
+                +", generations="+generations()+", maxBytes="+maxBytes+"}";
+    }
+
+    /* --- --- --- implementation details --- --- --- */
+
+    private ByteBuffer chunk(long id) {
+        long tag = id >>> (64-TAG_BITS);
+        int chunkIdx = chunkIndex(id);
+        if (chunkIdx >= 0 && (int) id >= 0) {
+            for (Generation g : generations) {
+                if (g.tag != tag) continue;
+                ByteBuffer[] chunks = g.chunks;
+                if (chunkIdx < chunks.length)
+                    return chunks[chunkIdx];
+                break;
+            }
+        }
+        throw new IllegalArgumentException("id "+id+" not assigned by this TermDictionary "+
+                                           "or from a retired generation");
+    }
+
+    private static int chunkIndex(long id) {
+        return (int) (id >>> 32 & MAX_CHUNKS) - 1;
+    }
+
+    private static int hash(byte[] utf8, int begin, int len) {
+        int h = 0x811c9dc5;
+        for (int i = begin, end = begin+len; i < end; i++)
+            h = (h ^ utf8[i]) * 0x01000193;
+        return h ^ (h >>> 16);
+    }
+
+    /** Find the id for the given term in any live generation. Caller must hold the lock. */
+    private long find(byte[] utf8, int begin, int len, int hash) {
+        Generation[] generations = this.generations;
+        for (int g = generations.length-1; g >= 0; g--) {
+            long[] ids = generations[g].ids;
+            int[] hashes = generations[g].hashes;
+            int mask = ids.length-1;
+            for (int i = hash & mask; ; i = (i+1) & mask) {
+                long id = ids[i];
+                if (id == NULL_ID)
+                    break;
+                if (hashes[i] == hash && sameBytes(generations[g], id, utf8, begin, len))
+                    return id;
+            }
+        }
+        return NULL_ID;
+    }
+
+    private static boolean sameBytes(Generation generation, long id,
+                                     byte[] utf8, int begin, int len) {
+        ByteBuffer chunk = generation.chunks[chunkIndex(id)];
+        int offset = (int) id;
+        if (chunk.getInt(offset) != len)
+            return false;
+        for (int i = 0, o = offset+4; i < len; i++, o++) {
+            if (chunk.get(o) != utf8[begin+i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Store the term bytes in the current generation, starting a new generation if there is
+     * no space left, and return its new id. Caller must hold the write lock.
+     */
+    private long append(byte[] utf8, int begin, int len) {
+        int required = len+4;
+        Generation current = generations[generations.length-1];
+        ByteBuffer[] chunks = current.chunks;
+        int last = chunks.length-1;
+        if (last < 0 || chunks[last].capacity() - current.lastChunkUsed < required) {
+            int capacity = Math.max(chunkBytes, required);
+            if (capacity > maxBytes - allocatedBytes || chunks.length == MAX_CHUNKS) {
+                current = rotate();
+                chunks = current.chunks;
+                if (capacity > maxBytes - allocatedBytes || chunks.length == MAX_CHUNKS)
+                    throw new FullException(size(generations), maxBytes);
+                last = chunks.length-1;
+            }
+            ByteBuffer[] grown = Arrays.copyOf(chunks, chunks.length+1);
+            grown[++last] = ByteBuffer.allocateDirect(capacity);
+            allocatedBytes += capacity;
+            current.allocatedBytes += capacity;
+            current.lastChunkUsed = 0;
+            chunks = grown;
+        }
+        ByteBuffer chunk = chunks[last];
+        int offset = current.lastChunkUsed;
+        chunk.putInt(offset, len);
+        for (int i = 0; i < len; i++)
+            chunk.put(offset+4+i, utf8[begin+i]);
+        current.lastChunkUsed += required;
+        current.chunks = chunks; // volatile write publishes the new chunk and its contents
+        return current.tag << (64-TAG_BITS) | (long) (last+1) << 32 | offset;
+    }
+
+    /**
+     * Start a new generation (unless the current is empty) and retire the oldest generations
+     * not pinned by a {@link Lease}. Caller must hold the write lock.
+     *
+     * @return the new current generation.
+     */
+    private Generation rotate() {
+        Generation[] generations = this.generations;
+        int n = generations.length;
+        long number = generations[n-1].number + 1;
+        // a new generation cannot share the tag of the oldest live generation
+        if (generations[n-1].chunks.length > 0 && number - generations[0].number <= TAG_MASK) {
+            generations = Arrays.copyOf(generations, ++n);
+            generations[n-1] = new Generation(number);
+        }
+        int retired = 0;
+        while (retired < n-1 && generations[retired].leases == 0)
+            allocatedBytes -= generations[retired++].allocatedBytes;
+        if (retired > 0)
+            generations = Arrays.copyOfRange(generations, retired, n);
+        this.generations = generations;
+        return generations[generations.length-1];
+    }
+
+    private static int size(Generation[] generations) {
+        int size = 0;
+        for (Generation g : generations)
+            size += g.size;
+        return size;
+    }
+
+    /** Add {@code id} to the index of {@code generation}. Caller must hold the write lock. */
+    private static void insert(Generation generation, long id, int hash) {
+        if ((generation.size+1)*2 > generation.ids.length)
+            rehash(generation, generation.ids.length*2);
+        long[] ids = generation.ids;
+        int mask = ids.length-1, i = hash & mask;
+        while (ids[i] != NULL_ID)
+            i = (i+1) & mask;
+        ids[i] = id;
+        generation.hashes[i] = hash;
+        ++generation.size;
+    }
+
+    private static void rehash(Generation generation, int capacity) {
+        long[] oldIds = generation.ids;
+        int[] oldHashes = generation.hashes;
+        long[] ids = new long[capacity];
+        int[] hashes = new int[capacity];
+        int mask = capacity-1;
+        for (int j = 0; j < oldIds.length; j++) {
+            if (oldIds[j] == NULL_ID) continue;
+            int i = oldHashes[j] & mask;
+            while (ids[i] != NULL_ID)
+                i = (i+1) & mask;
+            ids[i] = oldIds[j];
+            hashes[i] = oldHashes[j];
+        }
+        generation.ids = ids;
+        generation.hashes = hashes;
+    }
+}
@@ -29,4 +29,6 @@ public class StringArrayOperations extends ArrayOperations {
     @Override public Object createEmpty(List<String> vars) {
         return new String[vars.size()];
     }
+
+    @Override public boolean restoresNT() { return true; }
 }
@@ -0,0 +1,121 @@
+package com.github.alexishuf.fastersparql.client.model.row.impl;
+
+import com.github.alexishuf.fastersparql.client.model.row.RowOperations;
+import com.github.alexishuf.fastersparql.client.model.row.RowOperationsProvider;
+import com.github.alexishuf.fastersparql.client.model.row.TermDictionary;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.github.alexishuf.fastersparql.client.model.row.TermDictionary.NULL_ID;
+
+/**
+ * {@link RowOperations} for {@code long[]} rows whose values are ids of a {@link TermDictionary}.
+ *
+ * <p>{@link TermIdArrayOperations#get(Object, int, String)} returns the id as a {@link Long}
+ * (or {@code null} for {@link TermDictionary#NULL_ID}), thus comparisons and hashing never
+ * touch the term strings. {@link TermIdArrayOperations#getId(Object, int)} returns the
+ * primitive id and {@link TermIdArrayOperations#copy(Object, int, Object, int, String)}
+ * copies it without boxing. {@link TermIdArrayOperations#set(Object, int, String, Object)} accepts
+ * ids as {@link Number}s or terms as {@link CharSequence}s in N-Triples syntax, which are
+ * interned. {@link TermIdArrayOperations#getNT(Object, int, String)} decodes the term.</p>
+ */
+public class TermIdArrayOperations implements RowOperations {
+    private static final TermIdArrayOperations INSTANCE
+            = new TermIdArrayOperations(TermDictionary.global());
+    private final TermDictionary dictionary;
+
+    public static class Provider implements RowOperationsProvider {
+        @Override public RowOperations get(Class<?> specializedClass) {
+            if (!long[].class.equals(specializedClass))
+                throw new IllegalArgumentException("Expected long[], got "+specializedClass);
+            return INSTANCE;
+        }
+
+        @Override public Class<?> rowClass() { return long[].class; }
+    }
+
+    /** Get the instance that uses {@link TermDictionary#global()}. */
+    public static TermIdArrayOperations get() { return INSTANCE; }
+
+    public TermIdArrayOperations(TermDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    public TermDictionary dictionary() { return dictionary; }
+
+    @Override public Class<?> rowClass() { return long[].class; }
+
+    @Override
+    public @Nullable Object set(@Nullable Object row, int idx, String var, @Nullable Object object) {
+        if (row == null)
+            return null;
+        long[] array = (long[]) row;
+        long old = array[idx];
+        if (object == null)
+            array[idx] = NULL_ID;
+        else if (object instanceof Number)
+            array[idx] = ((Number) object).longValue();
+        else if (object instanceof CharSequence)
+            array[idx] = dictionary.intern((CharSequence) object);
+        else
+            throw new IllegalArgumentException("Expected a term id or an N-Triples term");
+        return old == NULL_ID ? null : old;
+    }
+
+    @Override public @Nullable Object get(@Nullable Object row, int idx, String var) {
+        if (row == null)
+            return null;
+        long id = ((long[]) row)[idx];
+        return id == NULL_ID ? null : id;
+    }
+
+    /**
+     * Get the id at {@code idx} without boxing.
+     *
+     * @return the id or {@link TermDictionary#NULL_ID} if {@code row} is null or the value
+     *         at {@code idx} is unbound.
+     */
+    public long getId(@Nullable Object row, int idx) {
+        return row == null ? NULL_ID : ((long[]) row)[idx];
+    }
+
+    @Override
+    public void copy(@Nullable Object from, int fromIdx, Object to, int toIdx, String var) {
+        ((long[]) to)[toIdx] = from == null ? NULL_ID : ((long[]) from)[fromIdx];
+    }
+
+    @Override public @Nullable String getNT(@Nullable Object row, int idx, String var) {
+        return row == null ? null : dictionary.term(((long[]) row)[idx]);
+    }
+
+    @Override public boolean restoresNT() { return true; }
+
+    @Override public Object createEmpty(List<String> vars) {
+        return new long[vars.size()];
+    }
+
+    @Override public boolean equalsSameVars(@Nullable Object left, @Nullable Object right) {
+        return Arrays.equals((long[]) left, (long[]) right);
+    }
+
+    @Override public int hash(@Nullable Object row) {
+        return Arrays.hashCode((long[]) row);
+    }
+
+    @Override public boolean needsCustomHash() {
+        return true;
+    }
+
+    @Override public String toString(@Nullable Object row) {
+        if (row == null) return "[]";
+        long[] array = (long[]) row;
+        StringBuilder sb = new StringBuilder().append('[');
+        for (long id : array)
+            sb.append(dictionary.term(id)).append(", ");
+        if (array.length > 0)
+            sb.setLength(sb.length()-2);
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,17 @@
+package com.github.alexishuf.fastersparql.client.parser.fragment;
+
+import com.github.alexishuf.fastersparql.client.exceptions.SparqlClientServerException;
+import com.github.alexishuf.fastersparql.client.model.SparqlEndpoint;
+
+/**
+ * The server sent an RDF graph serialization that could not be parsed.
+ */
+public class InvalidRDFException extends SparqlClientServerException {
+    public InvalidRDFException(String message) {
+        this(null, message);
+    }
+
+    public InvalidRDFException(SparqlEndpoint endpoint, String message) {
+        super(endpoint, message);
+    }
+}
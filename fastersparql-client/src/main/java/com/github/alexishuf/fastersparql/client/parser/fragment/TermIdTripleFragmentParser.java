@@ -0,0 +1,50 @@
+package com.github.alexishuf.fastersparql.client.parser.fragment;
+
+import com.github.alexishuf.fastersparql.client.model.Graph;
+import com.github.alexishuf.fastersparql.client.model.row.TermDictionary;
+import com.github.alexishuf.fastersparql.client.parser.row.TermIdMappingPublisher;
+import com.github.alexishuf.fastersparql.client.util.Throwing;
+import com.github.alexishuf.fastersparql.client.util.reactive.FSPublisher;
+
+/**
+ * Parses N-Triples, N-Quads and Turtle into {@code long[]} triples (or quads) of
+ * {@link TermDictionary} ids.
+ *
+ * <p>Parsing is done by {@link TripleFragmentParser}, thus graphs are parsed incrementally
+ * and with backpressure. The graph of triples in the default graph of an N-Quads
+ * serialization is {@link TermDictionary#NULL_ID}. Each parsed publisher holds a
+ * {@link TermDictionary.Lease} until it terminates (see {@link TermIdMappingPublisher}).</p>
+ */
+public class TermIdTripleFragmentParser implements FragmentParser<long[]> {
+    public static final TermIdTripleFragmentParser INSTANCE
+            = new TermIdTripleFragmentParser(TermDictionary.global());
+
+    private final TermDictionary dictionary;
+    private final Throwing.Function<String[], long[]> mapper;
+
+    public TermIdTripleFragmentParser(TermDictionary dictionary) {
+        this.dictionary = dictionary;
+        this.mapper = in -> {
+            long[] out = new long[in.length];
+            for (int i = 0; i < in.length; i++)
+                out[i] = dictionary.intern(in[i]);
+            return out;
+        };
+    }
+
+    public TermDictionary dictionary() { return dictionary; }
+
+    @Override public Class<long[]> fragmentClass() {
+        return long[].class;
+    }
+
+    @Override public FSPublisher<long[]> parseStrings(Graph<? extends CharSequence> source) {
+        return new TermIdMappingPublisher<>(TripleFragmentParser.INSTANCE.parseStrings(source),
+                                            dictionary, mapper);
+    }
+
+    @Override public FSPublisher<long[]> parseBytes(Graph<byte[]> source) {
+        return new TermIdMappingPublisher<>(TripleFragmentParser.INSTANCE.parseBytes(source),
+                                            dictionary, mapper);
+    }
+}
@@ -0,0 +1,161 @@
+package com.github.alexishuf.fastersparql.client.parser.fragment;
+
+import com.github.alexishuf.fastersparql.client.model.Graph;
+import com.github.alexishuf.fastersparql.client.parser.fragment.TriplesParser.Syntax;
+import com.github.alexishuf.fastersparql.client.util.MediaType;
+import com.github.alexishuf.fastersparql.client.util.reactive.AbstractProcessor;
+import com.github.alexishuf.fastersparql.client.util.reactive.FSPublisher;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.reactivestreams.Subscription;
+
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link FragmentParser} that incrementally parses N-Triples, N-Quads and Turtle into
+ * {@code String[]} triples (or quads, for N-Quads) of terms in N-Triples syntax.
+ *
+ * <p>The syntax is chosen from {@link Graph#mediaType()} (see
+ * {@link TriplesParser.Syntax#forMediaType(MediaType)}). Input fragments are parsed as they
+ * arrive and only the last incomplete statement is retained between fragments, thus the
+ * whole serialization is never held in memory.</p>
+ *
+ * <p>Downstream demand is honored: a new fragment is only requested from upstream after all
+ * triples from previous fragments were delivered and there is unsatisfied demand.</p>
+ */
+public class TripleFragmentParser implements FragmentParser<String[]> {
+    public static final TripleFragmentParser INSTANCE = new TripleFragmentParser();
+
+    @Override public Class<String[]> fragmentClass() {
+        return String[].class;
+    }
+
+    @Override public FSPublisher<String[]> parseStrings(Graph<? extends CharSequence> source) {
+        return new TriplesProcessor<>(source, null);
+    }
+
+    @Override public FSPublisher<String[]> parseBytes(Graph<byte[]> source) {
+        return new TriplesProcessor<>(source, source.charset());
+    }
+
+    /**
+     * Feeds fragments received from upstream into a {@link TriplesParser} and delivers
+     * the parsed triples. Subclasses may override
+     * {@link TriplesProcessor#feed(TriplesParser, Object)} to support other fragment types.
+     */
+    protected static class TriplesProcessor<I> extends AbstractProcessor<I, String[]> {
+        private final Graph<? extends I> graph;
+        private final @Nullable Future<Charset> charset;
+        private @Nullable TriplesParser parser;
+        private final ArrayDeque<String[]> queue = new ArrayDeque<>();
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private final AtomicBoolean fragmentRequested = new AtomicBoolean();
+        private volatile boolean upstreamCompleted;
+
+        protected TriplesProcessor(Graph<? extends I> graph,
+                                   @Nullable Future<Charset> charset) {
+            super(graph.publisher());
+            this.graph = graph;
+            this.charset = charset;
+        }
+
+        private TriplesParser parser() throws Exception {
+            if (parser == null) {
+                MediaType mt = graph.mediaType().get();
+                Syntax syntax = Syntax.forMediaType(mt);
+                if (syntax == null)
+                    throw new InvalidRDFException("Cannot parse triples from "+mt);
+                Charset cs = charset == null ? null : charset.get();
+                parser = cs == null ? new TriplesParser(syntax, this::enqueue)
+                                    : new TriplesParser(syntax, cs, this::enqueue);
+            }
+            return parser;
+        }
+
+        private void enqueue(String[] triple) {
+            synchronized (queue) { queue.add(triple); }
+        }
+
+        @Override protected Subscription createDownstreamSubscription() {
+            return new Subscription() {
+                @Override public void request(long n) {
+                    if (n <= 0) {
+                        onError(new IllegalArgumentException("request("+n+"): n must be > 0"));
+                    } else if (!terminated.get()) {
+                        requested.getAndUpdate(v -> v+n < 0 ? Long.MAX_VALUE : v+n);
+                        drain();
+                    }
+                }
+                @Override public void cancel() {
+                    if (terminated.compareAndSet(false, true)) {
+                        cancelUpstream();
+                        onTerminate(null, true);
+                    }
+                }
+            };
+        }
+
+        /**
+         * Deliver queued triples while there is demand, requesting a new fragment when the
+         * queue is exhausted. Only one thread delivers at a time: other callers just signal
+         * the delivering thread to check the queue again.
+         */
+        private void drain() {
+            if (wip.getAndIncrement() != 0)
+                return;
+            do {
+                while (requested.get() > 0 && !terminated.get()) {
+                    String[] triple;
+                    synchronized (queue) { triple = queue.poll(); }
+                    if (triple == null) break;
+                    requested.decrementAndGet();
+                    emit(triple);
+                }
+                boolean empty;
+                synchronized (queue) { empty = queue.isEmpty(); }
+                if (empty && !terminated.get()) {
+                    if (upstreamCompleted)
+                        completeDownstream(null);
+                    else if (requested.get() > 0 && fragmentRequested.compareAndSet(false, true))
+                        upstream.request(1);
+                }
+            } while (wip.decrementAndGet() != 0);
+        }
+
+        /** Feed {@code fragment}, a {@code byte[]} or {@link CharSequence}, into {@code parser}. */
+        protected void feed(TriplesParser parser, I fragment) {
+            if (fragment instanceof byte[])
+                parser.feed((byte[]) fragment);
+            else
+                parser.feed((CharSequence) fragment);
+        }
+
+        @Override protected void handleOnNext(I fragment) throws Exception {
+            fragmentRequested.set(false);
+            feed(parser(), fragment);
+            drain();
+        }
+
+        @Override public void onComplete() {
+            if (terminated.get())
+                return;
+            try {
+                parser().end();
+            } catch (Throwable t) {
+                completeDownstream(t);
+                return;
+            }
+            upstreamCompleted = true;
+            drain();
+        }
+
+        @Override protected void onTerminate(@Nullable Throwable error, boolean cancelled) {
+            synchronized (queue) { queue.clear(); }
+        }
+    }
+}
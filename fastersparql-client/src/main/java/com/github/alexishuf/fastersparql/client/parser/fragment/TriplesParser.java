@@ -0,0 +1,722 @@
+package com.github.alexishuf.fastersparql.client.parser.fragment;
+
+import com.github.alexishuf.fastersparql.client.model.RDFMediaTypes;
+import com.github.alexishuf.fastersparql.client.util.MediaType;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Incremental parser for N-Triples, N-Quads and Turtle.
+ *
+ * <p>Input is fed in arbitrary fragments (text, bytes or {@link ByteBuffer}s), which may end
+ * in the middle of terms or even of multi-byte characters. Only the current incomplete
+ * statement is retained between fragments: every complete statement is parsed and its triples
+ * are delivered to the sink as soon as its terminating {@code .} is received.</p>
+ *
+ * <p>Triples are delivered as {@code String[]} with the subject, predicate and object in
+ * N-Triples syntax. Prefixed names, relative IRIs, {@code a}, numbers, booleans, blank node
+ * property lists and collections are expanded into their N-Triples form. For
+ * {@link Syntax#NQ}, arrays have a fourth element, the graph, which is null for triples in
+ * the default graph.</p>
+ *
+ * <p>Instances are not thread-safe.</p>
+ */
+public final class TriplesParser {
+    public enum Syntax {
+        NT, NQ, TTL;
+
+        /** Number of terms in arrays delivered to the sink. */
+        public int arity() { return this == NQ ? 4 : 3; }
+
+        /**
+         * Choose the {@link Syntax} for parsing a serialization with the given media type.
+         *
+         * @param mediaType the media type, which may be null or a wildcard if unknown.
+         * @return the {@link Syntax} or null if the media type is not supported. If
+         *         {@code mediaType} is null or has wildcards, {@link Syntax#TTL} is returned,
+         *         since it can also parse N-Triples.
+         */
+        public static @Nullable Syntax forMediaType(@Nullable MediaType mediaType) {
+            if (mediaType == null || mediaType.subtype().equals("*"))
+                return TTL;
+            if (RDFMediaTypes.NT.accepts(mediaType))
+                return NT;
+            if (RDFMediaTypes.NQ.accepts(mediaType))
+                return NQ;
+            if (RDFMediaTypes.TTL.accepts(mediaType) || RDFMediaTypes.N3.accepts(mediaType)
+                    || mediaType.subtype().equals("x-turtle"))
+                return TTL;
+            return null;
+        }
+    }
+
+    private static final String RDF = "http://www.w3.org/1999/02/22-rdf-syntax-ns#";
+    private static final String XSD = "http://www.w3.org/2001/XMLSchema#";
+    private static final String TYPE = "<"+RDF+"type>";
+    private static final String FIRST = "<"+RDF+"first>";
+    private static final String REST = "<"+RDF+"rest>";
+    private static final String NIL = "<"+RDF+"nil>";
+    private static final String XSD_INTEGER = "<"+XSD+"integer>";
+    private static final String XSD_DECIMAL = "<"+XSD+"decimal>";
+    private static final String XSD_DOUBLE = "<"+XSD+"double>";
+    private static final String XSD_BOOLEAN = "<"+XSD+"boolean>";
+
+    private static final byte NORMAL = 0, IRI = 1, COMMENT = 2, STRING = 3, LONG_STRING = 4;
+    private static final byte UNKNOWN = 0, TURTLE_STMT = 1, SPARQL_DIRECTIVE = 2;
+
+    private final Syntax syntax;
+    private final Consumer<String[]> sink;
+    private final Charset charset;
+    private final Map<String, String> prefixes = new HashMap<>();
+    private @Nullable String base;
+    private long anonCount;
+
+    /* --- --- --- statement boundaries scanner state --- --- --- */
+    private final StringBuilder buf = new StringBuilder();
+    private int scan, stmtBegin, depth;
+    private byte state = NORMAL, stmtType = UNKNOWN;
+    private char quote;
+    private boolean escaped, ended;
+
+    /* --- --- --- decoder state --- --- --- */
+    private @Nullable CharsetDecoder decoder;
+    private @Nullable CharBuffer decoded;
+    private @Nullable ByteBuffer carry;
+
+    /* --- --- --- current statement being parsed --- --- --- */
+    private String s = "";
+    private int pos;
+
+    public TriplesParser(Syntax syntax, Consumer<String[]> sink) {
+        this(syntax, UTF_8, sink);
+    }
+
+    /**
+     * Create a parser.
+     *
+     * @param syntax the RDF syntax to parse
+     * @param charset the charset used to decode {@code byte[]} and {@link ByteBuffer} input
+     * @param sink receiver of triples (or quads, for {@link Syntax#NQ}).
+     */
+    public TriplesParser(Syntax syntax, Charset charset, Consumer<String[]> sink) {
+        this.syntax = syntax;
+        this.charset = charset;
+        this.sink = sink;
+    }
+
+    public Syntax syntax() { return syntax; }
+
+    /**
+     * Parse all statements completed by {@code fragment}.
+     *
+     * @throws InvalidRDFException if a complete statement is not valid
+     * @throws IllegalStateException if called after {@link TriplesParser#end()}
+     */
+    public void feed(CharSequence fragment) {
+        checkNotEnded();
+        buf.append(fragment);
+        scanStatements();
+    }
+
+    /** Equivalent to {@link TriplesParser#feed(ByteBuffer)} on the whole array. */
+    public void feed(byte[] fragment) {
+        feed(ByteBuffer.wrap(fragment));
+    }
+
+    /**
+     * Decode the remaining bytes of {@code fragment} and parse all statements it completes.
+     *
+     * <p>The buffer position will be advanced to its limit. The buffer is only read during
+     * this call and is not retained: trailing bytes of an incomplete character are copied.</p>
+     *
+     * @throws InvalidRDFException if a complete statement is not valid
+     * @throws IllegalStateException if called after {@link TriplesParser#end()}
+     */
+    public void feed(ByteBuffer fragment) {
+        checkNotEnded();
+        if (decoder == null) {
+            decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+                                          .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            decoded = CharBuffer.allocate(4096);
+            carry = ByteBuffer.allocate(16);
+        }
+        assert decoded != null && carry != null;
+        // complete the character that straddles fragments, moving only its missing bytes
+        while (carry.position() > 0 && carry.hasRemaining() && fragment.hasRemaining()) {
+            carry.put(fragment.get()).flip();
+            decoder.decode(carry, decoded, false);
+            carry.compact();
+        }
+        while (true) {
+            CoderResult result = decoder.decode(fragment, decoded, false);
+            decoded.flip();
+            buf.append(decoded);
+            decoded.clear();
+            if (result.isUnderflow())
+                break;
+        }
+        if (fragment.hasRemaining())
+            carry.put(fragment);
+        scanStatements();
+    }
+
+    /**
+     * Notify that there will be no more input.
+     *
+     * @throws InvalidRDFException if the input ends with an incomplete or invalid statement.
+     */
+    public void end() {
+        if (ended)
+            return;
+        ended = true;
+        if (carry != null && carry.position() > 0)
+            buf.append('\uFFFD');
+        scanStatements();
+        if (stmtType != UNKNOWN || (state != NORMAL && state != COMMENT)) {
+            String stmt = buf.substring(stmtBegin);
+            throw new InvalidRDFException("Incomplete statement at end of input: "+abbrev(stmt));
+        }
+    }
+
+    /* --- --- --- statement boundaries --- --- --- */
+
+    private void checkNotEnded() {
+        if (ended)
+            throw new IllegalStateException("feed() after end()");
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    private static boolean isNameChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '_' || c == '-' || c == ':' || c == '%' || c == '\\' || c > 0x7F;
+    }
+
+    private static boolean isSparqlDirective(CharSequence cs, int i, String keyword) {
+        int end = i + keyword.length();
+        if (end >= cs.length() || !isWhitespace(cs.charAt(end)))
+            return false;
+        for (int j = 0; j < keyword.length(); j++) {
+            if (Character.toUpperCase(cs.charAt(i+j)) != keyword.charAt(j))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Find and parse complete statements in {@code buf}. The scanner tracks just enough
+     * lexical state to not mistake a {@code .} inside an IRI, string, comment, blank node
+     * property list, collection, prefixed name or number for a statement terminator.
+     */
+    private void scanStatements() {
+        int len = buf.length();
+        for (int i = scan; i < len; i++) {
+            char c = buf.charAt(i);
+            switch (state) {
+                case COMMENT:
+                    if (c == '\n' || c == '\r') state = NORMAL;
+                    break;
+                case IRI:
+                    if (c == '>') {
+                        state = NORMAL;
+                        if (stmtType == SPARQL_DIRECTIVE && depth == 0)
+                            statement(i+1);
+                    }
+                    break;
+                case STRING:
+                    if      (escaped)    escaped = false;
+                    else if (c == '\\')  escaped = true;
+                    else if (c == quote) state = NORMAL;
+                    break;
+                case LONG_STRING:
+                    if (escaped) {
+                        escaped = false;
+                    } else if (c == '\\') {
+                        escaped = true;
+                    } else if (c == quote) {
+                        int j = i;
+                        while (j < len && buf.charAt(j) == quote) ++j;
+                        if (j == len && !ended) {
+                            scan = i;
+                            compact();
+                            return;
+                        }
+                        if (j - i >= 3)
+                            state = NORMAL;
+                        i = j-1;
+                    }
+                    break;
+                default:
+                    if (stmtType == UNKNOWN) {
+                        if (isWhitespace(c)) break;
+                        if (c == '#') { state = COMMENT; break; }
+                        if (len - i < 7 && !ended) {
+                            scan = i;
+                            compact();
+                            return;
+                        }
+                        boolean sparql = isSparqlDirective(buf, i, "PREFIX")
+                                      || isSparqlDirective(buf, i, "BASE");
+                        stmtType = sparql ? SPARQL_DIRECTIVE : TURTLE_STMT;
+                        stmtBegin = i;
+                    }
+                    switch (c) {
+                        case '#': state = COMMENT; break;
+                        case '<': state = IRI;     break;
+                        case '[': case '(': ++depth; break;
+                        case ']': case ')': --depth; break;
+                        case '"': case '\'':
+                            if (len - i < 3 && !ended) {
+                                scan = i;
+                                compact();
+                                return;
+                            }
+                            quote = c;
+                            if (i+2 < len && buf.charAt(i+1) == c && buf.charAt(i+2) == c) {
+                                state = LONG_STRING;
+                                i += 2;
+                            } else {
+                                state = STRING;
+                            }
+                            break;
+                        case '.':
+                            if (depth > 0 || stmtType == SPARQL_DIRECTIVE)
+                                break;
+                            if (i+1 == len && !ended) {
+                                scan = i;
+                                compact();
+                                return;
+                            }
+                            char prev = i > stmtBegin ? buf.charAt(i-1) : ' ';
+                            char next = i+1 < len ? buf.charAt(i+1) : ' ';
+                            // no statement starts with a digit: ".5" is a decimal
+                            boolean decimal = next >= '0' && next <= '9';
+                            if (!decimal && (!isNameChar(prev) || !isNameChar(next)))
+                                statement(i+1);
+                            break;
+                    }
+                    break;
+            }
+        }
+        scan = len;
+        compact();
+    }
+
+    /** Discard already parsed statements from {@code buf}. */
+    private void compact() {
+        if (stmtBegin > 0) {
+            buf.delete(0, stmtBegin);
+            scan -= stmtBegin;
+            stmtBegin = 0;
+        }
+    }
+
+    /** Parse {@code buf[stmtBegin:end]} and prepare the scanner for the next statement. */
+    private void statement(int end) {
+        s = buf.substring(stmtBegin, end);
+        pos = 0;
+        stmtBegin = end;
+        stmtType = UNKNOWN;
+        depth = 0;
+        parseStatement();
+    }
+
+    /* --- --- --- statement parsing --- --- --- */
+
+    private static String abbrev(String string) {
+        return string.length() > 80 ? string.substring(0, 77)+"..." : string;
+    }
+
+    private InvalidRDFException error(String message) {
+        return new InvalidRDFException(message+" at position "+pos+" of statement \""
+                                       +abbrev(s.trim())+"\"");
+    }
+
+    private void skipWs() {
+        while (pos < s.length()) {
+            char c = s.charAt(pos);
+            if (c == '#') {
+                while (pos < s.length() && s.charAt(pos) != '\n' && s.charAt(pos) != '\r')
+                    ++pos;
+            } else if (isWhitespace(c)) {
+                ++pos;
+            } else {
+                break;
+            }
+        }
+    }
+
+    private char peek() {
+        skipWs();
+        return pos < s.length() ? s.charAt(pos) : '\0';
+    }
+
+    private void expect(char c) {
+        if (peek() != c)
+            throw error("Expected '"+c+"'");
+        ++pos;
+    }
+
+    private boolean keyword(String keyword, boolean ignoreCase) {
+        skipWs();
+        int end = pos + keyword.length();
+        if (!s.regionMatches(ignoreCase, pos, keyword, 0, keyword.length()))
+            return false;
+        if (end < s.length() && (isNameChar(s.charAt(end)) && s.charAt(end) != '\\'))
+            return false;
+        pos = end;
+        return true;
+    }
+
+    private void emit(String subject, String predicate, String object) {
+        sink.accept(new String[]{subject, predicate, object});
+    }
+
+    private void parseStatement() {
+        if (syntax == Syntax.NQ) {
+            parseQuad();
+        } else if (keyword("@prefix", false)) {
+            prefixDecl();
+            expect('.');
+        } else if (keyword("@base", false)) {
+            base = iriRef(false);
+            expect('.');
+        } else if (keyword("PREFIX", true)) {
+            prefixDecl();
+        } else if (keyword("BASE", true)) {
+            base = iriRef(false);
+        } else {
+            triples();
+            expect('.');
+        }
+        if (peek() != '\0')
+            throw error("Unexpected content after statement");
+    }
+
+    private void parseQuad() {
+        String subject = peek() == '_' ? blankNode() : iriRef(true);
+        String predicate = iriRef(true);
+        String object = object();
+        String graph = null;
+        char c = peek();
+        if (c == '<')      graph = iriRef(true);
+        else if (c == '_') graph = blankNode();
+        expect('.');
+        sink.accept(new String[]{subject, predicate, object, graph});
+    }
+
+    private void prefixDecl() {
+        skipWs();
+        int begin = pos;
+        while (pos < s.length() && s.charAt(pos) != ':' && !isWhitespace(s.charAt(pos)))
+            ++pos;
+        if (pos == s.length() || s.charAt(pos) != ':')
+            throw error("Expected prefix name ending in ':'");
+        String name = s.substring(begin, pos++);
+        String iri = iriRef(false);
+        prefixes.put(name, iri);
+    }
+
+    private void triples() {
+        char c = peek();
+        if (c == '[') {
+            String subject = blankNodePropertyList();
+            char next = peek();
+            if (next != '.' && next != '\0')
+                predicateObjectList(subject);
+        } else {
+            predicateObjectList(subject());
+        }
+    }
+
+    private String subject() {
+        char c = peek();
+        if (c == '_')   return blankNode();
+        if (c == '(')   return collection();
+        if (c == '[')   return blankNodePropertyList();
+        return iri();
+    }
+
+    private void predicateObjectList(String subject) {
+        while (true) {
+            String predicate = verb();
+            while (true) {
+                String object = object();
+                emit(subject, predicate, object);
+                if (peek() != ',') break;
+                ++pos;
+            }
+            if (peek() != ';')
+                break;
+            while (peek() == ';') ++pos;
+            char c = peek();
+            if (c == '.' || c == ']' || c == '\0')
+                break;
+        }
+    }
+
+    private String verb() {
+        char c = peek();
+        if (c == 'a' && (pos+1 == s.length() || !isNameChar(s.charAt(pos+1))
+                                              && s.charAt(pos+1) != '.')) {
+            ++pos;
+            return TYPE;
+        }
+        return iri();
+    }
+
+    private String object() {
+        char c = peek();
+        switch (c) {
+            case '_': return blankNode();
+            case '(': return collection();
+            case '[': return blankNodePropertyList();
+            case '"': case '\'': return literal();
+            case '<': return iriRef(true);
+            case '+': case '-': case '.':
+                return number();
+            default:
+                if (c >= '0' && c <= '9')
+                    return number();
+                if (keyword("true", false))
+                    return "\"true\"^^"+XSD_BOOLEAN;
+                if (keyword("false", false))
+                    return "\"false\"^^"+XSD_BOOLEAN;
+                return iri();
+        }
+    }
+
+    private String newBlankNode() {
+        return "_:fsanon"+(anonCount++);
+    }
+
+    private String blankNodePropertyList() {
+        expect('[');
+        String node = newBlankNode();
+        if (peek() != ']')
+            predicateObjectList(node);
+        expect(']');
+        return node;
+    }
+
+    private String collection() {
+        expect('(');
+        if (peek() == ')') {
+            ++pos;
+            return NIL;
+        }
+        String head = newBlankNode(), node = head;
+        while (true) {
+            emit(node, FIRST, object());
+            if (peek() == ')') {
+                ++pos;
+                emit(node, REST, NIL);
+                return head;
+            }
+            if (pos >= s.length())
+                throw error("Unterminated collection");
+            String next = newBlankNode();
+            emit(node, REST, next);
+            node = next;
+        }
+    }
+
+    private String blankNode() {
+        skipWs();
+        if (!s.startsWith("_:", pos))
+            throw error("Expected blank node");
+        int begin = pos;
+        pos += 2;
+        skipName();
+        if (pos == begin+2)
+            throw error("Empty blank node label");
+        return s.substring(begin, pos);
+    }
+
+    /** Advance {@code pos} over a name, which cannot end in {@code '.'}. */
+    private void skipName() {
+        int end = pos;
+        while (pos < s.length()) {
+            char c = s.charAt(pos);
+            if (c == '\\' && pos+1 < s.length()) {
+                pos += 2;
+                end = pos;
+            } else if (isNameChar(c)) {
+                end = ++pos;
+            } else if (c == '.') {
+                ++pos;
+            } else {
+                break;
+            }
+        }
+        pos = end;
+    }
+
+    private String iri() {
+        char c = peek();
+        if (c == '<')
+            return iriRef(true);
+        int begin = pos;
+        while (pos < s.length() && s.charAt(pos) != ':' && (isNameChar(s.charAt(pos))
+                                                          || s.charAt(pos) == '.'))
+            ++pos;
+        if (pos == s.length() || s.charAt(pos) != ':') {
+            pos = begin;
+            throw error("Expected IRI, prefixed name or literal");
+        }
+        String name = s.substring(begin, pos++);
+        String ns = prefixes.get(name);
+        if (ns == null) {
+            pos = begin;
+            throw error("Undefined prefix \""+name+":\"");
+        }
+        int localBegin = pos;
+        skipName();
+        StringBuilder b = new StringBuilder(ns.length()+pos-localBegin+2).append('<').append(ns);
+        for (int i = localBegin; i < pos; i++) {
+            char lc = s.charAt(i);
+            if (lc == '\\') lc = s.charAt(++i);
+            b.append(lc);
+        }
+        return b.append('>').toString();
+    }
+
+    /**
+     * Parse an {@code <IRI>}.
+     *
+     * @param wrap if true returns the resolved IRI in {@code <>}, else returns without brackets.
+     */
+    private String iriRef(boolean wrap) {
+        expect('<');
+        int end = s.indexOf('>', pos);
+        if (end < 0)
+            throw error("Unterminated IRI");
+        String iri = s.substring(pos, end);
+        pos = end+1;
+        if (base != null && !isAbsolute(iri)) {
+            try {
+                iri = URI.create(base).resolve(iri).toString();
+            } catch (IllegalArgumentException e) {
+                iri = base + iri;
+            }
+        }
+        return wrap ? "<"+iri+">" : iri;
+    }
+
+    private static boolean isAbsolute(String iri) {
+        for (int i = 0, len = iri.length(); i < len; i++) {
+            char c = iri.charAt(i);
+            if (c == ':')
+                return i > 0;
+            if (c == '/' || c == '?' || c == '#')
+                return false;
+        }
+        return false;
+    }
+
+    private String literal() {
+        char q = s.charAt(pos);
+        boolean isLong = s.startsWith(q == '"' ? "\"\"\"" : "'''", pos);
+        pos += isLong ? 3 : 1;
+        StringBuilder b = new StringBuilder(32).append('"');
+        while (true) {
+            if (pos >= s.length())
+                throw error("Unterminated string");
+            char c = s.charAt(pos);
+            if (c == '\\' && pos+1 < s.length()) {
+                b.append(c).append(s.charAt(pos+1));
+                pos += 2;
+                continue;
+            }
+            if (c == q) {
+                if (!isLong) {
+                    ++pos;
+                    break;
+                }
+                int run = pos;
+                while (run < s.length() && s.charAt(run) == q) ++run;
+                if (run - pos >= 3) {
+                    for (int i = run-pos-3; i > 0; --i)
+                        b.append(q == '"' ? "\\\"" : "'");
+                    pos = run;
+                    break;
+                }
+            }
+            if (!isLong && (c == '\n' || c == '\r'))
+                throw error("Line break in single-line string");
+            switch (c) {
+                case '"':  b.append("\\\""); break;
+                case '\n': b.append("\\n");  break;
+                case '\r': b.append("\\r");  break;
+                default:   b.append(c);      break;
+            }
+            ++pos;
+        }
+        b.append('"');
+        if (pos < s.length() && s.charAt(pos) == '@') {
+            int begin = pos++;
+            while (pos < s.length() && (Character.isLetterOrDigit(s.charAt(pos))
+                                        || s.charAt(pos) == '-'))
+                ++pos;
+            if (pos == begin+1)
+                throw error("Empty language tag");
+            b.append(s, begin, pos);
+        } else if (s.startsWith("^^", pos)) {
+            pos += 2;
+            b.append("^^").append(iri());
+        }
+        return b.toString();
+    }
+
+    private int skipDigits() {
+        int begin = pos;
+        while (pos < s.length() && s.charAt(pos) >= '0' && s.charAt(pos) <= '9')
+            ++pos;
+        return pos - begin;
+    }
+
+    private String number() {
+        int begin = pos;
+        if (s.charAt(pos) == '+' || s.charAt(pos) == '-')
+            ++pos;
+        int digits = skipDigits();
+        String type = XSD_INTEGER;
+        if (pos+1 < s.length() && s.charAt(pos) == '.') {
+            char next = s.charAt(pos+1);
+            if (next >= '0' && next <= '9') {
+                ++pos;
+                digits += skipDigits();
+                type = XSD_DECIMAL;
+            } else if ((next == 'e' || next == 'E') && digits > 0) {
+                ++pos;
+            }
+        }
+        if (pos < s.length() && (s.charAt(pos) == 'e' || s.charAt(pos) == 'E') && digits > 0) {
+            ++pos;
+            if (pos < s.length() && (s.charAt(pos) == '+' || s.charAt(pos) == '-'))
+                ++pos;
+            if (skipDigits() == 0)
+                throw error("Expected exponent digits");
+            type = XSD_DOUBLE;
+        }
+        if (digits == 0) {
+            pos = begin;
+            throw error("Expected number");
+        }
+        return "\""+s.substring(begin, pos)+"\"^^"+type;
+    }
+}
@@ -0,0 +1,87 @@
+package com.github.alexishuf.fastersparql.client.parser.row;
+
+import com.github.alexishuf.fastersparql.client.model.Results;
+import com.github.alexishuf.fastersparql.client.model.row.TermDictionary;
+import com.github.alexishuf.fastersparql.client.util.Throwing;
+import com.github.alexishuf.fastersparql.client.util.reactive.FSPublisher;
+
+import java.util.Collection;
+
+/**
+ * Parses solutions into {@code long[]} rows of {@link TermDictionary} ids.
+ *
+ * <p>Terms received as {@code byte[]} are interned directly from their UTF-8 bytes, without
+ * creating a {@link String} for terms already in the dictionary.</p>
+ *
+ * <p>Each parsed publisher holds a {@link TermDictionary.Lease} until it terminates
+ * (see {@link TermIdMappingPublisher}).</p>
+ */
+public class TermIdArrayRowParser implements RowParser<long[]> {
+    public static final TermIdArrayRowParser INSTANCE
+            = new TermIdArrayRowParser(TermDictionary.global());
+
+    private final TermDictionary dictionary;
+    private final Throwing.Function<CharSequence[], long[]> csArrayMapper;
+    private final Throwing.Function<Collection<? extends CharSequence>, long[]> csCollMapper;
+    private final Throwing.Function<byte[][], long[]> bArrayMapper;
+    private final Throwing.Function<Collection<byte[]>, long[]> bCollMapper;
+
+    public TermIdArrayRowParser(TermDictionary dictionary) {
+        this.dictionary = dictionary;
+        this.csArrayMapper = in -> {
+            long[] out = new long[in.length];
+            for (int i = 0; i < in.length; i++)
+                out[i] = dictionary.intern(in[i]);
+            return out;
+        };
+        this.csCollMapper = in -> {
+            long[] out = new long[in.size()];
+            int i = 0;
+            for (CharSequence cs : in)
+                out[i++] = dictionary.intern(cs);
+            return out;
+        };
+        this.bArrayMapper = in -> {
+            long[] out = new long[in.length];
+            for (int i = 0; i < in.length; i++)
+                out[i] = dictionary.intern(in[i]);
+            return out;
+        };
+        this.bCollMapper = in -> {
+            long[] out = new long[in.size()];
+            int i = 0;
+            for (byte[] bytes : in)
+                out[i++] = dictionary.intern(bytes);
+            return out;
+        };
+    }
+
+    public TermDictionary dictionary() { return dictionary; }
+
+    @Override public Class<long[]> rowClass() {
+        return long[].class;
+    }
+
+    @SuppressWarnings("unchecked") @Override
+    public FSPublisher<long[]> parseStringsArray(Results<? extends CharSequence[]> source) {
+        return new TermIdMappingPublisher<>((FSPublisher<CharSequence[]>) source.publisher(),
+                                            dictionary, csArrayMapper);
+    }
+
+    @SuppressWarnings("unchecked") @Override public FSPublisher<long[]>
+    parseStringsList(Results<? extends Collection<? extends CharSequence>> source) {
+        return new TermIdMappingPublisher<>(
+                (FSPublisher<Collection<? extends CharSequence>>) source.publisher(),
+                dictionary, csCollMapper);
+    }
+
+    @Override public FSPublisher<long[]> parseBytesArray(Results<byte[][]> source) {
+        return new TermIdMappingPublisher<>(source.publisher(), dictionary, bArrayMapper);
+    }
+
+    @SuppressWarnings("unchecked") @Override
+    public FSPublisher<long[]> parseBytesList(Results<? extends Collection<byte[]>> source) {
+        return new TermIdMappingPublisher<>((FSPublisher<Collection<byte[]>>) source.publisher(),
+                                            dictionary, bCollMapper);
+    }
+}
@@ -0,0 +1,39 @@
+package com.github.alexishuf.fastersparql.client.parser.row;
+
+import com.github.alexishuf.fastersparql.client.model.row.TermDictionary;
+import com.github.alexishuf.fastersparql.client.util.Throwing;
+import com.github.alexishuf.fastersparql.client.util.reactive.FSPublisher;
+import com.github.alexishuf.fastersparql.client.util.reactive.MappingPublisher;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.reactivestreams.Subscriber;
+
+/**
+ * A {@link MappingPublisher} that produces rows of {@link TermDictionary} ids while holding a
+ * {@link TermDictionary.Lease}, from subscription until termination (complete, error or cancel).
+ *
+ * <p>Thus, the dictionary will not retire the ids of rows that are still being delivered.
+ * Subscribers that retain rows after termination must {@link TermDictionary#acquire()} their
+ * own lease before subscribing.</p>
+ */
+public class TermIdMappingPublisher<I> extends MappingPublisher<I, long[]> {
+    private final TermDictionary dictionary;
+    private TermDictionary.@Nullable Lease lease;
+
+    public TermIdMappingPublisher(FSPublisher<I> upstreamPublisher, TermDictionary dictionary,
+                                  Throwing.Function<I, long[]> mapFunction) {
+        super(upstreamPublisher, mapFunction);
+        this.dictionary = dictionary;
+    }
+
+    @Override public void subscribe(Subscriber<? super long[]> s) {
+        if (upstream == null && lease == null)
+            lease = dictionary.acquire();
+        super.subscribe(s);
+    }
+
+    @Override protected void onTerminate(@Nullable Throwable error, boolean cancelled) {
+        TermDictionary.Lease lease = this.lease;
+        if (lease != null)
+            lease.close();
+    }
+}
@@ -0,0 +1,47 @@
+package com.github.alexishuf.fastersparql.client.replica;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the last {@code capacity} latency samples to compute percentiles.
+ *
+ * <p>Percentiles are cached and only recomputed after {@code capacity/16} new samples.</p>
+ */
+final class LatencyWindow {
+    private final long[] samples;
+    private final int recomputeAfter;
+    private int size, next, added;
+    private int cachedPercentile = -1;
+    private long cachedNanos;
+
+    LatencyWindow(int capacity) {
+        this.samples = new long[capacity];
+        this.recomputeAfter = Math.max(1, capacity/16);
+    }
+
+    synchronized void add(long nanos) {
+        samples[next] = nanos;
+        next = (next+1) % samples.length;
+        if (size < samples.length)
+            ++size;
+        ++added;
+    }
+
+    /**
+     * Get the {@code percentile}-th percentile of the samples, or -1 if there are less
+     * than {@code minSamples} samples.
+     */
+    synchronized long percentile(int percentile, int minSamples) {
+        if (size < minSamples || size == 0)
+            return -1;
+        if (cachedPercentile != percentile || added >= recomputeAfter) {
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            int idx = (int) Math.ceil(percentile/100.0 * size) - 1;
+            cachedNanos = sorted[Math.max(0, Math.min(size-1, idx))];
+            cachedPercentile = percentile;
+            added = 0;
+        }
+        return cachedNanos;
+    }
+}
@@ -0,0 +1,20 @@
+package com.github.alexishuf.fastersparql.client.replica;
+
+/**
+ * How a {@link ReplicaGroupClient} chooses the replica that receives a query.
+ *
+ * <p>Ties are broken by rotating over the replicas.</p>
+ */
+public enum ReplicaBalancer {
+    /**
+     * Choose the replica with the lowest exponentially weighted moving average of latency
+     * (see {@link ReplicaStats#ewmaLatencyMs()}) multiplied by the number of
+     * outstanding requests plus one. Replicas without latency samples are preferred.
+     */
+    EWMA,
+    /**
+     * Choose the replica with the fewest outstanding requests, breaking ties by
+     * {@link ReplicaStats#ewmaLatencyMs()}.
+     */
+    LEAST_OUTSTANDING
+}
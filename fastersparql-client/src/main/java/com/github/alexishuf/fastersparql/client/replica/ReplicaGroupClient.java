@@ -0,0 +1,449 @@
+package com.github.alexishuf.fastersparql.client.replica;
+
+import com.github.alexishuf.fastersparql.client.BindType;
+import com.github.alexishuf.fastersparql.client.SparqlClient;
+import com.github.alexishuf.fastersparql.client.model.Graph;
+import com.github.alexishuf.fastersparql.client.model.Results;
+import com.github.alexishuf.fastersparql.client.model.SparqlConfiguration;
+import com.github.alexishuf.fastersparql.client.model.SparqlEndpoint;
+import com.github.alexishuf.fastersparql.client.model.row.RowOperations;
+import com.github.alexishuf.fastersparql.client.model.row.RowOperationsRegistry;
+import com.github.alexishuf.fastersparql.client.util.FasterSparqlProperties;
+import com.github.alexishuf.fastersparql.client.util.async.Async;
+import com.github.alexishuf.fastersparql.client.util.async.AsyncTask;
+import com.github.alexishuf.fastersparql.client.util.bind.BindPublisher;
+import com.github.alexishuf.fastersparql.client.util.bind.Binder;
+import com.github.alexishuf.fastersparql.client.util.bind.SparqlClientBinder;
+import com.github.alexishuf.fastersparql.client.util.reactive.CallbackPublisher;
+import com.github.alexishuf.fastersparql.client.util.sparql.SparqlUtils;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * A {@link SparqlClient} that spreads queries over a group of replicas of the same dataset.
+ *
+ * <p>Each query is sent to the replica chosen by a {@link ReplicaBalancer}. Optionally, if
+ * the chosen replica does not produce the first row (or the end of results) within a
+ * percentile of recent latencies, a hedged duplicate query is sent to another replica. The
+ * first replica to answer wins and the request to the other replica is cancelled.</p>
+ *
+ * <p>Replicas are penalized proportionally to their {@link ReplicaStats#health()}, which
+ * comes from the {@link com.github.alexishuf.fastersparql.client.util.health.CircuitBreaker}
+ * shared by all clients of the endpoint. Replicas whose circuit is open are avoided.</p>
+ *
+ * <p>Queries with bindings are processed by this client (each bound query is balanced and
+ * hedged independently), unless the replicas use a binding-aware protocol, in which case
+ * the whole bind is delegated to a single replica. Graph queries are balanced but not
+ * hedged.</p>
+ *
+ * <p>{@link ReplicaGroupClient#close()} closes all replica clients.</p>
+ */
+public class ReplicaGroupClient<R, F> implements SparqlClient<R, F> {
+    private static final Logger log = LoggerFactory.getLogger(ReplicaGroupClient.class);
+    private static final AtomicInteger nextId = new AtomicInteger(1);
+    private static final int LATENCY_WINDOW = 256;
+
+    private final List<SparqlClient<R, F>> clients;
+    private final List<ReplicaStats> stats;
+    private final ReplicaBalancer balancer;
+    private final int hedgePercentile, hedgeMinSamples;
+    private final AtomicInteger rotation = new AtomicInteger();
+    private final AtomicInteger nextPublisherId = new AtomicInteger(1);
+    final LatencyWindow latencies = new LatencyWindow(LATENCY_WINDOW);
+    private final String name;
+
+    /**
+     * Create a group using {@link FasterSparqlProperties#replicaBalancer()},
+     * {@link FasterSparqlProperties#replicaHedgePercentile()} and
+     * {@link FasterSparqlProperties#replicaHedgeMinSamples()}.
+     */
+    public ReplicaGroupClient(List<? extends SparqlClient<R, F>> replicas) {
+        this(replicas, FasterSparqlProperties.replicaBalancer(),
+             FasterSparqlProperties.replicaHedgePercentile(),
+             FasterSparqlProperties.replicaHedgeMinSamples());
+    }
+
+    /**
+     * Create a group of replicas.
+     *
+     * @param replicas clients for each replica. Ownership is transferred to the new group.
+     * @param balancer how to choose the replica for each query
+     * @param hedgePercentile if non-zero, send a hedged query if a replica takes longer
+     *                        than this percentile of recent latencies to answer.
+     * @param hedgeMinSamples minimum number of latency samples before hedging starts.
+     */
+    public ReplicaGroupClient(List<? extends SparqlClient<R, F>> replicas,
+                              ReplicaBalancer balancer, int hedgePercentile,
+                              int hedgeMinSamples) {
+        if (replicas == null || replicas.isEmpty())
+            throw new IllegalArgumentException("No replicas");
+        if (balancer == null)
+            throw new NullPointerException("balancer is null");
+        if (hedgePercentile < 0 || hedgePercentile > 99)
+            throw new IllegalArgumentException("hedgePercentile="+hedgePercentile+" not in [0, 99]");
+        if (hedgeMinSamples < 1)
+            throw new IllegalArgumentException("hedgeMinSamples="+hedgeMinSamples+" < 1");
+        Class<R> rowClass = replicas.get(0).rowClass();
+        Class<F> fragmentClass = replicas.get(0).fragmentClass();
+        List<ReplicaStats> stats = new ArrayList<>(replicas.size());
+        for (SparqlClient<R, F> replica : replicas) {
+            if (!replica.rowClass().equals(rowClass) || !replica.fragmentClass().equals(fragmentClass))
+                throw new IllegalArgumentException("Replicas with distinct row or fragment classes");
+            stats.add(new ReplicaStats(replica.endpoint()));
+        }
+        this.clients = Collections.unmodifiableList(new ArrayList<>(replicas));
+        this.stats = Collections.unmodifiableList(stats);
+        this.balancer = balancer;
+        this.hedgePercentile = hedgePercentile;
+        this.hedgeMinSamples = hedgeMinSamples;
+        this.name = "ReplicaGroupClient-"+nextId.getAndIncrement();
+    }
+
+    /** The replica clients, in the order given at construction. */
+    public List<SparqlClient<R, F>> replicas() { return clients; }
+
+    /** {@link ReplicaStats} for each replica, in the same order as {@link ReplicaGroupClient#replicas()}. */
+    public List<ReplicaStats> replicaStats() { return stats; }
+
+    public ReplicaBalancer balancer() { return balancer; }
+
+    @Override public Class<R> rowClass() { return clients.get(0).rowClass(); }
+
+    @Override public Class<F> fragmentClass() { return clients.get(0).fragmentClass(); }
+
+    /** The endpoint of the first replica. See {@link ReplicaGroupClient#replicas()}. */
+    @Override public SparqlEndpoint endpoint() { return clients.get(0).endpoint(); }
+
+    @Override public boolean usesBindingAwareProtocol() {
+        for (SparqlClient<R, F> client : clients) {
+            if (!client.usesBindingAwareProtocol()) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public Results<R> query(CharSequence sparql, @Nullable SparqlConfiguration configuration,
+                            @Nullable Results<R> bindings, @Nullable BindType bindType) {
+        if (bindings == null)
+            return query(sparql, configuration);
+        else if (bindType == null)
+            throw new NullPointerException("bindings != null, but bindType is null!");
+        if (usesBindingAwareProtocol())
+            return clients.get(choose(-1)).query(sparql, configuration, bindings, bindType);
+        RowOperations rowOps = RowOperationsRegistry.get().forClass(rowClass());
+        Binder<R> binder = new SparqlClientBinder<>(rowOps, bindings.vars(), this, sparql,
+                                                    configuration, bindType);
+        String bindName = name+"-"+bindType+"-"+nextPublisherId.getAndIncrement();
+        BindPublisher<R> publisher = new BindPublisher<>(bindings.publisher(), 1,
+                                                         binder, bindName, null);
+        return new Results<>(binder.resultVars(), rowClass(), publisher);
+    }
+
+    @Override
+    public Results<R> query(CharSequence sparql, @Nullable SparqlConfiguration configuration) {
+        return new Results<>(SparqlUtils.publicVars(sparql), rowClass(),
+                             new HedgedPublisher(sparql, configuration));
+    }
+
+    @Override
+    public Graph<F> queryGraph(CharSequence sparql, @Nullable SparqlConfiguration configuration) {
+        return clients.get(choose(-1)).queryGraph(sparql, configuration);
+    }
+
+    @Override public void close() {
+        for (SparqlClient<R, F> client : clients) {
+            try {
+                client.close();
+            } catch (Throwable t) {
+                log.error("{}: failed to close replica {}", this, client, t);
+            }
+        }
+    }
+
+    @Override public String toString() { return name+clients; }
+
+    /**
+     * Choose a replica using {@link ReplicaGroupClient#balancer()}, penalizing replicas
+     * with low {@link ReplicaStats#health()}.
+     *
+     * @param exclude index of a replica that must not be chosen, or -1.
+     * @return index of the chosen replica or -1 if there is no replica besides {@code exclude}.
+     */
+    int choose(int exclude) {
+        int size = clients.size(), start = (rotation.getAndIncrement() & 0x7fffffff) % size;
+        int best = -1;
+        double bestScore = Double.MAX_VALUE, bestTie = Double.MAX_VALUE;
+        for (int j = 0; j < size; j++) {
+            int i = (start + j) % size;
+            if (i == exclude) continue;
+            ReplicaStats s = stats.get(i);
+            double ewma = Math.max(0, s.ewmaLatencyMs()), health = s.health(), score, tie;
+            if (balancer == ReplicaBalancer.EWMA) {
+                score = (ewma+1) * (s.outstanding()+1);
+                tie = s.outstanding();
+            } else {
+                score = s.outstanding()+1;
+                tie = ewma;
+            }
+            // replicas with an open circuit are only chosen if all others are also open
+            score = health > 0 ? score/health : Double.MAX_VALUE/2;
+            if (score < bestScore || (score == bestScore && tie < bestTie)) {
+                best = i;
+                bestScore = score;
+                bestTie = tie;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Sends the query to a replica and possibly a hedged query to a second replica,
+     * forwarding the results of whichever answers first.
+     */
+    private final class HedgedPublisher extends CallbackPublisher<R> {
+        private final CharSequence sparql;
+        private final @Nullable SparqlConfiguration configuration;
+        private final Object lock = new Object();
+        private final List<Attempt> attempts = new ArrayList<>(2);
+        private @Nullable Attempt winner;
+        private long pendingRequest;
+        private boolean started, hedged, cancelled;
+        private long hedgeDelay = -1, requestStart;
+        private @Nullable AsyncTask<?> hedgeTask;
+
+        HedgedPublisher(CharSequence sparql, @Nullable SparqlConfiguration configuration) {
+            super(name+"-query-"+nextPublisherId.getAndIncrement());
+            this.sparql = sparql;
+            this.configuration = configuration;
+        }
+
+        @Override protected void onRequest(long n) {
+            Attempt forward = null;
+            boolean start = false;
+            synchronized (lock) {
+                if (cancelled)
+                    return;
+                if (winner != null) {
+                    forward = winner;
+                } else {
+                    pendingRequest += n;
+                    if (pendingRequest < 0)
+                        pendingRequest = Long.MAX_VALUE;
+                    start = !started;
+                    if (start)
+                        requestStart = System.nanoTime();
+                    started = true;
+                }
+            }
+            if (forward != null) {
+                forward.request(n);
+            } else if (start) {
+                int primary = choose(-1);
+                long delay = hedgePercentile == 0 || clients.size() < 2 ? -1
+                           : latencies.percentile(hedgePercentile, hedgeMinSamples);
+                synchronized (lock) { hedgeDelay = delay; } // primary may fail synchronously
+                startAttempt(primary, false);
+                if (delay >= 0) {
+                    AsyncTask<?> task = Async.schedule(delay, NANOSECONDS, () -> hedge(primary));
+                    synchronized (lock) {
+                        if (hedged || winner != null || cancelled)
+                            task.cancel(false);
+                        else
+                            hedgeTask = task;
+                    }
+                }
+            }
+        }
+
+        @Override protected void onBackpressure() { }
+
+        @Override protected void onCancel() {
+            List<Attempt> copy;
+            synchronized (lock) {
+                cancelled = true;
+                copy = new ArrayList<>(attempts);
+                if (hedgeTask != null)
+                    hedgeTask.cancel(false);
+            }
+            for (Attempt attempt : copy)
+                attempt.cancel();
+        }
+
+        private void hedge(int primary) {
+            synchronized (lock) {
+                if (cancelled || winner != null || hedged)
+                    return;
+                hedged = true;
+            }
+            int i = choose(primary);
+            if (i >= 0) {
+                log.debug("{}: hedging {} with {}", this, clients.get(primary), clients.get(i));
+                startAttempt(i, true);
+            }
+        }
+
+        private void startAttempt(int index, boolean hedge) {
+            Attempt attempt = new Attempt(index, hedge);
+            synchronized (lock) {
+                if (cancelled || winner != null)
+                    return;
+                attempts.add(attempt);
+            }
+            stats.get(index).onStart(hedge);
+            try {
+                clients.get(index).query(sparql, configuration).publisher().subscribe(attempt);
+            } catch (Throwable t) {
+                attempt.onError(t);
+            }
+        }
+
+        /**
+         * Makes {@code attempt} the winner if there is no winner yet and cancels the others.
+         *
+         * @return whether {@code attempt} is the winner.
+         */
+        private boolean win(Attempt attempt) {
+            List<Attempt> losers;
+            long forward, total;
+            synchronized (lock) {
+                if (winner != null)
+                    return winner == attempt;
+                winner = attempt;
+                forward = pendingRequest-1; // the first item (if any) consumes one request
+                pendingRequest = 0;
+                losers = new ArrayList<>(attempts);
+                losers.remove(attempt);
+                if (hedgeTask != null)
+                    hedgeTask.cancel(false);
+                total = System.nanoTime() - requestStart;
+            }
+            // hedge delays are derived from what the caller observes, not from the hedge start
+            latencies.add(total);
+            long elapsed = System.nanoTime() - attempt.start;
+            stats.get(attempt.index).onLatency(elapsed);
+            if (attempt.hedge)
+                stats.get(attempt.index).onHedgeWin();
+            for (Attempt loser : losers) {
+                // the loser was outrun: charge it no less than the winner took, else a
+                // late hedge that lost would look faster than the winner
+                long lost = System.nanoTime() - loser.start;
+                stats.get(loser.index).onLatency(Math.max(lost, elapsed));
+                loser.cancel();
+            }
+            if (forward > 0)
+                attempt.request(forward);
+            return true;
+        }
+
+        /**
+         * Called when {@code failed} fails. If there is no winner and no other attempt is
+         * racing, either the pending hedge is sent immediately or {@code failed} becomes the
+         * winner.
+         *
+         * @return whether {@code failed} is the winner and its error must be delivered.
+         */
+        private boolean onFailure(Attempt failed) {
+            boolean hedgeNow = false;
+            synchronized (lock) {
+                if (winner != null)
+                    return winner == failed;
+                attempts.remove(failed);
+                if (attempts.isEmpty()) {
+                    if (hedgeDelay >= 0 && !hedged && !cancelled) {
+                        if (hedgeTask != null)
+                            hedgeTask.cancel(false);
+                        hedgeNow = true;
+                    } else {
+                        winner = failed;
+                        return true;
+                    }
+                }
+            }
+            if (hedgeNow)
+                hedge(failed.index);
+            return false;
+        }
+
+        private final class Attempt implements Subscriber<R> {
+            private final int index;
+            private final boolean hedge;
+            private final long start = System.nanoTime();
+            private final AtomicInteger ended = new AtomicInteger();
+            private @Nullable Subscription subscription;
+            private boolean cancelRequested;
+
+            Attempt(int index, boolean hedge) {
+                this.index = index;
+                this.hedge = hedge;
+            }
+
+            void request(long n) {
+                Subscription s;
+                synchronized (lock) { s = subscription; }
+                if (s != null) s.request(n);
+            }
+
+            void cancel() {
+                Subscription s;
+                synchronized (lock) {
+                    cancelRequested = true;
+                    s = subscription;
+                }
+                if (s != null) {
+                    s.cancel();
+                    end();
+                }
+            }
+
+            private void end() {
+                if (ended.compareAndSet(0, 1))
+                    stats.get(index).onEnd();
+            }
+
+            @Override public void onSubscribe(Subscription s) {
+                boolean cancel;
+                synchronized (lock) {
+                    subscription = s;
+                    cancel = cancelRequested;
+                }
+                if (cancel) {
+                    s.cancel();
+                    end();
+                } else {
+                    s.request(1);
+                }
+            }
+
+            @Override public void onNext(R row) {
+                if (win(this))
+                    feed(row);
+            }
+
+            @Override public void onError(Throwable t) {
+                end();
+                if (onFailure(this)) {
+                    complete(t);
+                } else {
+                    log.debug("{}: ignoring failure of {} while another replica is racing",
+                              HedgedPublisher.this, clients.get(index), t);
+                }
+            }
+
+            @Override public void onComplete() {
+                end();
+                if (win(this))
+                    complete(null);
+            }
+        }
+    }
+}
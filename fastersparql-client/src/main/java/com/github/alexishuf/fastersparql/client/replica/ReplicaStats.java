@@ -0,0 +1,78 @@
+package com.github.alexishuf.fastersparql.client.replica;
+
+import com.github.alexishuf.fastersparql.client.model.SparqlEndpoint;
+import com.github.alexishuf.fastersparql.client.util.health.CircuitBreaker;
+import com.github.alexishuf.fastersparql.client.util.health.CircuitBreakerRegistry;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load and latency observed by a {@link ReplicaGroupClient} for one of its replicas.
+ *
+ * <p>Latency is measured from the request until the first row (or the end of results, if
+ * there are no rows).</p>
+ */
+public final class ReplicaStats {
+    /** Weight of a new sample in {@link ReplicaStats#ewmaLatencyMs()}. */
+    static final double EWMA_ALPHA = 0.2;
+
+    private final SparqlEndpoint endpoint;
+    private final CircuitBreaker breaker;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+    private volatile double ewmaLatencyMs = -1;
+
+    ReplicaStats(SparqlEndpoint endpoint) {
+        this.endpoint = endpoint;
+        this.breaker = CircuitBreakerRegistry.get(endpoint);
+    }
+
+    /** The endpoint of the replica. */
+    public SparqlEndpoint endpoint() { return endpoint; }
+
+    /** The {@link CircuitBreaker} shared by all clients of the replica endpoint. */
+    public CircuitBreaker circuitBreaker() { return breaker; }
+
+    /** {@link CircuitBreaker#health()} of the replica endpoint. */
+    public double health() { return breaker.health(); }
+
+    /** Number of requests sent to the replica whose results did not yet end. */
+    public int outstanding() { return outstanding.get(); }
+
+    /** Exponentially weighted moving average of latencies, or -1 if there are no samples. */
+    public double ewmaLatencyMs() { return ewmaLatencyMs; }
+
+    /** Number of requests (including hedged ones) sent to the replica. */
+    public long queries() { return queries.get(); }
+
+    /** Number of hedged requests sent to this replica because another replica was slow. */
+    public long hedges() { return hedges.get(); }
+
+    /** Number of hedged requests to this replica that answered before the original request. */
+    public long hedgeWins() { return hedgeWins.get(); }
+
+    void onStart(boolean hedge) {
+        outstanding.incrementAndGet();
+        queries.incrementAndGet();
+        if (hedge)
+            hedges.incrementAndGet();
+    }
+
+    void onEnd() { outstanding.decrementAndGet(); }
+
+    void onHedgeWin() { hedgeWins.incrementAndGet(); }
+
+    synchronized void onLatency(long nanos) {
+        double ms = nanos/1000000.0, old = ewmaLatencyMs;
+        ewmaLatencyMs = old < 0 ? ms : EWMA_ALPHA*ms + (1-EWMA_ALPHA)*old;
+    }
+
+    @Override public String toString() {
+        return "ReplicaStats{endpoint="+endpoint+", outstanding="+outstanding
+                +", ewmaLatencyMs="+ewmaLatencyMs+", queries="+queries
+                +", hedges="+hedges+", hedgeWins="+hedgeWins+", health="+health()+"}";
+    }
+}
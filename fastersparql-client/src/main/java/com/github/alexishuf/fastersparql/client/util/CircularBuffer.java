@@ -1,6 +1,6 @@
 package com.github.alexishuf.fastersparql.client.util;
 
-public class CircularBuffer<T> {
+public class CircularBuffer<T> implements ItemBuffer<T> {
     private Object[] buffer;
     private int first, last = -1, size;
 
@@ -12,17 +12,11 @@ public class CircularBuffer<T> {
         this.buffer = new Object[Math.max(10, capacity)];
     }
 
-    /** Equivalent to {@code size() == 0}. */
-    public boolean isEmpty() { return size == 0; }
+    @Override public boolean isEmpty() { return size == 0; }
+    @Override public int     size()    { return size; }
+    @Override public void    clear()   { removeFirst(size()); }
 
-    /** Get the number of items in this buffer, not be confused with its inner capacity  */
-    public int     size()    { return size; }
-
-    /** Remove all elements from the buffer, i.e., making {@code size() == 0} */
-    public void    clear()   { removeFirst(size()); }
-
-    /** Add {@code item} to the end of the buffer, i.e. {@code get(size()-1) == item} */
-    public void add(T item) {
+    @Override public void add(T item) {
         if (size == buffer.length) {
             int current = buffer.length;
             // ArrayList grows in these steps: 10 -> 15 -> 22
@@ -52,18 +46,19 @@ public class CircularBuffer<T> {
         buffer[last] = item;
     }
 
-    /** Get the i-th item in this buffer, where {@code 0 <= i < size()}. */
-    public T get(int i) {
+    @Override public T get(int i) {
         if (i < 0 || i >= size)
             throw new IndexOutOfBoundsException("index="+i+", size="+size);
         //noinspection unchecked
         return (T)buffer[(first + i) % buffer.length];
     }
 
-    /**  Remove the first {@code n} elements of this buffer. */
-    public void removeFirst(int n) {
+    @Override public void removeFirst(int n) {
         if (n < 0 || n > size)
             throw new IllegalArgumentException("Cannot remove first "+n+" elements out of "+size);
+        // drop references, else removed items remain reachable until overwritten
+        for (int i = 0, cap = buffer.length; i < n; i++)
+            buffer[(first + i) % cap] = null;
         first = (first + n) % buffer.length;
         size -= n;
     }
@@ -2,6 +2,7 @@ package com.github.alexishuf.fastersparql.client.util;
 
 import com.github.alexishuf.fastersparql.client.SparqlClient;
 import com.github.alexishuf.fastersparql.client.model.SparqlMethod;
+import com.github.alexishuf.fastersparql.client.replica.ReplicaBalancer;
 import org.checkerframework.checker.index.qual.NonNegative;
 import org.checkerframework.checker.index.qual.Positive;
 
@@ -16,12 +17,54 @@ public class FasterSparqlProperties {
     public static final String CLIENT_CONN_TIMEOUT_MS = "fastersparql.client.conn.timeout-ms";
     public static final String CLIENT_SO_TIMEOUT_MS = "fastersparql.client.so.timeout-ms";
     public static final String CLIENT_CONN_RETRY_WAIT_MS = "fastersparql.client.conn.retry.wait-ms";
+    public static final String CLIENT_TERM_DICT_MAX_BYTES = "fastersparql.client.term-dict.max-bytes";
+    public static final String CLIENT_OFF_HEAP_ROWS = "fastersparql.client.off-heap-rows";
+    public static final String CLIENT_REPLICA_BALANCER = "fastersparql.client.replica.balancer";
+    public static final String CLIENT_REPLICA_HEDGE_PERCENTILE = "fastersparql.client.replica.hedge-percentile";
+    public static final String CLIENT_REPLICA_HEDGE_MIN_SAMPLES = "fastersparql.client.replica.hedge-min-samples";
+    public static final String CLIENT_CIRCUIT_ENABLE = "fastersparql.client.circuit.enable";
+    public static final String CLIENT_CIRCUIT_WINDOW = "fastersparql.client.circuit.window";
+    public static final String CLIENT_CIRCUIT_MIN_CALLS = "fastersparql.client.circuit.min-calls";
+    public static final String CLIENT_CIRCUIT_FAILURE_PERCENT = "fastersparql.client.circuit.failure-percent";
+    public static final String CLIENT_CIRCUIT_SLOW_MS = "fastersparql.client.circuit.slow-ms";
+    public static final String CLIENT_CIRCUIT_OPEN_MS = "fastersparql.client.circuit.open-ms";
+    public static final String CLIENT_CIRCUIT_HALF_OPEN_PROBES = "fastersparql.client.circuit.half-open-probes";
+    public static final String CLIENT_RATE_LIMIT = "fastersparql.client.rate-limit";
+    public static final String CLIENT_RATE_BURST = "fastersparql.client.rate-burst";
+    public static final String CLIENT_MAX_CONCURRENT = "fastersparql.client.max-concurrent";
+    public static final String CLIENT_RETRY_AFTER_MAX_MS = "fastersparql.client.retry-after.max-ms";
+    public static final String TIMER_TICK_MS = "fastersparql.timer.tick-ms";
+    public static final String CLIENT_QUERY_RETRIES = "fastersparql.client.query.retries";
+    public static final String CLIENT_QUERY_RETRY_BASE_MS = "fastersparql.client.query.retry.base-ms";
+    public static final String CLIENT_QUERY_RETRY_MAX_MS = "fastersparql.client.query.retry.max-ms";
+    public static final String CLIENT_MAX_REDIRECTS = "fastersparql.client.max-redirects";
     public static final int DEF_REACTIVE_QUEUE_CAPACITY = 1024;
     public static final int DEF_CLIENT_MAX_QUERY_GET = 1024;
     public static final int DEF_CLIENT_CONN_RETRIES = 3;
     public static final int DEF_CLIENT_CONN_TIMEOUT_MS = 0;
     public static final int DEF_CLIENT_SO_TIMEOUT_MS = 0;
     public static final int DEF_CLIENT_CONN_RETRY_WAIT_MS = 1000;
+    public static final int DEF_CLIENT_TERM_DICT_MAX_BYTES = 256*1024*1024;
+    public static final boolean DEF_CLIENT_OFF_HEAP_ROWS = false;
+    public static final ReplicaBalancer DEF_CLIENT_REPLICA_BALANCER = ReplicaBalancer.EWMA;
+    public static final int DEF_CLIENT_REPLICA_HEDGE_PERCENTILE = 0;
+    public static final int DEF_CLIENT_REPLICA_HEDGE_MIN_SAMPLES = 32;
+    public static final boolean DEF_CLIENT_CIRCUIT_ENABLE = true;
+    public static final int DEF_CLIENT_CIRCUIT_WINDOW = 32;
+    public static final int DEF_CLIENT_CIRCUIT_MIN_CALLS = 16;
+    public static final int DEF_CLIENT_CIRCUIT_FAILURE_PERCENT = 50;
+    public static final int DEF_CLIENT_CIRCUIT_SLOW_MS = 0;
+    public static final int DEF_CLIENT_CIRCUIT_OPEN_MS = 5000;
+    public static final int DEF_CLIENT_CIRCUIT_HALF_OPEN_PROBES = 1;
+    public static final double DEF_CLIENT_RATE_LIMIT = 0;
+    public static final int DEF_CLIENT_RATE_BURST = 0;
+    public static final int DEF_CLIENT_MAX_CONCURRENT = 0;
+    public static final int DEF_CLIENT_RETRY_AFTER_MAX_MS = 60000;
+    public static final int DEF_TIMER_TICK_MS = 10;
+    public static final int DEF_CLIENT_QUERY_RETRIES = 2;
+    public static final int DEF_CLIENT_QUERY_RETRY_BASE_MS = 50;
+    public static final int DEF_CLIENT_QUERY_RETRY_MAX_MS = 2000;
+    public static final int DEF_CLIENT_MAX_REDIRECTS = 5;
 
     protected interface Parser<T> {
         T parse(String source, String value) throws IllegalArgumentException;
@@ -45,7 +88,7 @@ public class FasterSparqlProperties {
             Matcher m = BOOL_RX.matcher(val);
             if (!m.matches())
                 throw new IllegalArgumentException(src+"="+val+" is not a boolean");
-            return !m.group(1).isEmpty();
+            return m.group(1) != null;
         });
     }
 
@@ -59,6 +102,16 @@ public class FasterSparqlProperties {
         });
     }
 
+    protected static @NonNegative int readNonNegativeInt(String propertyName, int defaultValue) {
+        return readProperty(propertyName, defaultValue, (src, val) -> {
+            int i = -1;
+            try { i = Integer.parseInt(val); } catch (NumberFormatException ignored) {}
+            if (i < 0)
+                throw new IllegalArgumentException(src+"="+val+" is not a non-negative integer");
+            return i;
+        });
+    }
+
     protected static String readTrimmedString(
             String propertyName,
             @SuppressWarnings("SameParameterValue") String defaultValue) {
@@ -134,4 +187,265 @@ public class FasterSparqlProperties {
         int ms = readPositiveInt(CLIENT_CONN_RETRY_WAIT_MS, DEF_CLIENT_CONN_RETRY_WAIT_MS);
         return timeUnit.convert(ms, TimeUnit.MILLISECONDS);
     }
+
+    /**
+     * Maximum number of bytes of off-heap memory that the global
+     * {@link com.github.alexishuf.fastersparql.client.model.row.TermDictionary} may use to store
+     * interned RDF terms. Once this is reached, generations of terms not pinned by a
+     * {@link com.github.alexishuf.fastersparql.client.model.row.TermDictionary.Lease} are
+     * retired. Interning new terms only fails if leased generations use all this memory.
+     *
+     * The default is {@link FasterSparqlProperties#DEF_CLIENT_TERM_DICT_MAX_BYTES} (256 MiB).
+     */
+    public static @Positive int termDictMaxBytes() {
+        return readPositiveInt(CLIENT_TERM_DICT_MAX_BYTES, DEF_CLIENT_TERM_DICT_MAX_BYTES);
+    }
+
+    /**
+     * Whether operators that buffer rows (hash-based DISTINCT, the replay history of a join
+     * left operand and the queue of merged publishers) should store those rows encoded in
+     * off-heap memory (see {@link com.github.alexishuf.fastersparql.client.model.row.OffHeapRowArena})
+     * instead of keeping the row objects on the heap. Rows whose
+     * {@link com.github.alexishuf.fastersparql.client.model.row.RowOperations#restoresNT()}
+     * is {@code false} are always kept on the heap.
+     *
+     * Off-heap rows reduce GC pressure for large intermediate results at the cost of
+     * re-encoding and decoding each row. The default is
+     * {@link FasterSparqlProperties#DEF_CLIENT_OFF_HEAP_ROWS} ({@code false}).
+     */
+    public static boolean offHeapRows() {
+        return readBoolean(CLIENT_OFF_HEAP_ROWS, DEF_CLIENT_OFF_HEAP_ROWS);
+    }
+
+    /**
+     * How a {@link com.github.alexishuf.fastersparql.client.replica.ReplicaGroupClient} chooses
+     * the replica for each query. Values are case-insensitive {@link ReplicaBalancer} names,
+     * with {@code -} accepted in place of {@code _} (e.g., {@code least-outstanding}).
+     *
+     * The default is {@link FasterSparqlProperties#DEF_CLIENT_REPLICA_BALANCER}.
+     */
+    public static ReplicaBalancer replicaBalancer() {
+        return readProperty(CLIENT_REPLICA_BALANCER, DEF_CLIENT_REPLICA_BALANCER, (src, val) -> {
+            try {
+                return ReplicaBalancer.valueOf(val.trim().toUpperCase().replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(src+"="+val+" is not a ReplicaBalancer");
+            }
+        });
+    }
+
+    /**
+     * If non-zero, a {@link com.github.alexishuf.fastersparql.client.replica.ReplicaGroupClient}
+     * sends a duplicate (hedged) query to a second replica if the first row (or the end) of the
+     * results does not arrive within this percentile of the recently observed latencies. The
+     * first replica to answer wins and the other request is cancelled.
+     *
+     * The default is {@link FasterSparqlProperties#DEF_CLIENT_REPLICA_HEDGE_PERCENTILE}
+     * (no hedging). Values must be below 100.
+     */
+    public static @NonNegative int replicaHedgePercentile() {
+        return readProperty(CLIENT_REPLICA_HEDGE_PERCENTILE, DEF_CLIENT_REPLICA_HEDGE_PERCENTILE,
+                            (src, val) -> {
+            int i = -1;
+            try { i = Integer.parseInt(val.trim()); } catch (NumberFormatException ignored) {}
+            if (i < 0 || i > 99)
+                throw new IllegalArgumentException(src+"="+val+" is not a percentile in [0, 99]");
+            return i;
+        });
+    }
+
+    /**
+     * Hedged queries (see {@link FasterSparqlProperties#replicaHedgePercentile()}) are only sent
+     * after this number of latencies have been observed.
+     *
+     * The default is {@link FasterSparqlProperties#DEF_CLIENT_REPLICA_HEDGE_MIN_SAMPLES}.
+     */
+    public static @Positive int replicaHedgeMinSamples() {
+        return readPositiveInt(CLIENT_REPLICA_HEDGE_MIN_SAMPLES,
+                               DEF_CLIENT_REPLICA_HEDGE_MIN_SAMPLES);
+    }
+
+    /**
+     * Whether the per-endpoint {@link com.github.alexishuf.fastersparql.client.util.health.CircuitBreaker}
+     * may reject queries. If disabled, outcomes are still recorded and health scores are still
+     * computed, but queries are never rejected.
+     *
+     * The default is {@link FasterSparqlProperties#DEF_CLIENT_CIRCUIT_ENABLE}.
+     */
+    public static boolean circuitEnable() {
+        return readBoolean(CLIENT_CIRCUIT_ENABLE, DEF_CLIENT_CIRCUIT_ENABLE);
+    }
+
+    /**
+     * How many of the most recent request outcomes of an endpoint are considered when computing
+     * its failure rate.
+     *
+     * The default is {@link FasterSparqlProperties#DEF_CLIENT_CIRCUIT_WINDOW}.
+     */
+    public static @Positive int circuitWindow() {
+        return readPositiveInt(CLIENT_CIRCUIT_WINDOW, DEF_CLIENT_CIRCUIT_WINDOW);
+    }
+
+    /**
+     * The circuit of an endpoint only opens after at least this number of outcomes are in the
+     * window (see {@link FasterSparqlProperties#circuitWindow()}). Values above the window
+     * size are treated as the window size.
+     *
+     * The default is {@link FasterSparqlProperties#DEF_CLIENT_CIRCUIT_MIN_CALLS}.
+     */
+    public static @Positive int circuitMinCalls() {
+        return readPositiveInt(CLIENT_CIRCUIT_MIN_CALLS, DEF_CLIENT_CIRCUIT_MIN_CALLS);
+    }
+
+    /**
+     * The circuit of an endpoint opens (i.e., requests fail immediately) when the percentage of
+     * failed (or slow, see {@link FasterSparqlProperties#circuitSlowMs()}) requests in the
+     * window reaches this value.
+     *
+     * The default is {@link FasterSparqlProperties#DEF_CLIENT_CIRCUIT_FAILURE_PERCENT}.
+     */
+    public static @Positive int circuitFailurePercent() {
+        return readProperty(CLIENT_CIRCUIT_FAILURE_PERCENT, DEF_CLIENT_CIRCUIT_FAILURE_PERCENT,
+                            (src, val) -> {
+            int i = -1;
+            try { i = Integer.parseInt(val.trim()); } catch (NumberFormatException ignored) {}
+            if (i < 1 || i > 100)
+                throw new IllegalArgumentException(src+"="+val+" is not a percentage in [1, 100]");
+            return i;
+        });
+    }
+
+    /**
+     * If non-zero, requests whose response starts arriving after this many milliseconds count
+     * as failures for the circuit breaker, even if the server eventually answers.
+     *
+     * The default is {@link FasterSparqlProperties#DEF_CLIENT_CIRCUIT_SLOW_MS} (disabled).
+     */
+    public static @NonNegative int circuitSlowMs() {
+        return readNonNegativeInt(CLIENT_CIRCUIT_SLOW_MS, DEF_CLIENT_CIRCUIT_SLOW_MS);
+    }
+
+    /**
+     * For how long an open circuit rejects requests before allowing probe requests.
+     *
+     * The default is {@link FasterSparqlProperties#DEF_CLIENT_CIRCUIT_OPEN_MS}.
+     */
+    public static @Positive int circuitOpenMs() {
+        return readPositiveInt(CLIENT_CIRCUIT_OPEN_MS, DEF_CLIENT_CIRCUIT_OPEN_MS);
+    }
+
+    /**
+     * How many concurrent probe requests a half-open circuit allows. If all probes succeed
+     * the circuit closes, if any fails, the circuit opens again.
+     *
+     * The default is {@link FasterSparqlProperties#DEF_CLIENT_CIRCUIT_HALF_OPEN_PROBES}.
+     */
+    public static @Positive int circuitHalfOpenProbes() {
+        return readPositiveInt(CLIENT_CIRCUIT_HALF_OPEN_PROBES,
+                               DEF_CLIENT_CIRCUIT_HALF_OPEN_PROBES);
+    }
+
+    /**
+     * Default maximum number of requests per second started against a single host (all
+     * clients of all endpoints on the same host and port share the limit). Fractional values
+     * are allowed (e.g., {@code 0.5} is one request every two seconds). Requests above the
+     * limit are delayed, not rejected. Limits for specific hosts can be set with
+     * {@link com.github.alexishuf.fastersparql.client.util.limit.EndpointLimiterRegistry#configure(String, double, int, int)}.
+     *
+     * The default is {@link FasterSparqlProperties#DEF_CLIENT_RATE_LIMIT} (no limit).
+     */
+    public static double rateLimit() {
+        return readProperty(CLIENT_RATE_LIMIT, DEF_CLIENT_RATE_LIMIT, (src, val) -> {
+            double d = -1;
+            try { d = Double.parseDouble(val.trim()); } catch (NumberFormatException ignored) {}
+            if (!(d >= 0) || Double.isInfinite(d))
+                throw new IllegalArgumentException(src+"="+val+" is not a non-negative number");
+            return d;
+        });
+    }
+
+    /**
+     * How many requests may be started at once against a host that has been idle, when
+     * {@link FasterSparqlProperties#rateLimit()} is set. Zero means the rate rounded up
+     * (at least 1).
+     *
+     * The default is {@link FasterSparqlProperties#DEF_CLIENT_RATE_BURST}.
+     */
+    public static @NonNegative int rateBurst() {
+        return readNonNegativeInt(CLIENT_RATE_BURST, DEF_CLIENT_RATE_BURST);
+    }
+
+    /**
+     * Default maximum number of concurrent requests against a single host (all clients of all
+     * endpoints on the same host and port share the limit). Requests above the limit wait
+     * until a previous request gets its response headers (or first WebSocket frame), fails or
+     * is cancelled. The slot is not held while the response body is consumed, else nested
+     * requests issued while consuming it (e.g., a bind join against the same host) would
+     * deadlock. Zero means no limit.
+     *
+     * The default is {@link FasterSparqlProperties#DEF_CLIENT_MAX_CONCURRENT}.
+     */
+    public static @NonNegative int maxConcurrent() {
+        return readNonNegativeInt(CLIENT_MAX_CONCURRENT, DEF_CLIENT_MAX_CONCURRENT);
+    }
+
+    /**
+     * When a server answers with a {@code Retry-After} header, no new request to that host
+     * will start before the given time. This is the longest such pause honored.
+     *
+     * The default is {@link FasterSparqlProperties#DEF_CLIENT_RETRY_AFTER_MAX_MS}.
+     */
+    public static @NonNegative int retryAfterMaxMs() {
+        return readNonNegativeInt(CLIENT_RETRY_AFTER_MAX_MS, DEF_CLIENT_RETRY_AFTER_MAX_MS);
+    }
+
+    /**
+     * Resolution of the shared {@link com.github.alexishuf.fastersparql.client.util.async.TimerWheel}
+     * used to enforce query deadlines. A deadline may expire up to this many milliseconds late.
+     *
+     * The default is {@link FasterSparqlProperties#DEF_TIMER_TICK_MS}.
+     */
+    public static @Positive int timerTickMs() {
+        return readPositiveInt(TIMER_TICK_MS, DEF_TIMER_TICK_MS);
+    }
+
+    /**
+     * How many times a query that failed due to a lost connection (e.g., a stale pooled
+     * keep-alive connection) is re-sent, as long as no row has been delivered yet.
+     *
+     * The default is {@link FasterSparqlProperties#DEF_CLIENT_QUERY_RETRIES}.
+     */
+    public static @NonNegative int queryRetries() {
+        return readNonNegativeInt(CLIENT_QUERY_RETRIES, DEF_CLIENT_QUERY_RETRIES);
+    }
+
+    /**
+     * Base of the exponential backoff between {@link FasterSparqlProperties#queryRetries()}.
+     * The n-th retry waits a random time between zero and {@code base-ms * 2^(n-1)}, capped
+     * at {@link FasterSparqlProperties#queryRetryMaxMs()}.
+     *
+     * The default is {@link FasterSparqlProperties#DEF_CLIENT_QUERY_RETRY_BASE_MS}.
+     */
+    public static @NonNegative int queryRetryBaseMs() {
+        return readNonNegativeInt(CLIENT_QUERY_RETRY_BASE_MS, DEF_CLIENT_QUERY_RETRY_BASE_MS);
+    }
+
+    /**
+     * Maximum wait before a retry of {@link FasterSparqlProperties#queryRetries()}.
+     *
+     * The default is {@link FasterSparqlProperties#DEF_CLIENT_QUERY_RETRY_MAX_MS}.
+     */
+    public static @NonNegative int queryRetryMaxMs() {
+        return readNonNegativeInt(CLIENT_QUERY_RETRY_MAX_MS, DEF_CLIENT_QUERY_RETRY_MAX_MS);
+    }
+
+    /**
+     * Maximum number of HTTP redirects (301, 302, 303, 307 and 308) followed by a single
+     * request. Zero disables following redirects.
+     *
+     * The default is {@link FasterSparqlProperties#DEF_CLIENT_MAX_REDIRECTS}.
+     */
+    public static @NonNegative int maxRedirects() {
+        return readNonNegativeInt(CLIENT_MAX_REDIRECTS, DEF_CLIENT_MAX_REDIRECTS);
+    }
 }
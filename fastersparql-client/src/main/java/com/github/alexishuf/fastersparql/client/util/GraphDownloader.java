@@ -0,0 +1,284 @@
+package com.github.alexishuf.fastersparql.client.util;
+
+import com.github.alexishuf.fastersparql.client.model.DownloadOptions;
+import com.github.alexishuf.fastersparql.client.model.DownloadStats;
+import com.github.alexishuf.fastersparql.client.model.Graph;
+import com.github.alexishuf.fastersparql.client.parser.fragment.TriplesParser;
+import com.github.alexishuf.fastersparql.client.parser.fragment.TriplesParser.Syntax;
+import com.github.alexishuf.fastersparql.client.util.async.AsyncTask;
+import com.github.alexishuf.fastersparql.client.util.async.CompletableAsyncTask;
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Writes the fragments of a {@link Graph} into a {@link WritableByteChannel}, such as a
+ * {@link java.nio.channels.FileChannel}.
+ *
+ * <p>Supported fragment types are {@code byte[]}, {@link ByteBuffer} (written with a single
+ * gathering write when possible), {@link CharSequence} (encoded with the graph charset) and
+ * {@code String[]} triples or quads (written as N-Triples/N-Quads lines). Subclasses may
+ * support more types by overriding {@link GraphDownloader#write(Object)}.</p>
+ *
+ * <p>Fragments are written from the thread that delivers them and at most a small batch of
+ * fragments is requested ahead, thus a slow destination applies backpressure to the
+ * server. The destination channel is not closed once the download completes.</p>
+ */
+public class GraphDownloader implements Subscriber<Object> {
+    private static final Logger log = LoggerFactory.getLogger(GraphDownloader.class);
+    private static final int BATCH = 64;
+    private static final int GZIP_BUFFER = 64*1024;
+
+    private final WritableByteChannel dest;
+    private final DownloadOptions options;
+    private final CompletableAsyncTask<DownloadStats> task = new CompletableAsyncTask<>();
+    private @MonotonicNonNull Graph<?> graph;
+    private @MonotonicNonNull Subscription upstream;
+    private @Nullable MediaType mediaType;
+    private Charset charset = UTF_8;
+    private @Nullable GZIPOutputStream gzip;
+    private byte @Nullable [] scratch;
+    private @Nullable TriplesParser tripleCounter;
+    private boolean initialized, terminated, counted;
+    private char pendingHighSurrogate;
+    private int pending;
+    private long received, written, triples;
+
+    public GraphDownloader(WritableByteChannel dest, DownloadOptions options) {
+        this.dest = dest;
+        this.options = options;
+    }
+
+    /**
+     * Subscribe to {@code graph} and write all its fragments.
+     *
+     * @param graph the graph to download. Its publisher must not have been subscribed.
+     * @return an {@link AsyncTask} that completes after the last fragment was written, or
+     *         completes exceptionally if the graph publisher or a write fails.
+     */
+    public AsyncTask<DownloadStats> download(Graph<?> graph) {
+        if (this.graph != null)
+            throw new IllegalStateException("download() already called");
+        this.graph = graph;
+        graph.publisher().subscribe(this);
+        return task;
+    }
+
+    /* --- --- --- Subscriber methods --- --- --- */
+
+    @Override public void onSubscribe(Subscription s) {
+        upstream = s;
+        pending = BATCH;
+        s.request(BATCH);
+    }
+
+    @Override public void onNext(Object fragment) {
+        if (terminated) {
+            discard(fragment);
+            return;
+        }
+        try {
+            init();
+            write(fragment);
+        } catch (Throwable t) {
+            terminated = true;
+            upstream.cancel();
+            fail(t);
+            return;
+        }
+        if (--pending <= BATCH/2) {
+            upstream.request(BATCH - pending);
+            pending = BATCH;
+        }
+    }
+
+    @Override public void onError(Throwable t) {
+        if (!terminated) {
+            terminated = true;
+            fail(t);
+        }
+    }
+
+    @Override public void onComplete() {
+        if (terminated)
+            return;
+        terminated = true;
+        try {
+            init();
+            if (pendingHighSurrogate != 0)
+                writeAll(charset.encode("\uFFFD"));
+            if (gzip != null)
+                gzip.finish();
+            if (tripleCounter != null)
+                tripleCounter.end();
+        } catch (Throwable t) {
+            fail(t);
+            return;
+        }
+        long triplesCount = counted ? triples : -1;
+        task.complete(new DownloadStats(mediaType, received, written, triplesCount));
+    }
+
+    @Override public String toString() {
+        return "GraphDownloader{dest="+dest+", options="+options+"}";
+    }
+
+    /* --- --- --- methods for subclasses --- --- --- */
+
+    /**
+     * Called for fragments received after the download failed. Subclasses should release
+     * any resources held by such fragments. The default implementation does nothing.
+     */
+    protected void discard(Object fragment) { }
+
+    /**
+     * Write a single fragment.
+     *
+     * @throws IllegalArgumentException if the fragment type is not supported.
+     */
+    protected void write(Object fragment) throws IOException {
+        if (fragment instanceof byte[]) {
+            writeAll(ByteBuffer.wrap((byte[]) fragment));
+        } else if (fragment instanceof ByteBuffer) {
+            writeAll((ByteBuffer) fragment);
+        } else if (fragment instanceof CharSequence) {
+            writeAll(encode((CharSequence) fragment));
+        } else if (fragment instanceof String[]) {
+            String[] terms = (String[]) fragment;
+            StringBuilder sb = new StringBuilder();
+            for (String term : terms) {
+                if (term != null)
+                    sb.append(term).append(' ');
+            }
+            if (options.countTriples()) {
+                tripleCounter = null; // fragments are already parsed triples
+                counted = true;
+                ++triples;
+            }
+            writeBuffers(false, ByteBuffer.wrap(sb.append(".\n").toString().getBytes(charset)));
+        } else {
+            String cls = fragment == null ? "null" : fragment.getClass().getName();
+            throw new IllegalArgumentException("Cannot download fragments of type "+cls);
+        }
+    }
+
+    /**
+     * Write the remaining bytes of all {@code buffers}, in order, advancing their positions.
+     * If there is no compression and the destination is a {@link GatheringByteChannel}, a
+     * single gathering write is attempted.
+     */
+    protected final void writeAll(ByteBuffer... buffers) throws IOException {
+        writeBuffers(true, buffers);
+    }
+
+    /* --- --- --- implementation details --- --- --- */
+
+    private void init() throws Exception {
+        if (initialized)
+            return;
+        initialized = true;
+        assert graph != null;
+        mediaType = graph.mediaType().get();
+        charset = graph.charset().get();
+        if (options.gzip()) {
+            scratch = new byte[GZIP_BUFFER];
+            gzip = new GZIPOutputStream(new DestOutputStream(), GZIP_BUFFER);
+        }
+        if (options.countTriples()) {
+            Syntax syntax = Syntax.forMediaType(mediaType);
+            if (syntax == null)
+                log.info("{}: cannot count triples of {}", this, mediaType);
+            else
+                tripleCounter = new TriplesParser(syntax, charset, t -> ++triples);
+            counted = tripleCounter != null;
+        }
+    }
+
+    private void fail(Throwable t) {
+        if (gzip != null) {
+            try {
+                gzip.close();
+            } catch (Throwable ignored) { }
+        }
+        task.completeExceptionally(t);
+    }
+
+    private ByteBuffer encode(CharSequence cs) {
+        int len = cs.length();
+        if (pendingHighSurrogate != 0) {
+            cs = new StringBuilder(len+1).append(pendingHighSurrogate).append(cs);
+            pendingHighSurrogate = 0;
+            len = cs.length();
+        }
+        if (len > 0 && Character.isHighSurrogate(cs.charAt(len-1))) {
+            pendingHighSurrogate = cs.charAt(len-1);
+            cs = cs.subSequence(0, len-1);
+        }
+        return charset.encode(CharBuffer.wrap(cs));
+    }
+
+    private void writeBuffers(boolean parseTriples, ByteBuffer... buffers) throws IOException {
+        for (ByteBuffer bb : buffers) {
+            received += bb.remaining();
+            if (parseTriples && tripleCounter != null)
+                tripleCounter.feed(bb.duplicate());
+        }
+        if (gzip != null) {
+            assert scratch != null;
+            for (ByteBuffer bb : buffers) {
+                if (bb.hasArray()) {
+                    gzip.write(bb.array(), bb.arrayOffset()+bb.position(), bb.remaining());
+                    bb.position(bb.limit());
+                } else {
+                    while (bb.hasRemaining()) {
+                        int n = Math.min(scratch.length, bb.remaining());
+                        bb.get(scratch, 0, n);
+                        gzip.write(scratch, 0, n);
+                    }
+                }
+            }
+        } else if (buffers.length > 1 && dest instanceof GatheringByteChannel) {
+            GatheringByteChannel gathering = (GatheringByteChannel) dest;
+            long remaining = 0;
+            for (ByteBuffer bb : buffers)
+                remaining += bb.remaining();
+            while (remaining > 0) {
+                long n = gathering.write(buffers);
+                written += n;
+                remaining -= n;
+            }
+        } else {
+            for (ByteBuffer bb : buffers) {
+                while (bb.hasRemaining())
+                    written += dest.write(bb);
+            }
+        }
+    }
+
+    /** Receives compressed bytes from {@link GraphDownloader#gzip}. */
+    private final class DestOutputStream extends OutputStream {
+        @Override public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override public void write(byte[] b, int off, int len) throws IOException {
+            ByteBuffer bb = ByteBuffer.wrap(b, off, len);
+            while (bb.hasRemaining())
+                written += dest.write(bb);
+        }
+    }
+}
@@ -3,6 +3,9 @@ package com.github.alexishuf.fastersparql.client.util;
 import com.github.alexishuf.fastersparql.client.exceptions.SparqlClientInvalidArgument;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.time.DateTimeException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.regex.Pattern;
 
 public class HeaderUtils {
@@ -37,4 +40,32 @@ public class HeaderUtils {
         }
         return checkToken(sanitized, "Header name");
     }
+
+    /**
+     * Parse the value of a {@code Retry-After} header, which can be a number of seconds or
+     * an RFC 1123 date.
+     *
+     * @param value the header value, may be null
+     * @param nowMillis current time, in milliseconds since the epoch
+     * @return the number of milliseconds to wait (0 if the date is in the past) or -1 if
+     *         {@code value} is null or cannot be parsed.
+     */
+    public static long parseRetryAfterMs(@Nullable String value, long nowMillis) {
+        if (value == null || (value = value.trim()).isEmpty())
+            return -1;
+        if (Character.isDigit(value.charAt(0))) {
+            try {
+                return Math.multiplyExact(Long.parseLong(value), 1000L);
+            } catch (NumberFormatException | ArithmeticException e) {
+                return -1;
+            }
+        }
+        try {
+            long at = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME)
+                                   .toInstant().toEpochMilli();
+            return Math.max(0, at - nowMillis);
+        } catch (DateTimeException e) {
+            return -1;
+        }
+    }
 }
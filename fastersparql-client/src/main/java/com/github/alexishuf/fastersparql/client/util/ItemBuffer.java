@@ -0,0 +1,33 @@
+package com.github.alexishuf.fastersparql.client.util;
+
+/**
+ * A FIFO buffer of items that allows random access by position.
+ *
+ * <p>Implementations may hold resources outside the Java heap, which are released by
+ * {@link ItemBuffer#close()}. After {@code close()}, the buffer is empty and must not
+ * be used anymore.</p>
+ *
+ * @param <T> the item type
+ */
+public interface ItemBuffer<T> extends AutoCloseable {
+    /** Equivalent to {@code size() == 0}. */
+    default boolean isEmpty() { return size() == 0; }
+
+    /** Get the number of items in this buffer, not be confused with its inner capacity  */
+    int size();
+
+    /** Remove all elements from the buffer, i.e., making {@code size() == 0} */
+    default void clear() { removeFirst(size()); }
+
+    /** Add {@code item} to the end of the buffer, i.e. {@code get(size()-1) == item} */
+    void add(T item);
+
+    /** Get the i-th item in this buffer, where {@code 0 <= i < size()}. */
+    T get(int i);
+
+    /**  Remove the first {@code n} elements of this buffer. */
+    void removeFirst(int n);
+
+    /** Release all resources held by this buffer. Items are discarded. */
+    @Override default void close() { clear(); }
+}
@@ -153,9 +153,7 @@ public final class Merger<R> {
         for (int i = 0; i < sources.length; i++) {
             int idx = sources[i];
             if (idx != 0) {
-                String var = outVars.get(i);
-                Object value = rowOps.get(idx > 0 ? left : right, Math.abs(idx) - 1, var);
-                rowOps.set(merged, i, var, value);
+                rowOps.copy(idx > 0 ? left : right, Math.abs(idx) - 1, merged, i, outVars.get(i));
             }
         }
         return merged;
@@ -0,0 +1,109 @@
+package com.github.alexishuf.fastersparql.client.util;
+
+import com.github.alexishuf.fastersparql.client.exceptions.SparqlClientInvalidArgument;
+import com.github.alexishuf.fastersparql.client.model.SparqlEndpoint;
+import com.github.alexishuf.fastersparql.client.model.SparqlMethod;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Helpers for following HTTP redirects and a cache of permanent redirects (301 and 308),
+ * shared by all clients, so that requests to a moved endpoint go straight to its new
+ * location instead of paying a redirect round-trip on every request.
+ */
+public class RedirectCache {
+    private static final ConcurrentHashMap<String, SparqlEndpoint> permanent
+            = new ConcurrentHashMap<>();
+
+    /** Whether {@code code} is a redirect status that can be followed. */
+    public static boolean isRedirect(int code) {
+        return code == 301 || code == 302 || code == 303 || code == 307 || code == 308;
+    }
+
+    /** Whether {@code code} is a permanent redirect (301 or 308). */
+    public static boolean isPermanent(int code) {
+        return code == 301 || code == 308;
+    }
+
+    /**
+     * Whether following a redirect with status {@code code} of a request sent with
+     * {@code method} must use GET: always for 303 and, as done by browsers, for non-GET
+     * requests redirected with 301 or 302. 307 and 308 preserve the method and body.
+     */
+    public static boolean switchesToGet(int code, SparqlMethod method) {
+        return code == 303 || ((code == 301 || code == 302) && method != SparqlMethod.GET);
+    }
+
+    /**
+     * Get the target of a cached permanent redirect of {@code endpoint}.
+     *
+     * @return the {@link SparqlEndpoint} to which {@code endpoint} was permanently
+     *         redirected or null if there is no such redirect cached.
+     */
+    public static @Nullable SparqlEndpoint get(SparqlEndpoint endpoint) {
+        return permanent.get(endpoint.uri());
+    }
+
+    /** Remember that {@code from} was permanently redirected to {@code to}. */
+    public static void putPermanent(SparqlEndpoint from, SparqlEndpoint to) {
+        if (!from.uri().equals(to.uri()))
+            permanent.put(from.uri(), to);
+    }
+
+    /** Forget a cached permanent redirect of the endpoint with the given URI. */
+    public static void remove(String uri) {
+        permanent.remove(uri);
+    }
+
+    /** Forget all cached permanent redirects. */
+    public static void clear() {
+        permanent.clear();
+    }
+
+    /**
+     * Compute the {@link SparqlEndpoint} referred to by a {@code Location} header received
+     * in response to a request to {@code from}.
+     *
+     * <p>{@code location} is resolved against {@code from} and the {@code query} parameter
+     * (as well as parameters set by {@code from.configuration()}) are removed, since the
+     * redirect of a GET request usually echoes them. The result has the same
+     * {@link SparqlEndpoint#configuration()} of {@code from}.</p>
+     *
+     * @throws SparqlClientInvalidArgument if {@code location} is not a valid URI reference
+     *         or does not resolve to an HTTP(S) URI.
+     */
+    public static SparqlEndpoint target(SparqlEndpoint from, String location) {
+        URI uri;
+        try {
+            uri = from.toURI().resolve(location.trim());
+        } catch (IllegalArgumentException e) {
+            throw new SparqlClientInvalidArgument("Invalid Location "+location);
+        }
+        String scheme = uri.getScheme();
+        if (uri.getRawAuthority() == null || scheme == null
+                || !(scheme.equalsIgnoreCase("http") || scheme.equalsIgnoreCase("https"))) {
+            throw new SparqlClientInvalidArgument("Location "+location+" is not an HTTP(S) URI");
+        }
+        Map<String, ?> params = from.configuration().params();
+        StringBuilder b = new StringBuilder(location.length()+16);
+        b.append(scheme.toLowerCase()).append("://").append(uri.getRawAuthority());
+        String path = uri.getRawPath();
+        b.append(path == null || path.isEmpty() ? "/" : path);
+        String rawQuery = uri.getRawQuery();
+        if (rawQuery != null) {
+            char sep = '?';
+            for (String param : rawQuery.split("&")) {
+                int eq = param.indexOf('=');
+                String name = eq < 0 ? param : param.substring(0, eq);
+                if (name.isEmpty() || name.equals("query") || params.containsKey(name))
+                    continue;
+                b.append(sep).append(param);
+                sep = '&';
+            }
+        }
+        return new SparqlEndpoint(b.toString(), from.configuration());
+    }
+}
@@ -0,0 +1,199 @@
+package com.github.alexishuf.fastersparql.client.util.async;
+
+import com.github.alexishuf.fastersparql.client.exceptions.SparqlClientTimeoutException;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * A deadline and cancellation context shared by all requests derived from a single query
+ * execution (e.g., the right-side requests of bind joins).
+ *
+ * <p>A {@link Deadline} holds a single {@link TimerWheel.Timeout}, no matter how many requests
+ * observe it. Publishers register listeners with {@link Deadline#onExpire(Runnable)} and
+ * unregister them once they terminate. Once the deadline passes or {@link Deadline#cancel()}
+ * is called, all listeners are notified (on the {@link TimerWheel} thread or on the thread
+ * calling {@link Deadline#cancel()}) and {@link Deadline#error()} becomes non-null.</p>
+ *
+ * <p>Components that spawn requests asynchronously (e.g., bind joins) capture the
+ * {@link Deadline#current()} deadline when they are created and re-establish it with
+ * {@link Deadline#call(Supplier)} when they spawn new requests. Thus, a deadline set with
+ * {@code plan.execute(deadline)} is inherited by every request of that execution without
+ * changing the signature of every operator.</p>
+ */
+public final class Deadline {
+    private static final Logger log = LoggerFactory.getLogger(Deadline.class);
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long timeoutNanos, expiresAt;
+    private final TimerWheel.@Nullable Timeout timeout;
+    private @Nullable LinkedHashSet<Runnable> listeners = new LinkedHashSet<>();
+    private @Nullable SparqlClientTimeoutException error;
+
+    private Deadline(long timeoutNanos, TimerWheel wheel) {
+        this.timeoutNanos = timeoutNanos;
+        if (timeoutNanos == Long.MAX_VALUE) {
+            this.expiresAt = Long.MAX_VALUE;
+            this.timeout = null;
+        } else {
+            this.expiresAt = System.nanoTime() + timeoutNanos;
+            this.timeout = wheel.schedule(timeoutNanos, NANOSECONDS, this::expire);
+        }
+    }
+
+    /**
+     * Create a {@link Deadline} that expires {@code timeout} {@code unit}s from now.
+     */
+    public static Deadline after(long timeout, TimeUnit unit) {
+        return new Deadline(unit.toNanos(Math.max(0, timeout)), TimerWheel.shared());
+    }
+
+    /**
+     * Create a {@link Deadline} that only expires on {@link Deadline#cancel()}.
+     */
+    public static Deadline never() {
+        return new Deadline(Long.MAX_VALUE, TimerWheel.shared());
+    }
+
+    /**
+     * The {@link Deadline} set by an enclosing {@link Deadline#call(Supplier)} in this
+     * thread, if any.
+     */
+    public static @Nullable Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Run {@code supplier} with {@code deadline} as the {@link Deadline#current()} deadline.
+     * If {@code deadline} is null, the current deadline (if any) is kept.
+     */
+    public static <T> T call(@Nullable Deadline deadline, Supplier<T> supplier) {
+        return deadline == null ? supplier.get() : deadline.call(supplier);
+    }
+
+    /** Run {@code supplier} with this as the {@link Deadline#current()} deadline. */
+    public <T> T call(Supplier<T> supplier) {
+        Deadline old = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return supplier.get();
+        } finally {
+            if (old == null) CURRENT.remove();
+            else             CURRENT.set(old);
+        }
+    }
+
+    /**
+     * Call {@code listener} once this deadline expires or is cancelled. If that already
+     * happened, {@code listener} is called before this method returns.
+     *
+     * @return {@code false} if the deadline had already expired and {@code listener}
+     *         was called, {@code true} if it was registered.
+     */
+    public boolean onExpire(Runnable listener) {
+        synchronized (this) {
+            if (listeners != null) {
+                listeners.add(listener);
+                return true;
+            }
+        }
+        run(listener);
+        return false;
+    }
+
+    /** Stop notifying {@code listener} (e.g., because the request already terminated). */
+    public void removeListener(Runnable listener) {
+        synchronized (this) {
+            if (listeners != null)
+                listeners.remove(listener);
+        }
+    }
+
+    /**
+     * Expire this deadline now, stopping all requests that observe it. Has no effect if
+     * already expired.
+     */
+    public void cancel() {
+        if (timeout != null)
+            timeout.cancel();
+        terminate(new SparqlClientTimeoutException("Query cancelled"));
+    }
+
+    /** Whether the deadline passed or was {@link Deadline#cancel()}ed. */
+    public boolean isExpired() {
+        synchronized (this) {
+            if (error != null)
+                return true;
+        }
+        return expiresAt != Long.MAX_VALUE && System.nanoTime() - expiresAt >= 0;
+    }
+
+    /**
+     * How much time is left, truncated to {@code unit}. Zero if expired and
+     * {@link Long#MAX_VALUE} if this deadline only expires when cancelled.
+     */
+    public long remaining(TimeUnit unit) {
+        if (isExpired())
+            return 0;
+        if (expiresAt == Long.MAX_VALUE)
+            return Long.MAX_VALUE;
+        return unit.convert(Math.max(0, expiresAt - System.nanoTime()), NANOSECONDS);
+    }
+
+    /**
+     * The error to deliver to subscribers of requests stopped by this deadline, or null if
+     * not yet expired.
+     */
+    public @Nullable SparqlClientTimeoutException error() {
+        synchronized (this) {
+            if (error != null)
+                return error;
+        }
+        if (isExpired())
+            expire();
+        synchronized (this) {
+            return error;
+        }
+    }
+
+    private void expire() {
+        terminate(new SparqlClientTimeoutException("Query deadline of "
+                + NANOSECONDS.toMillis(timeoutNanos) + "ms expired"));
+    }
+
+    private void terminate(SparqlClientTimeoutException cause) {
+        List<Runnable> notify;
+        synchronized (this) {
+            if (listeners == null)
+                return;
+            error = cause;
+            notify = new ArrayList<>(listeners);
+            listeners = null;
+        }
+        log.debug("{}: notifying {} listeners", this, notify.size());
+        for (Runnable listener : notify)
+            run(listener);
+    }
+
+    private void run(Runnable listener) {
+        try {
+            listener.run();
+        } catch (Throwable t) {
+            log.error("{}: ignoring {} thrown by listener {}", this, t, listener, t);
+        }
+    }
+
+    @Override public String toString() {
+        return "Deadline@"+Integer.toHexString(System.identityHashCode(this))
+                + (timeoutNanos == Long.MAX_VALUE ? "(never)"
+                                                  : "("+NANOSECONDS.toMillis(timeoutNanos)+"ms)");
+    }
+}
@@ -0,0 +1,62 @@
+package com.github.alexishuf.fastersparql.client.util.async;
+
+import com.github.alexishuf.fastersparql.client.util.FasterSparqlProperties;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How many times and after how long to retry a failed request: exponential backoff with
+ * full jitter, so that clients which failed together (e.g., when a server drops all idle
+ * connections) do not retry together.
+ */
+public final class RetryBackoff {
+    private final int maxRetries;
+    private final long baseMs, maxMs;
+
+    /**
+     * Create a {@link RetryBackoff}.
+     *
+     * @param maxRetries maximum number of retries (not counting the first attempt)
+     * @param baseMs the first retry waits up to this many milliseconds, each subsequent
+     *               retry doubles the maximum wait
+     * @param maxMs cap of the maximum wait
+     */
+    public RetryBackoff(int maxRetries, long baseMs, long maxMs) {
+        if (maxRetries < 0)
+            throw new IllegalArgumentException("maxRetries="+maxRetries+" < 0");
+        if (baseMs < 0 || maxMs < 0)
+            throw new IllegalArgumentException("negative baseMs="+baseMs+" or maxMs="+maxMs);
+        this.maxRetries = maxRetries;
+        this.baseMs = baseMs;
+        this.maxMs = Math.max(baseMs, maxMs);
+    }
+
+    /**
+     * Create from {@link FasterSparqlProperties#queryRetries()},
+     * {@link FasterSparqlProperties#queryRetryBaseMs()} and
+     * {@link FasterSparqlProperties#queryRetryMaxMs()}.
+     */
+    public static RetryBackoff forQueries() {
+        return new RetryBackoff(FasterSparqlProperties.queryRetries(),
+                                FasterSparqlProperties.queryRetryBaseMs(),
+                                FasterSparqlProperties.queryRetryMaxMs());
+    }
+
+    public int maxRetries() { return maxRetries; }
+
+    /** Whether a request that already made {@code retries} retries may retry again. */
+    public boolean canRetry(int retries) { return retries < maxRetries; }
+
+    /**
+     * Random wait in milliseconds before the {@code retry}-th retry (starting from 1).
+     */
+    public long delayMs(int retry) {
+        int shift = Math.min(Math.max(0, retry-1), 30);
+        long ceiling = Math.min(maxMs, baseMs << shift);
+        return ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling+1);
+    }
+
+    @Override public String toString() {
+        return "RetryBackoff{maxRetries="+maxRetries+", baseMs="+baseMs+", maxMs="+maxMs+"}";
+    }
+}
@@ -0,0 +1,187 @@
+package com.github.alexishuf.fastersparql.client.util.async;
+
+import com.github.alexishuf.fastersparql.client.util.FasterSparqlProperties;
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * A hashed timer wheel for large numbers of coarse timeouts that are usually cancelled
+ * before they fire (e.g., query deadlines).
+ *
+ * <p>Scheduling and cancelling are O(1) and do not touch a shared heap, unlike
+ * {@link Async#schedule(long, TimeUnit, Runnable)}. Timeouts fire at most one tick late and
+ * never early. Tasks run on the single wheel thread and must be short, handing off any
+ * real work to another executor.</p>
+ */
+public final class TimerWheel {
+    private static final Logger log = LoggerFactory.getLogger(TimerWheel.class);
+    private static final int NEW = 0, CANCELLED = 1, EXPIRED = 2;
+    private static @MonotonicNonNull TimerWheel SHARED;
+
+    private final long tickNanos;
+    private final ArrayList<Timeout>[] buckets;
+    private final int mask;
+    private final ConcurrentLinkedQueue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final long startNanos = System.nanoTime();
+    private final Thread worker;
+    private volatile boolean parked;
+    private long tick, inWheel;
+
+    /** A scheduled task, which may be {@link Timeout#cancel()}ed before it runs. */
+    public static final class Timeout {
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(NEW);
+        private long rounds;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Prevent the task from running.
+         *
+         * @return true iff the task has not run and will not run.
+         */
+        public boolean cancel() { return state.compareAndSet(NEW, CANCELLED); }
+
+        /** Whether the task already ran (or is running). */
+        public boolean isExpired() { return state.get() == EXPIRED; }
+
+        @Override public String toString() {
+            return "Timeout{"+task+", state="+state.get()+"}";
+        }
+    }
+
+    /**
+     * The {@link TimerWheel} shared by the whole JVM, with a tick of
+     * {@link FasterSparqlProperties#timerTickMs()} milliseconds.
+     */
+    public static synchronized TimerWheel shared() {
+        if (SHARED == null)
+            SHARED = new TimerWheel("FasterSparql-TimerWheel", FasterSparqlProperties.timerTickMs(),
+                                    MILLISECONDS, 512);
+        return SHARED;
+    }
+
+    /**
+     * Create a wheel and start its (daemon) thread.
+     *
+     * @param name name of the wheel thread
+     * @param tick the wheel resolution
+     * @param unit {@link TimeUnit} of {@code tick}
+     * @param size number of buckets, rounded up to a power of 2
+     */
+    public TimerWheel(String name, long tick, TimeUnit unit, int size) {
+        if (tick <= 0)
+            throw new IllegalArgumentException("tick="+tick+" <= 0");
+        if (size < 1 || size > (1 << 30))
+            throw new IllegalArgumentException("size="+size+" not in [1, 2^30]");
+        this.tickNanos = unit.toNanos(tick);
+        int capacity = Integer.highestOneBit(size);
+        if (capacity < size)
+            capacity <<= 1;
+        //noinspection unchecked
+        this.buckets = new ArrayList[capacity];
+        for (int i = 0; i < capacity; i++)
+            buckets[i] = new ArrayList<>();
+        this.mask = capacity-1;
+        this.worker = new Thread(this::work, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Run {@code task} on the wheel thread once at least {@code delay} {@code unit}s elapsed.
+     *
+     * @return a {@link Timeout} that allows cancelling the task.
+     */
+    public Timeout schedule(long delay, TimeUnit unit, Runnable task) {
+        Timeout timeout = new Timeout(task, System.nanoTime() + unit.toNanos(Math.max(0, delay)));
+        pending.add(timeout);
+        if (parked)
+            LockSupport.unpark(worker);
+        return timeout;
+    }
+
+    /** The wheel resolution, in nanoseconds. */
+    public long tickNanos() { return tickNanos; }
+
+    @Override public String toString() {
+        return "TimerWheel["+worker.getName()+"]";
+    }
+
+    /* --- --- --- implementation --- --- --- */
+
+    private void work() {
+        //noinspection InfiniteLoopStatement
+        while (true) {
+            if (inWheel == 0 && pending.isEmpty()) {
+                parked = true;
+                if (pending.isEmpty())
+                    LockSupport.park(this);
+                parked = false;
+                // nothing was in the wheel, skip the ticks elapsed while parked
+                tick = Math.max(tick, (System.nanoTime() - startNanos) / tickNanos);
+            }
+            long sleep = startNanos + (tick+1)*tickNanos - System.nanoTime();
+            if (sleep > 0) {
+                LockSupport.parkNanos(this, sleep);
+                continue;
+            }
+            transferPending();
+            expire(buckets[(int) (tick & mask)]);
+            ++tick;
+        }
+    }
+
+    private void transferPending() {
+        for (Timeout t; (t = pending.poll()) != null; ) {
+            if (t.state.get() != NEW)
+                continue;
+            // bucket processed at tick k runs at startNanos + (k+1)*tickNanos >= deadline
+            long due = Math.max(tick, ceilDiv(t.deadline - startNanos, tickNanos) - 1);
+            t.rounds = (due - tick) / buckets.length;
+            buckets[(int) (due & mask)].add(t);
+            ++inWheel;
+        }
+    }
+
+    private static long ceilDiv(long a, long b) {
+        return a <= 0 ? 0 : (a + b - 1) / b;
+    }
+
+    private void expire(ArrayList<Timeout> bucket) {
+        int kept = 0;
+        for (int i = 0, size = bucket.size(); i < size; i++) {
+            Timeout t = bucket.get(i);
+            if (t.state.get() != NEW) {
+                --inWheel;
+            } else if (t.rounds > 0) {
+                --t.rounds;
+                bucket.set(kept++, t);
+            } else {
+                --inWheel;
+                if (t.state.compareAndSet(NEW, EXPIRED)) {
+                    try {
+                        t.task.run();
+                    } catch (Throwable e) {
+                        log.error("{}: ignoring {} thrown by {}", this, e, t.task, e);
+                    }
+                }
+            }
+        }
+        for (int i = bucket.size()-1; i >= kept; i--)
+            bucket.remove(i);
+    }
+}
@@ -1,6 +1,9 @@
 package com.github.alexishuf.fastersparql.client.util.bind;
 
+import com.github.alexishuf.fastersparql.client.exceptions.SparqlClientTimeoutException;
+import com.github.alexishuf.fastersparql.client.util.async.Deadline;
 import com.github.alexishuf.fastersparql.client.util.reactive.AbstractProcessor;
+import com.github.alexishuf.fastersparql.client.util.reactive.DeadlineProcessor;
 import com.github.alexishuf.fastersparql.client.util.reactive.EmptyPublisher;
 import com.github.alexishuf.fastersparql.client.util.reactive.FSPublisher;
 import com.github.alexishuf.fastersparql.client.util.reactive.MergePublisher;
@@ -19,6 +22,7 @@ public class BindPublisher<R> extends MergePublisher<R> {
     private final FSPublisher<R> bindingsPublisher;
     private final int bindConcurrency;
     private final Binder<R> binder;
+    private final @Nullable Deadline deadline = Deadline.current();
 
     /* --- --- --- bindings state --- --- --- */
     private @MonotonicNonNull Subscription bindingsSubscription;
@@ -58,6 +62,14 @@ public class BindPublisher<R> extends MergePublisher<R> {
         super.feed(item);
     }
 
+    @Override protected void onComplete(Throwable cause, boolean cancelled) {
+        // stop consuming bindings, else failed or cancelled binds would keep running the left side
+        if ((cause != null || cancelled) && bindingsActive && bindingsSubscription != null) {
+            bindingsActive = false;
+            bindingsSubscription.cancel();
+        }
+    }
+
     /* --- --- --- bindings subscriber --- --- --- --- */
 
     /**
@@ -95,14 +107,20 @@ public class BindPublisher<R> extends MergePublisher<R> {
 
         @Override public void onNext(R r) {
             ++bindings;
+            SparqlClientTimeoutException expired = deadline == null ? null : deadline.error();
+            if (expired != null) { // do not start new requests after the deadline
+                addPublisher(new EmptyPublisher<>(expired));
+                return;
+            }
             FSPublisher<R> publisher = null;
             try {
-                publisher = binder.bind(r);
+                // bound requests (and nested plans) inherit the deadline of the execution
+                publisher = Deadline.call(deadline, () -> binder.bind(r));
             } catch (Throwable error) {
                 addPublisher(new EmptyPublisher<>(error));
             }
             if (publisher != null)
-                addPublisher(new BoundProcessor<>(publisher));
+                addPublisher(new BoundProcessor<>(DeadlineProcessor.wrap(publisher, deadline)));
         }
 
         @Override public void onError(Throwable t) {
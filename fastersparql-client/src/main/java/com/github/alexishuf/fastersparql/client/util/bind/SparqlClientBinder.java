@@ -5,13 +5,17 @@ import com.github.alexishuf.fastersparql.client.SparqlClient;
 import com.github.alexishuf.fastersparql.client.model.SparqlConfiguration;
 import com.github.alexishuf.fastersparql.client.model.row.RowOperations;
 import com.github.alexishuf.fastersparql.client.util.SparqlMerger;
+import com.github.alexishuf.fastersparql.client.util.async.AsyncTask;
 import com.github.alexishuf.fastersparql.client.util.reactive.AbstractProcessor;
+import com.github.alexishuf.fastersparql.client.util.reactive.CallbackPublisher;
 import com.github.alexishuf.fastersparql.client.util.reactive.FSPublisher;
 import com.github.alexishuf.fastersparql.client.util.reactive.MonoPublisher;
 import org.checkerframework.checker.nullness.qual.Nullable;
+import org.reactivestreams.Subscriber;
 
 import java.util.List;
 
+import static com.github.alexishuf.fastersparql.client.BindType.LEFT_JOIN;
 import static com.github.alexishuf.fastersparql.client.BindType.MINUS;
 
 public final class SparqlClientBinder<R> implements Binder<R> {
@@ -40,17 +44,17 @@ public final class SparqlClientBinder<R> implements Binder<R> {
     @Override public FSPublisher<R> bind(R leftRow) {
         if (bindType == MINUS && merger.isProduct())
             return new MonoPublisher<>(leftRow);
-        FSPublisher<R> pub = client.query(merger.bindSparql(leftRow), configuration).publisher();
+        CharSequence sparql = merger.bindSparql(leftRow);
         switch (bindType) {
             case JOIN:
-                return new   ClientJoinProcessor<>(pub, leftRow, merger, false);
             case LEFT_JOIN:
-                return new   ClientJoinProcessor<>(pub, leftRow, merger, true);
+                FSPublisher<R> pub = client.query(sparql, configuration).publisher();
+                return new ClientJoinProcessor<>(pub, leftRow, merger, bindType == LEFT_JOIN);
             case EXISTS:
-                return new ClientExistsProcessor<>(pub, leftRow, false);
+                return new AskPublisher<>(client.ask(sparql, configuration), leftRow, false);
             case NOT_EXISTS:
             case MINUS:
-                return new ClientExistsProcessor<>(pub, leftRow, true);
+                return new AskPublisher<>(client.ask(sparql, configuration), leftRow, true);
             default:
                 throw new UnsupportedOperationException("Unexpected bindType="+bindType);
         }
@@ -91,32 +95,35 @@ public final class SparqlClientBinder<R> implements Binder<R> {
         }
     }
 
-    private static final class ClientExistsProcessor<T> extends AbstractProcessor<T, T> {
+    /**
+     * Emits the left row if the ASK query result (negated if {@code negate}) is {@code true}.
+     */
+    private static final class AskPublisher<T> extends CallbackPublisher<T> {
+        private final AsyncTask<Boolean> ask;
         private final T leftRow;
         private final boolean negate;
-        private boolean empty = true, completed = false;
 
-        public ClientExistsProcessor(FSPublisher<? extends T> source, T leftRow, boolean negate) {
-            super(source);
+        public AskPublisher(AsyncTask<Boolean> ask, T leftRow, boolean negate) {
+            super(negate ? "ClientNotExistsPublisher" : "ClientExistsPublisher");
+            this.ask = ask;
             this.leftRow = leftRow;
             this.negate = negate;
         }
 
-        @Override protected void handleOnNext(T item) throws Exception {
-            empty = false;
-            cancelUpstream();
-            completeDownstream(null);
-        }
-
-        @Override protected void completeDownstream(@Nullable Throwable cause) {
-            if (!completed && cause == null && (!empty ^ negate))
-                emit(leftRow);
-            completed = true;
-            super.completeDownstream(cause);
+        @Override public void subscribe(Subscriber<? super T> s) {
+            boolean first = !isSubscribed();
+            super.subscribe(s);
+            if (first) { // only feed() after a moveTo() is no longer allowed
+                ask.whenComplete((result, error) -> {
+                    if (error == null && (result ^ negate))
+                        feed(leftRow);
+                    complete(error);
+                });
+            }
         }
 
-        @Override public String toString() {
-            return negate ? "ClientNotExistsProcessor" : "ClientExistsProcessor";
-        }
+        @Override protected void onRequest(long n) { }
+        @Override protected void onBackpressure() { }
+        @Override protected void onCancel() { ask.cancel(false); }
     }
 }
@@ -0,0 +1,277 @@
+package com.github.alexishuf.fastersparql.client.util.health;
+
+import com.github.alexishuf.fastersparql.client.exceptions.SparqlClientCircuitOpenException;
+import com.github.alexishuf.fastersparql.client.model.SparqlEndpoint;
+import com.github.alexishuf.fastersparql.client.util.FasterSparqlProperties;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Tracks the outcome of recent requests to an endpoint and rejects new requests while the
+ * endpoint is failing.
+ *
+ * <p>While {@link State#CLOSED}, all requests are allowed. Once the failure rate over the last
+ * {@code window} outcomes reaches {@code failurePercent} (with at least {@code minCalls}
+ * outcomes), the circuit becomes {@link State#OPEN} and all requests are rejected for
+ * {@code openMs} milliseconds. After that the circuit becomes {@link State#HALF_OPEN},
+ * allowing up to {@code halfOpenProbes} concurrent requests. If all of them succeed, the
+ * circuit closes, if any fails, it opens again.</p>
+ *
+ * <p>Clients call {@link CircuitBreaker#acquire(SparqlEndpoint)} before sending a request and
+ * report its outcome through the returned {@link Permit} once the response ends. Only failures
+ * that indicate a sick endpoint (connection errors, 5xx responses, premature ends) should be
+ * reported as failures. Errors caused by the query itself (e.g., 4xx) are successes from the
+ * circuit perspective.</p>
+ */
+public class CircuitBreaker {
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        /** Requests are allowed and outcomes are recorded. */
+        CLOSED,
+        /** Requests are rejected. */
+        OPEN,
+        /** A limited number of probe requests are allowed. */
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final boolean enabled;
+    private final boolean[] window;
+    private final int minCalls, failurePercent, halfOpenProbes;
+    private final long slowCallNanos, openNanos;
+    private int size, next, failures;
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int probes, probeSuccesses;
+    /** Incremented on every transition to {@link State#HALF_OPEN}. */
+    private int halfOpenEpoch;
+    private long rejected, opened;
+
+    /**
+     * Create a new {@link CircuitBreaker}.
+     *
+     * @param name name used in log messages and {@link CircuitBreaker#toString()}
+     * @param enabled if false, the circuit never opens, but outcomes are still recorded
+     *                for {@link CircuitBreaker#health()}.
+     * @param window how many of the most recent outcomes are considered
+     * @param minCalls minimum number of outcomes in the window before the circuit may open
+     * @param failurePercent the circuit opens once this percentage of outcomes are failures
+     * @param slowCallMs if positive, successes that took longer than this count as failures
+     * @param openMs for how long an open circuit rejects all requests
+     * @param halfOpenProbes how many concurrent probes a half-open circuit allows
+     */
+    public CircuitBreaker(String name, boolean enabled, int window, int minCalls,
+                          int failurePercent, long slowCallMs, long openMs, int halfOpenProbes) {
+        if (window < 1)
+            throw new IllegalArgumentException("window="+window+" < 1");
+        if (failurePercent < 1 || failurePercent > 100)
+            throw new IllegalArgumentException("failurePercent="+failurePercent+" not in [1, 100]");
+        if (halfOpenProbes < 1)
+            throw new IllegalArgumentException("halfOpenProbes="+halfOpenProbes+" < 1");
+        this.name = name;
+        this.enabled = enabled;
+        this.window = new boolean[window];
+        this.minCalls = Math.max(1, Math.min(window, minCalls));
+        this.failurePercent = failurePercent;
+        this.slowCallNanos = MILLISECONDS.toNanos(Math.max(0, slowCallMs));
+        this.openNanos = MILLISECONDS.toNanos(Math.max(0, openMs));
+        this.halfOpenProbes = halfOpenProbes;
+    }
+
+    /** Create a {@link CircuitBreaker} configured by {@link FasterSparqlProperties}. */
+    public static CircuitBreaker fromProperties(String name) {
+        return new CircuitBreaker(name, FasterSparqlProperties.circuitEnable(),
+                                  FasterSparqlProperties.circuitWindow(),
+                                  FasterSparqlProperties.circuitMinCalls(),
+                                  FasterSparqlProperties.circuitFailurePercent(),
+                                  FasterSparqlProperties.circuitSlowMs(),
+                                  FasterSparqlProperties.circuitOpenMs(),
+                                  FasterSparqlProperties.circuitHalfOpenProbes());
+    }
+
+    /**
+     * A permission to send one request. Exactly one of {@link Permit#success()},
+     * {@link Permit#failure()} or {@link Permit#release()} takes effect; subsequent calls
+     * are ignored.
+     */
+    public final class Permit {
+        private final long start = System.nanoTime();
+        private final boolean probe;
+        private final int epoch = halfOpenEpoch;
+        private final AtomicBoolean done = new AtomicBoolean();
+        private volatile long respondedAfter = -1;
+
+        private Permit(boolean probe) { this.probe = probe; }
+
+        /**
+         * The endpoint started answering. Slow calls are detected by the time until the first
+         * call of this method, but the outcome is only recorded by {@link Permit#success()} or
+         * {@link Permit#failure()}, thus failures while receiving the remainder of the
+         * response still count.
+         */
+        public void responded() {
+            if (respondedAfter < 0)
+                respondedAfter = System.nanoTime() - start;
+        }
+
+        /** The endpoint answered (even if with an error caused by the query). */
+        public void success() {
+            if (done.compareAndSet(false, true)) {
+                long elapsed = respondedAfter;
+                if (elapsed < 0)
+                    elapsed = System.nanoTime() - start;
+                record(this, slowCallNanos > 0 && elapsed > slowCallNanos);
+            }
+        }
+
+        /** The request failed due to the endpoint or network. */
+        public void failure() {
+            if (done.compareAndSet(false, true))
+                record(this, true);
+        }
+
+        /** The outcome is unknown (e.g., the request was cancelled before an answer). */
+        public void release() {
+            if (done.compareAndSet(false, true))
+                CircuitBreaker.this.release(this);
+        }
+
+        /** Whether one of {@link Permit#success()}, {@link Permit#failure()} or
+         *  {@link Permit#release()} was already called. */
+        public boolean isDone() { return done.get(); }
+
+        @Override public String toString() {
+            return CircuitBreaker.this+".Permit"+(probe ? "(probe)" : "");
+        }
+    }
+
+    /**
+     * Get a {@link Permit} to send a request or {@code null} if the circuit is open.
+     */
+    public synchronized @Nullable Permit tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos) {
+                ++rejected;
+                return null;
+            }
+            log.info("{}: half-open after {}ms, allowing {} probe(s)",
+                     this, NANOSECONDS.toMillis(openNanos), halfOpenProbes);
+            state = State.HALF_OPEN;
+            ++halfOpenEpoch;
+            probes = probeSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probes + probeSuccesses >= halfOpenProbes) {
+                ++rejected;
+                return null;
+            }
+            ++probes;
+            return new Permit(true);
+        }
+        return new Permit(false);
+    }
+
+    /**
+     * Get a {@link Permit} or throw if the circuit is open.
+     *
+     * @param endpoint the endpoint to report in the exception
+     * @throws SparqlClientCircuitOpenException if the circuit is open
+     */
+    public Permit acquire(SparqlEndpoint endpoint) {
+        Permit permit = tryAcquire();
+        if (permit == null) {
+            throw new SparqlClientCircuitOpenException(endpoint, "Circuit open after "
+                    + failurePercent + "% or more of recent requests failed");
+        }
+        return permit;
+    }
+
+    private synchronized void record(Permit permit, boolean failure) {
+        if (permit.probe) {
+            if (permit.epoch != halfOpenEpoch)
+                return; // probe from an earlier half-open cycle: its outcome is stale
+            --probes;
+            if (state == State.HALF_OPEN) {
+                if (failure) {
+                    open("probe failed");
+                } else if (++probeSuccesses >= halfOpenProbes) {
+                    log.info("{}: closing after {} successful probe(s)", this, probeSuccesses);
+                    state = State.CLOSED;
+                    size = next = failures = 0;
+                }
+                return;
+            }
+        }
+        if (size == window.length) {
+            if (window[next]) --failures;
+        } else {
+            ++size;
+        }
+        window[next] = failure;
+        next = (next+1) % window.length;
+        if (failure) {
+            ++failures;
+            if (state == State.CLOSED && enabled && size >= minCalls
+                    && failures*100 >= failurePercent*size) {
+                open(failures+"/"+size+" recent requests failed");
+            }
+        }
+    }
+
+    private synchronized void release(Permit permit) {
+        if (permit.probe && permit.epoch == halfOpenEpoch)
+            --probes;
+    }
+
+    private void open(String reason) {
+        log.warn("{}: opening circuit for {}ms: {}", this, NANOSECONDS.toMillis(openNanos), reason);
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+        ++opened;
+    }
+
+    /** Current state. An {@link State#OPEN} circuit may be half-open on the next request. */
+    public synchronized State state() { return state; }
+
+    /** Fraction of failures among the outcomes in the window, 0 if there are no outcomes. */
+    public synchronized double failureRate() {
+        return size == 0 ? 0 : failures / (double) size;
+    }
+
+    /**
+     * A score in {@code [0, 1]} where 1 is a perfectly healthy endpoint. It is 0 while the
+     * circuit is {@link State#OPEN}, between 0.1 and 0.5 while {@link State#HALF_OPEN} (or
+     * open but ready to become half-open) and {@code 1 - failureRate()} while
+     * {@link State#CLOSED}.
+     */
+    public synchronized double health() {
+        switch (state) {
+            case OPEN:
+                if (System.nanoTime() - openedAt < openNanos)
+                    return 0;
+            case HALF_OPEN:
+                return Math.max(0.1, 0.5 * (1 - failureRate()));
+            default:
+                return 1 - failureRate();
+        }
+    }
+
+    /** How many requests were rejected since creation. */
+    public synchronized long rejected() { return rejected; }
+
+    /** How many times the circuit opened since creation. */
+    public synchronized long opened() { return opened; }
+
+    public String name() { return name; }
+
+    @Override public String toString() {
+        return "CircuitBreaker["+name+"]";
+    }
+}
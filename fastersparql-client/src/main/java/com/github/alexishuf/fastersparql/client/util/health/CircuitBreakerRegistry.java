@@ -0,0 +1,53 @@
+package com.github.alexishuf.fastersparql.client.util.health;
+
+import com.github.alexishuf.fastersparql.client.model.SparqlEndpoint;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds one {@link CircuitBreaker} per endpoint URI, shared by all clients of that endpoint,
+ * so that failures observed by one client protect all others (e.g., the clients of a
+ * federation and the replicas of a
+ * {@link com.github.alexishuf.fastersparql.client.replica.ReplicaGroupClient}).
+ */
+public class CircuitBreakerRegistry {
+    private static final ConcurrentHashMap<String, CircuitBreaker> breakers
+            = new ConcurrentHashMap<>();
+
+    /**
+     * Get the shared {@link CircuitBreaker} of the endpoint, creating it with
+     * {@link CircuitBreaker#fromProperties(String)} if necessary.
+     */
+    public static CircuitBreaker get(SparqlEndpoint endpoint) {
+        return get(endpoint.uri());
+    }
+
+    /** Get or create the shared {@link CircuitBreaker} for the given endpoint URI. */
+    public static CircuitBreaker get(String uri) {
+        return breakers.computeIfAbsent(uri, CircuitBreaker::fromProperties);
+    }
+
+    /** A snapshot of all endpoint URIs and their {@link CircuitBreaker#health()}. */
+    public static Map<String, Double> health() {
+        Map<String, Double> map = new HashMap<>();
+        for (Map.Entry<String, CircuitBreaker> e : breakers.entrySet())
+            map.put(e.getKey(), e.getValue().health());
+        return Collections.unmodifiableMap(map);
+    }
+
+    /** A snapshot of all {@link CircuitBreaker}s, by endpoint URI. */
+    public static Map<String, CircuitBreaker> all() {
+        return Collections.unmodifiableMap(new HashMap<>(breakers));
+    }
+
+    /**
+     * Forget the {@link CircuitBreaker} of the given URI. Clients created afterwards
+     * will use a new {@link CircuitBreaker}.
+     */
+    public static void remove(String uri) {
+        breakers.remove(uri);
+    }
+}
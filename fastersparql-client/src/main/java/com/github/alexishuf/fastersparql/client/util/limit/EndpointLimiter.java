@@ -0,0 +1,239 @@
+package com.github.alexishuf.fastersparql.client.util.limit;
+
+import com.github.alexishuf.fastersparql.client.util.async.Async;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Limits the rate (token bucket) and the concurrency of requests to a host.
+ *
+ * <p>Requests are not blocked: {@link Ticket#enqueue()} enqueues a {@link Ticket} whose
+ * callback runs once the request may start. Clients call it when the
+ * results publisher receives its first request, thus the start of the HTTP request is
+ * deferred through the reactive demand path. Waiting tickets are granted in FIFO order when
+ * a running request {@link Ticket#release()}s its slot or when the token bucket refills.</p>
+ *
+ * <p>{@link EndpointLimiter#pause(long, TimeUnit)} delays all new grants, honoring
+ * {@code Retry-After} headers sent by the server.</p>
+ */
+public class EndpointLimiter {
+    private static final Logger log = LoggerFactory.getLogger(EndpointLimiter.class);
+    private static final int NEW = 0, WAITING = 1, GRANTED = 2, DONE = 3;
+
+    private final String name;
+    private final double ratePerNano;
+    private final double burst;
+    private final int maxConcurrent;
+    private final ArrayDeque<Ticket> queue = new ArrayDeque<>();
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+    private long pausedUntil;
+    private boolean paused, timerScheduled;
+    private int active;
+    private long granted, delayed;
+
+    /**
+     * Create a limiter.
+     *
+     * @param name name for {@link EndpointLimiter#toString()} and log messages
+     * @param ratePerSecond maximum requests started per second, or 0 for no rate limit
+     * @param burst maximum number of tokens in the bucket. If zero, uses
+     *              {@code ceil(ratePerSecond)} (at least 1).
+     * @param maxConcurrent maximum number of granted and not released tickets, or 0 for no
+     *                      limit
+     */
+    public EndpointLimiter(String name, double ratePerSecond, int burst, int maxConcurrent) {
+        if (!(ratePerSecond >= 0) || Double.isInfinite(ratePerSecond))
+            throw new IllegalArgumentException("ratePerSecond="+ratePerSecond);
+        if (burst < 0)
+            throw new IllegalArgumentException("burst="+burst+" < 0");
+        if (maxConcurrent < 0)
+            throw new IllegalArgumentException("maxConcurrent="+maxConcurrent+" < 0");
+        this.name = name;
+        this.ratePerNano = ratePerSecond / SECONDS.toNanos(1);
+        this.burst = burst > 0 ? burst : Math.max(1, Math.ceil(ratePerSecond));
+        this.tokens = this.burst;
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    /**
+     * A place in the queue of a {@link EndpointLimiter}, which becomes a running request slot
+     * once its callback is called.
+     */
+    public final class Ticket {
+        private final Runnable onGrant;
+        private int state = NEW;
+
+        private Ticket(Runnable onGrant) { this.onGrant = onGrant; }
+
+        /**
+         * Enter the queue. The callback is called (possibly before this method returns, on
+         * the calling thread) once the request may start. Has no effect if already enqueued
+         * or released.
+         */
+        public void enqueue() {
+            synchronized (EndpointLimiter.this) {
+                if (state != NEW) return;
+                state = WAITING;
+                queue.add(this);
+            }
+            drain();
+            synchronized (EndpointLimiter.this) {
+                if (state == WAITING)
+                    ++delayed;
+            }
+        }
+
+        /**
+         * If waiting (or not yet enqueued), leave the queue (the callback will not be
+         * called). If granted, free the slot for another request. Subsequent calls have
+         * no effect.
+         */
+        public void release() { EndpointLimiter.this.release(this); }
+
+        /** Whether the callback was (or is being) called. */
+        public boolean isGranted() {
+            synchronized (EndpointLimiter.this) { return state == GRANTED; }
+        }
+
+        @Override public String toString() {
+            return EndpointLimiter.this+".Ticket@"+Integer.toHexString(System.identityHashCode(this));
+        }
+    }
+
+    /**
+     * Create a {@link Ticket} that will call {@code onGrant} once {@link Ticket#enqueue()}d
+     * and allowed to start.
+     *
+     * <p>The caller must {@link Ticket#release()} the ticket when the request ends or is
+     * cancelled. Creating the ticket before enqueueing it allows storing it where a
+     * concurrent completion or cancellation can release it.</p>
+     */
+    public Ticket ticket(Runnable onGrant) {
+        return new Ticket(onGrant);
+    }
+
+    /** Create and {@link Ticket#enqueue()} a {@link Ticket}. */
+    public Ticket acquire(Runnable onGrant) {
+        Ticket ticket = new Ticket(onGrant);
+        ticket.enqueue();
+        return ticket;
+    }
+
+    /** Do not grant new tickets in the next {@code delay} {@code unit}s. */
+    public void pause(long delay, TimeUnit unit) {
+        long until = System.nanoTime() + unit.toNanos(delay);
+        synchronized (this) {
+            if (!paused || until - pausedUntil > 0) {
+                paused = true;
+                pausedUntil = until;
+            }
+        }
+        log.info("{}: pausing new requests for {}ms", this, unit.toMillis(delay));
+    }
+
+    private void release(Ticket ticket) {
+        boolean drain;
+        synchronized (this) {
+            if (ticket.state == WAITING) {
+                queue.remove(ticket);
+                drain = false;
+            } else {
+                drain = ticket.state == GRANTED;
+                if (drain)
+                    --active;
+            }
+            ticket.state = DONE;
+        }
+        if (drain)
+            drain();
+    }
+
+    private void refill(long now) {
+        if (ratePerNano > 0) {
+            tokens = Math.min(burst, tokens + (now - lastRefill) * ratePerNano);
+            lastRefill = now;
+        }
+    }
+
+    private void drain() {
+        List<Ticket> grant = null;
+        long wait = -1;
+        synchronized (this) {
+            long now = System.nanoTime();
+            refill(now);
+            if (paused && now - pausedUntil >= 0)
+                paused = false;
+            while (!queue.isEmpty()) {
+                if (paused) {
+                    wait = pausedUntil - now;
+                    break;
+                }
+                if (maxConcurrent > 0 && active >= maxConcurrent)
+                    break; // release() will drain()
+                if (ratePerNano > 0) {
+                    if (tokens < 1) {
+                        wait = (long) Math.ceil((1 - tokens) / ratePerNano);
+                        break;
+                    }
+                    tokens -= 1;
+                }
+                Ticket ticket = queue.remove();
+                ticket.state = GRANTED;
+                ++active;
+                ++granted;
+                if (grant == null) grant = new ArrayList<>();
+                grant.add(ticket);
+            }
+            if (wait >= 0 && !timerScheduled)
+                timerScheduled = true;
+            else
+                wait = -1;
+        }
+        if (wait >= 0) {
+            Async.schedule(Math.max(1, wait), NANOSECONDS, () -> {
+                synchronized (this) { timerScheduled = false; }
+                drain();
+            });
+        }
+        if (grant != null) {
+            for (Ticket ticket : grant) {
+                try {
+                    ticket.onGrant.run();
+                } catch (Throwable t) {
+                    log.error("{}: ignoring {} from onGrant of {}", this, t, ticket, t);
+                }
+            }
+        }
+    }
+
+    /** Number of granted and not yet released tickets. */
+    public synchronized int active() { return active; }
+
+    /** Number of tickets waiting in the queue. */
+    public synchronized int queued() { return queue.size(); }
+
+    /** Number of tickets granted since creation. */
+    public synchronized long granted() { return granted; }
+
+    /** Number of tickets that were not granted immediately since creation. */
+    public synchronized long delayed() { return delayed; }
+
+    /** Requests per second, 0 if there is no rate limit. */
+    public double ratePerSecond() { return ratePerNano * SECONDS.toNanos(1); }
+
+    /** Maximum concurrent requests, 0 if there is no limit. */
+    public int maxConcurrent() { return maxConcurrent; }
+
+    @Override public String toString() {
+        return "EndpointLimiter["+name+"]";
+    }
+}
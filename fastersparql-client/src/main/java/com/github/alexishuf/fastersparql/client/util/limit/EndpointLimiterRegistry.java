@@ -0,0 +1,68 @@
+package com.github.alexishuf.fastersparql.client.util.limit;
+
+import com.github.alexishuf.fastersparql.client.model.SparqlEndpoint;
+import com.github.alexishuf.fastersparql.client.util.FasterSparqlProperties;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds one {@link EndpointLimiter} per host and port, shared by all clients of all
+ * endpoints on that host.
+ *
+ * <p>Hosts not explicitly {@link EndpointLimiterRegistry#configure(String, double, int, int)}d
+ * get a limiter from {@link FasterSparqlProperties#rateLimit()},
+ * {@link FasterSparqlProperties#rateBurst()} and {@link FasterSparqlProperties#maxConcurrent()}.
+ * </p>
+ */
+public class EndpointLimiterRegistry {
+    private static final ConcurrentHashMap<String, EndpointLimiter> limiters
+            = new ConcurrentHashMap<>();
+
+    /** The key used for {@code endpoint}: its host and port, separated by {@code :}. */
+    public static String key(SparqlEndpoint endpoint) {
+        return endpoint.host()+":"+endpoint.port();
+    }
+
+    /** Get or create the {@link EndpointLimiter} for the host of {@code endpoint}. */
+    public static EndpointLimiter get(SparqlEndpoint endpoint) {
+        return get(key(endpoint));
+    }
+
+    /** Get or create the {@link EndpointLimiter} for a {@link EndpointLimiterRegistry#key(SparqlEndpoint)}. */
+    public static EndpointLimiter get(String key) {
+        return limiters.computeIfAbsent(key, k -> new EndpointLimiter(k,
+                FasterSparqlProperties.rateLimit(), FasterSparqlProperties.rateBurst(),
+                FasterSparqlProperties.maxConcurrent()));
+    }
+
+    /**
+     * Set the limits for a host. Requests already waiting or running on the previous
+     * limiter of the host are not affected.
+     *
+     * @param key the host and port, as in {@link EndpointLimiterRegistry#key(SparqlEndpoint)}
+     * @param ratePerSecond maximum requests started per second, or 0 for no rate limit
+     * @param burst maximum requests started at once after the host was idle (0 means the
+     *              rate rounded up)
+     * @param maxConcurrent maximum concurrent requests, 0 for no limit
+     * @return the new {@link EndpointLimiter}
+     */
+    public static EndpointLimiter configure(String key, double ratePerSecond, int burst,
+                                            int maxConcurrent) {
+        EndpointLimiter limiter = new EndpointLimiter(key, ratePerSecond, burst, maxConcurrent);
+        limiters.put(key, limiter);
+        return limiter;
+    }
+
+    /** Forget the limits for the host. A new limiter will be created from properties. */
+    public static void remove(String key) {
+        limiters.remove(key);
+    }
+
+    /** A snapshot of all {@link EndpointLimiter}s, by key. */
+    public static Map<String, EndpointLimiter> all() {
+        return Collections.unmodifiableMap(new HashMap<>(limiters));
+    }
+}
@@ -0,0 +1,32 @@
+package com.github.alexishuf.fastersparql.client.util.reactive;
+
+import com.github.alexishuf.fastersparql.client.util.async.AsyncTask;
+import com.github.alexishuf.fastersparql.client.util.async.CompletableAsyncTask;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * A {@link Subscriber} that requests a single item and completes {@link AskSubscriber#result()}
+ * with {@code true} if that item arrives (cancelling the {@link Subscription}) or with
+ * {@code false} if the publisher completes without items.
+ */
+public class AskSubscriber<T> implements Subscriber<T> {
+    private final CompletableAsyncTask<Boolean> result = new CompletableAsyncTask<>();
+    private Subscription subscription;
+
+    /** A task that completes with whether the publisher produced at least one item. */
+    public AsyncTask<Boolean> result() { return result; }
+
+    @Override public void onSubscribe(Subscription s) {
+        subscription = s;
+        s.request(1);
+    }
+
+    @Override public void onNext(T item) {
+        if (result.complete(true))
+            subscription.cancel();
+    }
+
+    @Override public void onError(Throwable t) { result.completeExceptionally(t); }
+    @Override public void onComplete()         { result.complete(false); }
+}
@@ -1,5 +1,7 @@
 package com.github.alexishuf.fastersparql.client.util.reactive;
 
+import com.github.alexishuf.fastersparql.client.util.CircularBuffer;
+import com.github.alexishuf.fastersparql.client.util.ItemBuffer;
 import org.checkerframework.checker.index.qual.NonNegative;
 import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -8,7 +10,6 @@ import org.reactivestreams.Subscription;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayDeque;
 import java.util.Objects;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -25,9 +26,9 @@ public abstract class CallbackPublisher<T> implements FSPublisher<T> {
 
     /* --- --- --- immutable state --- --- --- */
     private final String name;
-    private final ArrayDeque<T> items = new ArrayDeque<>(DEF_CAPACITY);
 
     /* --- --- --- state changed only from the public interface --- --- --- */
+    private ItemBuffer<T> items = new CircularBuffer<>(DEF_CAPACITY);
     private Executor executor;
     private BoundedEventLoopPool.LoopExecutor loopExecutor;
     private @MonotonicNonNull Subscriber<? super T> subscriber;
@@ -100,6 +101,21 @@ public abstract class CallbackPublisher<T> implements FSPublisher<T> {
         feedAfterCompleteWarned = true;
     }
 
+    /**
+     * Store items {@link CallbackPublisher#feed(Object)} while there is no demand in the given
+     * {@link ItemBuffer} instead of an on-heap buffer. The buffer will be
+     * {@link ItemBuffer#close()}d once termination is delivered or on cancel.
+     *
+     * @param buffer the new buffer. Must be empty
+     * @throws IllegalStateException if already subscribed.
+     */
+    public synchronized void useItemBuffer(ItemBuffer<T> buffer) {
+        if (subscriber != null)
+            throw new IllegalStateException("useItemBuffer() after subscribe() on "+this);
+        items.close();
+        items = buffer;
+    }
+
     public void feed(T item) {
         boolean completed, cancelled, yield = false, wake = false, backpressure = false;
         if (Thread.currentThread().equals(eventThread.get()) && requested > 0
@@ -129,8 +145,10 @@ public abstract class CallbackPublisher<T> implements FSPublisher<T> {
                 feedAfterCompleteWarned = true;
                 log.warn("Ignoring {}.feed({}) after complete({})", this, item, Objects.toString(error));
             }
+            onDropped(item);
         } else if (cancelled) {
             log.trace("{}.feed({}): cancel() pending, dropping item", this, item);
+            onDropped(item);
         } else {
             log.trace("{}.feed({}): wake={}, yield={}, backpressure={}",
                       this, item, wake, yield, backpressure);
@@ -169,6 +187,15 @@ public abstract class CallbackPublisher<T> implements FSPublisher<T> {
     protected abstract void onBackpressure();
     protected abstract void onCancel();
 
+    /**
+     * Called when {@link CallbackPublisher#feed(Object)} discards {@code item} because the
+     * publisher was already completed or cancelled. Publishers of items that hold resources
+     * (e.g., reference-counted buffers) should release them here. The default is a no-op.
+     *
+     * @param item the discarded item
+     */
+    protected void onDropped(T item) { }
+
     @SuppressWarnings("BooleanMethodIsAlwaysInverted") protected boolean isSubscribed() {
         return subscriber != null;
     }
@@ -272,6 +299,7 @@ public abstract class CallbackPublisher<T> implements FSPublisher<T> {
         },
         CANCEL {
             @Override public <U> void execute(CallbackPublisher<U> pub) {
+                synchronized (pub) { pub.items.close(); }
                 pub.onCancel();
             }
         },
@@ -281,9 +309,12 @@ public abstract class CallbackPublisher<T> implements FSPublisher<T> {
                     for (int i = 0; i < NEXT_BATCH; i++) {
                         U item;
                         synchronized (pub) {
-                            item = pub.requested == 0 ? null : pub.items.poll();
-                            if (item != null)
+                            item = pub.requested == 0 || pub.items.isEmpty()
+                                 ? null : pub.items.get(0);
+                            if (item != null) {
+                                pub.items.removeFirst(1);
                                 --pub.requested;
+                            }
                         }
                         if (item != null) pub.subscriber.onNext(item);
                         else              return;
@@ -298,6 +329,7 @@ public abstract class CallbackPublisher<T> implements FSPublisher<T> {
         },
         TERMINATE {
             @Override public <U> void execute(CallbackPublisher<U> pub) {
+                synchronized (pub) { pub.items.close(); }
                 if (pub.error == null) pub.subscriber.onComplete();
                 else                   pub.subscriber.onError(pub.error);
                 pub.subscriberReceivedTerminate = true;
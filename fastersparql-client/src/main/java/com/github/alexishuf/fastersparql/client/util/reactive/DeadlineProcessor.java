@@ -0,0 +1,61 @@
+package com.github.alexishuf.fastersparql.client.util.reactive;
+
+import com.github.alexishuf.fastersparql.client.exceptions.SparqlClientTimeoutException;
+import com.github.alexishuf.fastersparql.client.util.async.Deadline;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.reactivestreams.Subscription;
+
+/**
+ * Forwards items from a source until a {@link Deadline} expires. At that point the source is
+ * cancelled (closing any underlying connection) and the downstream receives a
+ * {@link SparqlClientTimeoutException} after the items already delivered.
+ */
+public class DeadlineProcessor<T> extends AbstractProcessor<T, T> {
+    private final Deadline deadline;
+    private final Runnable onExpire = this::scheduleExpire;
+
+    public DeadlineProcessor(FSPublisher<? extends T> source, Deadline deadline) {
+        super(source);
+        this.deadline = deadline;
+    }
+
+    /**
+     * Wrap {@code source} in a {@link DeadlineProcessor} if {@code deadline} is non-null.
+     */
+    public static <T> FSPublisher<T> wrap(FSPublisher<T> source, @Nullable Deadline deadline) {
+        return deadline == null ? source : new DeadlineProcessor<>(source, deadline);
+    }
+
+    public Deadline deadline() { return deadline; }
+
+    @Override protected void handleOnNext(T item) {
+        emit(item);
+    }
+
+    @Override public void onSubscribe(Subscription s) {
+        super.onSubscribe(s);
+        deadline.onExpire(onExpire);
+    }
+
+    @Override protected void onTerminate(@Nullable Throwable error, boolean cancelled) {
+        deadline.removeListener(onExpire);
+    }
+
+    private void scheduleExpire() {
+        // events of the source are delivered in its executor, expire there to keep them serial
+        executor().execute(this::expire);
+    }
+
+    private void expire() {
+        if (terminated.get())
+            return;
+        cancelUpstream();
+        SparqlClientTimeoutException error = deadline.error();
+        completeDownstream(error == null ? new SparqlClientTimeoutException("Deadline expired")
+                                         : error);
+    }
+
+    @Override public String toString() {
+        return "DeadlineProcessor("+source+", "+deadline+")";
+    }
+}
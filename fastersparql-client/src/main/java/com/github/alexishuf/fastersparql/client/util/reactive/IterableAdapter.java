@@ -3,7 +3,6 @@ package com.github.alexishuf.fastersparql.client.util.reactive;
 import com.github.alexishuf.fastersparql.client.exceptions.AsyncIterableCancelled;
 import com.github.alexishuf.fastersparql.client.util.FasterSparqlProperties;
 import org.checkerframework.checker.index.qual.Positive;
-import org.checkerframework.checker.nullness.qual.EnsuresNonNullIf;
 import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.reactivestreams.Publisher;
@@ -12,7 +11,7 @@ import org.reactivestreams.Subscription;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.Objects;
@@ -20,21 +19,35 @@ import java.util.Objects;
 /**
  * A single-use {@link Iterable} over a {@link Publisher}
  *
+ * <p>Items are handed from the producer to the consumer in batches: {@code onNext()} appends
+ * to an array owned by the producer side and the iterator, once it exhausts its own array,
+ * swaps both arrays under a single lock acquisition. The iterator spins briefly before
+ * parking and the producer only notifies when the iterator is parked, thus iterating
+ * a fast publisher does not cost a wait/notify handoff per item.</p>
+ *
  * @param <T> the value type of the {@link Iterable}
  */
 public class IterableAdapter<T> implements AsyncIterable<T> {
     private static final Logger log = LoggerFactory.getLogger(IterableAdapter.class);
+    private static final int SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 256 : 0;
+    private static final int MAX_INITIAL_BATCH = 1024;
 
     /* --- --- --- immutable state --- --- --- */
     private final FSPublisher<? extends T> publisher;
-    private final ArrayDeque<T> queue;
     private final long capacity, requestSize;
 
     /* --- --- --- mutable state --- --- --- */
     private @MonotonicNonNull It it;
     private @MonotonicNonNull Throwable cause;
     private @MonotonicNonNull Subscription subscription;
-    private boolean terminated, cancelled;
+    private boolean terminated, cancelled, parked;
+    /** Requested from {@code subscription} and not yet received by {@code onNext()}. */
+    private long requested;
+    /** Items received by {@code onNext()} and not yet taken by the iterator. */
+    private Object[] shared;
+    private int sharedSize;
+    /** Whether {@code sharedSize > 0 || terminated || cancelled}, read while spinning. */
+    private volatile boolean ready;
 
     /* --- --- --- constructors --- --- --- */
 
@@ -46,7 +59,7 @@ public class IterableAdapter<T> implements AsyncIterable<T> {
         this.publisher = FSPublisher.bindToAny(publisher);
         this.requestSize = Math.min(Integer.MAX_VALUE/2 - 8, Math.max(capacity/2, 1));
         this.capacity = requestSize * 2;
-        this.queue = new ArrayDeque<>(capacity);
+        this.shared = new Object[(int) Math.min(this.capacity, MAX_INITIAL_BATCH)];
     }
 
     /* --- ---- --- public interface --- --- --- */
@@ -64,6 +77,7 @@ public class IterableAdapter<T> implements AsyncIterable<T> {
             cause = ex;
             if (!terminated && subscription != null)
                 subscription.cancel();
+            ready = true;
             notifyAll();
         }
     }
@@ -84,11 +98,29 @@ public class IterableAdapter<T> implements AsyncIterable<T> {
 
     /* --- ---- --- iterator/subscriber logic --- --- --- */
 
+    /**
+     * Request enough items to have up to {@code capacity} items in {@code shared} or in-flight.
+     * Must be called with the lock held.
+     *
+     * <p>The batch held by the iterator is not counted, so that the producer can fill the
+     * next batch while the iterator consumes the current one. At most {@code 2*capacity}
+     * items are thus held in memory.</p>
+     */
+    private void requestMore() {
+        if (cancelled || terminated || subscription == null)
+            return;
+        long free = capacity - requested - sharedSize;
+        if (free >= requestSize) {
+            requested += free;
+            subscription.request(free);
+        }
+    }
+
     private final class It implements Iterator<T> {
-        private @MonotonicNonNull T next;
+        private Object[] batch = new Object[shared.length];
+        private int batchSize, batchIdx;
         boolean calledStart = false, reportedEnd;
 
-        @EnsuresNonNullIf(result = true, expression = "this.next")
         @Override public boolean hasNext() {
             if (!calledStart) {
                 calledStart = true;
@@ -96,22 +128,39 @@ public class IterableAdapter<T> implements AsyncIterable<T> {
             }
             if (reportedEnd)
                 return false;
-            else if (next != null)
-                return true;
+            return batchIdx < batchSize || fetch();
+        }
+
+        private boolean fetch() {
+            for (int i = 0; i < SPINS && !ready; i++) {
+                // spin: the producer may be about to deliver
+            }
             synchronized (IterableAdapter.this) {
                 boolean interrupted = false;
-                while (!terminated && !cancelled && queue.isEmpty()) {
+                requestMore();
+                while (sharedSize == 0 && !terminated && !cancelled) {
+                    parked = true;
                     try {
                         IterableAdapter.this.wait();
                     } catch (InterruptedException e) {
                         interrupted = true;
+                    } finally {
+                        parked = false;
                     }
                 }
-                boolean has = !queue.isEmpty();
-                if (has)
-                    next = queue.removeFirst();
-                else
+                boolean has = sharedSize > 0;
+                if (has) {
+                    Object[] drained = batch;
+                    batch = shared;
+                    batchSize = sharedSize;
+                    batchIdx = 0;
+                    shared = drained;
+                    sharedSize = 0;
+                    ready = terminated || cancelled;
+                    requestMore();
+                } else {
                     reportedEnd = true;
+                }
                 if (interrupted)
                     Thread.currentThread().interrupt();
                 return has;
@@ -120,23 +169,23 @@ public class IterableAdapter<T> implements AsyncIterable<T> {
 
         @Override public T next() {
             if (!hasNext()) throw new NoSuchElementException();
-            assert this.next != null;
-            T next = this.next;
-            this.next = null;
+            //noinspection unchecked
+            T next = (T) batch[batchIdx];
+            batch[batchIdx++] = null;
             return next;
         }
     }
 
     private final Subscriber<T> subscriber = new Subscriber<T>() {
-        private long requested = 0;
-
         @Override public void onSubscribe(Subscription s) {
-            subscription = s;
-            s.request(requested = requestSize*2);
+            synchronized (IterableAdapter.this) {
+                subscription = s;
+                requested = capacity;
+                s.request(capacity);
+            }
         }
 
         @Override public void onNext(T item) {
-            long free;
             synchronized (IterableAdapter.this) {
                 if (requested == 0) {
                     log.warn("{} received onNext() beyond requested", this);
@@ -144,21 +193,20 @@ public class IterableAdapter<T> implements AsyncIterable<T> {
                 } else {
                     --requested;
                 }
-                free = cancelled || terminated ? 0 : capacity - requested;
-                if (free >= requestSize) {
-                    requested += requestSize;
-                    subscription.request(requestSize);
-                }
                 if (terminated) {
                     log.warn("{}.onNext({}) after {}({})", this, item,
                             cause == null ? "onComplete" : "onError",
                             cause == null ? "" : cause.toString());
                     assert false : "onNext() after onComplete()/onNext()";
                 }
-                boolean changedWaitCondition = queue.isEmpty();
-                queue.add(item);
-                if (changedWaitCondition)
-                    IterableAdapter.this.notifyAll();
+                if (sharedSize == shared.length)
+                    shared = Arrays.copyOf(shared, shared.length*2);
+                shared[sharedSize++] = item;
+                if (sharedSize == 1) {
+                    ready = true;
+                    if (parked)
+                        IterableAdapter.this.notify();
+                }
             }
         }
 
@@ -171,6 +219,7 @@ public class IterableAdapter<T> implements AsyncIterable<T> {
                     log.trace("{}.onError({})", this, Objects.toString(t));
                     terminated = true;
                     cause = t;
+                    ready = true;
                     IterableAdapter.this.notifyAll();
                 }
             }
@@ -184,6 +233,7 @@ public class IterableAdapter<T> implements AsyncIterable<T> {
                 } else {
                     log.trace("{}.onComplete()", this);
                     terminated = true;
+                    ready = true;
                     IterableAdapter.this.notifyAll();
                 }
             }
@@ -1,5 +1,6 @@
 package com.github.alexishuf.fastersparql.client.util.reactive;
 
+import com.github.alexishuf.fastersparql.client.util.ItemBuffer;
 import org.checkerframework.checker.index.qual.Positive;
 import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -11,7 +12,6 @@ import org.slf4j.LoggerFactory;
 
 import java.util.*;
 import java.util.concurrent.Executor;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
@@ -31,9 +31,7 @@ public class MergePublisher<T> implements FSPublisher<T> {
     private final @Positive int maxConcurrency;
     private final @Positive int tgtConcurrency;
 
-    /* --- --- --- thread-safety/reentrancy assertions --- --- --- */
-    private final AtomicBoolean completing     = new AtomicBoolean();
-    private final AtomicBoolean redistributing = new AtomicBoolean();
+    /* --- --- --- thread-safety assertions --- --- --- */
     private final AtomicReference<Thread> evThread = new AtomicReference<>();
 
     /* --- --- --- start/termination  state --- --- --- */
@@ -41,13 +39,17 @@ public class MergePublisher<T> implements FSPublisher<T> {
     private Throwable terminationCause;
     private boolean terminated, cancelled, completable, subscribed;
 
-    /* --- --- --- request distribution state --- --- --- */
-    private long undistributed;
+    /* --- --- --- request distribution state (only touched from the event thread) --- --- --- */
+    /** Demand requested downstream and not yet taken as credit by any {@link Source}. */
+    private long pool;
+    /** Items delivered on stolen credit (thus not yet requested downstream). */
+    private long surplus;
 
     /* --- --- --- Sources  state --- --- --- */
     private int nextSourceNumber = 1, activeSources;
     private final ArrayDeque<Publisher<? extends T>> publishersQueue = new ArrayDeque<>();
-    private final IdentityHashMap<Source, Object> sources = new IdentityHashMap<>();
+    /** Active sources. Replaced instead of mutated, so iterations tolerate reentrant changes */
+    private List<Source> sources = Collections.emptyList();
 
     public static class Builder {
         private String name;
@@ -133,6 +135,23 @@ public class MergePublisher<T> implements FSPublisher<T> {
         return cbp.executor();
     }
 
+    /**
+     * Buffer items produced by sources but not yet requested downstream in {@code buffer}.
+     *
+     * @see CallbackPublisher#useItemBuffer(ItemBuffer)
+     * @throws IllegalStateException if already subscribed
+     */
+    public void useItemBuffer(ItemBuffer<T> buffer) {
+        subscribeLock.lock();
+        try {
+            if (subscribed)
+                throw new IllegalStateException("cannot change item buffer after subscribed");
+            cbp.useItemBuffer(buffer);
+        } finally {
+            subscribeLock.unlock();
+        }
+    }
+
     /**
      * Add an upstream {@link Publisher} for consumption.
      *
@@ -218,8 +237,8 @@ public class MergePublisher<T> implements FSPublisher<T> {
         if (!completable) {
             completable = true;
             if (!tryComplete(null, null, false, 0)) {
-                log.trace("{}.markCompletable(), activeSources={}, {} queued, undistributed={}",
-                          this, activeSources, publishersQueue.size(), undistributed);
+                log.trace("{}.markCompletable(), activeSources={}, {} queued, pool={}",
+                          this, activeSources, publishersQueue.size(), pool);
             }
         }
     };
@@ -253,52 +272,48 @@ public class MergePublisher<T> implements FSPublisher<T> {
         return true;
     }
 
-    private boolean isConcurrentOrReentrant(AtomicBoolean flag) {
-        return !assertEventThread() || !flag.compareAndSet(false, true);
-    }
-
     /**
      * If terminated or cancelled, is a no-op. Else terminates or cancels if rules allow. If
      * rules do not allow termination, calls {@code redistribute(additionalUndistributed)}.
+     *
+     * <p>Like {@code redistribute()}, this is confined to the event thread. Reentrant calls
+     * (e.g., a source completing synchronously from {@code request(n)} within
+     * {@code redistribute()}) are safe: {@code terminated} is set before any downstream
+     * notification and {@code sources} is replaced instead of mutated.</p>
      */
     private boolean tryComplete(@Nullable Throwable cause, @Nullable Source source,
                                 boolean cancel, long additionalUndistributed) {
-        if (isConcurrentOrReentrant(completing)) {
-            executor().execute(() -> tryComplete(cause, source, cancel, additionalUndistributed));
-        } else {
-            try {
-                // trivial cases (but lengthy log logic)
-                if (!removeSource(source)) return terminated;
-                if (!checkUnterminated(cause, source, cancel)) return terminated;
-
-                if (ignoreUpstreamErrors && cause != null)
-                    log.info("Ignoring upstream error {} from {}", cause, source);
-
-                boolean complete = (cause != null && !ignoreUpstreamErrors)
-                        || (completable && activeSources == 0 && publishersQueue.isEmpty());
-                if (complete || cancel) {
-                    terminationCause = ignoreUpstreamErrors ? null : cause;
-                    log.trace("{} completing{} with error={} from source={}",
-                            this, cancel ? " by cancel()" : "", terminationCause, source);
-                    terminated = true;
-                    if (cancel) {
-                        cancelled = true;
-                        for (Source src : sources.keySet())
-                            src.cancel();
-                        assert activeSources == sources.size() : "activeSources != #sources";
-                        activeSources = 0;
-                        sources.clear();
-                        publishersQueue.clear();
-                    }
-                    cbp.complete(terminationCause);
-                    onComplete(terminationCause, cancel);
-                } else {
-                    assert !terminated;
-                    redistribute(additionalUndistributed, "tryComplete");
-                }
-            } finally {
-                completing.set(false);
+        assertEventThread();
+        // trivial cases (but lengthy log logic)
+        if (!removeSource(source)) return terminated;
+        if (!checkUnterminated(cause, source, cancel)) return terminated;
+
+        if (ignoreUpstreamErrors && cause != null)
+            log.info("Ignoring upstream error {} from {}", cause, source);
+
+        boolean complete = (cause != null && !ignoreUpstreamErrors)
+                || (completable && activeSources == 0 && publishersQueue.isEmpty());
+        if (complete || cancel) {
+            terminationCause = ignoreUpstreamErrors ? null : cause;
+            log.trace("{} completing{} with error={} from source={}",
+                    this, cancel ? " by cancel()" : "", terminationCause, source);
+            terminated = true;
+            if (cancel) {
+                cancelled = true;
+                List<Source> cancelledSources = sources;
+                sources = Collections.emptyList();
+                for (Source src : cancelledSources)
+                    src.cancel();
+                assert activeSources == cancelledSources.size()
+                        : "activeSources != #sources";
+                activeSources = 0;
+                publishersQueue.clear();
             }
+            cbp.complete(terminationCause);
+            onComplete(terminationCause, cancel);
+        } else {
+            assert !terminated;
+            redistribute(additionalUndistributed, "tryComplete");
         }
         return terminated;
     }
@@ -325,83 +340,73 @@ public class MergePublisher<T> implements FSPublisher<T> {
     private boolean removeSource(@Nullable Source source) {
         if (source == null) {
             return true;
-        } else if (sources.remove(source) == null) {
+        }
+        List<Source> remaining = new ArrayList<>(sources);
+        if (!remaining.remove(source)) {
             log.error("Completed {} was not an active source, double complete?", source);
             return false;
-        } else {
-            assert activeSources > 0 : "inconsistent activeSources";
-            --activeSources;
         }
+        assert activeSources > 0 : "inconsistent activeSources";
+        --activeSources;
+        sources = remaining;
         return true;
     }
 
     /**
-     * Add {@code additional} to {@code undistributed} and if the state allows:
+     * Add {@code additional} to {@code pool} and if the state allows:
      * <ol>
      *    <li>Create new {@link Source} instances from queued {@link Publisher}s</li>
-     *    <li>Distribute work among sources via {@link Source#request(long)}</li>
+     *    <li>Let sources without outstanding credit take credit from {@code pool}</li>
      * </ol>
+     *
+     * <p>Demand is not split among sources up front: each {@link Source} takes its
+     * {@link MergePublisher#share()} from {@code pool} and takes more as it delivers items.
+     * Thus sources that produce faster take more of the demand. Credit of a terminated source
+     * returns to {@code pool}. A source that has nothing outstanding when {@code pool} is
+     * empty steals the credit of a lagging source (see {@link Source#steal()}).</p>
+     *
+     * <p>All request distribution state is confined to the event thread, thus there is no
+     * locking nor atomics involved.</p>
      */
     private void redistribute(long additional, String caller) {
         assert additional >= 0 : "Negative additional";
-        if (isConcurrentOrReentrant(redistributing)) {
-            executor().execute(() -> redistribute(additional, caller));
-        } else {
-            try {
-                undistributed += additional;
-                if (redistributeSpecialCases(additional, caller))
-                    return;
-                log.trace("{}.redistribute({}) from {}: updated undistributed={}, activeSources={}",
-                        this, additional, caller, undistributed, activeSources);
-                long distributed = 0, total = undistributed;
-                undistributed = 0;
-                try {
-                    startQueuedPublishers();
-                    distributed = redistributeToSources(total, caller);
-                } finally {
-                    assert distributed <= total;
-                    if (distributed < total)
-                        undistributed += total - distributed;
-                }
-            } finally {
-                redistributing.set(false);
-            }
-        }
+        assertEventThread();
+        long paid = Math.min(surplus, additional); // surplus items already answer this demand
+        surplus -= paid;
+        pool = saturatedAdd(pool, additional-paid);
+        if (redistributeSpecialCases(additional, caller))
+            return;
+        log.trace("{}.redistribute({}) from {}: pool={}, activeSources={}",
+                  this, additional, caller, pool, activeSources);
+        startQueuedPublishers();
+        for (Source src : sources)
+            src.refill();
     }
 
-    /** Distribute {@code total} among {@code request()} calls on {@code sources} */
-    private long redistributeToSources(long total, String caller) {
-        if (total == 0)
-            return 0;
-        long distributed = 0;
+    private static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    /**
+     * How much credit a {@link Source} may take from {@code pool} at once: an even split of
+     * the current {@code pool} among the sources, but at least 1.
+     */
+    private long share() {
         // If completable, at least one of the following holds:
         //   1. activeSources == tgtConcurrency
         //   2. empty publishersQueue and no future addPublisher() calls
         // Thus, applying using tgtConcurrency > activeSources as div will preserve
         // requests for future publishers that will never come.
         int div = completable ? activeSources : Math.max(tgtConcurrency, activeSources);
-        // divide our allowance, total, into chunks and deliver the remainder to the first source
-        long chunk = div > total ? 1 : total / div;
-        assert chunk > 0;
-        long remainder = Math.max(0, total - chunk * div);
-        boolean rejected = false;
-        for (Source src : sources.keySet()) {
-            long n = Math.min(total-distributed, chunk+remainder);
-            if (n <= 0) // stop distributing once distributed >= total
-                break;
-            if (remainder > 0) // first source consumes the remainder
-                remainder = 0;
-            if (src.request(n)) {
-                distributed += n;
-                assert distributed <= total;
-            } else {
-                rejected = true;
-            }
-        }
-        assert distributed <= total;
-        if (rejected)
-            executor().execute(() -> redistribute(0, caller));
-        return distributed;
+        return Math.max(1, pool / Math.max(1, div));
+    }
+
+    /** Take up to {@code max} from {@code pool}, returning how much was taken. */
+    private long takeCredit(long max) {
+        long n = Math.min(pool, max);
+        pool -= n;
+        return n;
     }
 
     /** Handle all cases for {@code redistribute()} that do not call {@code request(n)}. */
@@ -411,7 +416,7 @@ public class MergePublisher<T> implements FSPublisher<T> {
         } else if (!subscribed) {
             log.trace("{}.redistribute({}) from {}: not yet subscribe()d",
                       this, additional, caller);
-        } else if (undistributed == 0) {
+        } else if (pool == 0) {
             log.trace("{}.redistribute({}) from {}: nothing to distribute",
                       this, additional, caller);
         } else if (activeSources == 0 && publishersQueue.isEmpty()) {
@@ -427,13 +432,16 @@ public class MergePublisher<T> implements FSPublisher<T> {
     private void startQueuedPublishers() {
         if (activeSources >= maxConcurrency || publishersQueue.isEmpty())
             return; // no work to do
-        List<Source> added = new ArrayList<>(maxConcurrency-activeSources);
+        List<Source> added = new ArrayList<>(Math.min(maxConcurrency-activeSources,
+                                                       publishersQueue.size()));
         while (activeSources < maxConcurrency && !publishersQueue.isEmpty()) {
-            Source src = new Source(publishersQueue.remove(), nextSourceNumber++);
+            added.add(new Source(publishersQueue.remove(), nextSourceNumber++));
             ++activeSources;
-            sources.put(src, this);
-            added.add(src);
         }
+        List<Source> updated = new ArrayList<>(sources.size()+added.size());
+        updated.addAll(sources);
+        updated.addAll(added);
+        sources = updated;
         for (Source src : added)
             src.subscribe();
         log.trace("{}.startQueuedPublishers(): {} new sources", this, added.size());
@@ -443,7 +451,13 @@ public class MergePublisher<T> implements FSPublisher<T> {
         private final FSPublisher<? extends T> upstreamPublisher;
         private final int number;
         private boolean active = false, cancelled;
-        private long undelivered;
+        /** Number of {@code onNext()} calls since the last {@code request(n)}. */
+        private long delivered;
+        /** Downstream demand requested from {@code upstream} and not yet delivered. */
+        private long credit;
+        /** Requested from {@code upstream} but stolen by another source, not yet delivered. */
+        private long debt;
+        private long lastShare;
         private @MonotonicNonNull Subscription upstream;
         private @MonotonicNonNull Thread subscriberThread;
         private @MonotonicNonNull Thread onSubscribeThread;
@@ -461,22 +475,57 @@ public class MergePublisher<T> implements FSPublisher<T> {
             this.upstreamPublisher.subscribe(this);
         }
 
-        public boolean request(long n) {
+        /**
+         * If this source has consumed at least half of what it last requested, take a new
+         * {@link MergePublisher#share()} from {@code pool} (or {@link Source#steal()} if
+         * {@code pool} is empty and nothing is outstanding) and request it from upstream.
+         *
+         * @return whether credit was taken and requested.
+         */
+        public boolean refill() {
+            if (!active || terminated || upstream == null)
+                return false;
             assert currentThread() == subscriberThread;
             assert currentThread() == onSubscribeThread;
-            if (!active) {
+            long outstanding = credit + debt;
+            if (outstanding > lastShare/2)
+                return false; // still has enough credit
+            long n = pool > 0 ? takeCredit(share()) : (outstanding == 0 ? steal() : 0);
+            if (n == 0)
                 return false;
-            } else if (n <= 0) {
-                log.error("{}.request({}): n <= 0", this, n);
-                return false;
-            } else {
-                log.trace("{}.request({})", this, n);
-                undelivered += n;
-                upstream.request(n);
-            }
+            log.trace("{}.refill(): requesting {}, outstanding={}", this, n, outstanding);
+            lastShare = n;
+            delivered = 0;
+            credit += n; // before request(n), since it may deliver synchronously
+            upstream.request(n);
             return true;
         }
 
+        /**
+         * Take all credit of another source that still has more credit outstanding than it
+         * delivered since its last {@code request(n)}. This includes sources that delivered
+         * nothing as well as sources that delivered a few items and then stalled with most
+         * of a large share. Such credit cannot be revoked upstream, so the victim keeps it as
+         * {@code debt}: it will not refill until that is delivered and any such items count as
+         * {@code surplus}, which is buffered by {@code cbp} and deducted from future downstream
+         * demand. Thus the extra buffering is bounded by the stolen credit and a source that
+         * never delivers cannot starve the others.
+         *
+         * @return the stolen credit, zero if there is no lagging source with credit.
+         */
+        private long steal() {
+            for (Source victim : sources) {
+                if (victim != this && victim.credit > 0 && victim.delivered <= victim.credit) {
+                    long n = victim.credit;
+                    victim.credit = 0;
+                    victim.debt += n;
+                    log.trace("{}.steal(): took {} from {}", this, n, victim);
+                    return n;
+                }
+            }
+            return 0;
+        }
+
         public void cancel() {
             if (active) {
                 log.trace("{}.cancel()", this);
@@ -491,22 +540,24 @@ public class MergePublisher<T> implements FSPublisher<T> {
             assert cancelled || active : "!cancelled && !active: double completion?";
             if (active) {
                 active = false;
-                long n = undelivered;
-                undelivered = 0;
-                tryComplete(cause, this, false, n);
+                long unused = credit;
+                credit = debt = 0;
+                tryComplete(cause, this, false, unused);
             }
         }
 
         @Override public void onSubscribe(Subscription s)  {
             onSubscribeThread = currentThread();
             upstream = s;
+            refill();
         }
         @Override public void onNext(T item)          {
-            if (undelivered == 0)
-                log.warn("{}.onNext({}) beyond requested.", this, item);
-            else
-                --undelivered;
+            ++delivered;
+            if      (credit > 0) --credit;
+            else if (debt   > 0) { --debt; ++surplus; }
+            else                 log.warn("{}.onNext({}) beyond requested.", this, item);
             feed(item);
+            refill();
         }
         @Override public void     onError(Throwable cause) { complete(cause);      }
         @Override public void  onComplete()                { complete(null); }
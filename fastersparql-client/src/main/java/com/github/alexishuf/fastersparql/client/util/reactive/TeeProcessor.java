@@ -1,6 +1,7 @@
 package com.github.alexishuf.fastersparql.client.util.reactive;
 
 import com.github.alexishuf.fastersparql.client.util.CircularBuffer;
+import com.github.alexishuf.fastersparql.client.util.ItemBuffer;
 import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.reactivestreams.Processor;
@@ -20,10 +21,11 @@ public class TeeProcessor<T> implements Processor<T, T>, FSPublisher<T> {
     private final FSPublisher<? extends T> source;
     private Subscription upstream;
     private final List<DownstreamState> downstream = new ArrayList<>();
-    private final CircularBuffer<T> history = new CircularBuffer<>(1<<16);
+    private final ItemBuffer<T> history;
     private int startAfterSubscribers = Integer.MAX_VALUE;
     private @MonotonicNonNull Throwable error;
-    private boolean complete, suspended, suspendedSubscribe;
+    private boolean complete, suspended, suspendedSubscribe, historyReleased;
+    private int cancelledSubscribers;
     private long minConsumed = 0, upstreamRequested, suspendedUpstreamRequests;
     private @Nullable Level lostItemLogLevel = Level.ERROR;
 
@@ -38,7 +40,22 @@ public class TeeProcessor<T> implements Processor<T, T>, FSPublisher<T> {
     /* --- --- --- construction --- --- --- */
 
     public TeeProcessor(FSPublisher<? extends T> source) {
+        this(source, new CircularBuffer<>(1<<16));
+    }
+
+    /**
+     * Create a {@link TeeProcessor} that keeps items not yet delivered to all subscribers
+     * in the given {@code history} buffer.
+     *
+     * <p>{@code history} will be {@link ItemBuffer#close()}d once all subscribers have
+     * received a termination signal or cancelled.</p>
+     *
+     * @param source the upstream publisher
+     * @param history an empty {@link ItemBuffer}
+     */
+    public TeeProcessor(FSPublisher<? extends T> source, ItemBuffer<T> history) {
         this.source = source;
+        this.history = history;
         this.suspended = true;
     }
 
@@ -221,7 +238,7 @@ public class TeeProcessor<T> implements Processor<T, T>, FSPublisher<T> {
     }
 
     private void trimHistory() {
-        if (downstream.isEmpty())
+        if (downstream.isEmpty() || historyReleased)
             return;
         long newMinConsumed = Long.MAX_VALUE;
         for (DownstreamState s : downstream)
@@ -239,12 +256,25 @@ public class TeeProcessor<T> implements Processor<T, T>, FSPublisher<T> {
             s.pull();
         try {
             trimHistory();
+            releaseHistoryIfDone();
         } catch (Throwable t) {
             log.error("Unexpected error while trimming history buffer for {}", this, t);
             onError(t);
         }
     }
 
+    private void releaseHistoryIfDone() {
+        if (historyReleased || (!complete && error == null))
+            return;
+        for (DownstreamState s : downstream) {
+            if (!s.notifiedTermination) return;
+        }
+        if (!downstream.isEmpty() || cancelledSubscribers > 0) {
+            historyReleased = true;
+            history.close();
+        }
+    }
+
     @Override public String toString() {
         return "TeeProcessor["+source+"]{"
                 + (complete ? "complete" : "!complete")
@@ -327,14 +357,17 @@ public class TeeProcessor<T> implements Processor<T, T>, FSPublisher<T> {
                     }
                 }
                 pull();
+                releaseHistoryIfDone();
             });
         }
 
         @Override public void cancel() {
             executor().execute(() -> {
                 try {
-                    downstream.remove(this);
+                    if (downstream.remove(this))
+                        ++cancelledSubscribers;
                     trimHistory();
+                    releaseHistoryIfDone();
                 } catch (Throwable t) {
                     log.error("Unexpected exception on {}.cancel()", this, t);
                 }
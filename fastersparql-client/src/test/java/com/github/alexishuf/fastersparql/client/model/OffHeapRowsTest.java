@@ -0,0 +1,114 @@
+package com.github.alexishuf.fastersparql.client.model;
+
+import com.github.alexishuf.fastersparql.client.model.row.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapRowsTest {
+    private static final List<String> VARS = asList("x", "y");
+    private static final RowOperations OPS = RowOperationsRegistry.get().forClass(String[].class);
+
+    private static String[] row(int i) {
+        return new String[]{"<http://example.org/"+i+">", i % 3 == 0 ? null : "\"🨂"+i+"\"@en"};
+    }
+
+    @Test
+    void testArenaRoundTrip() {
+        try (OffHeapRowArena<String[]> arena = new OffHeapRowArena<>(OPS, VARS)) {
+            long a = arena.add(row(1)), b = arena.add(row(3));
+            assertArrayEquals(row(1), arena.get(a));
+            assertArrayEquals(row(3), arena.get(b));
+            arena.encode(row(1));
+            assertTrue(arena.equalsEncoded(a));
+            assertFalse(arena.equalsEncoded(b));
+            assertTrue(arena.liveBytes() > 0);
+        }
+    }
+
+    @ParameterizedTest @ValueSource(ints = {0, 1, 63, 64, 65, 100_000})
+    void testBufferFifo(int size) {
+        OffHeapRowBuffer<String[]> buffer = new OffHeapRowBuffer<>(OPS, VARS);
+        for (int i = 0; i < size; i++)
+            buffer.add(row(i));
+        assertEquals(size, buffer.size());
+        assertEquals(size == 0, buffer.isEmpty());
+        for (int i = 0; i < size; i++) {
+            assertArrayEquals(row(i), buffer.get(0), "i="+i);
+            buffer.removeFirst(1);
+            if (i % 7 == 0)
+                buffer.add(row(size+i));
+        }
+        int extra = (size+6)/7;
+        assertEquals(extra, buffer.size());
+        for (int i = 0; i < extra; i++)
+            assertArrayEquals(row(size+7*i), buffer.get(i));
+        buffer.close();
+        assertEquals(0, buffer.size());
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.get(0));
+    }
+
+    @Test
+    void testBufferCachesDecodedRows() {
+        try (OffHeapRowBuffer<String[]> buffer = new OffHeapRowBuffer<>(OPS, VARS)) {
+            for (int i = 0; i < 200; i++)
+                buffer.add(row(i));
+            String[] third = buffer.get(3);
+            assertSame(third, buffer.get(3));
+            buffer.removeFirst(1);
+            assertSame(third, buffer.get(2));
+            for (int i = 0; i < buffer.size(); i++)
+                assertArrayEquals(row(i+1), buffer.get(i), "i="+i);
+            buffer.removeFirst(100);
+            for (int i = 0; i < buffer.size(); i++)
+                assertArrayEquals(row(i+101), buffer.get(i), "i="+i);
+            buffer.clear();
+            buffer.add(row(7));
+            assertArrayEquals(row(7), buffer.get(0));
+        }
+    }
+
+    @Test
+    void testRejectRowsNotRestoredFromNT() {
+        RowOperations listOps = RowOperationsRegistry.get().forClass(List.class);
+        assertFalse(listOps.restoresNT());
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapRowArena<>(listOps, VARS));
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapRowBuffer<>(listOps, VARS));
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapRowHashSet<>(listOps, VARS));
+    }
+
+    @Test
+    void testBufferReleasesChunks() {
+        OffHeapRowArena<String[]> arena = new OffHeapRowArena<>(OPS, VARS);
+        for (int i = 0; i < 50_000; i++)
+            arena.add(row(i));
+        long full = arena.liveBytes();
+        assertTrue(full > OffHeapRowArena.CHUNK_BYTES);
+        arena.releaseChunksBefore(1);
+        assertEquals(full-OffHeapRowArena.CHUNK_BYTES, arena.liveBytes());
+        arena.close();
+        assertEquals(0, arena.liveBytes());
+        assertThrows(IllegalStateException.class, () -> arena.add(row(0)));
+    }
+
+    @Test
+    void testHashSet() {
+        try (OffHeapRowHashSet<String[]> set = new OffHeapRowHashSet<>(OPS, VARS)) {
+            for (int i = 0; i < 10_000; i++)
+                assertTrue(set.add(row(i)), "i="+i);
+            for (int i = 0; i < 10_000; i++) {
+                assertFalse(set.add(row(i)), "i="+i);
+                assertTrue(set.contains(row(i)), "i="+i);
+            }
+            assertFalse(set.contains(row(10_000)));
+            assertTrue(set.add(null));
+            assertFalse(set.add(null));
+            assertEquals(10_001, set.size());
+        }
+    }
+}
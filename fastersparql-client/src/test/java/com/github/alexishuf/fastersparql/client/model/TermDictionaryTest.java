@@ -0,0 +1,194 @@
+package com.github.alexishuf.fastersparql.client.model;
+
+import com.github.alexishuf.fastersparql.client.model.row.RowOperations;
+import com.github.alexishuf.fastersparql.client.model.row.RowOperationsRegistry;
+import com.github.alexishuf.fastersparql.client.model.row.TermDictionary;
+import com.github.alexishuf.fastersparql.client.model.row.impl.TermIdArrayOperations;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.github.alexishuf.fastersparql.client.model.row.TermDictionary.NULL_ID;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TermDictionaryTest {
+    @Test
+    void testIntern() {
+        TermDictionary dict = new TermDictionary(1024*1024);
+        long a = dict.intern("<http://example.org/a>");
+        long b = dict.intern("\"b\"@en");
+        long c = dict.intern("\"🨂\"");
+        assertNotEquals(NULL_ID, a);
+        assertNotEquals(a, b);
+        assertEquals(a, dict.intern("<http://example.org/a>"));
+        assertEquals(b, dict.intern("\"b\"@en".getBytes(UTF_8)));
+        assertEquals(c, dict.find("\"🨂\""));
+        assertEquals(NULL_ID, dict.find("<http://example.org/missing>"));
+        assertEquals(NULL_ID, dict.intern((CharSequence) null));
+        assertEquals("<http://example.org/a>", dict.term(a));
+        assertEquals("\"b\"@en", dict.term(b));
+        assertEquals("\"🨂\"", dict.term(c));
+        assertNull(dict.term(NULL_ID));
+        assertEquals(3, dict.size());
+    }
+
+    @Test
+    void testInternSlice() {
+        TermDictionary dict = new TermDictionary(1024);
+        byte[] bytes = "xx<a>yy".getBytes(UTF_8);
+        long id = dict.intern(bytes, 2, 3);
+        assertEquals(id, dict.intern("<a>"));
+        assertEquals("<a>", dict.term(id));
+    }
+
+    @Test
+    void testManyTermsAcrossChunks() {
+        TermDictionary dict = new TermDictionary(4*1024*1024, 4096);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++)
+            ids.add(dict.intern("<http://example.org/"+i+">"));
+        assertEquals(100_000, dict.size());
+        for (int i = 0; i < 100_000; i++) {
+            assertEquals("<http://example.org/"+i+">", dict.term(ids.get(i)));
+            assertEquals(ids.get(i), dict.intern("<http://example.org/"+i+">"));
+        }
+    }
+
+    @Test
+    void testBoundedWhileLeased() {
+        TermDictionary dict = new TermDictionary(64, 32);
+        try (TermDictionary.Lease ignored = dict.acquire()) {
+            long a = dict.intern("<http://example.org/a>");
+            assertThrows(TermDictionary.FullException.class,
+                         () -> {
+                             for (int i = 0; i < 10; i++)
+                                 dict.intern("<http://example.org/"+i+">");
+                         });
+            assertEquals(a, dict.intern("<http://example.org/a>"));
+            assertEquals("<http://example.org/a>", dict.term(a));
+            assertTrue(dict.allocatedBytes() <= 64);
+        }
+        // once the lease is closed, the full generation is retired instead of failing
+        long b = dict.intern("<http://example.org/b>");
+        assertEquals("<http://example.org/b>", dict.term(b));
+        assertTrue(dict.allocatedBytes() <= 64);
+    }
+
+    @Test
+    void testRetireUnleasedGenerations() {
+        TermDictionary dict = new TermDictionary(1024, 128);
+        long first = dict.intern("<http://example.org/first>");
+        long last = NULL_ID;
+        for (int i = 0; i < 10_000; i++) {
+            last = dict.intern("<http://example.org/"+i+">");
+            assertTrue(dict.allocatedBytes() <= 1024);
+        }
+        assertEquals("<http://example.org/9999>", dict.term(last));
+        assertEquals(last, dict.intern("<http://example.org/9999>"));
+        assertEquals(NULL_ID, dict.find("<http://example.org/first>"));
+        assertThrows(IllegalArgumentException.class, () -> dict.term(first));
+    }
+
+    @Test
+    void testGenerationTagsWrap() {
+        TermDictionary dict = new TermDictionary(64, 32);
+        int rotations = (1 << 20) + 16; // ids carry only 20 bits of the generation number
+        long first = dict.intern("<http://ex.org/first>");
+        long old = NULL_ID, last = NULL_ID;
+        for (int i = 0; i < 2*rotations; i++) {
+            if (i == 2*(1 << 16) - 2) // generation 65536 is current: 16-bit tags would alias
+                assertThrows(IllegalArgumentException.class, () -> dict.term(first));
+            String term = String.format("<http://ex.org/%06x>", i & 0xffffff);
+            if (i == 2*rotations - 16)
+                old = last;
+            last = dict.intern(term);
+            if ((i & 0xffff) == 0 || i > 2*rotations - 16)
+                assertEquals(term, dict.term(last), "i="+i);
+        }
+        assertTrue(dict.generations() <= 2);
+        long stale = old;
+        assertThrows(IllegalArgumentException.class, () -> dict.term(stale));
+    }
+
+    @Test
+    void testLeasePinsGenerations() {
+        TermDictionary dict = new TermDictionary(1024, 128);
+        dict.intern("<http://example.org/unleased>");
+        TermDictionary.Lease lease = dict.acquire();
+        long a = dict.intern("<http://example.org/a>");
+        long[] ids = new long[10];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = dict.intern("<http://example.org/"+i+">");
+        assertThrows(TermDictionary.FullException.class, () -> {
+            for (int i = ids.length; i < 10_000; i++)
+                dict.intern("<http://example.org/"+i+">");
+        });
+        assertEquals("<http://example.org/a>", dict.term(a));
+        for (int i = 0; i < ids.length; i++)
+            assertEquals("<http://example.org/"+i+">", dict.term(ids[i]));
+
+        lease.close();
+        lease.close(); // idempotent
+        for (int i = 0; i < 10_000; i++)
+            dict.intern("<http://example.org/"+i+">");
+        assertThrows(IllegalArgumentException.class, () -> dict.term(a));
+    }
+
+    @Test
+    void testConcurrentIntern() throws Exception {
+        TermDictionary dict = new TermDictionary(16*1024*1024);
+        int threads = 8, terms = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    long[] ids = new long[terms];
+                    for (int i = 0; i < terms; i++)
+                        ids[i] = dict.intern("\""+i+"\"");
+                    return ids;
+                }));
+            }
+            long[] first = futures.get(0).get();
+            for (Future<long[]> f : futures)
+                assertArrayEquals(first, f.get());
+            assertEquals(terms, dict.size());
+            for (int i = 0; i < terms; i++)
+                assertEquals("\""+i+"\"", dict.term(first[i]));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testRowOperations() {
+        RowOperations ops = RowOperationsRegistry.get().forClass(long[].class);
+        assertTrue(ops instanceof TermIdArrayOperations);
+        List<String> vars = asList("x", "y");
+        Object row = ops.createEmpty(vars);
+        assertNull(ops.set(row, 0, "x", "<http://example.org/x>"));
+        assertNull(ops.get(row, 1, "y"));
+        assertNull(ops.getNT(row, 1, "y"));
+        assertEquals("<http://example.org/x>", ops.getNT(row, 0, "x"));
+
+        Object other = ops.createEmpty(vars);
+        ops.set(other, 0, "x", ops.get(row, 0, "x"));
+        assertTrue(ops.equalsSameVars(row, other));
+        TermIdArrayOperations idOps = (TermIdArrayOperations) ops;
+        assertEquals(idOps.dictionary().find("<http://example.org/x>"), idOps.getId(row, 0));
+        assertEquals(NULL_ID, idOps.getId(row, 1));
+        assertEquals(NULL_ID, idOps.getId(null, 0));
+        Object copy = ops.createEmpty(vars);
+        ops.copy(row, 0, copy, 0, "x");
+        ops.copy(null, 0, copy, 1, "y");
+        assertTrue(ops.equalsSameVars(row, copy));
+        assertEquals(ops.hash(row), ops.hash(other));
+        assertEquals("[<http://example.org/x>, null]", ops.toString(row));
+    }
+}
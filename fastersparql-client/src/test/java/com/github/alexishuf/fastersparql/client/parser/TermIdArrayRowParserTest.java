@@ -0,0 +1,94 @@
+package com.github.alexishuf.fastersparql.client.parser;
+
+import com.github.alexishuf.fastersparql.client.model.Results;
+import com.github.alexishuf.fastersparql.client.model.row.TermDictionary;
+import com.github.alexishuf.fastersparql.client.parser.row.TermIdArrayRowParser;
+import com.github.alexishuf.fastersparql.client.util.reactive.FSPublisher;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.github.alexishuf.fastersparql.client.model.row.TermDictionary.NULL_ID;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TermIdArrayRowParserTest {
+    private static final List<String[]> STRING_ARRAYS = asList(
+            new String[]{"\"1\"", "\"2\""},
+            new String[]{"<a>", "\"🨂\""},
+            new String[]{"<a>", null}
+    );
+    private static final List<List<String>> STRING_LISTS =
+            STRING_ARRAYS.stream().map(Arrays::asList).collect(toList());
+
+    private static final List<String> varsList = asList("x", "y");
+
+    private final TermIdArrayRowParser parser = new TermIdArrayRowParser(new TermDictionary(4096));
+
+    private void checkResults(Publisher<long[]> publisher) {
+        List<long[]> actual = Flux.from(publisher).collectList().block();
+        assertNotNull(actual);
+        assertEquals(STRING_ARRAYS.size(), actual.size());
+        TermDictionary dict = parser.dictionary();
+        for (int i = 0; i < actual.size(); i++) {
+            String[] expected = STRING_ARRAYS.get(i);
+            for (int j = 0; j < expected.length; j++)
+                assertEquals(expected[j], dict.term(actual.get(i)[j]));
+        }
+        assertEquals(actual.get(1)[0], actual.get(2)[0]);
+    }
+
+    private static byte[] bytes(String s) {
+        return s == null ? null : s.getBytes(UTF_8);
+    }
+
+    @Test
+    void testParseStringArray() {
+        FSPublisher<String[]> input = FSPublisher.bindToAny(Flux.fromIterable(STRING_ARRAYS));
+        checkResults(parser.parseStringsArray(new Results<>(varsList, String[].class, input)));
+    }
+
+    @Test
+    void testParseStringList() {
+        FSPublisher<List<String>> input = FSPublisher.bindToAny(Flux.fromIterable(STRING_LISTS));
+        checkResults(parser.parseStringsList(new Results<>(varsList, List.class, input)));
+    }
+
+    @Test
+    void testParseBytesArray() {
+        List<byte[][]> rows = STRING_LISTS.stream()
+                .map(l -> l.stream().map(TermIdArrayRowParserTest::bytes).toArray(byte[][]::new))
+                .collect(toList());
+        FSPublisher<byte[][]> input = FSPublisher.bindToAny(Flux.fromIterable(rows));
+        checkResults(parser.parseBytesArray(new Results<>(varsList, byte[][].class, input)));
+    }
+
+    @Test
+    void testParseBytesList() {
+        List<List<byte[]>> rows = STRING_LISTS.stream()
+                .map(l -> l.stream().map(TermIdArrayRowParserTest::bytes).collect(toList()))
+                .collect(toList());
+        FSPublisher<List<byte[]>> input = FSPublisher.bindToAny(Flux.fromIterable(rows));
+        checkResults(parser.parseBytesList(new Results<>(varsList, List.class, input)));
+    }
+
+    @Test
+    void testReleaseLeaseOnTermination() {
+        TermIdArrayRowParser parser = new TermIdArrayRowParser(new TermDictionary(1024, 128));
+        FSPublisher<String[]> input = FSPublisher.bindToAny(Flux.fromIterable(STRING_ARRAYS));
+        FSPublisher<long[]> parsed
+                = parser.parseStringsArray(new Results<>(varsList, String[].class, input));
+        List<long[]> rows = Flux.from(parsed).collectList().block();
+        assertNotNull(rows);
+        // no lease is left open, thus filling the dictionary retires the parsed terms
+        TermDictionary dict = parser.dictionary();
+        for (int i = 0; i < 1_000; i++)
+            dict.intern("<http://example.org/"+i+">");
+        assertEquals(NULL_ID, dict.find("\"🨂\""));
+    }
+}
@@ -0,0 +1,111 @@
+package com.github.alexishuf.fastersparql.client.parser.fragment;
+
+import com.github.alexishuf.fastersparql.client.model.Graph;
+import com.github.alexishuf.fastersparql.client.model.RDFMediaTypes;
+import com.github.alexishuf.fastersparql.client.model.row.TermDictionary;
+import com.github.alexishuf.fastersparql.client.util.MediaType;
+import com.github.alexishuf.fastersparql.client.util.async.SafeCompletableAsyncTask;
+import com.github.alexishuf.fastersparql.client.util.reactive.FSPublisher;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TripleFragmentParserTest {
+    private static final String NT_DATA = "<a> <p> \"1\" .\n<a> <p> \"2\" .\n<a> <p> \"3\" .\n";
+    private static final List<List<String>> NT_TRIPLES = asList(
+            asList("<a>", "<p>", "\"1\""),
+            asList("<a>", "<p>", "\"2\""),
+            asList("<a>", "<p>", "\"3\""));
+
+    private static <T> Graph<T> graph(MediaType mediaType, Class<T> cls, Flux<T> flux) {
+        SafeCompletableAsyncTask<MediaType> mt = new SafeCompletableAsyncTask<>();
+        mt.complete(mediaType);
+        return new Graph<>(mt, cls, FSPublisher.bindToAny(flux));
+    }
+
+    private static List<byte[]> split(String data, int size) {
+        byte[] bytes = data.getBytes(UTF_8);
+        List<byte[]> list = new ArrayList<>();
+        for (int i = 0; i < bytes.length; i += size)
+            list.add(Arrays.copyOfRange(bytes, i, Math.min(bytes.length, i+size)));
+        return list;
+    }
+
+    @Test
+    void testParseBytes() {
+        for (int size = 1; size < NT_DATA.length(); size++) {
+            Graph<byte[]> g = graph(RDFMediaTypes.NT, byte[].class,
+                                    Flux.fromIterable(split(NT_DATA, size)));
+            List<String[]> triples = Flux.from(TripleFragmentParser.INSTANCE.parseBytes(g))
+                                         .collectList().block();
+            assertNotNull(triples);
+            assertEquals(NT_TRIPLES, triples.stream().map(Arrays::asList).collect(toList()),
+                         "size="+size);
+        }
+    }
+
+    @Test
+    void testParseStrings() {
+        Graph<CharSequence> g = graph(RDFMediaTypes.TTL, CharSequence.class,
+                Flux.just("@prefix : <http://example.org/> .\n:s :p 1", ", 2", " .\n"));
+        List<String[]> triples = Flux.from(TripleFragmentParser.INSTANCE.parseStrings(g))
+                                     .collectList().block();
+        assertNotNull(triples);
+        assertEquals(2, triples.size());
+        assertEquals("<http://example.org/s>", triples.get(1)[0]);
+        assertEquals("\"2\"^^<http://www.w3.org/2001/XMLSchema#integer>", triples.get(1)[2]);
+    }
+
+    @Test
+    void testBackpressure() {
+        AtomicInteger fragmentsRequested = new AtomicInteger();
+        Flux<byte[]> source = Flux.fromIterable(split(NT_DATA, NT_DATA.length()/3 + 1))
+                                  .doOnRequest(n -> fragmentsRequested.addAndGet((int) n));
+        Graph<byte[]> g = graph(RDFMediaTypes.NT, byte[].class, source);
+        List<String[]> first = Flux.from(TripleFragmentParser.INSTANCE.parseBytes(g))
+                                   .limitRate(1).take(1).collectList().block();
+        assertNotNull(first);
+        assertEquals(asList("<a>", "<p>", "\"1\""), asList(first.get(0)));
+        assertTrue(fragmentsRequested.get() <= 2, "requested="+fragmentsRequested.get());
+    }
+
+    @Test
+    void testUnsupportedMediaType() {
+        Graph<byte[]> g = graph(RDFMediaTypes.RDFXML, byte[].class,
+                                Flux.just("<rdf:RDF/>".getBytes(UTF_8)));
+        assertThrows(InvalidRDFException.class,
+                () -> Flux.from(TripleFragmentParser.INSTANCE.parseBytes(g)).collectList().block());
+    }
+
+    @Test
+    void testSyntaxError() {
+        Graph<byte[]> g = graph(RDFMediaTypes.NT, byte[].class,
+                                Flux.just("<a> <p> \"1\" .\n<a> <p> ".getBytes(UTF_8)));
+        assertThrows(InvalidRDFException.class,
+                () -> Flux.from(TripleFragmentParser.INSTANCE.parseBytes(g)).collectList().block());
+    }
+
+    @Test
+    void testTermIds() {
+        TermIdTripleFragmentParser parser = new TermIdTripleFragmentParser(new TermDictionary(4096));
+        Graph<byte[]> g = graph(RDFMediaTypes.NQ, byte[].class,
+                Flux.just("<a> <p> \"1\" <g> .\n<a> <p> \"2\" .\n".getBytes(UTF_8)));
+        List<long[]> rows = Flux.from(parser.parseBytes(g)).collectList().block();
+        assertNotNull(rows);
+        assertEquals(2, rows.size());
+        TermDictionary dict = parser.dictionary();
+        assertEquals("<g>", dict.term(rows.get(0)[3]));
+        assertEquals(TermDictionary.NULL_ID, rows.get(1)[3]);
+        assertEquals(rows.get(0)[0], rows.get(1)[0]);
+        assertEquals("\"2\"", dict.term(rows.get(1)[2]));
+    }
+}
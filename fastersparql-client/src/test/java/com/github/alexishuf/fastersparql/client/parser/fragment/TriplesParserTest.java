@@ -0,0 +1,185 @@
+package com.github.alexishuf.fastersparql.client.parser.fragment;
+
+import com.github.alexishuf.fastersparql.client.parser.fragment.TriplesParser.Syntax;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+class TriplesParserTest {
+    private static final String RDF = "http://www.w3.org/1999/02/22-rdf-syntax-ns#";
+    private static final String XSD = "http://www.w3.org/2001/XMLSchema#";
+    private static final String EX = "http://example.org/";
+
+    private static List<String> t(String... terms) { return asList(terms); }
+
+    static Stream<Arguments> data() {
+        List<Arguments> list = new ArrayList<>();
+        // N-Triples
+        list.add(arguments(Syntax.NT, "<"+EX+"s> <"+EX+"p> <"+EX+"o> .\n",
+                asList(t("<"+EX+"s>", "<"+EX+"p>", "<"+EX+"o>"))));
+        list.add(arguments(Syntax.NT,
+                "# comment . \"\n_:b1 <"+EX+"p> \"a.b\"@en-US .\r\n" +
+                "_:b1 <"+EX+"p> \"x\\\"y\"^^<"+XSD+"string>.\n" +
+                "<"+EX+"s> <"+EX+"p> \"ação 🨂\" . # trailing\n",
+                asList(t("_:b1", "<"+EX+"p>", "\"a.b\"@en-US"),
+                       t("_:b1", "<"+EX+"p>", "\"x\\\"y\"^^<"+XSD+"string>"),
+                       t("<"+EX+"s>", "<"+EX+"p>", "\"ação 🨂\""))));
+        // N-Quads
+        list.add(arguments(Syntax.NQ,
+                "<"+EX+"s> <"+EX+"p> \"1\" <"+EX+"g> .\n<"+EX+"s> <"+EX+"p> _:o .\n",
+                asList(t("<"+EX+"s>", "<"+EX+"p>", "\"1\"", "<"+EX+"g>"),
+                       t("<"+EX+"s>", "<"+EX+"p>", "_:o", null))));
+        // Turtle
+        list.add(arguments(Syntax.TTL,
+                "@prefix ex: <"+EX+"> .\n" +
+                "PREFIX xsd: <"+XSD+">\n" +
+                "@base <"+EX+"base/> .\n" +
+                "ex:s a ex:C ; ex:p ex:o1, <rel> ;\n" +
+                "  ex:n 1, -2.5, 3e2, true ;.\n" +
+                "ex:a.b ex:p 'single \"quoted\"', \"\"\"long\n\"string\"\"\"\"^^xsd:string .\n",
+                asList(t("<"+EX+"s>", "<"+RDF+"type>", "<"+EX+"C>"),
+                       t("<"+EX+"s>", "<"+EX+"p>", "<"+EX+"o1>"),
+                       t("<"+EX+"s>", "<"+EX+"p>", "<"+EX+"base/rel>"),
+                       t("<"+EX+"s>", "<"+EX+"n>", "\"1\"^^<"+XSD+"integer>"),
+                       t("<"+EX+"s>", "<"+EX+"n>", "\"-2.5\"^^<"+XSD+"decimal>"),
+                       t("<"+EX+"s>", "<"+EX+"n>", "\"3e2\"^^<"+XSD+"double>"),
+                       t("<"+EX+"s>", "<"+EX+"n>", "\"true\"^^<"+XSD+"boolean>"),
+                       t("<"+EX+"a.b>", "<"+EX+"p>", "\"single \\\"quoted\\\"\""),
+                       t("<"+EX+"a.b>", "<"+EX+"p>",
+                         "\"long\\n\\\"string\\\"\"^^<"+XSD+"string>"))));
+        list.add(arguments(Syntax.TTL,
+                "@prefix : <"+EX+"> .\n" +
+                ":s :p [ :q \"x\" ] ; :l ( 1 :a ) ; :e () .\n" +
+                "[ :q :z ] .\n",
+                asList(t("_:fsanon0", "<"+EX+"q>", "\"x\""),
+                       t("<"+EX+"s>", "<"+EX+"p>", "_:fsanon0"),
+                       t("_:fsanon1", "<"+RDF+"first>", "\"1\"^^<"+XSD+"integer>"),
+                       t("_:fsanon1", "<"+RDF+"rest>", "_:fsanon2"),
+                       t("_:fsanon2", "<"+RDF+"first>", "<"+EX+"a>"),
+                       t("_:fsanon2", "<"+RDF+"rest>", "<"+RDF+"nil>"),
+                       t("<"+EX+"s>", "<"+EX+"l>", "_:fsanon1"),
+                       t("<"+EX+"s>", "<"+EX+"e>", "<"+RDF+"nil>"),
+                       t("_:fsanon3", "<"+EX+"q>", "<"+EX+"z>"))));
+        list.add(arguments(Syntax.TTL,
+                "@prefix : <"+EX+"> .\n" +
+                ":a :b .5 .\n:a :b +.25, 1.5 .",
+                asList(t("<"+EX+"a>", "<"+EX+"b>", "\".5\"^^<"+XSD+"decimal>"),
+                       t("<"+EX+"a>", "<"+EX+"b>", "\"+.25\"^^<"+XSD+"decimal>"),
+                       t("<"+EX+"a>", "<"+EX+"b>", "\"1.5\"^^<"+XSD+"decimal>"))));
+        return list.stream();
+    }
+
+    private static List<List<String>> parse(Syntax syntax, List<?> fragments) {
+        List<List<String>> triples = new ArrayList<>();
+        TriplesParser parser = new TriplesParser(syntax, a -> triples.add(Arrays.asList(a)));
+        for (Object fragment : fragments) {
+            if (fragment instanceof byte[]) parser.feed((byte[]) fragment);
+            else                            parser.feed((CharSequence) fragment);
+        }
+        parser.end();
+        return triples;
+    }
+
+    @ParameterizedTest @MethodSource("data")
+    void testParseWhole(Syntax syntax, String input, List<List<String>> expected) {
+        assertEquals(expected, parse(syntax, asList(input)));
+        assertEquals(expected, parse(syntax, asList(input.getBytes(UTF_8))));
+    }
+
+    @ParameterizedTest @MethodSource("data")
+    void testSplitAnywhere(Syntax syntax, String input, List<List<String>> expected) {
+        for (int i = 0; i <= input.length(); i++) {
+            List<String> fragments = asList(input.substring(0, i), input.substring(i));
+            assertEquals(expected, parse(syntax, fragments), "split at char "+i);
+        }
+        byte[] bytes = input.getBytes(UTF_8);
+        for (int i = 0; i <= bytes.length; i++) {
+            List<byte[]> fragments = asList(Arrays.copyOfRange(bytes, 0, i),
+                                            Arrays.copyOfRange(bytes, i, bytes.length));
+            assertEquals(expected, parse(syntax, fragments), "split at byte "+i);
+        }
+    }
+
+    @ParameterizedTest @MethodSource("data")
+    void testByteByByte(Syntax syntax, String input, List<List<String>> expected) {
+        byte[] bytes = input.getBytes(UTF_8);
+        List<byte[]> fragments = new ArrayList<>();
+        for (byte b : bytes)
+            fragments.add(new byte[]{b});
+        assertEquals(expected, parse(syntax, fragments));
+    }
+
+    @Test
+    void testFeedByteBuffer() {
+        List<String[]> triples = new ArrayList<>();
+        TriplesParser parser = new TriplesParser(Syntax.NT, triples::add);
+        ByteBuffer bb = ByteBuffer.allocateDirect(64);
+        bb.put("<a> <b> \"ç\" .\n".getBytes(UTF_8)).flip();
+        parser.feed(bb);
+        assertFalse(bb.hasRemaining());
+        parser.end();
+        assertEquals(1, triples.size());
+        assertEquals(asList("<a>", "<b>", "\"ç\""), asList(triples.get(0)));
+    }
+
+    @Test
+    void testFeedByteBufferStraddling() {
+        List<String[]> triples = new ArrayList<>();
+        TriplesParser parser = new TriplesParser(Syntax.NT, triples::add);
+        byte[] bytes = "<a> <b> \"\uD83E\uDE02\" .\n".getBytes(UTF_8);
+        int split = 10; // inside the 4-byte character
+        ByteBuffer first = ByteBuffer.allocateDirect(64), second = ByteBuffer.allocateDirect(64);
+        first.put(bytes, 0, split).flip();
+        second.put(bytes, split, bytes.length-split).flip();
+        parser.feed(first);
+        assertFalse(first.hasRemaining());
+        assertEquals(0, triples.size());
+        parser.feed(second);
+        assertFalse(second.hasRemaining());
+        parser.end();
+        assertEquals(1, triples.size());
+        assertEquals(asList("<a>", "<b>", "\"\uD83E\uDE02\""), asList(triples.get(0)));
+    }
+
+    @Test
+    void testEmitsBeforeEnd() {
+        List<String[]> triples = new ArrayList<>();
+        TriplesParser parser = new TriplesParser(Syntax.NT, triples::add);
+        parser.feed("<a> <b> <c> .\n<a> <b> ");
+        assertEquals(1, triples.size());
+        parser.feed("<d> .\n");
+        assertEquals(2, triples.size());
+        parser.end();
+        assertEquals(asList(asList("<a>", "<b>", "<c>"), asList("<a>", "<b>", "<d>")),
+                     triples.stream().map(Arrays::asList).collect(toList()));
+    }
+
+    @ParameterizedTest @ValueSource(strings = {
+            "<a> <b> <c>",
+            "<a> <b> \"unterminated .\n",
+            "<a> <b> ex:c .\n",
+            "<a> <b> .\n",
+            "<a> <b> <c> <d> <e> .\n",
+    })
+    void testInvalid(String input) {
+        TriplesParser parser = new TriplesParser(Syntax.TTL, a -> {});
+        assertThrows(InvalidRDFException.class, () -> {
+            parser.feed(input);
+            parser.end();
+        });
+    }
+}
@@ -0,0 +1,194 @@
+package com.github.alexishuf.fastersparql.client.replica;
+
+import com.github.alexishuf.fastersparql.client.BindType;
+import com.github.alexishuf.fastersparql.client.SparqlClient;
+import com.github.alexishuf.fastersparql.client.model.Graph;
+import com.github.alexishuf.fastersparql.client.model.Results;
+import com.github.alexishuf.fastersparql.client.model.SparqlConfiguration;
+import com.github.alexishuf.fastersparql.client.model.SparqlEndpoint;
+import com.github.alexishuf.fastersparql.client.util.reactive.AsyncIterable;
+import com.github.alexishuf.fastersparql.client.util.reactive.FSPublisher;
+import com.github.alexishuf.fastersparql.client.util.sparql.SparqlUtils;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicaGroupClientTest {
+    private static final String SPARQL = "SELECT ?x WHERE { ?x ?p ?o }";
+
+    /** Answers every query with {@code <NAME>} after {@code delayMs}. */
+    private static class MockClient implements SparqlClient<String[], byte[]> {
+        private final String name;
+        volatile long delayMs;
+        volatile @Nullable RuntimeException error;
+        final AtomicInteger queries = new AtomicInteger();
+        final AtomicInteger cancels = new AtomicInteger();
+        final List<String> sparql = new ArrayList<>();
+        boolean closed;
+
+        MockClient(String name, long delayMs) {
+            this.name = name;
+            this.delayMs = delayMs;
+        }
+
+        @Override public Class<String[]> rowClass() { return String[].class; }
+        @Override public Class<byte[]> fragmentClass() { return byte[].class; }
+        @Override public SparqlEndpoint endpoint() {
+            return SparqlEndpoint.parse("http://"+name+".example.org/sparql");
+        }
+
+        @Override
+        public Results<String[]> query(CharSequence sparql, @Nullable SparqlConfiguration cfg,
+                                       @Nullable Results<String[]> bindings,
+                                       @Nullable BindType bindType) {
+            assertNull(bindings);
+            queries.incrementAndGet();
+            synchronized (this) { this.sparql.add(sparql.toString()); }
+            String row = "<"+name+">";
+            RuntimeException error = this.error;
+            Flux<String[]> flux = error != null
+                    ? Flux.<String[]>error(error).delaySubscription(Duration.ofMillis(delayMs))
+                    : Flux.<String[]>just(new String[]{row})
+                          .delaySubscription(Duration.ofMillis(delayMs));
+            flux = flux.doOnCancel(cancels::incrementAndGet);
+            return new Results<>(SparqlUtils.publicVars(sparql), String[].class,
+                                 FSPublisher.bindToAny(flux));
+        }
+
+        @Override public Graph<byte[]> queryGraph(CharSequence sparql,
+                                                  @Nullable SparqlConfiguration configuration) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override public void close() { closed = true; }
+    }
+
+    private static List<String> rows(Results<String[]> results) {
+        return results.publisher().asStream().map(r -> r[0]).collect(Collectors.toList());
+    }
+
+    @Test
+    void testEwmaPrefersFastReplica() {
+        MockClient fast = new MockClient("fast", 0), slow = new MockClient("slow", 40);
+        ReplicaGroupClient<String[], byte[]> group
+                = new ReplicaGroupClient<>(asList(slow, fast), ReplicaBalancer.EWMA, 0, 1);
+        for (int i = 0; i < 20; i++)
+            assertEquals(1, rows(group.query(SPARQL)).size());
+        assertTrue(slow.queries.get() <= 2, "slow.queries="+slow.queries.get());
+        assertEquals(20, slow.queries.get()+fast.queries.get());
+        ReplicaStats slowStats = group.replicaStats().get(0);
+        assertEquals(slow.endpoint(), slowStats.endpoint());
+        assertTrue(slowStats.ewmaLatencyMs() >= 40, "ewma="+slowStats.ewmaLatencyMs());
+        assertEquals(0, slowStats.outstanding());
+        assertEquals(0, group.replicaStats().get(1).outstanding());
+        group.close();
+        assertTrue(slow.closed && fast.closed);
+    }
+
+    @Test
+    void testLeastOutstanding() throws Exception {
+        MockClient a = new MockClient("a", 200), b = new MockClient("b", 200);
+        ReplicaGroupClient<String[], byte[]> group
+                = new ReplicaGroupClient<>(asList(a, b), ReplicaBalancer.LEAST_OUTSTANDING, 0, 1);
+        List<CompletableFuture<List<String>>> futures = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Results<String[]> results = group.query(SPARQL);
+            futures.add(CompletableFuture.supplyAsync(() -> rows(results)));
+            // wait for the request to be issued
+            for (int j = 0; j < 100 && a.queries.get()+b.queries.get() <= i; j++)
+                Thread.sleep(5);
+        }
+        for (CompletableFuture<List<String>> future : futures)
+            assertEquals(1, future.get().size());
+        assertEquals(3, a.queries.get());
+        assertEquals(3, b.queries.get());
+    }
+
+    @Test
+    void testHedge() throws InterruptedException {
+        MockClient slow = new MockClient("slow", 2000), fast = new MockClient("fast", 0);
+        ReplicaGroupClient<String[], byte[]> group
+                = new ReplicaGroupClient<>(asList(slow, fast), ReplicaBalancer.EWMA, 50, 1);
+        group.latencies.add(MILLISECONDS.toNanos(10));
+        long start = System.nanoTime();
+        // no latency samples for the replicas and rotation starts at 0: slow is chosen
+        assertEquals(singletonList("<fast>"), rows(group.query(SPARQL)));
+        long elapsedMs = (System.nanoTime()-start)/1000000;
+        assertTrue(elapsedMs < 1000, "elapsedMs="+elapsedMs);
+        assertEquals(1, slow.queries.get());
+        assertEquals(1, fast.queries.get());
+        for (int i = 0; i < 100 && slow.cancels.get() == 0; i++)
+            Thread.sleep(10); // cancel() may be delivered asynchronously
+        assertEquals(1, slow.cancels.get());
+        ReplicaStats fastStats = group.replicaStats().get(1);
+        assertEquals(1, fastStats.hedges());
+        assertEquals(1, fastStats.hedgeWins());
+        assertEquals(0, group.replicaStats().get(0).outstanding());
+        // the loser is penalized
+        assertTrue(group.replicaStats().get(0).ewmaLatencyMs() > fastStats.ewmaLatencyMs());
+        // the sample for future hedge delays includes the wait before hedging
+        long minSample = group.latencies.percentile(1, 1);
+        assertTrue(minSample >= MILLISECONDS.toNanos(10), "minSample="+minSample);
+    }
+
+    @Test
+    void testHedgeOnFailure() {
+        MockClient failing = new MockClient("failing", 0), ok = new MockClient("ok", 0);
+        failing.error = new RuntimeException("test");
+        ReplicaGroupClient<String[], byte[]> group
+                = new ReplicaGroupClient<>(asList(failing, ok), ReplicaBalancer.EWMA, 50, 1);
+        group.latencies.add(MILLISECONDS.toNanos(5000));
+        long start = System.nanoTime();
+        assertEquals(singletonList("<ok>"), rows(group.query(SPARQL)));
+        assertTrue(System.nanoTime()-start < MILLISECONDS.toNanos(2000));
+        assertEquals(1, failing.queries.get());
+    }
+
+    @Test
+    void testErrorWithoutHedge() {
+        MockClient failing = new MockClient("failing", 0);
+        failing.error = new RuntimeException("test");
+        ReplicaGroupClient<String[], byte[]> group
+                = new ReplicaGroupClient<>(singletonList(failing), ReplicaBalancer.EWMA, 50, 1);
+        group.latencies.add(MILLISECONDS.toNanos(1));
+        AsyncIterable<String[]> it = group.query(SPARQL).iterable();
+        assertFalse(it.iterator().hasNext());
+        Throwable error = it.error();
+        assertNotNull(error);
+        assertEquals("test", error.getMessage());
+        assertEquals(0, group.replicaStats().get(0).outstanding());
+    }
+
+    @Test
+    void testBind() {
+        MockClient a = new MockClient("a", 0), b = new MockClient("b", 0);
+        ReplicaGroupClient<String[], byte[]> group
+                = new ReplicaGroupClient<>(asList(a, b), ReplicaBalancer.LEAST_OUTSTANDING, 0, 1);
+        List<String[]> left = new ArrayList<>();
+        for (int i = 0; i < 8; i++)
+            left.add(new String[]{"<"+i+">"});
+        Results<String[]> bindings = new Results<>(singletonList("s"), String[].class,
+                                                   FSPublisher.bindToAny(Flux.fromIterable(left)));
+        Results<String[]> results = group.query("SELECT ?x WHERE { ?s ?p ?x }", null,
+                                                bindings, BindType.JOIN);
+        assertEquals(asList("s", "x"), results.vars());
+        List<String[]> rows = results.publisher().asStream().collect(Collectors.toList());
+        assertEquals(8, rows.size());
+        assertEquals(8, a.queries.get()+b.queries.get());
+        assertTrue(a.queries.get() > 0 && b.queries.get() > 0);
+        for (String sparql : a.sparql)
+            assertFalse(sparql.contains("?s"), sparql);
+    }
+}
@@ -0,0 +1,150 @@
+package com.github.alexishuf.fastersparql.client.util;
+
+import com.github.alexishuf.fastersparql.client.model.DownloadOptions;
+import com.github.alexishuf.fastersparql.client.model.DownloadStats;
+import com.github.alexishuf.fastersparql.client.model.Graph;
+import com.github.alexishuf.fastersparql.client.model.RDFMediaTypes;
+import com.github.alexishuf.fastersparql.client.util.async.SafeCompletableAsyncTask;
+import com.github.alexishuf.fastersparql.client.util.reactive.FSPublisher;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.GZIPInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphDownloaderTest {
+    private static final String DATA;
+    private static final int TRIPLES = 1000;
+
+    static {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < TRIPLES; i++)
+            sb.append("<http://example.org/s> <http://example.org/p> \"ç").append(i).append("\" .\n");
+        DATA = sb.toString();
+    }
+
+    private static <T> Graph<T> graph(Class<T> cls, List<T> fragments) {
+        SafeCompletableAsyncTask<MediaType> mt = new SafeCompletableAsyncTask<>();
+        mt.complete(RDFMediaTypes.NT);
+        return new Graph<>(mt, cls, FSPublisher.bindToAny(Flux.fromIterable(fragments)));
+    }
+
+    private static List<byte[]> split(int size) {
+        byte[] bytes = DATA.getBytes(UTF_8);
+        List<byte[]> list = new ArrayList<>();
+        for (int i = 0; i < bytes.length; i += size)
+            list.add(Arrays.copyOfRange(bytes, i, Math.min(bytes.length, i+size)));
+        return list;
+    }
+
+    private static DownloadStats download(Path path, Graph<?> graph,
+                                          DownloadOptions options) throws Exception {
+        try (FileChannel ch = FileChannel.open(path, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            return new GraphDownloader(ch, options).download(graph).get();
+        }
+    }
+
+    private static String read(Path path, boolean gzip) throws IOException {
+        if (!gzip)
+            return new String(Files.readAllBytes(path), UTF_8);
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(path))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            for (int n; (n = in.read(buf)) >= 0; )
+                out.write(buf, 0, n);
+            return new String(out.toByteArray(), UTF_8);
+        }
+    }
+
+    @Test
+    void testFragmentTypes() throws Exception {
+        Path path = Files.createTempFile("fastersparql", ".nt");
+        try {
+            int bytes = DATA.getBytes(UTF_8).length;
+            List<Graph<?>> graphs = new ArrayList<>();
+            graphs.add(graph(byte[].class, split(7)));
+            List<ByteBuffer> direct = new ArrayList<>();
+            for (byte[] a : split(4096)) {
+                ByteBuffer bb = ByteBuffer.allocateDirect(a.length);
+                bb.put(a).flip();
+                direct.add(bb);
+            }
+            graphs.add(graph(ByteBuffer.class, direct));
+            List<CharSequence> strings = new ArrayList<>();
+            for (int i = 0; i < DATA.length(); i += 13)
+                strings.add(DATA.substring(i, Math.min(DATA.length(), i+13)));
+            graphs.add(graph(CharSequence.class, strings));
+            for (Graph<?> graph : graphs) {
+                DownloadStats stats = download(path, graph, DownloadOptions.DEFAULT);
+                assertEquals(DATA, read(path, false));
+                assertEquals(RDFMediaTypes.NT, stats.mediaType());
+                assertEquals(bytes, stats.bytesReceived());
+                assertEquals(bytes, stats.bytesWritten());
+                assertEquals(-1, stats.triples());
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    void testGzipAndCount() throws Exception {
+        Path path = Files.createTempFile("fastersparql", ".nt.gz");
+        try {
+            DownloadOptions options = DownloadOptions.DEFAULT.withGzip(true).withCountTriples(true);
+            DownloadStats stats = download(path, graph(byte[].class, split(100)), options);
+            assertEquals(DATA, read(path, true));
+            assertEquals(DATA.getBytes(UTF_8).length, stats.bytesReceived());
+            assertEquals(Files.size(path), stats.bytesWritten());
+            assertTrue(stats.bytesWritten() < stats.bytesReceived());
+            assertEquals(TRIPLES, stats.triples());
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    void testTriples() throws Exception {
+        Path path = Files.createTempFile("fastersparql", ".nt");
+        try {
+            List<String[]> triples = new ArrayList<>();
+            for (int i = 0; i < TRIPLES; i++)
+                triples.add(new String[]{"<http://example.org/s>", "<http://example.org/p>", "\"ç"+i+"\""});
+            DownloadOptions options = DownloadOptions.DEFAULT.withCountTriples(true);
+            DownloadStats stats = download(path, graph(String[].class, triples), options);
+            assertEquals(DATA, read(path, false));
+            assertEquals(TRIPLES, stats.triples());
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    void testPropagateError() {
+        SafeCompletableAsyncTask<MediaType> mt = new SafeCompletableAsyncTask<>();
+        mt.complete(RDFMediaTypes.NT);
+        Flux<byte[]> flux = Flux.concat(Flux.just("<a> <p> <o> .\n".getBytes(UTF_8)),
+                                        Flux.error(new RuntimeException("test")));
+        Graph<byte[]> graph = new Graph<>(mt, byte[].class, FSPublisher.bindToAny(flux));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> new GraphDownloader(Channels.newChannel(out),
+                                          DownloadOptions.DEFAULT).download(graph).get());
+        assertEquals("test", e.getCause().getMessage());
+    }
+}
@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import static com.github.alexishuf.fastersparql.client.util.HeaderUtils.parseRetryAfterMs;
 import static com.github.alexishuf.fastersparql.client.util.HeaderUtils.sanitizeHeaderName;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -55,4 +56,27 @@ class HeaderUtilsTest {
     public void testNullHeaderName() {
         assertThrows(SparqlClientInvalidArgument.class, () -> sanitizeHeaderName(null));
     }
-}
\ No newline at end of file
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "120 | 120000",
+            " 0 | 0",
+            "3\t | 3000",
+            "Wed, 21 Oct 2015 07:28:30 GMT | 30000",
+            "Wed, 21 Oct 2015 07:27:00 GMT | 0",
+            "bogus | -1",
+            "-1 | -1",
+            "99999999999999999999 | -1",
+    })
+    public void testParseRetryAfter(String dataString) {
+        String[] data = dataString.split(" *\\| *");
+        long now = 1445412480000L; // Wed, 21 Oct 2015 07:28:00 GMT
+        assertEquals(Long.parseLong(data[1]), parseRetryAfterMs(data[0], now));
+    }
+
+    @Test
+    public void testParseNullRetryAfter() {
+        assertEquals(-1, parseRetryAfterMs(null, 0));
+        assertEquals(-1, parseRetryAfterMs(" ", 0));
+    }
+}
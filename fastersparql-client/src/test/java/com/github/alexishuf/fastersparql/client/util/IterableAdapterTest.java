@@ -1,11 +1,14 @@
 package com.github.alexishuf.fastersparql.client.util;
 
 import com.github.alexishuf.fastersparql.client.exceptions.AsyncIterableCancelled;
+import com.github.alexishuf.fastersparql.client.util.reactive.FSPublisher;
 import com.github.alexishuf.fastersparql.client.util.reactive.IterableAdapter;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.SynchronousSink;
@@ -16,10 +19,13 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static org.junit.jupiter.api.Assertions.*;
 
 @Timeout(10)
@@ -371,6 +377,62 @@ class IterableAdapterTest {
         assertEquals(expected, actual);
     }
 
+    @Test
+    void testRequestsWhileConsumingBatch() {
+        List<Long> requests = new ArrayList<>();
+        List<Subscriber<? super Integer>> subscribers = new ArrayList<>();
+        // an FSPublisher is not wrapped by bindToAny(), thus request() and onNext() are
+        // synchronous and requests can be checked without racing an executor
+        FSPublisher<Integer> publisher = new FSPublisher<Integer>() {
+            @Override public void moveTo(Executor executor) { }
+            @Override public Executor executor() { return Runnable::run; }
+            @Override public void subscribe(Subscriber<? super Integer> s) {
+                subscribers.add(s);
+                s.onSubscribe(new Subscription() {
+                    @Override public void request(long n) { requests.add(n); }
+                    @Override public void cancel() { }
+                });
+            }
+        };
+        IterableAdapter<Integer> adapter = new IterableAdapter<>(publisher, 8);
+        adapter.start();
+        assertEquals(singletonList(8L), requests);
+        for (int i = 0; i < 8; i++)
+            subscribers.get(0).onNext(i);
+        Iterator<Integer> it = adapter.iterator();
+        assertEquals(0, it.next());
+        // the whole batch was taken by the iterator: the producer can fill the next one
+        assertEquals(asList(8L, 8L), requests);
+        for (int i = 8; i < 16; i++)
+            subscribers.get(0).onNext(i);
+        subscribers.get(0).onComplete();
+        List<Integer> actual = new ArrayList<>();
+        it.forEachRemaining(actual::add);
+        assertEquals(IntStream.range(1, 16).boxed().collect(Collectors.toList()), actual);
+    }
+
+    @Test
+    void testGrowBatch() {
+        int size = 5000; // > MAX_INITIAL_BATCH, all delivered within start()
+        IterableAdapter<Integer> adapter = new IterableAdapter<>(Flux.range(0, size), 2*size);
+        adapter.start();
+        List<Integer> actual = new ArrayList<>();
+        adapter.forEach(actual::add);
+        assertEquals(IntStream.range(0, size).boxed().collect(Collectors.toList()), actual);
+        assertNull(adapter.error());
+    }
+
+    @Test
+    void testWakeParkedIterator() {
+        int size = 16;
+        Flux<Integer> flux = Flux.range(0, size).delayElements(Duration.ofMillis(5));
+        IterableAdapter<Integer> adapter = new IterableAdapter<>(flux, 4);
+        List<Integer> actual = new ArrayList<>();
+        adapter.forEach(actual::add);
+        assertEquals(IntStream.range(0, size).boxed().collect(Collectors.toList()), actual);
+        assertNull(adapter.error());
+    }
+
     @Test
     void testIterateEmpty() {
         try (IterableAdapter<Integer> a = new IterableAdapter<>(Mono.empty(), 10)) {
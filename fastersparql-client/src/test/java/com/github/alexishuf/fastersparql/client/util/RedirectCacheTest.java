@@ -0,0 +1,82 @@
+package com.github.alexishuf.fastersparql.client.util;
+
+import com.github.alexishuf.fastersparql.client.exceptions.SparqlClientInvalidArgument;
+import com.github.alexishuf.fastersparql.client.model.SparqlEndpoint;
+import com.github.alexishuf.fastersparql.client.model.SparqlMethod;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+class RedirectCacheTest {
+    static Stream<Arguments> testTarget() {
+        return Stream.of(
+                arguments("http://example.org/sparql", "https://example.org/sparql",
+                          "https://example.org/sparql"),
+                arguments("http://example.org/sparql", "/query",
+                          "http://example.org/query"),
+                arguments("http://example.org/a/sparql", "query",
+                          "http://example.org/a/query"),
+                arguments("http://example.org/sparql", "https://www.example.org/sparql?query=ASK%20%7B%7D",
+                          "https://www.example.org/sparql"),
+                arguments("http://example.org/sparql", "http://b.example.org:8080/s?graph=g&query=x",
+                          "http://b.example.org:8080/s?graph=g"),
+                arguments("http://example.org/sparql", "HTTPS://example.org",
+                          "https://example.org/")
+        );
+    }
+
+    @ParameterizedTest @MethodSource
+    void testTarget(String from, String location, String expected) {
+        SparqlEndpoint origin = SparqlEndpoint.parse("post,json@"+from);
+        SparqlEndpoint target = RedirectCache.target(origin, location);
+        assertEquals(expected, target.uri());
+        assertEquals(origin.configuration(), target.configuration());
+    }
+
+    @Test
+    void testBadTarget() {
+        SparqlEndpoint origin = new SparqlEndpoint("http://example.org/sparql");
+        assertThrows(SparqlClientInvalidArgument.class,
+                     () -> RedirectCache.target(origin, "ftp://example.org/sparql"));
+        assertThrows(SparqlClientInvalidArgument.class,
+                     () -> RedirectCache.target(origin, "http://bad host/"));
+    }
+
+    @Test
+    void testStatusSemantics() {
+        for (int code : new int[]{301, 302, 303, 307, 308})
+            assertTrue(RedirectCache.isRedirect(code), "code="+code);
+        assertFalse(RedirectCache.isRedirect(304));
+        assertFalse(RedirectCache.isRedirect(300));
+        assertTrue(RedirectCache.isPermanent(301));
+        assertTrue(RedirectCache.isPermanent(308));
+        assertFalse(RedirectCache.isPermanent(307));
+        assertTrue(RedirectCache.switchesToGet(303, SparqlMethod.POST));
+        assertTrue(RedirectCache.switchesToGet(302, SparqlMethod.FORM));
+        assertFalse(RedirectCache.switchesToGet(302, SparqlMethod.GET));
+        assertFalse(RedirectCache.switchesToGet(307, SparqlMethod.POST));
+        assertFalse(RedirectCache.switchesToGet(308, SparqlMethod.POST));
+    }
+
+    @Test
+    void testCache() {
+        SparqlEndpoint from = new SparqlEndpoint("http://example.org/cache-test");
+        SparqlEndpoint to = new SparqlEndpoint("https://example.org/cache-test");
+        try {
+            assertNull(RedirectCache.get(from));
+            RedirectCache.putPermanent(from, to);
+            assertSame(to, RedirectCache.get(from));
+            RedirectCache.putPermanent(to, to); // ignored
+            assertNull(RedirectCache.get(to));
+        } finally {
+            RedirectCache.remove(from.uri());
+        }
+        assertNull(RedirectCache.get(from));
+    }
+}
@@ -26,6 +26,7 @@ class SparqlClientBinderFactoryTest {
     private final String SPARQL = "SELECT * WHERE { ?x a ?y } ";
     private final ListBinding LIST_BINDING = ListBinding.wrap(singletonList("x"), singletonList("<xValue>"));
     private final String BOUND_SPARQL = SparqlUtils.bind(SPARQL, LIST_BINDING).toString();
+    private final String BOUND_ASK = SparqlUtils.toAsk(BOUND_SPARQL).toString();
 
     @SuppressWarnings("unchecked")
     private static class MockClient implements SparqlClient<List<String>, Object> {
@@ -103,7 +104,7 @@ class SparqlClientBinderFactoryTest {
 
     @Test
     void testExistsMatches() {
-        MockClient client = new MockClient(BOUND_SPARQL, singletonList(singletonList("<yValue>")));
+        MockClient client = new MockClient(BOUND_ASK, singletonList(singletonList("<yValue>")));
         SparqlClientBinder<List<String>> binder = createBinder(singletonList("x"), client, BindType.EXISTS);
         assertEquals(singletonList("x"), binder.resultVars());
 
@@ -117,7 +118,7 @@ class SparqlClientBinderFactoryTest {
 
     @Test
     void testNotExists() {
-        MockClient client = new MockClient(BOUND_SPARQL, singletonList(singletonList("<yValue>")));
+        MockClient client = new MockClient(BOUND_ASK, singletonList(singletonList("<yValue>")));
         SparqlClientBinder<List<String>> binder = createBinder(singletonList("x"), client, BindType.NOT_EXISTS);
         assertEquals(singletonList("x"), binder.resultVars());
 
@@ -0,0 +1,78 @@
+package com.github.alexishuf.fastersparql.client.util.async;
+
+import com.github.alexishuf.fastersparql.client.exceptions.SparqlClientTimeoutException;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeadlineTest {
+    @Test
+    void testExpireNotifiesListeners() throws Exception {
+        Deadline deadline = Deadline.after(50, MILLISECONDS);
+        Semaphore notified = new Semaphore(0);
+        AtomicInteger removedCalls = new AtomicInteger();
+        Runnable removed = removedCalls::incrementAndGet;
+        assertTrue(deadline.onExpire(notified::release));
+        assertTrue(deadline.onExpire(removed));
+        deadline.removeListener(removed);
+        assertFalse(deadline.isExpired());
+        assertNull(deadline.error());
+        assertTrue(deadline.remaining(MILLISECONDS) <= 50);
+
+        assertTrue(notified.tryAcquire(5, SECONDS));
+        assertTrue(deadline.isExpired());
+        assertTrue(deadline.error() instanceof SparqlClientTimeoutException);
+        assertEquals(0, deadline.remaining(MILLISECONDS));
+        assertEquals(0, removedCalls.get());
+
+        // late listeners run immediately
+        assertFalse(deadline.onExpire(notified::release));
+        assertEquals(1, notified.availablePermits());
+    }
+
+    @Test
+    void testCancel() {
+        Deadline deadline = Deadline.never();
+        AtomicInteger calls = new AtomicInteger();
+        deadline.onExpire(calls::incrementAndGet);
+        assertEquals(Long.MAX_VALUE, deadline.remaining(SECONDS));
+        assertFalse(deadline.isExpired());
+
+        deadline.cancel();
+        deadline.cancel();
+        assertEquals(1, calls.get());
+        assertTrue(deadline.isExpired());
+        assertNotNull(deadline.error());
+        assertEquals(0, deadline.remaining(SECONDS));
+    }
+
+    @Test
+    void testCurrent() {
+        Deadline outer = Deadline.never(), inner = Deadline.never();
+        assertNull(Deadline.current());
+        String result = outer.call(() -> {
+            assertSame(outer, Deadline.current());
+            inner.call(() -> {
+                assertSame(inner, Deadline.current());
+                return null;
+            });
+            Deadline.call(null, () -> {
+                assertSame(outer, Deadline.current());
+                return null;
+            });
+            assertSame(outer, Deadline.current());
+            return "ok";
+        });
+        assertEquals("ok", result);
+        assertNull(Deadline.current());
+        assertThrows(IllegalStateException.class, () -> outer.call(() -> {
+            throw new IllegalStateException("test");
+        }));
+        assertNull(Deadline.current());
+    }
+}
@@ -0,0 +1,38 @@
+package com.github.alexishuf.fastersparql.client.util.async;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetryBackoffTest {
+    @Test
+    void testCanRetry() {
+        RetryBackoff backoff = new RetryBackoff(2, 10, 100);
+        assertTrue(backoff.canRetry(0));
+        assertTrue(backoff.canRetry(1));
+        assertFalse(backoff.canRetry(2));
+        assertFalse(new RetryBackoff(0, 10, 100).canRetry(0));
+    }
+
+    @Test
+    void testDelayBounds() {
+        RetryBackoff backoff = new RetryBackoff(64, 10, 100);
+        boolean sawLarge = false;
+        for (int i = 0; i < 1000; i++) {
+            long first = backoff.delayMs(1), third = backoff.delayMs(3);
+            long late = backoff.delayMs(40);
+            assertTrue(first >= 0 && first <= 10, "first="+first);
+            assertTrue(third >= 0 && third <= 40, "third="+third);
+            assertTrue(late >= 0 && late <= 100, "late="+late);
+            sawLarge |= late > 40;
+        }
+        assertTrue(sawLarge);
+        assertEquals(0, new RetryBackoff(1, 0, 0).delayMs(1));
+    }
+
+    @Test
+    void testRejectNegative() {
+        assertThrows(IllegalArgumentException.class, () -> new RetryBackoff(-1, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new RetryBackoff(1, -1, 1));
+    }
+}
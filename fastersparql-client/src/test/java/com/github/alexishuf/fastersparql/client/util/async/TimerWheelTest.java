@@ -0,0 +1,90 @@
+package com.github.alexishuf.fastersparql.client.util.async;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimerWheelTest {
+    @Test
+    void testNeverEarlyAndInOrder() throws Exception {
+        TimerWheel wheel = new TimerWheel("test-wheel", 5, MILLISECONDS, 8);
+        Semaphore done = new Semaphore(0);
+        ConcurrentLinkedQueue<Integer> order = new ConcurrentLinkedQueue<>();
+        List<Long> late = new ArrayList<>();
+        long start = System.nanoTime();
+        // 150ms is several rotations of a 8*5ms wheel
+        int[] delays = {150, 10, 60, 0, 30};
+        for (int delay : delays) {
+            wheel.schedule(delay, MILLISECONDS, () -> {
+                synchronized (late) {
+                    late.add(NANOSECONDS.toMillis(System.nanoTime() - start) - delay);
+                }
+                order.add(delay);
+                done.release();
+            });
+        }
+        assertTrue(done.tryAcquire(delays.length, 5, SECONDS));
+        assertEquals(asList(0, 10, 30, 60, 150), new ArrayList<>(order));
+        for (Long ms : late)
+            assertTrue(ms >= 0, "late="+late);
+    }
+
+    @Test
+    void testCancel() throws Exception {
+        TimerWheel wheel = new TimerWheel("test-wheel", 5, MILLISECONDS, 8);
+        AtomicInteger runs = new AtomicInteger();
+        Semaphore done = new Semaphore(0);
+        TimerWheel.Timeout cancelled = wheel.schedule(20, MILLISECONDS, runs::incrementAndGet);
+        TimerWheel.Timeout kept = wheel.schedule(40, MILLISECONDS, done::release);
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        assertTrue(done.tryAcquire(5, SECONDS));
+        assertTrue(kept.isExpired());
+        assertFalse(kept.cancel());
+        assertFalse(cancelled.isExpired());
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    void testWakesAfterIdle() throws Exception {
+        TimerWheel wheel = new TimerWheel("test-wheel", 5, MILLISECONDS, 8);
+        Semaphore done = new Semaphore(0);
+        wheel.schedule(1, MILLISECONDS, done::release);
+        assertTrue(done.tryAcquire(5, SECONDS));
+        Thread.sleep(100); // wheel parks without timeouts
+        long start = System.nanoTime();
+        wheel.schedule(20, MILLISECONDS, done::release);
+        assertTrue(done.tryAcquire(5, SECONDS));
+        assertTrue(System.nanoTime() - start >= MILLISECONDS.toNanos(20));
+    }
+
+    @Test
+    void testManyTimeouts() throws Exception {
+        TimerWheel wheel = TimerWheel.shared();
+        assertSame(wheel, TimerWheel.shared());
+        int n = 10_000;
+        Semaphore done = new Semaphore(0);
+        List<TimerWheel.Timeout> timeouts = new ArrayList<>();
+        for (int i = 0; i < n; i++)
+            timeouts.add(wheel.schedule(200 + i % 50, MILLISECONDS, done::release));
+        for (int i = 0; i < n; i += 2)
+            assertTrue(timeouts.get(i).cancel());
+        assertTrue(done.tryAcquire(n/2, 5, SECONDS));
+        assertFalse(done.tryAcquire(100, MILLISECONDS));
+    }
+
+    private static List<Integer> asList(int... values) {
+        List<Integer> list = new ArrayList<>();
+        for (int v : values) list.add(v);
+        return list;
+    }
+}
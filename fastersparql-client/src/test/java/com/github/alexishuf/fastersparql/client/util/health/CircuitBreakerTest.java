@@ -0,0 +1,179 @@
+package com.github.alexishuf.fastersparql.client.util.health;
+
+import com.github.alexishuf.fastersparql.client.exceptions.SparqlClientCircuitOpenException;
+import com.github.alexishuf.fastersparql.client.model.SparqlEndpoint;
+import org.junit.jupiter.api.Test;
+
+import static com.github.alexishuf.fastersparql.client.util.health.CircuitBreaker.State.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+    private static final SparqlEndpoint EP = SparqlEndpoint.parse("http://example.org/sparql");
+
+    private static CircuitBreaker breaker(boolean enabled, long slowMs, long openMs, int probes) {
+        return new CircuitBreaker("test", enabled, 8, 4, 50, slowMs, openMs, probes);
+    }
+
+    private static void fail(CircuitBreaker breaker, int times) {
+        for (int i = 0; i < times; i++)
+            breaker.acquire(EP).failure();
+    }
+
+    private static void succeed(CircuitBreaker breaker, int times) {
+        for (int i = 0; i < times; i++)
+            breaker.acquire(EP).success();
+    }
+
+    @Test
+    void testOpensOnFailureRate() {
+        CircuitBreaker breaker = breaker(true, 0, 60000, 1);
+        succeed(breaker, 4);
+        fail(breaker, 3);
+        assertEquals(CLOSED, breaker.state());
+        assertEquals(3/7.0, breaker.failureRate(), 1e-9);
+        assertEquals(4/7.0, breaker.health(), 1e-9);
+        fail(breaker, 1);
+        assertEquals(OPEN, breaker.state());
+        assertEquals(0, breaker.health());
+        assertEquals(1, breaker.opened());
+        assertNull(breaker.tryAcquire());
+        assertThrows(SparqlClientCircuitOpenException.class, () -> breaker.acquire(EP));
+        assertEquals(2, breaker.rejected());
+    }
+
+    @Test
+    void testMinCalls() {
+        CircuitBreaker breaker = breaker(true, 0, 60000, 1);
+        fail(breaker, 3);
+        assertEquals(CLOSED, breaker.state());
+        fail(breaker, 1);
+        assertEquals(OPEN, breaker.state());
+    }
+
+    @Test
+    void testWindowForgetsOldFailures() {
+        CircuitBreaker breaker = breaker(true, 0, 60000, 1);
+        fail(breaker, 3);
+        succeed(breaker, 8);
+        assertEquals(0, breaker.failureRate());
+        fail(breaker, 3);
+        assertEquals(CLOSED, breaker.state());
+    }
+
+    @Test
+    void testHalfOpenProbeSuccessCloses() throws InterruptedException {
+        CircuitBreaker breaker = breaker(true, 0, 50, 2);
+        fail(breaker, 4);
+        assertNull(breaker.tryAcquire());
+        Thread.sleep(100);
+        assertTrue(breaker.health() > 0);
+        CircuitBreaker.Permit p1 = breaker.tryAcquire(), p2 = breaker.tryAcquire();
+        assertNotNull(p1);
+        assertNotNull(p2);
+        assertEquals(HALF_OPEN, breaker.state());
+        assertNull(breaker.tryAcquire()); // only 2 probes
+        p1.release(); // cancelled probe frees its slot
+        CircuitBreaker.Permit p3 = breaker.tryAcquire();
+        assertNotNull(p3);
+        p2.success();
+        assertEquals(HALF_OPEN, breaker.state());
+        p3.success();
+        p3.failure(); // ignored: already resolved
+        assertEquals(CLOSED, breaker.state());
+        assertEquals(1, breaker.health());
+    }
+
+    @Test
+    void testHalfOpenProbeFailureReopens() throws InterruptedException {
+        CircuitBreaker breaker = breaker(true, 0, 50, 1);
+        fail(breaker, 4);
+        Thread.sleep(100);
+        CircuitBreaker.Permit probe = breaker.tryAcquire();
+        assertNotNull(probe);
+        probe.failure();
+        assertEquals(OPEN, breaker.state());
+        assertEquals(2, breaker.opened());
+        assertNull(breaker.tryAcquire());
+    }
+
+    @Test
+    void testStaleProbesIgnored() throws InterruptedException {
+        CircuitBreaker breaker = breaker(true, 0, 50, 3);
+        fail(breaker, 4);
+        Thread.sleep(100);
+        CircuitBreaker.Permit s1 = breaker.tryAcquire(), s2 = breaker.tryAcquire(),
+                              s3 = breaker.tryAcquire();
+        assertNotNull(s1);
+        assertNotNull(s2);
+        assertNotNull(s3);
+        s1.failure();
+        assertEquals(OPEN, breaker.state());
+        Thread.sleep(100);
+
+        CircuitBreaker.Permit p1 = breaker.tryAcquire(), p2 = breaker.tryAcquire(),
+                              p3 = breaker.tryAcquire();
+        assertNotNull(p1);
+        assertNotNull(p2);
+        assertNotNull(p3);
+        assertEquals(HALF_OPEN, breaker.state());
+        s2.release(); // must not free a slot of the current half-open cycle
+        assertNull(breaker.tryAcquire());
+        s3.success(); // must not count as a success of the current cycle
+        p1.success();
+        p2.success();
+        assertEquals(HALF_OPEN, breaker.state());
+        p3.success();
+        assertEquals(CLOSED, breaker.state());
+        assertEquals(2, breaker.opened());
+    }
+
+    @Test
+    void testSlowCallsAreFailures() throws InterruptedException {
+        CircuitBreaker breaker = breaker(true, 20, 60000, 1);
+        for (int i = 0; i < 4; i++) {
+            CircuitBreaker.Permit permit = breaker.acquire(EP);
+            Thread.sleep(40);
+            permit.success();
+        }
+        assertEquals(OPEN, breaker.state());
+    }
+
+    @Test
+    void testSlowCallsMeasuredUntilResponse() throws InterruptedException {
+        CircuitBreaker breaker = breaker(true, 20, 60000, 1);
+        for (int i = 0; i < 4; i++) {
+            CircuitBreaker.Permit permit = breaker.acquire(EP);
+            permit.responded();
+            Thread.sleep(40); // receiving a long response is not slow
+            permit.success();
+        }
+        assertEquals(CLOSED, breaker.state());
+        for (int i = 0; i < 4; i++) {
+            CircuitBreaker.Permit permit = breaker.acquire(EP);
+            permit.responded();
+            permit.failure(); // failures after the response started still count
+        }
+        assertEquals(OPEN, breaker.state());
+    }
+
+    @Test
+    void testDisabledNeverOpens() {
+        CircuitBreaker breaker = breaker(false, 0, 60000, 1);
+        fail(breaker, 16);
+        assertEquals(CLOSED, breaker.state());
+        assertEquals(0, breaker.health());
+        assertNotNull(breaker.tryAcquire());
+    }
+
+    @Test
+    void testRegistryShares() {
+        String uri = "http://example.org/"+getClass().getSimpleName()+"/sparql";
+        CircuitBreaker breaker = CircuitBreakerRegistry.get(SparqlEndpoint.parse(uri));
+        assertSame(breaker, CircuitBreakerRegistry.get(SparqlEndpoint.parse("post@"+uri)));
+        assertSame(breaker, CircuitBreakerRegistry.all().get(uri));
+        assertEquals(1.0, CircuitBreakerRegistry.health().get(uri));
+        CircuitBreakerRegistry.remove(uri);
+        assertNotSame(breaker, CircuitBreakerRegistry.get(uri));
+        CircuitBreakerRegistry.remove(uri);
+    }
+}
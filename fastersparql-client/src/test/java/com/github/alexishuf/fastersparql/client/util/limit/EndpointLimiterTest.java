@@ -0,0 +1,126 @@
+package com.github.alexishuf.fastersparql.client.util.limit;
+
+import com.github.alexishuf.fastersparql.client.model.SparqlEndpoint;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.*;
+
+class EndpointLimiterTest {
+    @Test
+    void testUnlimitedGrantsImmediately() {
+        EndpointLimiter limiter = new EndpointLimiter("test", 0, 0, 0);
+        AtomicInteger calls = new AtomicInteger();
+        List<EndpointLimiter.Ticket> tickets = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            tickets.add(limiter.acquire(calls::incrementAndGet));
+        assertEquals(100, calls.get());
+        assertEquals(100, limiter.active());
+        assertEquals(0, limiter.delayed());
+        tickets.forEach(EndpointLimiter.Ticket::release);
+        assertEquals(0, limiter.active());
+    }
+
+    @Test
+    void testConcurrencyLimitIsFifo() {
+        EndpointLimiter limiter = new EndpointLimiter("test", 0, 0, 2);
+        List<Integer> started = new ArrayList<>();
+        List<EndpointLimiter.Ticket> tickets = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            int id = i;
+            tickets.add(limiter.acquire(() -> started.add(id)));
+        }
+        assertEquals(asList(0, 1), started);
+        assertEquals(3, limiter.queued());
+        assertEquals(3, limiter.delayed());
+
+        tickets.get(3).release(); // leaves the queue, never starts
+        tickets.get(1).release();
+        assertEquals(asList(0, 1, 2), started);
+        tickets.get(1).release(); // no effect
+        assertEquals(2, limiter.active());
+        tickets.get(0).release();
+        assertEquals(asList(0, 1, 2, 4), started);
+        assertEquals(0, limiter.queued());
+        assertTrue(tickets.get(4).isGranted());
+        assertFalse(tickets.get(3).isGranted());
+    }
+
+    @Test
+    void testReleaseBeforeEnqueue() {
+        EndpointLimiter limiter = new EndpointLimiter("test", 0, 0, 1);
+        AtomicInteger calls = new AtomicInteger();
+        EndpointLimiter.Ticket ticket = limiter.ticket(calls::incrementAndGet);
+        ticket.release();
+        ticket.enqueue();
+        assertEquals(0, calls.get());
+        assertEquals(0, limiter.active());
+    }
+
+    @Test
+    void testRateLimit() throws Exception {
+        EndpointLimiter limiter = new EndpointLimiter("test", 20, 2, 0);
+        Semaphore done = new Semaphore(0);
+        ConcurrentLinkedQueue<Long> starts = new ConcurrentLinkedQueue<>();
+        long begin = System.nanoTime();
+        for (int i = 0; i < 6; i++) {
+            limiter.acquire(() -> {
+                starts.add(System.nanoTime() - begin);
+                done.release();
+            });
+        }
+        assertTrue(done.tryAcquire(6, 5, SECONDS));
+        List<Long> list = new ArrayList<>(starts);
+        // 2 burst tokens, then 1 token every 50ms
+        assertTrue(list.get(1) < MILLISECONDS.toNanos(40), "list="+list);
+        long elapsedMs = NANOSECONDS.toMillis(list.get(5));
+        assertTrue(elapsedMs >= 190, "elapsedMs="+elapsedMs);
+        assertTrue(limiter.delayed() >= 3);
+    }
+
+    @Test
+    void testPause() throws Exception {
+        EndpointLimiter limiter = new EndpointLimiter("test", 0, 0, 0);
+        long begin = System.nanoTime();
+        limiter.pause(200, MILLISECONDS);
+        Semaphore done = new Semaphore(0);
+        limiter.acquire(done::release);
+        limiter.acquire(done::release);
+        assertEquals(2, limiter.queued());
+        assertTrue(done.tryAcquire(2, 5, SECONDS));
+        long elapsedMs = NANOSECONDS.toMillis(System.nanoTime() - begin);
+        assertTrue(elapsedMs >= 190, "elapsedMs="+elapsedMs);
+        assertEquals(0, limiter.queued());
+        assertEquals(2, limiter.active());
+    }
+
+    @Test
+    void testRegistrySharesByHost() {
+        SparqlEndpoint a = SparqlEndpoint.parse("http://limit.example.org:8080/a/sparql");
+        SparqlEndpoint b = SparqlEndpoint.parse("post@http://limit.example.org:8080/b/sparql");
+        SparqlEndpoint c = SparqlEndpoint.parse("http://limit.example.org/sparql");
+        String key = EndpointLimiterRegistry.key(a);
+        try {
+            assertEquals("limit.example.org:8080", key);
+            EndpointLimiter limiter = EndpointLimiterRegistry.get(a);
+            assertSame(limiter, EndpointLimiterRegistry.get(b));
+            assertNotSame(limiter, EndpointLimiterRegistry.get(c));
+            EndpointLimiter configured = EndpointLimiterRegistry.configure(key, 2, 0, 4);
+            assertSame(configured, EndpointLimiterRegistry.get(b));
+            assertEquals(2, configured.ratePerSecond(), 1e-9);
+            assertEquals(4, configured.maxConcurrent());
+        } finally {
+            EndpointLimiterRegistry.remove(key);
+            EndpointLimiterRegistry.remove(EndpointLimiterRegistry.key(c));
+        }
+    }
+}
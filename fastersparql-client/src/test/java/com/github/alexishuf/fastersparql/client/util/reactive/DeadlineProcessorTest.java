@@ -0,0 +1,58 @@
+package com.github.alexishuf.fastersparql.client.util.reactive;
+
+import com.github.alexishuf.fastersparql.client.exceptions.SparqlClientTimeoutException;
+import com.github.alexishuf.fastersparql.client.util.async.Deadline;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeadlineProcessorTest {
+    @Test
+    void testCompletesBeforeDeadline() {
+        Deadline deadline = Deadline.after(5, SECONDS);
+        DeadlineProcessor<Integer> processor = new DeadlineProcessor<>(
+                FSPublisher.bindToAny(Flux.just(1, 2, 3)), deadline);
+        IterableAdapter<Integer> it = new IterableAdapter<>(processor);
+        List<Integer> items = new ArrayList<>();
+        it.forEach(items::add);
+        assertEquals(asList(1, 2, 3), items);
+        assertNull(it.error());
+        deadline.cancel(); // no effect on a terminated processor
+        assertNull(it.error());
+    }
+
+    @Test
+    void testPartialResultsOnExpire() throws Exception {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Flux<Integer> slow = Flux.range(1, 100).delayElements(Duration.ofMillis(40))
+                                 .doOnCancel(() -> cancelled.set(true));
+        DeadlineProcessor<Integer> processor = new DeadlineProcessor<>(
+                FSPublisher.bindToAny(slow), Deadline.after(200, MILLISECONDS));
+        IterableAdapter<Integer> it = new IterableAdapter<>(processor);
+        List<Integer> items = new ArrayList<>();
+        it.forEach(items::add);
+        assertTrue(it.error() instanceof SparqlClientTimeoutException, "error="+it.error());
+        assertTrue(items.size() > 0 && items.size() < 100, "items="+items);
+        for (int i = 0; i < items.size(); i++)
+            assertEquals(i+1, items.get(i));
+        for (int i = 0; i < 100 && !cancelled.get(); i++)
+            Thread.sleep(10); // cancel() is delivered in the executor
+        assertTrue(cancelled.get());
+    }
+
+    @Test
+    void testWrapNull() {
+        FSPublisher<Integer> source = FSPublisher.bindToAny(Flux.just(1));
+        assertSame(source, DeadlineProcessor.wrap(source, null));
+        assertTrue(DeadlineProcessor.wrap(source, Deadline.never()) instanceof DeadlineProcessor);
+    }
+}
@@ -15,6 +15,7 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
@@ -463,6 +464,86 @@ class MergePublisherTest {
         assertEquals(asList(0, 1, 2), consume(pub));
     }
 
+    @ParameterizedTest @ValueSource(ints = {1, 2, 8})
+    void testIdleSourceDoesNotStarveBusySource(int capacity) throws ExecutionException {
+        MergePublisher<Integer> pub = MergePublisher.concurrent(2).name("idle-busy").build();
+        pub.addPublisher(Flux.<Integer>never());
+        pub.addPublisher(Flux.range(0, 64));
+        IterableAdapter<Integer> adapter = new IterableAdapter<>(pub, capacity);
+        AsyncTask<List<Integer>> task = Async.async(() -> {
+            List<Integer> list = new ArrayList<>();
+            Iterator<Integer> it = adapter.iterator();
+            while (list.size() < 64 && it.hasNext())
+                list.add(it.next());
+            return list;
+        });
+        try {
+            List<Integer> expected = IntStream.range(0, 64).boxed().collect(toList());
+            assertEquals(expected, task.orElse(null, 5, TimeUnit.SECONDS));
+        } finally {
+            adapter.cancel();
+        }
+    }
+
+    @Test
+    void testIdleSourceDoesNotStarveOneByOneSubscriber() throws Exception {
+        for (int round = 0; round < 32; round++) {
+            MergePublisher<Integer> pub = MergePublisher.concurrent(2).name("idle-1by1").build();
+            pub.addPublisher(Flux.<Integer>never());
+            pub.addPublisher(Flux.range(0, 64));
+            List<Integer> list = Collections.synchronizedList(new ArrayList<>());
+            CompletableFuture<List<Integer>> future = new CompletableFuture<>();
+            Subscription[] subscription = {null};
+            pub.subscribe(new Subscriber<Integer>() {
+                @Override public void onSubscribe(Subscription s) {
+                    (subscription[0] = s).request(1);
+                }
+                @Override public void onNext(Integer item) {
+                    list.add(item);
+                    if (list.size() == 64) future.complete(list);
+                    else                   subscription[0].request(1);
+                }
+                @Override public void onError(Throwable t) { future.completeExceptionally(t); }
+                @Override public void onComplete() { future.complete(list); }
+            });
+            try {
+                List<Integer> expected = IntStream.range(0, 64).boxed().collect(toList());
+                assertEquals(expected, future.get(5, TimeUnit.SECONDS));
+            } finally {
+                subscription[0].cancel();
+            }
+        }
+    }
+
+    @Test
+    void testStalledSourceDoesNotStarveOthers() throws Exception {
+        for (int round = 0; round < 32; round++) {
+            MergePublisher<Integer> pub = MergePublisher.concurrent(2).name("stalled").build();
+            pub.addPublisher(Flux.just(-1).concatWith(Flux.never()));
+            pub.addPublisher(Flux.range(0, 64));
+            List<Integer> list = Collections.synchronizedList(new ArrayList<>());
+            CompletableFuture<List<Integer>> future = new CompletableFuture<>();
+            Subscription[] subscription = {null};
+            pub.subscribe(new Subscriber<Integer>() {
+                @Override public void onSubscribe(Subscription s) {
+                    (subscription[0] = s).request(64);
+                }
+                @Override public void onNext(Integer item) {
+                    list.add(item);
+                    if (list.size() == 64) future.complete(list);
+                }
+                @Override public void onError(Throwable t) { future.completeExceptionally(t); }
+                @Override public void onComplete() { future.complete(list); }
+            });
+            try {
+                Set<Integer> expected = IntStream.range(-1, 63).boxed().collect(toSet());
+                assertEquals(expected, new HashSet<>(future.get(5, TimeUnit.SECONDS)));
+            } finally {
+                subscription[0].cancel();
+            }
+        }
+    }
+
     private static final AtomicInteger testMethodCall = new AtomicInteger(1);
 
     @ParameterizedTest @MethodSource
@@ -1,5 +1,6 @@
 package com.github.alexishuf.fastersparql.client.util.reactive;
 
+import com.github.alexishuf.fastersparql.client.util.CircularBuffer;
 import com.github.alexishuf.fastersparql.client.util.async.AsyncTask;
 import com.github.alexishuf.fastersparql.client.util.async.CompletableAsyncTask;
 import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
@@ -472,4 +473,24 @@ class TeeProcessorTest {
             for (AsyncTask<?> task : tasks) task.fetch();
         }
     }
-}
\ No newline at end of file
+
+    @Timeout(10) @ParameterizedTest @ValueSource(ints = {0, 1, 1024})
+    void testReleaseHistory(int size) throws InterruptedException {
+        CountDownLatch closed = new CountDownLatch(1);
+        CircularBuffer<Integer> history = new CircularBuffer<Integer>() {
+            @Override public void close() {
+                super.close();
+                closed.countDown();
+            }
+        };
+        TeeProcessor<Integer> tee = new TeeProcessor<>(bindToAny(Flux.range(0, size)), history);
+        tee.startAfterSubscribedBy(2);
+        List<Integer> expected = range(0, size).boxed().collect(toList());
+        List<AsyncTask<?>> tasks = new ArrayList<>();
+        for (int i = 0; i < 2; i++)
+            tasks.add(async(() -> assertEquals(expected, Flux.from(tee).collectList().block())));
+        for (AsyncTask<?> task : tasks) task.fetch();
+        closed.await();
+        assertTrue(history.isEmpty());
+    }
+}
@@ -0,0 +1,53 @@
+package com.github.alexishuf.fastersparql.server.netty;
+
+import com.github.alexishuf.fastersparql.client.netty.util.FasterSparqlNettyProperties;
+import org.checkerframework.checker.index.qual.Positive;
+
+public class FasterSparqlServerProperties extends FasterSparqlNettyProperties {
+    /* --- --- --- property names --- --- --- */
+
+    public static final String SERVER_BIND_BATCH = "fastersparql.server.bind.batch";
+    public static final String SERVER_PREFETCH = "fastersparql.server.prefetch";
+    public static final String SERVER_WS_MAX_FRAME = "fastersparql.server.ws.max-frame";
+
+    /* --- --- --- default values --- --- --- */
+
+    public static final int DEF_SERVER_BIND_BATCH = 32;
+    public static final int DEF_SERVER_PREFETCH = 128;
+    public static final int DEF_SERVER_WS_MAX_FRAME = 1024*1024;
+
+    /* --- --- --- accessors --- --- --- */
+
+    /**
+     * How many bindings the server asks for in a {@code !bind-request}. Received bindings are
+     * executed concurrently against the wrapped {@link com.github.alexishuf.fastersparql.client.SparqlClient},
+     * thus this is also the maximum number of concurrent queries issued for a single bind.
+     * Further bindings are requested as executions complete.
+     *
+     * The default is {@link FasterSparqlServerProperties#DEF_SERVER_BIND_BATCH}.
+     */
+    public static @Positive int serverBindBatch() {
+        return readPositiveInt(SERVER_BIND_BATCH, DEF_SERVER_BIND_BATCH);
+    }
+
+    /**
+     * How many result rows may be buffered for a query (or for each binding of a bind) before
+     * they can be sent to the client. Results of a binding are only sent after all results of
+     * previous bindings were sent.
+     *
+     * The default is {@link FasterSparqlServerProperties#DEF_SERVER_PREFETCH}.
+     */
+    public static @Positive int serverPrefetch() {
+        return readPositiveInt(SERVER_PREFETCH, DEF_SERVER_PREFETCH);
+    }
+
+    /**
+     * Maximum size in bytes of a WebSocket frame received from clients. This limits the length
+     * of queries and of binding batches (see {@link FasterSparqlNettyProperties#wsBindBatchBytes()}).
+     *
+     * The default is {@link FasterSparqlServerProperties#DEF_SERVER_WS_MAX_FRAME} (1 MiB).
+     */
+    public static @Positive int serverWsMaxFrame() {
+        return readPositiveInt(SERVER_WS_MAX_FRAME, DEF_SERVER_WS_MAX_FRAME);
+    }
+}
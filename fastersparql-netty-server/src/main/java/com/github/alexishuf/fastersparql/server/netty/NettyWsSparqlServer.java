@@ -0,0 +1,132 @@
+package com.github.alexishuf.fastersparql.server.netty;
+
+import com.github.alexishuf.fastersparql.client.SparqlClient;
+import com.github.alexishuf.fastersparql.client.netty.util.NettyTransport;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoopGroup;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
+import io.netty.handler.codec.http.websocketx.extensions.compression.WebSocketServerCompressionHandler;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An embeddable WebSocket server that exposes any {@link SparqlClient} using the same
+ * {@code !query}/{@code !bind} protocol spoken by
+ * {@link com.github.alexishuf.fastersparql.client.netty.NettyWebSocketSparqlClient}.
+ *
+ * <p>Deployed close to a regular SPARQL endpoint (e.g., wrapping a
+ * {@link com.github.alexishuf.fastersparql.client.netty.NettySparqlClient}), this allows remote
+ * clients to send all bindings of a bind join through a single WebSocket session. The server
+ * executes the bound queries against the wrapped client in batches of
+ * {@link FasterSparqlServerProperties#serverBindBatch()} concurrent queries, turning one WAN
+ * round-trip per binding into one LAN round-trip per binding.</p>
+ *
+ * <p>The multiplexing extension described in {@link com.github.alexishuf.fastersparql.client.netty.ws.WsMux}
+ * is also supported.</p>
+ *
+ * <p>The server does not own the wrapped {@link SparqlClient}: {@link NettyWsSparqlServer#close()}
+ * will not close it.</p>
+ */
+public class NettyWsSparqlServer implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(NettyWsSparqlServer.class);
+    public static final String DEFAULT_PATH = "/sparql";
+
+    private final SparqlClient<?, ?> client;
+    private final String path;
+    private final EventLoopGroup acceptGroup, workerGroup;
+    private final Channel serverChannel;
+
+    /**
+     * Start a server listening on all interfaces at the given port.
+     *
+     * @param client the {@link SparqlClient} that will answer queries
+     * @param port the TCP port or zero to choose any available port (see
+     *             {@link NettyWsSparqlServer#port()}).
+     */
+    public NettyWsSparqlServer(SparqlClient<?, ?> client, int port) {
+        this(client, new InetSocketAddress(port), DEFAULT_PATH, null);
+    }
+
+    /**
+     * Start a server listening at the given address.
+     *
+     * @param client the {@link SparqlClient} that will answer queries
+     * @param address where to listen for connections
+     * @param path path of the WebSocket endpoint. Other paths will be rejected.
+     * @param transport Netty transport to use. If null, {@link NettyTransport#preferred()}.
+     */
+    public NettyWsSparqlServer(SparqlClient<?, ?> client, InetSocketAddress address,
+                               String path, @Nullable NettyTransport transport) {
+        this.client = client;
+        this.path = path.startsWith("/") ? path : "/"+path;
+        if (transport == null)
+            transport = NettyTransport.preferred();
+        this.acceptGroup = transport.createGroup();
+        this.workerGroup = transport.createGroup();
+        int maxFrame = FasterSparqlServerProperties.serverWsMaxFrame();
+        try {
+            this.serverChannel = new ServerBootstrap().group(acceptGroup, workerGroup)
+                    .channel(transport.serverChannelClass())
+                    .childHandler(new ChannelInitializer<Channel>() {
+                        @Override protected void initChannel(Channel ch) {
+                            ChannelPipeline pipe = ch.pipeline();
+                            pipe.addLast("http", new HttpServerCodec());
+                            pipe.addLast("aggregator", new HttpObjectAggregator(8192));
+                            pipe.addLast("comp", new WebSocketServerCompressionHandler());
+                            pipe.addLast("ws", new WebSocketServerProtocolHandler(
+                                    NettyWsSparqlServer.this.path, null, true, maxFrame));
+                            pipe.addLast("flush", new FlushConsolidationHandler(
+                                    FlushConsolidationHandler.DEFAULT_EXPLICIT_FLUSH_AFTER_FLUSHES, true));
+                            pipe.addLast("sparql", new WsSparqlServerHandler(client));
+                        }
+                    }).bind(address).syncUninterruptibly().channel();
+        } catch (Throwable t) {
+            acceptGroup.shutdownGracefully();
+            workerGroup.shutdownGracefully();
+            throw t;
+        }
+        log.debug("{} listening", this);
+    }
+
+    /** The address the server is listening at. */
+    public InetSocketAddress address() {
+        return (InetSocketAddress) serverChannel.localAddress();
+    }
+
+    /** The port the server is listening at. */
+    public int port() { return address().getPort(); }
+
+    /**
+     * A {@code ws://} URI for the WebSocket endpoint. If listening at all interfaces, the
+     * host will be {@code localhost}.
+     */
+    public String uri() {
+        InetSocketAddress address = address();
+        String host = address.getAddress().isAnyLocalAddress() ? "localhost"
+                                                                : address.getHostString();
+        if (host.indexOf(':') >= 0)
+            host = "["+host+"]";
+        return "ws://"+host+":"+address.getPort()+path;
+    }
+
+    /** Stop listening, close all connections and wait for Netty threads to finish. */
+    @Override public void close() {
+        serverChannel.close().syncUninterruptibly();
+        acceptGroup.shutdownGracefully(0, 5, TimeUnit.SECONDS).syncUninterruptibly();
+        workerGroup.shutdownGracefully(0, 5, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    @Override public String toString() {
+        return "NettyWsSparqlServer{"+serverChannel.localAddress()+path+", client="+client+"}";
+    }
+}
@@ -0,0 +1,553 @@
+package com.github.alexishuf.fastersparql.server.netty;
+
+import com.github.alexishuf.fastersparql.client.SparqlClient;
+import com.github.alexishuf.fastersparql.client.model.Results;
+import com.github.alexishuf.fastersparql.client.model.row.RowOperations;
+import com.github.alexishuf.fastersparql.client.model.row.RowOperationsRegistry;
+import com.github.alexishuf.fastersparql.client.netty.ws.WsMux;
+import com.github.alexishuf.fastersparql.client.parser.results.ResultsParserConsumer;
+import com.github.alexishuf.fastersparql.client.parser.results.TSVParser;
+import com.github.alexishuf.fastersparql.client.util.sparql.ArrayBinding;
+import com.github.alexishuf.fastersparql.client.util.sparql.Binding;
+import com.github.alexishuf.fastersparql.client.util.sparql.SparqlUtils;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static io.netty.handler.codec.http.HttpResponseStatus.NOT_FOUND;
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+
+/**
+ * Serves the {@code !query} and {@code !bind} requests of a single WebSocket session.
+ *
+ * <p>All state is accessed only from the channel event loop. Rows produced by the wrapped
+ * {@link SparqlClient} are serialized to TSV on the thread that delivers them and handed to
+ * the event loop, which writes them (many rows per frame) while the channel is writable and,
+ * for multiplexed streams, while the client has granted {@code !credit}.</p>
+ */
+class WsSparqlServerHandler extends SimpleChannelInboundHandler<Object> {
+    private static final Logger log = LoggerFactory.getLogger(WsSparqlServerHandler.class);
+    /** Stream id for sessions that do not use the {@link WsMux} extension. */
+    private static final int NO_STREAM = -1;
+    /**
+     * Frames are split (at line boundaries) once they reach this many chars. Even if all
+     * chars need 3 UTF-8 bytes, frames stay below the 64 KiB default limit of Netty clients.
+     */
+    private static final int MAX_FRAME_CHARS = 16*1024;
+    private static final Pattern CREDIT_RX = Pattern.compile("!credit\\s*\\+?\\s*(\\d+)");
+
+    private final SparqlClient<?, ?> client;
+    private final RowOperations rowOps;
+    private final int bindBatch = FasterSparqlServerProperties.serverBindBatch();
+    private final int prefetch = FasterSparqlServerProperties.serverPrefetch();
+    private final Map<Integer, Task> tasks = new HashMap<>();
+    private @MonotonicNonNull ChannelHandlerContext ctx;
+
+    WsSparqlServerHandler(SparqlClient<?, ?> client) {
+        this.client = client;
+        this.rowOps = RowOperationsRegistry.get().forClass(client.rowClass());
+    }
+
+    /* --- --- --- netty events --- --- --- */
+
+    @Override public void handlerAdded(ChannelHandlerContext ctx) {
+        this.ctx = ctx;
+    }
+
+    @Override protected void channelRead0(ChannelHandlerContext ctx, Object msg) {
+        if (msg instanceof TextWebSocketFrame) {
+            onText(((TextWebSocketFrame) msg).text());
+        } else if (msg instanceof FullHttpRequest) {
+            // WebSocketServerProtocolHandler forwards requests for other paths
+            FullHttpResponse res = new DefaultFullHttpResponse(HTTP_1_1, NOT_FOUND);
+            res.headers().set(HttpHeaderNames.CONTENT_LENGTH, 0);
+            ctx.writeAndFlush(res).addListener(ChannelFutureListener.CLOSE);
+        } else if (msg instanceof WebSocketFrame) {
+            log.debug("{}: ignoring {}", this, msg.getClass().getSimpleName());
+        } else {
+            log.warn("{}: ignoring unexpected {}", this, msg);
+        }
+    }
+
+    @Override public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        for (Task task : new ArrayList<>(tasks.values()))
+            task.terminate();
+        super.channelInactive(ctx);
+    }
+
+    @Override public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (ctx.channel().isWritable()) {
+            for (Task task : new ArrayList<>(tasks.values()))
+                task.drain();
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
+    @Override public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        log.error("{}: closing due to {}", this, cause.toString(), cause);
+        ctx.close();
+    }
+
+    @Override public String toString() {
+        return "WsSparqlServerHandler{ch="+(ctx == null ? "null" : ctx.channel())
+                +", tasks="+tasks.size()+"}";
+    }
+
+    /* --- --- --- message dispatch --- --- --- */
+
+    private void onText(String text) {
+        WsMux.Tagged tagged = WsMux.untag(text);
+        int id = tagged == null ? NO_STREAM : tagged.id;
+        String msg = tagged == null ? text : tagged.message;
+        if (msg.startsWith("!query "))
+            start(id, msg.substring(7), false);
+        else if (msg.startsWith("!bind "))
+            start(id, msg.substring(6), true);
+        else
+            onLines(id, msg);
+    }
+
+    private void start(int id, String sparql, boolean bind) {
+        if (tasks.containsKey(id)) {
+            write(id, "!error Received a new query while another is active\n");
+            return;
+        }
+        int end = sparql.length();
+        while (end > 0 && Character.isWhitespace(sparql.charAt(end-1))) --end;
+        sparql = sparql.substring(0, end);
+        Task task = bind ? new BindTask(id, sparql) : new QueryTask(id, sparql);
+        tasks.put(id, task);
+        task.start();
+    }
+
+    private void onLines(int id, String msg) {
+        for (int i = 0, len = msg.length(), eol; i < len; i = eol) {
+            Task task = tasks.get(id);
+            eol = lineEnd(msg, i, len);
+            if (msg.charAt(i) == '!') {
+                control(id, task, msg.substring(i, eol).trim());
+            } else {
+                while (eol < len && msg.charAt(eol) != '!')
+                    eol = lineEnd(msg, eol, len);
+                if (task instanceof BindTask)
+                    ((BindTask) task).feedBindings(msg, i, eol);
+                else if (task != null)
+                    task.fail("Unexpected bindings for a !query");
+                else
+                    log.debug("{}: ignoring data for inactive stream {}", this, id);
+            }
+        }
+    }
+
+    private static int lineEnd(String msg, int begin, int len) {
+        int eol = msg.indexOf('\n', begin);
+        return eol < 0 ? len : eol+1;
+    }
+
+    private void control(int id, @Nullable Task task, String line) {
+        if (line.startsWith("!cancel")) {
+            if (task != null) task.cancel();
+            else              log.debug("{}: ignoring {} for inactive stream", this, line);
+        } else if (line.startsWith("!ping-ack")) {
+            log.trace("{}: received {}", this, line);
+        } else if (line.startsWith("!ping")) {
+            write(id, "!ping-ack\n");
+        } else if (line.startsWith("!credit")) {
+            Matcher m = CREDIT_RX.matcher(line);
+            if (!m.lookingAt())
+                log.warn("{}: ignoring malformed {}", this, line);
+            else if (task != null)
+                task.credit(Long.parseLong(m.group(1)));
+        } else if (line.startsWith("!binding-ids")) {
+            if (task instanceof BindTask)
+                ((BindTask) task).echoIds = true;
+            else if (task != null)
+                task.fail("Unexpected !binding-ids for a !query");
+        } else if (line.startsWith("!end")) {
+            if (task instanceof BindTask)
+                ((BindTask) task).endBindings();
+            else if (task != null)
+                task.fail("Unexpected !end for a !query");
+        } else if (task != null) {
+            task.fail("Unexpected control message: "+line);
+        } else {
+            write(id, "!error Unexpected control message: "+line+"\n");
+        }
+    }
+
+    private void write(int id, CharSequence text) {
+        String msg = id == NO_STREAM ? text.toString() : WsMux.tag(text, id);
+        ctx.writeAndFlush(new TextWebSocketFrame(msg));
+    }
+
+    /* --- --- --- helpers --- --- --- */
+
+    private Results<?> query(CharSequence sparql) {
+        try {
+            return client.query(sparql);
+        } catch (Throwable t) {
+            return Results.error(Object.class, t);
+        }
+    }
+
+    private static StringBuilder appendTerm(StringBuilder sb, @Nullable String nt) {
+        if (nt == null)
+            return sb;
+        if (nt.indexOf('\t') >= 0) nt = nt.replace("\t", "\\t");
+        if (nt.indexOf('\n') >= 0) nt = nt.replace("\n", "\\n");
+        return sb.append(nt);
+    }
+
+    private static String tsvHeader(List<String> vars) {
+        StringBuilder sb = new StringBuilder();
+        for (String name : vars) sb.append('?').append(name).append('\t');
+        sb.setLength(Math.max(0, sb.length()-1));
+        return sb.append('\n').toString();
+    }
+
+    private static String errorMessage(Throwable t) {
+        String msg = t.getMessage() == null ? t.toString()
+                   : t.getClass().getSimpleName()+": "+t.getMessage();
+        return msg.replace('\n', ' ');
+    }
+
+    /* --- --- --- query and bind execution --- --- --- */
+
+    /**
+     * A {@code !query} or {@code !bind} being served. Results are produced by a sequence
+     * of {@link Run}s, which are sent in order.
+     */
+    private abstract class Task {
+        final int id;
+        final ArrayDeque<Run> runs = new ArrayDeque<>();
+        private final StringBuilder out = new StringBuilder();
+        private final AtomicBoolean drainQueued = new AtomicBoolean();
+        private final Runnable drainTask = () -> {
+            drainQueued.set(false);
+            drain();
+        };
+        /** How many rows may still be sent. Only limited in multiplexed streams */
+        private long credit;
+        boolean terminated;
+
+        Task(int id) {
+            this.id = id;
+            this.credit = id == NO_STREAM ? Long.MAX_VALUE : 0;
+        }
+
+        abstract void start();
+
+        /** Whether no more {@link Run}s will be added. */
+        abstract boolean inputEnded();
+
+        /** Called after all rows of the first {@link Run} were sent and it was removed. */
+        void onRunDone() { }
+
+        void credit(long n) {
+            credit = credit+n < 0 ? Long.MAX_VALUE : credit+n;
+            drain();
+        }
+
+        /** Schedule a {@link Task#drain()} from any thread. */
+        void scheduleDrain() {
+            if (drainQueued.compareAndSet(false, true))
+                ctx.executor().execute(drainTask);
+        }
+
+        void drain() {
+            if (terminated)
+                return;
+            for (Run head; (head = runs.peekFirst()) != null; ) {
+                if (!head.started) {
+                    head.started = true;
+                    if (head.activeBinding != null)
+                        append(head.activeBinding);
+                }
+                int taken = 0;
+                for (String row; canSendRow() && (row = head.rows.poll()) != null; ++taken) {
+                    append(row);
+                    if (credit != Long.MAX_VALUE) --credit;
+                }
+                boolean done = head.done; // read before rows.isEmpty(), see Run.onComplete()
+                if (taken > 0 && !done)
+                    head.request(taken);
+                if (!done || !head.rows.isEmpty())
+                    break;
+                Throwable error = head.error;
+                if (error != null) {
+                    fail(errorMessage(error));
+                    return;
+                }
+                runs.pollFirst();
+                onRunDone();
+            }
+            if (runs.isEmpty() && inputEnded()) {
+                append("!end\n");
+                flushOut();
+                terminate();
+            } else {
+                flushOut();
+            }
+        }
+
+        private boolean canSendRow() {
+            return credit > 0 && ctx.channel().isWritable();
+        }
+
+        /** Append whole lines to the frame being built. */
+        void append(CharSequence lines) {
+            out.append(lines);
+            if (out.length() >= MAX_FRAME_CHARS)
+                flushOut();
+        }
+
+        void flushOut() {
+            if (out.length() > 0) {
+                write(id, out);
+                out.setLength(0);
+            }
+        }
+
+        void cancel() {
+            if (terminate()) {
+                out.setLength(0);
+                write(id, "!cancelled\n");
+            }
+        }
+
+        void fail(String message) {
+            if (terminate()) {
+                flushOut();
+                write(id, "!error "+message.replace('\n', ' ')+"\n");
+            }
+        }
+
+        /** Cancel all {@link Run}s and forget this task. Does not notify the client. */
+        boolean terminate() {
+            if (terminated)
+                return false;
+            terminated = true;
+            for (Run run : runs)
+                run.cancel();
+            runs.clear();
+            if (tasks.get(id) == this)
+                tasks.remove(id);
+            return true;
+        }
+
+        @Override public String toString() {
+            return WsSparqlServerHandler.this+"."+getClass().getSimpleName()
+                    +(id == NO_STREAM ? "" : "#"+id);
+        }
+    }
+
+    /** Results of a single query (the {@code !query} or a bound query of a {@code !bind}). */
+    private final class Run implements Subscriber<Object> {
+        private final Task task;
+        private final @Nullable String activeBinding;
+        private final List<String> resultVars;
+        /** For each output column, the column in results or -1 */
+        private final int[] columns;
+        /** For each output column, the value assigned by the binding, if any */
+        private final @Nullable String[] bound;
+        private final StringBuilder sb = new StringBuilder();
+        final ConcurrentLinkedQueue<String> rows = new ConcurrentLinkedQueue<>();
+        private volatile @Nullable Subscription subscription;
+        private volatile boolean cancelled;
+        volatile boolean done;
+        volatile @Nullable Throwable error;
+        boolean started;
+
+        Run(Task task, List<String> outVars, Results<?> results,
+            @Nullable String activeBinding, @Nullable Binding binding) {
+            this.task = task;
+            this.activeBinding = activeBinding;
+            this.resultVars = results.vars();
+            this.columns = new int[outVars.size()];
+            this.bound = new String[outVars.size()];
+            for (int i = 0; i < columns.length; i++) {
+                String name = outVars.get(i);
+                columns[i] = resultVars.indexOf(name);
+                bound[i] = binding == null ? null : binding.get(name);
+            }
+            //noinspection unchecked,rawtypes
+            ((Publisher) results.publisher()).subscribe(this);
+        }
+
+        void request(long n) {
+            Subscription s = subscription;
+            if (s != null && !cancelled)
+                s.request(n);
+        }
+
+        void cancel() {
+            cancelled = true;
+            Subscription s = subscription;
+            if (s != null)
+                s.cancel();
+        }
+
+        @Override public void onSubscribe(Subscription s) {
+            subscription = s;
+            if (cancelled) s.cancel();
+            else           s.request(prefetch);
+        }
+
+        @Override public void onNext(Object row) {
+            sb.setLength(0);
+            for (int i = 0; i < columns.length; i++) {
+                int col = columns[i];
+                appendTerm(sb, col < 0 ? bound[i] : rowOps.getNT(row, col, resultVars.get(col)));
+                sb.append('\t');
+            }
+            sb.setLength(Math.max(0, sb.length()-1));
+            rows.add(sb.append('\n').toString());
+            task.scheduleDrain();
+        }
+
+        @Override public void onError(Throwable t) {
+            error = t;
+            done = true;
+            task.scheduleDrain();
+        }
+
+        @Override public void onComplete() {
+            done = true; // all rows were added to rows before this write
+            task.scheduleDrain();
+        }
+    }
+
+    private final class QueryTask extends Task {
+        private final String sparql;
+
+        QueryTask(int id, String sparql) {
+            super(id);
+            this.sparql = sparql;
+        }
+
+        @Override void start() {
+            Results<?> results = query(sparql);
+            append(tsvHeader(results.vars()));
+            flushOut();
+            runs.add(new Run(this, results.vars(), results, null, null));
+        }
+
+        @Override boolean inputEnded() { return true; }
+    }
+
+    /**
+     * Executes one bound query per binding received from the client. Up to
+     * {@link FasterSparqlServerProperties#serverBindBatch()} bindings are requested and executed
+     * concurrently. As the first pending binding has all its results sent, another binding
+     * is requested.
+     */
+    private final class BindTask extends Task {
+        private final String sparql;
+        private final List<String> outVars;
+        private final TSVParser bindingsParser;
+        private String @MonotonicNonNull [] bindingVars;
+        private boolean bindingsEnded;
+        /** Acknowledge bindings with their sequence number instead of their terms */
+        boolean echoIds;
+        private long nextSequence;
+        private int completed;
+
+        BindTask(int id, String sparql) {
+            super(id);
+            this.sparql = sparql;
+            this.outVars = SparqlUtils.publicVars(sparql);
+            this.bindingsParser = new TSVParser(new ResultsParserConsumer() {
+                @Override public void vars(List<String> vars) {
+                    bindingVars = vars.toArray(new String[0]);
+                }
+                @Override public void row(@Nullable String[] row) { addBinding(row); }
+                @Override public void end() {
+                    bindingsEnded = true;
+                    drain();
+                }
+                @Override public void onError(String message) {
+                    fail("Malformed bindings: "+message);
+                }
+            });
+        }
+
+        @Override void start() {
+            append("!bind-request "+bindBatch+"\n");
+            append(tsvHeader(outVars));
+            flushOut();
+        }
+
+        @Override boolean inputEnded() { return bindingsEnded; }
+
+        @Override void onRunDone() {
+            if (!bindingsEnded && ++completed >= Math.max(1, bindBatch/2)) {
+                append("!bind-request +"+completed+"\n");
+                completed = 0;
+            }
+        }
+
+        void feedBindings(String msg, int begin, int end) {
+            if (!terminated)
+                bindingsParser.feed(msg, begin, end);
+        }
+
+        void endBindings() {
+            if (!terminated)
+                bindingsParser.end();
+        }
+
+        private void addBinding(@Nullable String[] values) {
+            if (terminated)
+                return;
+            assert bindingVars != null : "row() before vars()";
+            StringBuilder active = new StringBuilder("!active-binding ");
+            int nonNull = 0;
+            for (String value : values) {
+                if (!echoIds)
+                    appendTerm(active, value).append('\t');
+                if (value != null) ++nonNull;
+            }
+            if (echoIds)
+                active.append('#').append(nextSequence).append('\t');
+            if (echoIds || values.length > 0)
+                active.setLength(active.length()-1);
+            active.append('\n');
+            ++nextSequence;
+
+            Binding binding;
+            if (nonNull == values.length) {
+                binding = ArrayBinding.wrap(bindingVars, values);
+            } else { // unbound vars must remain vars (see SparqlUtils.bind())
+                String[] vars = new String[nonNull], terms = new String[nonNull];
+                for (int i = 0, j = 0; i < values.length; i++) {
+                    if (values[i] != null) {
+                        vars[j] = bindingVars[i];
+                        terms[j++] = values[i];
+                    }
+                }
+                binding = ArrayBinding.wrap(vars, terms);
+            }
+            Results<?> results = query(SparqlUtils.bind(sparql, binding));
+            runs.addLast(new Run(this, outVars, results, active.toString(), binding));
+        }
+    }
+}
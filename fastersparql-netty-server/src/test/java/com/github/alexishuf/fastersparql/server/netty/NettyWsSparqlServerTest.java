@@ -0,0 +1,246 @@
+package com.github.alexishuf.fastersparql.server.netty;
+
+import com.github.alexishuf.fastersparql.client.BindType;
+import com.github.alexishuf.fastersparql.client.SparqlClient;
+import com.github.alexishuf.fastersparql.client.model.Graph;
+import com.github.alexishuf.fastersparql.client.model.Results;
+import com.github.alexishuf.fastersparql.client.model.SparqlConfiguration;
+import com.github.alexishuf.fastersparql.client.model.SparqlEndpoint;
+import com.github.alexishuf.fastersparql.client.netty.NettyWebSocketSparqlClient;
+import com.github.alexishuf.fastersparql.client.netty.util.FasterSparqlNettyProperties;
+import com.github.alexishuf.fastersparql.client.parser.fragment.StringFragmentParser;
+import com.github.alexishuf.fastersparql.client.parser.row.StringArrayRowParser;
+import com.github.alexishuf.fastersparql.client.util.reactive.AsyncIterable;
+import com.github.alexishuf.fastersparql.client.util.reactive.CallbackPublisher;
+import com.github.alexishuf.fastersparql.client.util.sparql.SparqlUtils;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.junit.jupiter.api.Assertions.*;
+
+class NettyWsSparqlServerTest {
+    private static final String QUERY = "SELECT ?y WHERE { ?x <http://example.org/p> ?y }";
+
+    /** Answers queries with rows computed from the query string. */
+    private static class FakeClient implements SparqlClient<String[], String> {
+        private final Function<String, List<String[]>> answers;
+        final List<String> queries = Collections.synchronizedList(new ArrayList<>());
+
+        FakeClient(Function<String, List<String[]>> answers) { this.answers = answers; }
+
+        @Override public Class<String[]> rowClass() { return String[].class; }
+        @Override public Class<String> fragmentClass() { return String.class; }
+        @Override public SparqlEndpoint endpoint() {
+            return SparqlEndpoint.parse("http://example.org/sparql");
+        }
+        @Override public void close() { }
+
+        @Override
+        public Results<String[]> query(CharSequence sparql, @Nullable SparqlConfiguration configuration,
+                                       @Nullable Results<String[]> bindings, @Nullable BindType bindType) {
+            if (bindings != null)
+                throw new UnsupportedOperationException();
+            String query = sparql.toString();
+            queries.add(query);
+            List<String[]> rows = answers.apply(query);
+            CallbackPublisher<String[]> pub = new CallbackPublisher<String[]>("FakeClient") {
+                private int next;
+                @Override protected void onRequest(long n) {
+                    for (; n > 0 && next < rows.size(); --n)
+                        feed(rows.get(next++));
+                    if (next == rows.size())
+                        complete(null);
+                }
+                @Override protected void onBackpressure() { }
+                @Override protected void onCancel() { }
+            };
+            return new Results<>(SparqlUtils.publicVars(query), String[].class, pub);
+        }
+
+        @Override
+        public Graph<String> queryGraph(CharSequence sparql, @Nullable SparqlConfiguration configuration) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /** Answers ?y = {@code <x>_n} for n in {@code [0, N)} where {@code <x>} is the bound subject. */
+    private static List<String[]> answer(String query) {
+        List<String[]> rows = new ArrayList<>();
+        for (String s : asList("a", "b", "c")) {
+            if (query.contains("<http://example.org/"+s+">")) {
+                int n = s.charAt(0) - 'a' + 1;
+                for (int i = 0; i < n; i++)
+                    rows.add(new String[]{"\"" + s + i + "\""});
+            }
+        }
+        if (rows.isEmpty() && query.contains("?x"))
+            rows.add(new String[]{"\"unbound\""});
+        return rows;
+    }
+
+    private FakeClient fake;
+    private NettyWsSparqlServer server;
+    private NettyWebSocketSparqlClient<String[], String> client;
+
+    @BeforeEach
+    void setUp() {
+        fake = new FakeClient(NettyWsSparqlServerTest::answer);
+        server = new NettyWsSparqlServer(fake, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (client != null)
+            client.close();
+        server.close();
+        System.clearProperty(FasterSparqlNettyProperties.WS_MUX_ENABLE);
+        System.clearProperty(FasterSparqlNettyProperties.WS_BIND_LEDGER);
+        System.clearProperty(FasterSparqlNettyProperties.WS_BIND_IDS);
+    }
+
+    private NettyWebSocketSparqlClient<String[], String> createClient() {
+        SparqlEndpoint ep = SparqlEndpoint.parse(server.uri());
+        return new NettyWebSocketSparqlClient<>(ep, StringArrayRowParser.INSTANCE,
+                                                StringFragmentParser.INSTANCE);
+    }
+
+    private static List<List<String>> drain(Results<String[]> results) {
+        List<List<String>> list = new ArrayList<>();
+        AsyncIterable<String[]> it = results.iterable();
+        for (String[] row : it)
+            list.add(asList(row));
+        assertNull(it.error());
+        return list;
+    }
+
+    private static Results<String[]> bindings(String... subjects) {
+        List<String[]> rows = new ArrayList<>();
+        for (String s : subjects)
+            rows.add(new String[]{"<http://example.org/"+s+">"});
+        CallbackPublisher<String[]> pub = new CallbackPublisher<String[]>("bindings") {
+            private int next;
+            @Override protected void onRequest(long n) {
+                for (; n > 0 && next < rows.size(); --n)
+                    feed(rows.get(next++));
+                if (next == rows.size())
+                    complete(null);
+            }
+            @Override protected void onBackpressure() { }
+            @Override protected void onCancel() { }
+        };
+        return new Results<>(singletonList("x"), String[].class, pub);
+    }
+
+    @Test
+    void testUri() {
+        assertEquals("ws://localhost:"+server.port()+"/sparql", server.uri());
+    }
+
+    @Test
+    void testQuery() {
+        client = createClient();
+        assertEquals(singletonList(singletonList("\"unbound\"")), drain(client.query(QUERY)));
+        // the WebSocket session is reused
+        assertEquals(singletonList(singletonList("\"unbound\"")), drain(client.query(QUERY)));
+        assertEquals(asList(QUERY, QUERY), fake.queries);
+    }
+
+    @Test
+    void testQueryError() {
+        server.close();
+        server = new NettyWsSparqlServer(new FakeClient(q -> {
+            throw new IllegalArgumentException("bad query");
+        }), 0);
+        client = createClient();
+        AsyncIterable<String[]> it = client.query(QUERY).iterable();
+        List<String[]> rows = new ArrayList<>();
+        for (String[] row : it) rows.add(row);
+        assertEquals(emptyList(), rows);
+        assertNotNull(it.error());
+        assertTrue(it.error().getMessage().contains("bad query"));
+    }
+
+    @ParameterizedTest @ValueSource(booleans = {false, true})
+    void testBindJoin(boolean mux) {
+        if (mux)
+            System.setProperty(FasterSparqlNettyProperties.WS_MUX_ENABLE, "true");
+        client = createClient();
+        Results<String[]> results = client.query(QUERY, null, bindings("c", "a", "d", "b"),
+                                                 BindType.JOIN);
+        assertEquals(asList("x", "y"), results.vars());
+        assertEquals(asList(
+                asList("<http://example.org/c>", "\"c0\""),
+                asList("<http://example.org/c>", "\"c1\""),
+                asList("<http://example.org/c>", "\"c2\""),
+                asList("<http://example.org/a>", "\"a0\""),
+                asList("<http://example.org/b>", "\"b0\""),
+                asList("<http://example.org/b>", "\"b1\"")
+        ), drain(results));
+        assertEquals(4, fake.queries.size());
+        for (String q : fake.queries)
+            assertFalse(q.contains("?x"), "unbound query: "+q);
+    }
+
+    @ParameterizedTest @ValueSource(booleans = {false, true})
+    void testBindNotExists(boolean mux) {
+        if (mux)
+            System.setProperty(FasterSparqlNettyProperties.WS_MUX_ENABLE, "true");
+        client = createClient();
+        Results<String[]> results = client.query(QUERY, null, bindings("a", "d", "b", "e"),
+                                                 BindType.NOT_EXISTS);
+        assertEquals(asList(singletonList("<http://example.org/d>"),
+                            singletonList("<http://example.org/e>")), drain(results));
+        for (String q : fake.queries)
+            assertTrue(q.trim().startsWith("ASK"), "not an ASK: "+q);
+    }
+
+    @ParameterizedTest @ValueSource(strings = {"1024,false", "1024,true", "2,false", "3,true"})
+    void testManyBindings(String config) {
+        String[] pieces = config.split(",");
+        System.setProperty(FasterSparqlNettyProperties.WS_BIND_LEDGER, pieces[0]);
+        System.setProperty(FasterSparqlNettyProperties.WS_BIND_IDS, pieces[1]);
+        client = createClient();
+        String[] subjects = new String[1000];
+        for (int i = 0; i < subjects.length; i++)
+            subjects[i] = i % 2 == 0 ? "c" : "a";
+        List<List<String>> rows = drain(client.query(QUERY, null, bindings(subjects),
+                                                     BindType.JOIN));
+        assertEquals(subjects.length/2 * 4, rows.size());
+        for (int i = 0; i < rows.size(); i += 4) {
+            assertEquals("\"c0\"", rows.get(i).get(1));
+            assertEquals("\"c2\"", rows.get(i+2).get(1));
+            assertEquals("\"a0\"", rows.get(i+3).get(1));
+        }
+    }
+
+    @Test
+    void testConcurrentMultiplexedQueries() throws Exception {
+        System.setProperty(FasterSparqlNettyProperties.WS_MUX_ENABLE, "true");
+        client = createClient();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<List<String>>>> futures = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                futures.add(executor.submit(() -> drain(client.query(QUERY, null,
+                        bindings("b", "a"), BindType.JOIN))));
+            }
+            for (Future<List<List<String>>> f : futures)
+                assertEquals(3, f.get(10, TimeUnit.SECONDS).size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
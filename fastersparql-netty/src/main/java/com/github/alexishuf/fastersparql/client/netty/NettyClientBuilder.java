@@ -4,11 +4,15 @@ import com.github.alexishuf.fastersparql.client.model.Protocol;
 import com.github.alexishuf.fastersparql.client.netty.handler.ReusableHttpClientInboundHandler;
 import com.github.alexishuf.fastersparql.client.netty.http.NettyHttpClient;
 import com.github.alexishuf.fastersparql.client.netty.http.PooledNettyHttpClient;
+import com.github.alexishuf.fastersparql.client.netty.http.SharedPoolRegistry;
 import com.github.alexishuf.fastersparql.client.netty.http.UnPooledNettyHttpClient;
 import com.github.alexishuf.fastersparql.client.netty.util.EventLoopGroupHolder;
 import com.github.alexishuf.fastersparql.client.netty.util.FasterSparqlNettyProperties;
+import com.github.alexishuf.fastersparql.client.netty.util.NettyAllocator;
+import com.github.alexishuf.fastersparql.client.netty.util.NettyChannelOptions;
 import com.github.alexishuf.fastersparql.client.netty.util.SharedEventLoopGroupHolder;
 import com.github.alexishuf.fastersparql.client.netty.ws.NettyWsClient;
+import com.github.alexishuf.fastersparql.client.netty.ws.impl.MuxNettyWsClient;
 import com.github.alexishuf.fastersparql.client.netty.ws.impl.PooledNettyWsClient;
 import com.github.alexishuf.fastersparql.client.netty.ws.impl.UnpooledNettyWsClient;
 import io.netty.handler.codec.http.HttpHeaders;
@@ -35,33 +39,82 @@ public final class NettyClientBuilder {
     private boolean shareEventLoopGroup = FasterSparqlNettyProperties.shareEventLoopGroup();
     private boolean pooled = FasterSparqlNettyProperties.pool();
     private boolean poolFIFO = FasterSparqlNettyProperties.poolFIFO();
+    private boolean sharePool = FasterSparqlNettyProperties.sharePool();
     private boolean ocsp = FasterSparqlNettyProperties.ocsp();
     private boolean startTls = FasterSparqlNettyProperties.startTls();
+    private boolean wsMux = FasterSparqlNettyProperties.wsMux();
     private @Nullable File trustCertCollectionFile =
             FasterSparqlNettyProperties.trustCertCollectionFile();
+    private int eventLoopThreads = FasterSparqlNettyProperties.eventLoopThreads();
+    private int ioUringRingSize = FasterSparqlNettyProperties.ioUringRingSize();
+    private boolean tcpNoDelay = FasterSparqlNettyProperties.tcpNoDelay();
+    private boolean tcpFastOpenConnect = FasterSparqlNettyProperties.tcpFastOpenConnect();
+    private int soRcvBuf = FasterSparqlNettyProperties.soRcvBuf();
+    private int soSndBuf = FasterSparqlNettyProperties.soSndBuf();
+    private boolean epollEdgeTriggered = FasterSparqlNettyProperties.epollEdgeTriggered();
+    private NettyAllocator allocator = FasterSparqlNettyProperties.allocator();
 
     public boolean shareEventLoopGroup() { return shareEventLoopGroup; }
     public boolean pooled() { return pooled; }
     public boolean poolFIFO() { return poolFIFO; }
+    public boolean sharePool() { return sharePool; }
     public boolean ocsp() { return ocsp; }
     public boolean startTls() { return startTls; }
+    public boolean wsMux() { return wsMux; }
     public @Nullable File trustCertCollectionFile() { return trustCertCollectionFile; }
+    public int eventLoopThreads() { return eventLoopThreads; }
+    public int ioUringRingSize() { return ioUringRingSize; }
+    public boolean tcpNoDelay() { return tcpNoDelay; }
+    public boolean tcpFastOpenConnect() { return tcpFastOpenConnect; }
+    public int soRcvBuf() { return soRcvBuf; }
+    public int soSndBuf() { return soSndBuf; }
+    public boolean epollEdgeTriggered() { return epollEdgeTriggered; }
+    public NettyAllocator allocator() { return allocator; }
 
     public NettyClientBuilder shareEventLoopGroup(boolean value)  { shareEventLoopGroup = value; return this; }
     public NettyClientBuilder pooled(boolean value)               { pooled = value; return this; }
     public NettyClientBuilder poolFIFO(boolean value)             { poolFIFO = value; return this; }
+    public NettyClientBuilder sharePool(boolean value)            { sharePool = value; return this; }
     public NettyClientBuilder ocsp(boolean value)                 { ocsp = value; return this; }
     public NettyClientBuilder startTls(boolean value)             { startTls = value; return this; }
+    public NettyClientBuilder wsMux(boolean value)                { wsMux = value; return this; }
     public NettyClientBuilder trustCertCollectionFile(File value) { trustCertCollectionFile = value; return this; }
+    public NettyClientBuilder tcpNoDelay(boolean value)           { tcpNoDelay = value; return this; }
+    public NettyClientBuilder tcpFastOpenConnect(boolean value)   { tcpFastOpenConnect = value; return this; }
+    public NettyClientBuilder soRcvBuf(int value)                 { soRcvBuf = value; return this; }
+    public NettyClientBuilder soSndBuf(int value)                 { soSndBuf = value; return this; }
+    public NettyClientBuilder epollEdgeTriggered(boolean value)   { epollEdgeTriggered = value; return this; }
+    public NettyClientBuilder allocator(NettyAllocator value)     { allocator = value; return this; }
+
+    /**
+     * Number of threads of the {@link io.netty.channel.EventLoopGroup}. Zero lets Netty choose.
+     * This is ignored if {@link NettyClientBuilder#shareEventLoopGroup()}, since the shared
+     * group is configured only by {@link FasterSparqlNettyProperties#eventLoopThreads()}.
+     */
+    public NettyClientBuilder eventLoopThreads(int value)         { eventLoopThreads = value; return this; }
+
+    /**
+     * io_uring submission queue size. Zero keeps the Netty default. Like
+     * {@link NettyClientBuilder#eventLoopThreads(int)}, this is ignored if
+     * {@link NettyClientBuilder#shareEventLoopGroup()}.
+     */
+    public NettyClientBuilder ioUringRingSize(int value)          { ioUringRingSize = value; return this; }
 
     private EventLoopGroupHolder elgHolder() {
         if (shareEventLoopGroup) {
             return SharedEventLoopGroupHolder.get();
         } else {
-            return new EventLoopGroupHolder(null, 0, TimeUnit.SECONDS);
+            return new EventLoopGroupHolder(null, 0, TimeUnit.SECONDS,
+                                            eventLoopThreads, ioUringRingSize);
         }
     }
 
+    /** The {@link NettyChannelOptions} that built clients will use. */
+    public NettyChannelOptions channelOptions() {
+        return new NettyChannelOptions(tcpNoDelay, tcpFastOpenConnect, soRcvBuf, soSndBuf,
+                                       epollEdgeTriggered, allocator);
+    }
+
     /**
      * Build a {@link NettyHttpClient} with the builder settings
      *
@@ -80,13 +133,53 @@ public final class NettyClientBuilder {
     buildHTTP(Protocol protocol,
               InetSocketAddress address,
               Supplier<H> factory) throws SSLException {
+        return buildHTTP(protocol, address, null, factory);
+    }
+
+    /**
+     * Same as {@link NettyClientBuilder#buildHTTP(Protocol, InetSocketAddress, Supplier)}, but
+     * if {@code handlerClass} is non-null and this builder is {@link NettyClientBuilder#pooled()},
+     * {@link NettyClientBuilder#sharePool()} and {@link NettyClientBuilder#shareEventLoopGroup()},
+     * the returned client is a {@link SharedPoolRegistry.Lease} on a pool shared with all
+     * clients built with the same {@code handlerClass}, origin and settings.
+     *
+     * <p>Handlers of a shared pool are created by the {@code factory} of the client that
+     * created the pool and will handle requests of other clients. Thus, they must take all
+     * client-specific state from the {@link NettyHttpClient.Setup} of each request.</p>
+     *
+     * @param handlerClass the class of handlers created by {@code factory}.
+     */
+    public <H extends ReusableHttpClientInboundHandler> NettyHttpClient<H>
+    buildHTTP(Protocol protocol,
+              InetSocketAddress address,
+              @Nullable Class<H> handlerClass,
+              Supplier<H> factory) throws SSLException {
         if (protocol.isWebSocket())
             throw new IllegalArgumentException("WS(S) not supported by buildHTTP");
         SslContext sslContext = buildSslContext(protocol);
+        NettyChannelOptions options = channelOptions();
+        if (pooled && sharePool && shareEventLoopGroup && handlerClass != null) {
+            return SharedPoolRegistry.acquire(sharedPoolKey(protocol, address, handlerClass),
+                    () -> new PooledNettyHttpClient<>(elgHolder(), address, factory, poolFIFO,
+                                                      sslContext, options));
+        }
         if (pooled)
-            return new PooledNettyHttpClient<>(elgHolder(), address, factory, poolFIFO, sslContext);
+            return new PooledNettyHttpClient<>(elgHolder(), address, factory, poolFIFO, sslContext, options);
         else
-            return new UnPooledNettyHttpClient<>(elgHolder(), address, factory, sslContext);
+            return new UnPooledNettyHttpClient<>(elgHolder(), address, factory, sslContext, options);
+    }
+
+    /**
+     * The {@link SharedPoolRegistry} key for a pool of {@code handlerClass} handlers
+     * connecting to {@code address} with this builder settings.
+     */
+    public String sharedPoolKey(Protocol protocol, InetSocketAddress address,
+                                Class<?> handlerClass) {
+        String tls = protocol.needsSsl() ? ",ocsp="+ocsp+",startTls="+startTls
+                                           +",trust="+trustCertCollectionFile : "";
+        return handlerClass.getName()+"@"+protocol.name().toLowerCase()+"://"
+                +address.getHostString()+":"+address.getPort()
+                +"{fifo="+poolFIFO+tls+","+channelOptions()+"}";
     }
 
     private @Nullable SslContext buildSslContext(@NonNull Protocol protocol) throws SSLException {
@@ -115,9 +208,16 @@ public final class NettyClientBuilder {
         if (!protocol.isWebSocket())
             throw new IllegalArgumentException("WS(S) not supported by buildWs");
         SslContext sslContext = buildSslContext(protocol);
+        NettyChannelOptions options = channelOptions();
+        NettyWsClient client;
         if (pooled)
-            return new PooledNettyWsClient(elgHolder(), uri, headers, poolFIFO, sslContext);
+            client = new PooledNettyWsClient(elgHolder(), uri, headers, poolFIFO, sslContext, options);
         else
-            return new UnpooledNettyWsClient(elgHolder(), uri, headers, sslContext);
+            client = new UnpooledNettyWsClient(elgHolder(), uri, headers, sslContext, options);
+        if (wsMux) {
+            client = new MuxNettyWsClient(client, FasterSparqlNettyProperties.wsMuxSessions(),
+                                          FasterSparqlNettyProperties.wsMuxStreams());
+        }
+        return client;
     }
 }
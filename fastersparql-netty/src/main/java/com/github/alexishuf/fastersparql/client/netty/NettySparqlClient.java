@@ -3,6 +3,7 @@ package com.github.alexishuf.fastersparql.client.netty;
 import com.github.alexishuf.fastersparql.client.BindType;
 import com.github.alexishuf.fastersparql.client.SparqlClient;
 import com.github.alexishuf.fastersparql.client.exceptions.SparqlClientException;
+import com.github.alexishuf.fastersparql.client.exceptions.SparqlClientInvalidArgument;
 import com.github.alexishuf.fastersparql.client.exceptions.SparqlClientServerException;
 import com.github.alexishuf.fastersparql.client.model.*;
 import com.github.alexishuf.fastersparql.client.model.row.RowOperations;
@@ -10,19 +11,34 @@ import com.github.alexishuf.fastersparql.client.model.row.RowOperationsRegistry;
 import com.github.alexishuf.fastersparql.client.model.row.impl.StringArrayOperations;
 import com.github.alexishuf.fastersparql.client.netty.handler.ReusableHttpClientInboundHandler;
 import com.github.alexishuf.fastersparql.client.netty.http.NettyHttpClient;
+import com.github.alexishuf.fastersparql.client.netty.parser.ByteBufFragmentParser;
+import com.github.alexishuf.fastersparql.client.netty.util.ByteBufGraphDownloader;
+import com.github.alexishuf.fastersparql.client.netty.util.ByteBufItemBuffer;
+import com.github.alexishuf.fastersparql.client.netty.util.EarlyTerminationMetrics;
+import com.github.alexishuf.fastersparql.client.netty.util.FasterSparqlNettyProperties;
 import com.github.alexishuf.fastersparql.client.parser.fragment.FragmentParser;
 import com.github.alexishuf.fastersparql.client.parser.results.*;
 import com.github.alexishuf.fastersparql.client.parser.row.RowParser;
+import com.github.alexishuf.fastersparql.client.util.FasterSparqlProperties;
+import com.github.alexishuf.fastersparql.client.util.HeaderUtils;
+import com.github.alexishuf.fastersparql.client.util.ItemBuffer;
 import com.github.alexishuf.fastersparql.client.util.MediaType;
 import com.github.alexishuf.fastersparql.client.util.Merger;
+import com.github.alexishuf.fastersparql.client.util.RedirectCache;
 import com.github.alexishuf.fastersparql.client.util.Throwing;
 import com.github.alexishuf.fastersparql.client.util.async.Async;
 import com.github.alexishuf.fastersparql.client.util.async.AsyncTask;
+import com.github.alexishuf.fastersparql.client.util.async.CompletableAsyncTask;
+import com.github.alexishuf.fastersparql.client.util.async.RetryBackoff;
 import com.github.alexishuf.fastersparql.client.util.async.SafeAsyncTask;
 import com.github.alexishuf.fastersparql.client.util.async.SafeCompletableAsyncTask;
 import com.github.alexishuf.fastersparql.client.util.bind.BindPublisher;
 import com.github.alexishuf.fastersparql.client.util.bind.Binder;
 import com.github.alexishuf.fastersparql.client.util.bind.SparqlClientBinder;
+import com.github.alexishuf.fastersparql.client.util.health.CircuitBreaker;
+import com.github.alexishuf.fastersparql.client.util.health.CircuitBreakerRegistry;
+import com.github.alexishuf.fastersparql.client.util.limit.EndpointLimiter;
+import com.github.alexishuf.fastersparql.client.util.limit.EndpointLimiterRegistry;
 import com.github.alexishuf.fastersparql.client.util.reactive.CallbackPublisher;
 import com.github.alexishuf.fastersparql.client.util.reactive.EmptyPublisher;
 import com.github.alexishuf.fastersparql.client.util.reactive.FSPublisher;
@@ -34,6 +50,7 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.EventLoop;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.*;
+import io.netty.util.ReferenceCountUtil;
 import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.reactivestreams.Publisher;
@@ -41,15 +58,19 @@ import org.reactivestreams.Subscriber;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.function.Supplier;
 
 import static com.github.alexishuf.fastersparql.client.util.SparqlClientHelpers.*;
 import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_TYPE;
@@ -66,13 +87,22 @@ public class NettySparqlClient<R, F> implements SparqlClient<R, F> {
             SparqlMethod.GET, SparqlMethod.FORM, SparqlMethod.POST
     )));
 
-    private final AtomicLong nextHandler = new AtomicLong(1);
     private final SparqlEndpoint endpoint;
     private final AsyncTask<NettyHttpClient<Handler>> netty;
     private final RowParser<R> rowParser;
     private final FragmentParser<F> fragParser;
-    private final Supplier<Handler> handlerFactory =
-            () -> new Handler(this +"-"+nextHandler.getAndIncrement());
+    private final AtomicLong nextQueryId = new AtomicLong(1);
+    private final EarlyTerminationMetrics earlyTerminationMetrics = new EarlyTerminationMetrics();
+    private final int cancelDrainBytes = FasterSparqlNettyProperties.cancelDrainBytes();
+    private final int cancelDrainMs = FasterSparqlNettyProperties.cancelDrainMs();
+    private final @Nullable String cancelIdHeader, cancelPath;
+    private final CircuitBreaker circuitBreaker;
+    private final String limiterKey;
+    private final int retryAfterMaxMs = FasterSparqlProperties.retryAfterMaxMs();
+    private final RetryBackoff retryBackoff = RetryBackoff.forQueries();
+    private final int maxRedirects = FasterSparqlProperties.maxRedirects();
+    private final ConcurrentHashMap<String, AsyncTask<NettyHttpClient<Handler>>> redirectPools
+            = new ConcurrentHashMap<>();
 
 
     public NettySparqlClient(SparqlEndpoint endpoint, RowParser<R> rowParser,
@@ -81,10 +111,56 @@ public class NettySparqlClient<R, F> implements SparqlClient<R, F> {
         if (rowParser == null) throw new NullPointerException("rowParser is null");
         if (fragmentParser == null) throw new NullPointerException("fragmentParser is null");
         this.endpoint = withSupported(endpoint, ResultsParserRegistry.get(), SUPPORTED_METHODS);
-        this.netty = endpoint.resolvedHost().thenApplyThrowing(a ->
-                new NettyClientBuilder().buildHTTP(endpoint.protocol(), a, handlerFactory));
+        this.netty = buildHTTP(endpoint);
         this.rowParser = rowParser;
         this.fragParser = fragmentParser;
+        String idHeader = FasterSparqlNettyProperties.cancelIdHeader();
+        String path = FasterSparqlNettyProperties.cancelPath();
+        if (!idHeader.isEmpty() && !path.isEmpty() && !path.startsWith("/")) {
+            log.warn("Ignoring {}={}: not an absolute path",
+                     FasterSparqlNettyProperties.CANCEL_PATH, path);
+        }
+        boolean serverCancel = !idHeader.isEmpty() && path.startsWith("/");
+        this.cancelIdHeader = serverCancel ? idHeader : null;
+        this.cancelPath = serverCancel ? path : null;
+        this.circuitBreaker = CircuitBreakerRegistry.get(this.endpoint);
+        this.limiterKey = EndpointLimiterRegistry.key(this.endpoint);
+    }
+
+    private AsyncTask<NettyHttpClient<Handler>> buildHTTP(SparqlEndpoint endpoint) {
+        if (!FasterSparqlNettyProperties.dnsEnable()) {
+            return endpoint.resolvedHost().thenApplyThrowing(a ->
+                    new NettyClientBuilder().buildHTTP(endpoint.protocol(), a,
+                                                       Handler.class, Handler::new));
+        }
+        // the name is resolved (non-blocking, with caching) on each new connection
+        String host = endpoint.host();
+        if (host.startsWith("[") && host.endsWith("]"))
+            host = host.substring(1, host.length()-1);
+        InetSocketAddress address = InetSocketAddress.createUnresolved(host, endpoint.port());
+        try {
+            return Async.wrap(new NettyClientBuilder().buildHTTP(endpoint.protocol(), address,
+                                                                 Handler.class, Handler::new));
+        } catch (Throwable t) {
+            return Async.failed(t);
+        }
+    }
+
+    private static String poolKey(SparqlEndpoint endpoint) {
+        return endpoint.protocol()+"://"+EndpointLimiterRegistry.key(endpoint);
+    }
+
+    /**
+     * Get the {@link NettyHttpClient} for sending requests to {@code target}, which is either
+     * {@link NettySparqlClient#endpoint()} or a redirect target.
+     */
+    private AsyncTask<NettyHttpClient<Handler>> netty(SparqlEndpoint target) {
+        if (target == endpoint)
+            return netty;
+        String key = poolKey(target);
+        if (key.equals(poolKey(endpoint)))
+            return netty;
+        return redirectPools.computeIfAbsent(key, k -> buildHTTP(target));
     }
 
     @Override public Class<R> rowClass() {
@@ -101,6 +177,32 @@ public class NettySparqlClient<R, F> implements SparqlClient<R, F> {
         return endpoint;
     }
 
+    /**
+     * Counters of responses cancelled by their subscribers before they ended. See
+     * {@link FasterSparqlNettyProperties#cancelDrainBytes()} and
+     * {@link FasterSparqlNettyProperties#cancelPath()}.
+     */
+    public EarlyTerminationMetrics earlyTerminationMetrics() {
+        return earlyTerminationMetrics;
+    }
+
+    /**
+     * The {@link CircuitBreaker} shared by all clients of this endpoint. While it is open,
+     * queries fail immediately with a
+     * {@link com.github.alexishuf.fastersparql.client.exceptions.SparqlClientCircuitOpenException}.
+     */
+    public CircuitBreaker circuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * The {@link EndpointLimiter} shared by all clients of this endpoint host. Requests wait
+     * (without blocking threads) until the limiter allows them to start.
+     */
+    public EndpointLimiter limiter() {
+        return EndpointLimiterRegistry.get(limiterKey);
+    }
+
     @Override public String toString() {
         return String.format("NettySparqlClient[%s]@%x", endpoint.uri(), identityHashCode(this));
     }
@@ -127,19 +229,23 @@ public class NettySparqlClient<R, F> implements SparqlClient<R, F> {
         Throwable cause;
         try {
             PublisherAdapter<String[]> publisher = new PublisherAdapter<>(endpoint);
-            publisher.requester = () -> {
+            publisher.requester = () -> publisher.start(limiter(), retryBackoff, () -> {
                 try {
-                    SparqlConfiguration eff = effectiveConfig(endpoint, configuration, sparql.length());
+                    publisher.permit = circuitBreaker.acquire(endpoint);
+                    Redirection redirection = publisher.redirection;
+                    SparqlEndpoint target = redirection.next(endpoint);
+                    SparqlConfiguration eff = redirection.apply(
+                            effectiveConfig(target, configuration, sparql.length()));
                     SparqlMethod method = eff.methods().get(0);
                     HttpMethod nettyMethod = method2netty(method);
                     String accept = resultsAcceptString(eff.resultsAccepts());
-                    netty.get().request(nettyMethod, firstLine(endpoint, eff, sparql),
+                    netty(target).get().request(nettyMethod, firstLine(target, eff, sparql),
                             nettyMethod == HttpMethod.GET ? null : a -> generateBody(a, eff, sparql),
-                            new QueryHandlerSetup(vars, accept, method, publisher));
+                            new QueryHandlerSetup(this, vars, accept, method, publisher));
                 } catch (Throwable t) {
                     publisher.complete(t);
                 }
-            };
+            });
             Results<String[]> raw = new Results<>(vars, String[].class, publisher);
             FSPublisher<R> parsedPub = rowParser.parseStringsArray(raw);
             if (parsedPub == raw.publisher()) //noinspection unchecked
@@ -151,32 +257,54 @@ public class NettySparqlClient<R, F> implements SparqlClient<R, F> {
         return Results.error(vars, rowParser.rowClass(), cause);
     }
 
+    /**
+     * Sends {@code sparql} rewritten as an ASK query and parses the response without
+     * delivering rows through a {@link Publisher}.
+     */
+    @Override
+    public AsyncTask<Boolean> ask(CharSequence sparql, @Nullable SparqlConfiguration configuration) {
+        CompletableAsyncTask<Boolean> result = new CompletableAsyncTask<>();
+        AskConsumer consumer = new AskConsumer(endpoint, result, retryBackoff);
+        consumer.start(limiter(), () -> {
+            try {
+                CharSequence ask = SparqlUtils.toAsk(sparql);
+                SparqlEndpoint target = consumer.redirection.next(endpoint);
+                SparqlConfiguration eff = consumer.redirection.apply(
+                        effectiveConfig(target, configuration, ask.length()));
+                SparqlMethod method = eff.methods().get(0);
+                HttpMethod nettyMethod = method2netty(method);
+                String accept = resultsAcceptString(eff.resultsAccepts());
+                consumer.permit = circuitBreaker.acquire(endpoint);
+                netty(target).get().request(nettyMethod, firstLine(target, eff, ask),
+                        nettyMethod == HttpMethod.GET ? null : a -> generateBody(a, eff, ask),
+                        new AskHandlerSetup(this, accept, method, consumer));
+            } catch (Throwable t) {
+                result.completeExceptionally(asClientException(endpoint, t));
+            }
+        });
+        return result;
+    }
+
     @Override
     public Graph<F> queryGraph(CharSequence sparql, @Nullable SparqlConfiguration configuration) {
         Throwable cause;
         try {
-            PublisherAdapter<byte[]> publisher = new PublisherAdapter<>(endpoint);
-            SafeCompletableAsyncTask<MediaType> mtTask = new SafeCompletableAsyncTask<>();
-            publisher.requester = () -> {
-                try {
-                    SparqlConfiguration eff = effectiveConfig(endpoint, configuration, sparql.length());
-                    SparqlMethod method = eff.methods().get(0);
-                    HttpMethod nettyMethod = method2netty(method);
-                    MediaType errorMT = eff.rdfAccepts().get(0);
-                    String accept = rdfAcceptString(eff.rdfAccepts());
-                    netty.get().request(nettyMethod, firstLine(endpoint, eff, sparql),
-                            nettyMethod == HttpMethod.GET ? null : a -> generateBody(a, eff, sparql),
-                            new GraphHandlerSetup(mtTask, errorMT, accept, method, publisher));
-                } catch (Throwable t) {
-                    mtTask.complete(new MediaType("text", "plain"));
-                    publisher.complete(t);
-                }
-            };
-            Graph<byte[]> raw = new Graph<>(mtTask, byte[].class, publisher);
-            FSPublisher<F> parsedPub = fragParser.parseBytes(raw);
-            if (parsedPub == raw.publisher()) //noinspection unchecked
-                return (Graph<F>) raw;
-            return new Graph<>(mtTask, fragParser.fragmentClass(), parsedPub);
+            FSPublisher<F> parsedPub;
+            SafeAsyncTask<MediaType> mediaType;
+            if (fragParser instanceof ByteBufFragmentParser) {
+                Graph<ByteBuf> raw = rawGraph(sparql, configuration, true);
+                mediaType = raw.mediaType();
+                parsedPub = ((ByteBufFragmentParser<F>) fragParser).parseByteBufs(raw);
+                if (parsedPub == raw.publisher()) //noinspection unchecked
+                    return (Graph<F>) raw;
+            } else {
+                Graph<byte[]> raw = rawGraph(sparql, configuration, false);
+                mediaType = raw.mediaType();
+                parsedPub = fragParser.parseBytes(raw);
+                if (parsedPub == raw.publisher()) //noinspection unchecked
+                    return (Graph<F>) raw;
+            }
+            return new Graph<>(mediaType, fragParser.fragmentClass(), parsedPub);
         } catch (Throwable t) {
             cause = t;
         }
@@ -185,7 +313,68 @@ public class NettySparqlClient<R, F> implements SparqlClient<R, F> {
         return new Graph<>(nullMT, fragParser.fragmentClass(), empty);
     }
 
+    /**
+     * Writes the response body directly into {@code dest}, bypassing the
+     * {@link FragmentParser} given at construction: response chunks are delivered as
+     * retained {@link ByteBuf} slices and written with gathering writes of their NIO buffers.
+     */
+    @Override
+    public AsyncTask<DownloadStats> downloadGraph(CharSequence sparql,
+                                                  @Nullable SparqlConfiguration configuration,
+                                                  WritableByteChannel dest,
+                                                  DownloadOptions options) {
+        try {
+            Graph<ByteBuf> raw = rawGraph(sparql, configuration, true);
+            return new ByteBufGraphDownloader(dest, options).download(raw);
+        } catch (Throwable t) {
+            return Async.failed(t);
+        }
+    }
+
+    /**
+     * Create a {@link Graph} whose fragments are the chunks of the response body.
+     *
+     * @param zeroCopy if true, fragments are retained read-only {@link ByteBuf} slices that
+     *                 must be released by the subscriber. Else, fragments are {@code byte[]}.
+     */
+    private <T> Graph<T> rawGraph(CharSequence sparql, @Nullable SparqlConfiguration configuration,
+                                  boolean zeroCopy) {
+        PublisherAdapter<Object> publisher = new PublisherAdapter<>(endpoint);
+        if (zeroCopy) //noinspection unchecked
+            publisher.useItemBuffer((ItemBuffer<Object>)(ItemBuffer<?>)new ByteBufItemBuffer());
+        SafeCompletableAsyncTask<MediaType> mtTask = new SafeCompletableAsyncTask<>();
+        publisher.requester = () -> publisher.start(limiter(), retryBackoff, () -> {
+            try {
+                publisher.permit = circuitBreaker.acquire(endpoint);
+                Redirection redirection = publisher.redirection;
+                SparqlEndpoint target = redirection.next(endpoint);
+                SparqlConfiguration eff = redirection.apply(
+                        effectiveConfig(target, configuration, sparql.length()));
+                SparqlMethod method = eff.methods().get(0);
+                HttpMethod nettyMethod = method2netty(method);
+                MediaType errorMT = eff.rdfAccepts().get(0);
+                String accept = rdfAcceptString(eff.rdfAccepts());
+                netty(target).get().request(nettyMethod, firstLine(target, eff, sparql),
+                        nettyMethod == HttpMethod.GET ? null : a -> generateBody(a, eff, sparql),
+                        new GraphHandlerSetup(this, mtTask, errorMT, accept, method,
+                                              publisher, zeroCopy));
+            } catch (Throwable t) {
+                mtTask.complete(new MediaType("text", "plain"));
+                publisher.complete(t);
+            }
+        });
+        @SuppressWarnings("unchecked") FSPublisher<T> typed = (FSPublisher<T>)(FSPublisher<?>)publisher;
+        @SuppressWarnings("unchecked") Class<T> cls = (Class<T>)(zeroCopy ? ByteBuf.class : byte[].class);
+        return new Graph<>(mtTask, cls, typed);
+    }
+
     @Override public void close() {
+        close(netty);
+        for (AsyncTask<NettyHttpClient<Handler>> task : redirectPools.values())
+            close(task);
+    }
+
+    private void close(AsyncTask<NettyHttpClient<Handler>> netty) {
         boolean cancel = !netty.isDone();
         if (cancel)
             netty.cancel(true);
@@ -207,6 +396,16 @@ public class NettySparqlClient<R, F> implements SparqlClient<R, F> {
 
     /* --- --- --- helper methods  --- --- ---  */
 
+    private static Throwable asClientException(SparqlEndpoint endpoint, Throwable error) {
+        if (error instanceof ExecutionException && error.getCause() != null)
+            error = error.getCause();
+        if (error instanceof SparqlClientException)
+            ((SparqlClientException)error).offerEndpoint(endpoint);
+        else
+            error = new SparqlClientException(endpoint, error.getMessage(), error);
+        return error;
+    }
+
     private static HttpMethod method2netty(SparqlMethod method) {
         switch (method) {
             case GET:
@@ -232,14 +431,35 @@ public class NettySparqlClient<R, F> implements SparqlClient<R, F> {
         return bb;
     }
 
+    /** Sends a cancel request for {@code queryId} and discards its response. */
+    private void sendServerCancel(String queryId) {
+        assert cancelPath != null;
+        String path = cancelPath.replace("{id}", queryId);
+        NettyHttpClient<Handler> client;
+        try {
+            SparqlEndpoint moved = RedirectCache.get(endpoint);
+            client = netty(moved == null ? endpoint : moved).orElse(null);
+        } catch (Throwable t) {
+            client = null;
+        }
+        if (client == null)
+            return;
+        earlyTerminationMetrics.onServerCancel();
+        log.debug("{}: POST {} for cancelled query", this, path);
+        client.request(HttpMethod.POST, path, null, new CancelSetup(this, path));
+    }
+
     /* --- --- --- inner classes  --- --- ---  */
 
     private abstract static class HandlerSetupBase<T> implements NettyHttpClient.Setup<Handler> {
+        protected final NettySparqlClient<?, ?> client;
         protected final String accept;
         protected final SparqlMethod method;
         protected final PublisherAdapter<T> publisher;
 
-        public HandlerSetupBase(String accept, SparqlMethod method, PublisherAdapter<T> publisher) {
+        public HandlerSetupBase(NettySparqlClient<?, ?> client, String accept,
+                                SparqlMethod method, PublisherAdapter<T> publisher) {
+            this.client = client;
             this.accept = accept;
             this.method = method;
             this.publisher = publisher;
@@ -250,7 +470,9 @@ public class NettySparqlClient<R, F> implements SparqlClient<R, F> {
             if (method.hasRequestBody())
                 request.headers().set(CONTENT_TYPE, method.contentType());
             ch.eventLoop().execute(() -> ch.config().setAutoRead(true));
+            handler.bind(client);
             setupHandler(ch, handler);
+            handler.assignQueryId(request);
         }
 
         protected abstract void setupHandler(Channel ch, Handler handler);
@@ -262,6 +484,8 @@ public class NettySparqlClient<R, F> implements SparqlClient<R, F> {
 
         @Override public void requestError(Throwable cause) {
             log.error("Unexpected error when building the request on a connected channel", cause);
+            if (publisher.permit != null)
+                publisher.permit.release(); // not the endpoint's fault
             publisher.complete(cause);
         }
     }
@@ -270,9 +494,10 @@ public class NettySparqlClient<R, F> implements SparqlClient<R, F> {
     private static final class QueryHandlerSetup extends HandlerSetupBase<String[]> {
         private final List<String> vars;
 
-        public QueryHandlerSetup(List<String> vars, String accept, SparqlMethod method,
+        public QueryHandlerSetup(NettySparqlClient<?, ?> client, List<String> vars,
+                                 String accept, SparqlMethod method,
                                  PublisherAdapter<String[]> publisher) {
-            super(accept, method, publisher);
+            super(client, accept, method, publisher);
             this.vars = vars;
         }
 
@@ -281,20 +506,24 @@ public class NettySparqlClient<R, F> implements SparqlClient<R, F> {
         }
     }
 
-    private static final class GraphHandlerSetup extends HandlerSetupBase<byte[]> {
+    private static final class GraphHandlerSetup extends HandlerSetupBase<Object> {
         private final SafeCompletableAsyncTask<MediaType> mtTask;
         private final MediaType mtOnEarlyError;
+        private final boolean zeroCopy;
 
-        public GraphHandlerSetup(SafeCompletableAsyncTask<MediaType>  mtTask,
+        public GraphHandlerSetup(NettySparqlClient<?, ?> client,
+                                 SafeCompletableAsyncTask<MediaType>  mtTask,
                                  MediaType mtOnEarlyError, String accept,
-                                 SparqlMethod method, PublisherAdapter<byte[]> publisher) {
-            super(accept, method, publisher);
+                                 SparqlMethod method, PublisherAdapter<Object> publisher,
+                                 boolean zeroCopy) {
+            super(client, accept, method, publisher);
             this.mtTask = mtTask;
             this.mtOnEarlyError = mtOnEarlyError;
+            this.zeroCopy = zeroCopy;
         }
 
         @Override protected void setupHandler(Channel ch, Handler handler) {
-            handler.setupGraph(ch, mtTask, publisher);
+            handler.setupGraph(ch, mtTask, publisher, zeroCopy);
         }
 
         @Override public void connectionError(Throwable cause) {
@@ -308,9 +537,123 @@ public class NettySparqlClient<R, F> implements SparqlClient<R, F> {
         }
     }
 
+    private static final class CancelSetup implements NettyHttpClient.Setup<Handler> {
+        private final NettySparqlClient<?, ?> client;
+        private final String path;
+
+        public CancelSetup(NettySparqlClient<?, ?> client, String path) {
+            this.client = client;
+            this.path = path;
+        }
+
+        @Override public void setup(Channel ch, HttpRequest request, Handler handler) {
+            request.headers().set(HttpHeaderNames.CONTENT_LENGTH, 0);
+            handler.bind(client);
+            handler.setupDiscard(ch);
+        }
+
+        @Override public void connectionError(Throwable cause) {
+            log.debug("Could not connect to send POST {}: {}", path, cause.toString());
+        }
+
+        @Override public void requestError(Throwable cause) {
+            log.debug("Could not send POST {}: {}", path, cause.toString());
+        }
+    }
+
+    private static final class AskHandlerSetup implements NettyHttpClient.Setup<Handler> {
+        private final NettySparqlClient<?, ?> client;
+        private final String accept;
+        private final SparqlMethod method;
+        private final AskConsumer consumer;
+
+        public AskHandlerSetup(NettySparqlClient<?, ?> client, String accept,
+                               SparqlMethod method, AskConsumer consumer) {
+            this.client = client;
+            this.accept = accept;
+            this.method = method;
+            this.consumer = consumer;
+        }
+
+        @Override public void setup(Channel ch, HttpRequest request, Handler handler) {
+            request.headers().set(HttpHeaderNames.ACCEPT, accept);
+            if (method.hasRequestBody())
+                request.headers().set(CONTENT_TYPE, method.contentType());
+            ch.eventLoop().execute(() -> ch.config().setAutoRead(true));
+            handler.bind(client);
+            handler.setupAsk(ch, consumer);
+        }
+
+        @Override public void connectionError(Throwable cause) { consumer.fail(cause); }
+        @Override public void requestError(Throwable cause)    { consumer.fail(cause); }
+    }
+
+    /**
+     * Redirects followed by a single request, across its retries.
+     */
+    private static final class Redirection {
+        private @Nullable SparqlEndpoint target;
+        private @MonotonicNonNull SparqlEndpoint current;
+        private SparqlMethod method = SparqlMethod.GET;
+        private boolean forceGet, permanent = true;
+        private int count;
+
+        /**
+         * The endpoint to send the next attempt to: the last followed redirect, a cached
+         * permanent redirect of {@code origin} or {@code origin} itself.
+         */
+        SparqlEndpoint next(SparqlEndpoint origin) {
+            SparqlEndpoint next = target;
+            if (next == null && (next = RedirectCache.get(origin)) == null)
+                next = origin;
+            return current = next;
+        }
+
+        /** Amend the effective configuration of the next attempt. */
+        SparqlConfiguration apply(SparqlConfiguration effective) {
+            if (forceGet && effective.methods().get(0) != SparqlMethod.GET)
+                effective = effective.toBuilder().clearMethods().method(SparqlMethod.GET).build();
+            method = effective.methods().get(0);
+            return effective;
+        }
+
+        /**
+         * Record a redirect with the given status to {@code location}.
+         *
+         * @return false if the redirect cannot be followed.
+         */
+        boolean follow(SparqlEndpoint origin, int code, @Nullable String location,
+                       int maxRedirects) {
+            if (location == null || current == null || !RedirectCache.isRedirect(code)
+                    || count >= maxRedirects) {
+                return false;
+            }
+            SparqlEndpoint next;
+            try {
+                next = RedirectCache.target(current, location);
+            } catch (SparqlClientInvalidArgument e) {
+                log.debug("Ignoring redirect from {} to bad Location {}", current, location);
+                return false;
+            }
+            ++count;
+            forceGet |= RedirectCache.switchesToGet(code, method);
+            permanent &= RedirectCache.isPermanent(code);
+            if (permanent)
+                RedirectCache.putPermanent(origin, next);
+            log.debug("Following {} redirect from {} to {}", code, current, next);
+            target = next;
+            return true;
+        }
+    }
+
     /**
      * The {@link Publisher} exposed by {@link NettySparqlClient} query methods
-     * (when no row/fragment parser is used)
+     * (when no row/fragment parser is used).
+     *
+     * If the connection is lost before the response starts (e.g., a stale pooled keep-alive
+     * connection) or fails with an {@link IOException} before any item is fed, the request
+     * is re-sent on another channel after a {@link RetryBackoff} delay. SPARQL queries are
+     * read-only, thus re-sending is safe.
      */
     private static class PublisherAdapter<T> extends CallbackPublisher<T> {
         private static final  Logger log = LoggerFactory.getLogger(PublisherAdapter.class);
@@ -318,8 +661,16 @@ public class NettySparqlClient<R, F> implements SparqlClient<R, F> {
 
         private final SparqlEndpoint endpoint;
         private Throwing.@MonotonicNonNull Runnable requester;
+        private volatile CircuitBreaker.@Nullable Permit permit;
+        private volatile EndpointLimiter.@MonotonicNonNull Ticket ticket;
+        private @MonotonicNonNull EndpointLimiter limiter;
+        private @MonotonicNonNull Runnable sender;
+        private @MonotonicNonNull RetryBackoff backoff;
+        private final Redirection redirection = new Redirection();
+        private int retries;
+        private volatile boolean fed, cancelled;
         private boolean pendingAutoRead, pendingCancel;
-        private @MonotonicNonNull Handler handler;
+        private @Nullable Handler handler;
         private int cycle = -1;
         public PublisherAdapter(SparqlEndpoint endpoint) {
             super("NettySparqlClient.PublisherAdapter-"+nextId.getAndIncrement()+"["+endpoint+"]");
@@ -335,6 +686,99 @@ public class NettySparqlClient<R, F> implements SparqlClient<R, F> {
                 this.handler.autoRead(cycle, true);
         }
 
+        /**
+         * Send the request (with {@code sender}) once {@code limiter} allows. If the request
+         * fails in a way that allows retrying, {@code sender} will be called again after a
+         * delay given by {@code backoff}. Every attempt (including redirects) waits for a new
+         * {@link EndpointLimiter.Ticket}.
+         */
+        void start(EndpointLimiter limiter, RetryBackoff backoff, Runnable sender) {
+            this.limiter = limiter;
+            this.sender = sender;
+            this.backoff = backoff;
+            (ticket = limiter.ticket(sender)).enqueue();
+        }
+
+        /**
+         * Called once a response that will be delivered (i.e., not a followed redirect)
+         * starts. Frees the {@link EndpointLimiter} slot: keeping it until the subscriber
+         * consumes the response would deadlock nested requests to the same host issued while
+         * consuming it (e.g., bind joins).
+         */
+        void responseStarted() {
+            if (ticket != null) ticket.release();
+        }
+
+        /**
+         * Re-send the request if {@code retryable} and allowed by the {@link RetryBackoff},
+         * else {@link PublisherAdapter#complete(Throwable)} with {@code cause}.
+         *
+         * @return true iff the request will be retried.
+         */
+        boolean fail(Throwable cause, boolean retryable) {
+            if (retryable && retry(cause))
+                return true;
+            complete(cause);
+            return false;
+        }
+
+        private boolean retry(Throwable cause) {
+            Runnable sender = this.sender;
+            int retry;
+            synchronized (this) {
+                if (sender == null || backoff == null || fed || cancelled
+                        || !backoff.canRetry(retries)) {
+                    return false;
+                }
+                retry = ++retries;
+            }
+            CircuitBreaker.Permit permit = this.permit;
+            if (permit != null)
+                permit.release(); // the new attempt will acquire another permit
+            long delay = backoff.delayMs(retry);
+            log.debug("{}: retry {}/{} in {}ms after {}", this, retry, backoff.maxRetries(),
+                      delay, cause.toString());
+            resend(sender, delay);
+            return true;
+        }
+
+        /**
+         * Send the request again to the {@link Redirection} target, if the request was not
+         * cancelled. The current response must be discarded without feeding this publisher.
+         *
+         * @return false if the request cannot be re-sent.
+         */
+        boolean redirect(int code, @Nullable String location, SparqlEndpoint origin,
+                         int maxRedirects) {
+            Runnable sender = this.sender;
+            if (sender == null || cancelled || fed
+                    || !redirection.follow(origin, code, location, maxRedirects)) {
+                return false;
+            }
+            resend(sender, 0);
+            return true;
+        }
+
+        private void resend(Runnable sender, long delayMs) {
+            synchronized (this) {
+                handler = null; // the current channel will not deliver this response
+                cycle = -1;
+            }
+            EndpointLimiter.Ticket old = ticket;
+            if (old != null) old.release(); // no-op if released by responseStarted()
+            Async.schedule(delayMs, TimeUnit.MILLISECONDS, () -> {
+                if (cancelled) return;
+                EndpointLimiter.Ticket next = ticket = limiter.ticket(sender);
+                if (cancelled) next.release(); // onCancel() may have released the old ticket
+                else           next.enqueue();
+            });
+        }
+
+        @Override public void feed(T item) {
+            fed = true;
+            super.feed(item);
+        }
+
         @Override public void subscribe(Subscriber<? super T> s) {
             Throwable cause = null;
             if (!isSubscribed()) {
@@ -352,11 +796,13 @@ public class NettySparqlClient<R, F> implements SparqlClient<R, F> {
         }
 
         @Override public void complete(@Nullable Throwable error) {
-            if (error instanceof SparqlClientException)
-                ((SparqlClientException)error).offerEndpoint(endpoint);
-            else if (error != null)
-                error = new SparqlClientException(endpoint, error.getMessage(), error);
-            super.complete(error);
+            CircuitBreaker.Permit permit = this.permit;
+            if (permit != null) { // no-op if already resolved by the response status
+                if (error == null) permit.success();
+                else               permit.failure();
+            }
+            if (ticket != null) ticket.release();
+            super.complete(error == null ? null : asClientException(endpoint, error));
         }
 
         @Override protected synchronized void onRequest(long n) {
@@ -368,9 +814,15 @@ public class NettySparqlClient<R, F> implements SparqlClient<R, F> {
             if (handler != null) handler.autoRead(cycle, false);
         }
         @Override protected synchronized void onCancel() {
+            cancelled = true;
+            if (permit != null) permit.release();
+            if (ticket != null) ticket.release();
             if (handler != null) handler.abort(cycle);
             else                 pendingCancel = true;
         }
+        @Override protected void onDropped(T item) {
+            ReferenceCountUtil.release(item);
+        }
     }
     /**
      * Listens as a {@link ResultsParserConsumer} and feeds a {@link PublisherAdapter}.
@@ -404,22 +856,133 @@ public class NettySparqlClient<R, F> implements SparqlClient<R, F> {
     }
 
 
+    /**
+     * Completes an ASK result from parsed results, without creating a {@link Publisher}.
+     * Retries like {@link PublisherAdapter}.
+     */
+    private static final class AskConsumer implements ResultsParserConsumer {
+        private final SparqlEndpoint endpoint;
+        private final CompletableAsyncTask<Boolean> result;
+        private final RetryBackoff backoff;
+        private @MonotonicNonNull Runnable sender;
+        private @MonotonicNonNull EndpointLimiter limiter;
+        private volatile EndpointLimiter.@MonotonicNonNull Ticket ticket;
+        private volatile CircuitBreaker.@Nullable Permit permit;
+        private final Redirection redirection = new Redirection();
+        private int retries;
+        private boolean gotVars;
+
+        public AskConsumer(SparqlEndpoint endpoint, CompletableAsyncTask<Boolean> result,
+                           RetryBackoff backoff) {
+            this.endpoint = endpoint;
+            this.result = result;
+            this.backoff = backoff;
+        }
+
+        /**
+         * Same semantics as {@link PublisherAdapter#start(EndpointLimiter, RetryBackoff,
+         * Runnable)}, but the ticket is only released once {@code result} completes.
+         */
+        void start(EndpointLimiter limiter, Runnable sender) {
+            this.limiter = limiter;
+            this.sender = sender;
+            ticket = limiter.ticket(sender);
+            result.whenComplete((ignored, err) -> ticket.release());
+            ticket.enqueue();
+        }
+
+        public void fail(Throwable cause) { fail(cause, false); }
+
+        /** Same semantics as {@link PublisherAdapter#fail(Throwable, boolean)}. */
+        public boolean fail(Throwable cause, boolean retryable) {
+            CircuitBreaker.Permit permit = this.permit;
+            if (retryable && sender != null && !result.isDone() && backoff.canRetry(retries)) {
+                int retry = ++retries;
+                gotVars = false;
+                if (permit != null)
+                    permit.release();
+                long delay = backoff.delayMs(retry);
+                log.debug("{}: ASK retry {}/{} in {}ms after {}", endpoint, retry,
+                          backoff.maxRetries(), delay, cause.toString());
+                resend(delay);
+                return true;
+            }
+            if (permit != null) permit.failure(); // no-op if resolved by the response status
+            result.completeExceptionally(asClientException(endpoint, cause));
+            return false;
+        }
+
+        /** Same semantics as {@link PublisherAdapter#redirect(int, String, SparqlEndpoint, int)}. */
+        public boolean redirect(int code, @Nullable String location, int maxRedirects) {
+            if (sender == null || result.isDone()
+                    || !redirection.follow(endpoint, code, location, maxRedirects)) {
+                return false;
+            }
+            gotVars = false;
+            resend(0);
+            return true;
+        }
+
+        private void resend(long delayMs) {
+            Runnable sender = this.sender;
+            ticket.release();
+            Async.schedule(delayMs, TimeUnit.MILLISECONDS, () -> {
+                if (result.isDone()) return;
+                EndpointLimiter.Ticket next = ticket = limiter.ticket(sender);
+                if (result.isDone()) next.release(); // whenComplete() may have seen the old one
+                else                 next.enqueue();
+            });
+        }
+
+        @Override public void vars(List<String> vars) { gotVars = true; }
+        @Override public void row(@Nullable String[] row) { result.complete(true); }
+        @Override public void end() {
+            if (gotVars)
+                result.complete(false);
+            else
+                fail(new InvalidSparqlResultsException("Premature response end before var names"));
+        }
+        @Override public void onError(String message) {
+            fail(new InvalidSparqlResultsException(message));
+        }
+    }
+
+    /**
+     * Handles responses on a channel. Since connection pools may be shared by all clients of
+     * an origin (see {@link FasterSparqlNettyProperties#sharePool()}), a {@link Handler} is
+     * {@link Handler#bind(NettySparqlClient)}ed to the client of each request.
+     */
     private static class Handler extends SimpleChannelInboundHandler<HttpObject>
             implements ReusableHttpClientInboundHandler {
         private static final Logger log = LoggerFactory.getLogger(Handler.class);
+        private static final AtomicLong nextId = new AtomicLong(1);
         private final String name;
+        private @MonotonicNonNull NettySparqlClient<?, ?> client;
         private int cycle = 0;
         private Runnable onResponseEnd;
         private @MonotonicNonNull Channel channel;
         private Throwable failure;
         private ResultsParserAdapter resultsAdapter;
-        private PublisherAdapter<byte[]> fragmentPublisher;
+        private AskConsumer askConsumer;
+        private PublisherAdapter<Object> fragmentPublisher;
+        private boolean zeroCopy;
         private SafeCompletableAsyncTask<MediaType> mediaTypeTask;
         private ResultsParser resultsParser;
         private MediaType mediaType;
         private Charset charset = UTF_8;
+        private @Nullable String queryId;
+        private CircuitBreaker.@Nullable Permit permit;
+        private boolean draining, discarding, gotResponse, ended;
+        private long drainedBytes;
+
+        public Handler() {
+            this.name = "NettySparqlClient.Handler-"+nextId.getAndIncrement();
+        }
 
-        public Handler(String name) { this.name = name; }
+        /** Use the settings and metrics of {@code client} for the next request. */
+        public void bind(NettySparqlClient<?, ?> client) {
+            this.client = client;
+        }
 
         @Override public String toString() {
             if (resultsAdapter != null) return name+"["+resultsAdapter.publisher+"]";
@@ -432,11 +995,14 @@ public class NettySparqlClient<R, F> implements SparqlClient<R, F> {
             // as the Channel may be reused, from this point onwards refuse abort()/setAutoRead()
             // from the PublisherAdapter
             ++cycle;
+            ended = true;
             assert channel != null : "responseEnded() channelRegistered()";
             assert channel.eventLoop().inEventLoop() : "responseEnded() not run in eventLoop()";
             if (resultsParser != null) resultsParser.end();
             else if (resultsAdapter != null) resultsAdapter.end();
+            else if (askConsumer != null) askConsumer.end();
             if (fragmentPublisher != null) fragmentPublisher.complete(null);
+            if (permit != null) permit.success(); // no-op if already failed or released
             channel.config().setAutoRead(true); //return to pool with autoRead enabled
             if (onResponseEnd != null) onResponseEnd.run();
         }
@@ -448,9 +1014,18 @@ public class NettySparqlClient<R, F> implements SparqlClient<R, F> {
             this.mediaType = null;
             this.charset = null;
             this.fragmentPublisher = null;
+            this.zeroCopy = false;
             this.mediaTypeTask = null;
             this.resultsParser = null;
             this.resultsAdapter = null;
+            this.askConsumer = null;
+            this.queryId = null;
+            this.permit = null;
+            this.draining = false;
+            this.discarding = false;
+            this.gotResponse = false;
+            this.ended = false;
+            this.drainedBytes = 0;
             assert this.channel == null || this.channel == channel;
             this.channel = channel;
         }
@@ -459,17 +1034,42 @@ public class NettySparqlClient<R, F> implements SparqlClient<R, F> {
                                               PublisherAdapter<String[]> rowPublisher) {
             reset(channel);
             this.resultsAdapter = new ResultsParserAdapter(outVars, rowPublisher);
+            this.permit = rowPublisher.permit;
             rowPublisher.handler(this, cycle);
         }
 
         public void setupGraph(Channel channel,
                                             SafeCompletableAsyncTask<MediaType> mediaTypeTask,
-                                            PublisherAdapter<byte[]> fragmentPublisher) {
+                                            PublisherAdapter<Object> fragmentPublisher,
+                                            boolean zeroCopy) {
             reset(channel);
             this.mediaTypeTask = mediaTypeTask;
+            this.zeroCopy = zeroCopy;
+            this.permit = fragmentPublisher.permit;
             (this.fragmentPublisher = fragmentPublisher).handler(this, cycle);
         }
 
+        public void setupAsk(Channel channel, AskConsumer consumer) {
+            reset(channel);
+            this.askConsumer = consumer;
+            this.permit = consumer.permit;
+        }
+
+        /** Read and discard the response to a server-side cancel request. */
+        public void setupDiscard(Channel channel) {
+            reset(channel);
+            this.discarding = true;
+        }
+
+        /** If server-side cancellation is enabled, add a query id header to {@code request}. */
+        public void assignQueryId(HttpRequest request) {
+            if (client.cancelIdHeader != null) {
+                queryId = Long.toHexString(client.nextQueryId.getAndIncrement())
+                        + "-" + Integer.toHexString(identityHashCode(client));
+                request.headers().set(client.cancelIdHeader, queryId);
+            }
+        }
+
         public void autoRead(int cycle, boolean value) {
             assert channel != null;
             EventLoop el = channel.eventLoop();
@@ -500,16 +1100,67 @@ public class NettySparqlClient<R, F> implements SparqlClient<R, F> {
 
         private void doAbort(String suffix, int cycle) {
             assert this.channel.eventLoop().inEventLoop();
-            if (this.cycle == cycle) {
+            if (this.cycle != cycle || draining) {
+                log.trace("{}.abort(){}: stale cycle", this, suffix);
+                return;
+            }
+            client.earlyTerminationMetrics.onCancelled();
+            if (queryId != null)
+                client.sendServerCancel(queryId);
+            if (onResponseEnd == null || client.cancelDrainBytes == 0) {
                 log.trace("{}.abort(){}: close()ing", this, suffix);
+                client.earlyTerminationMetrics.onClosed();
                 channel.close();
-            } else {
-                log.trace("{}.abort(){}: stale cycle", this, suffix);
+                return;
+            }
+            log.trace("{}.abort(){}: draining", this, suffix);
+            // the subscriber is gone: stop parsing and discard until the response ends
+            draining = true;
+            resultsParser = null;
+            resultsAdapter = null;
+            askConsumer = null;
+            fragmentPublisher = null;
+            if (mediaTypeTask != null && !mediaTypeTask.isDone())
+                mediaTypeTask.complete(null);
+            channel.config().setAutoRead(true);
+            channel.eventLoop().schedule(() -> {
+                if (this.cycle == cycle && draining)
+                    stopDraining("timed out");
+            }, client.cancelDrainMs, TimeUnit.MILLISECONDS);
+        }
+
+        private void drain(HttpObject msg) {
+            if (msg instanceof HttpContent) {
+                int bytes = ((HttpContent) msg).content().readableBytes();
+                drainedBytes += bytes;
+                client.earlyTerminationMetrics.onWasted(bytes);
+            }
+            if (msg instanceof LastHttpContent) {
+                log.trace("{}: drained {} bytes after cancel", this, drainedBytes);
+                draining = false;
+                client.earlyTerminationMetrics.onDrained();
+                responseEnded();
+            } else if (drainedBytes > client.cancelDrainBytes) {
+                stopDraining("exceeded "+client.cancelDrainBytes+" bytes");
             }
         }
 
+        private void stopDraining(String reason) {
+            log.debug("{}: draining cancelled response {}, closing", this, reason);
+            draining = false;
+            client.earlyTerminationMetrics.onClosed();
+            channel.close();
+        }
+
         @Override
         protected void channelRead0(ChannelHandlerContext ctx, HttpObject msg) throws Exception {
+            if (draining || discarding) {
+                if (draining)
+                    drain(msg);
+                else if (msg instanceof LastHttpContent)
+                    responseEnded();
+                return;
+            }
             if (failure != null) {
                 if (msg instanceof HttpContent) {
                     log.debug("Chunk after {}: {}", failure.getClass().getSimpleName(),
@@ -518,14 +1169,40 @@ public class NettySparqlClient<R, F> implements SparqlClient<R, F> {
                 return;
             }
             if (msg instanceof HttpResponse) {
+                gotResponse = true;
                 HttpResponse resp = (HttpResponse) msg;
+                int code = resp.status().code();
+                if (permit != null) {
+                    if (code >= 500 || code == HttpResponseStatus.TOO_MANY_REQUESTS.code())
+                        permit.failure();
+                    else if (resp.status().codeClass() == HttpStatusClass.SUCCESS)
+                        permit.responded(); // body may still fail, resolve at responseEnded()
+                    else
+                        permit.success();
+                }
+                if (code == HttpResponseStatus.TOO_MANY_REQUESTS.code()
+                        || code == HttpResponseStatus.SERVICE_UNAVAILABLE.code()) {
+                    String retryAfter = resp.headers().get(HttpHeaderNames.RETRY_AFTER);
+                    long ms = HeaderUtils.parseRetryAfterMs(retryAfter, System.currentTimeMillis());
+                    if (ms > 0)
+                        client.limiter().pause(Math.min(ms, client.retryAfterMaxMs), TimeUnit.MILLISECONDS);
+                }
+                if (resp.status().codeClass() == HttpStatusClass.REDIRECTION
+                        && followRedirect(code, resp.headers().get(HttpHeaderNames.LOCATION))) {
+                    if (msg instanceof LastHttpContent)
+                        responseEnded();
+                    return;
+                }
+                if (resultsAdapter != null) resultsAdapter.publisher.responseStarted();
+                if (fragmentPublisher != null) fragmentPublisher.responseStarted();
                 mediaType = MediaType.tryParse(resp.headers().get(CONTENT_TYPE));
                 if (mediaTypeTask != null)
                     mediaTypeTask.complete(mediaType);
                 charset = mediaType == null ? UTF_8 : mediaType.charset(UTF_8);
                 String exception = null;
                 if (resp.status().codeClass() == HttpStatusClass.REDIRECTION) {
-                    exception = "NettySparqlClient does not support redirection";
+                    exception = "Cannot follow redirect "+resp.status()+" to "
+                              + resp.headers().get(HttpHeaderNames.LOCATION);
                 } else if (resp.status().codeClass() != HttpStatusClass.SUCCESS) {
                     exception = "Request failed with "+resp.status();
                     if (resp instanceof HttpContent) {
@@ -538,7 +1215,7 @@ public class NettySparqlClient<R, F> implements SparqlClient<R, F> {
                     throw new InvalidSparqlResultsException("Bad server did not set Content-Type");
             }
 
-            if (resultsAdapter != null) {
+            if (resultsAdapter != null || askConsumer != null) {
                 assert fragmentPublisher == null : "both fragment row publishers set";
                 readRows(msg);
             } else {
@@ -551,9 +1228,38 @@ public class NettySparqlClient<R, F> implements SparqlClient<R, F> {
             }
         }
 
+        /**
+         * Re-send the current request to {@code location} and discard the rest of this
+         * response.
+         *
+         * @return false if the redirect cannot be followed, and the response should be
+         *         handled as an error.
+         */
+        private boolean followRedirect(int code, @Nullable String location) {
+            SparqlEndpoint origin = client.endpoint;
+            int max = client.maxRedirects;
+            boolean followed;
+            if (resultsAdapter != null)
+                followed = resultsAdapter.publisher.redirect(code, location, origin, max);
+            else if (askConsumer != null)
+                followed = askConsumer.redirect(code, location, max);
+            else if (fragmentPublisher != null)
+                followed = fragmentPublisher.redirect(code, location, origin, max);
+            else
+                followed = false;
+            if (followed) {
+                resultsAdapter = null;
+                askConsumer = null;
+                fragmentPublisher = null;
+                discarding = true;
+            }
+            return followed;
+        }
+
         private void readRows(HttpObject msg) throws NoParserException {
             if (msg instanceof HttpResponse)
-                resultsParser = ResultsParserRegistry.get().createFor(mediaType, resultsAdapter);
+                resultsParser = ResultsParserRegistry.get().createFor(mediaType,
+                        resultsAdapter != null ? resultsAdapter : askConsumer);
             if (msg instanceof HttpContent) {
                 String string = ((HttpContent) msg).content().toString(charset);
                 log.trace("{} << {}", this, string);
@@ -564,6 +1270,12 @@ public class NettySparqlClient<R, F> implements SparqlClient<R, F> {
         private void readFragments(HttpObject msg) {
             if (msg instanceof HttpContent) {
                 ByteBuf bb = ((HttpContent) msg).content();
+                if (!bb.isReadable())
+                    return;
+                if (zeroCopy) { // the subscriber will release() the slice
+                    fragmentPublisher.feed(bb.retainedSlice().asReadOnly());
+                    return;
+                }
                 byte[] heap = new byte[bb.readableBytes()];
                 bb.readBytes(heap);
                 fragmentPublisher.feed(heap);
@@ -577,18 +1289,43 @@ public class NettySparqlClient<R, F> implements SparqlClient<R, F> {
 
         @Override public void channelInactive(ChannelHandlerContext ctx) {
             log.trace("{}.channelInactive", this);
+            if (draining) {
+                draining = false;
+                client.earlyTerminationMetrics.onClosed();
+            } else if (!discarding && !gotResponse && failure == null) {
+                // typically a stale keep-alive connection closed by the server
+                failure = new SparqlClientServerException("Connection closed before response");
+                fail(failure, true);
+            } else if (!discarding && !ended && failure == null) {
+                failure = new SparqlClientServerException("Connection closed before response end");
+                fail(failure, false);
+            }
             responseEnded();
         }
 
         @Override
         public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
             log.debug("{}.exceptionCaught({})", this, cause);
-            if (resultsAdapter != null) resultsAdapter.publisher.complete(cause);
-            if (mediaTypeTask != null && !mediaTypeTask.isDone())
-                mediaTypeTask.complete(null);
-            if (fragmentPublisher != null) fragmentPublisher.complete(cause);
+            fail(cause, cause instanceof IOException);
             failure = cause;
             ctx.close();
         }
+
+        /**
+         * Fail (or retry, if {@code retryable} and nothing has been delivered yet) the current
+         * request and detach from it, as the channel will be closed.
+         */
+        private void fail(Throwable cause, boolean retryable) {
+            boolean retrying = false;
+            if (resultsAdapter != null) retrying = resultsAdapter.publisher.fail(cause, retryable);
+            if (askConsumer != null) retrying = askConsumer.fail(cause, retryable);
+            if (fragmentPublisher != null) retrying = fragmentPublisher.fail(cause, retryable);
+            if (!retrying && mediaTypeTask != null && !mediaTypeTask.isDone())
+                mediaTypeTask.complete(null);
+            resultsParser = null;
+            resultsAdapter = null;
+            askConsumer = null;
+            fragmentPublisher = null;
+        }
     }
 }
@@ -9,15 +9,23 @@ import com.github.alexishuf.fastersparql.client.model.*;
 import com.github.alexishuf.fastersparql.client.model.row.RowOperations;
 import com.github.alexishuf.fastersparql.client.model.row.RowOperationsRegistry;
 import com.github.alexishuf.fastersparql.client.model.row.impl.StringArrayOperations;
+import com.github.alexishuf.fastersparql.client.netty.util.FasterSparqlNettyProperties;
 import com.github.alexishuf.fastersparql.client.netty.ws.NettyWsClient;
+import com.github.alexishuf.fastersparql.client.netty.ws.WsBindingLedger;
 import com.github.alexishuf.fastersparql.client.netty.ws.WsClientHandler;
 import com.github.alexishuf.fastersparql.client.netty.ws.WsRecycler;
+import com.github.alexishuf.fastersparql.client.netty.ws.WsStream;
+import com.github.alexishuf.fastersparql.client.netty.ws.WsTextBatcher;
 import com.github.alexishuf.fastersparql.client.parser.fragment.FragmentParser;
 import com.github.alexishuf.fastersparql.client.parser.results.InvalidSparqlResultsException;
 import com.github.alexishuf.fastersparql.client.parser.results.WebSocketResultsParser;
 import com.github.alexishuf.fastersparql.client.parser.results.WebSocketResultsParserConsumer;
 import com.github.alexishuf.fastersparql.client.parser.row.RowParser;
 import com.github.alexishuf.fastersparql.client.util.Merger;
+import com.github.alexishuf.fastersparql.client.util.health.CircuitBreaker;
+import com.github.alexishuf.fastersparql.client.util.health.CircuitBreakerRegistry;
+import com.github.alexishuf.fastersparql.client.util.limit.EndpointLimiter;
+import com.github.alexishuf.fastersparql.client.util.limit.EndpointLimiterRegistry;
 import com.github.alexishuf.fastersparql.client.util.reactive.CallbackPublisher;
 import com.github.alexishuf.fastersparql.client.util.reactive.FSPublisher;
 import com.github.alexishuf.fastersparql.client.util.sparql.SparqlUtils;
@@ -43,8 +51,8 @@ import javax.net.ssl.SSLException;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static com.github.alexishuf.fastersparql.client.BindType.*;
@@ -63,6 +71,8 @@ public class NettyWebSocketSparqlClient<R, F> implements SparqlClient<R, F> {
     private final FragmentParser<F> fragmentParser;
     private final NettyWsClient netty;
     private final RowOperations rowOps;
+    private final CircuitBreaker circuitBreaker;
+    private final String limiterKey;
 
     public NettyWebSocketSparqlClient(SparqlEndpoint endpoint,
                                       RowParser<R> rowParser,
@@ -95,6 +105,8 @@ public class NettyWebSocketSparqlClient<R, F> implements SparqlClient<R, F> {
         } catch (SSLException e) {
             throw new SparqlClientException("Could not initialize SSL context", e);
         }
+        this.circuitBreaker = CircuitBreakerRegistry.get(this.endpoint);
+        this.limiterKey = EndpointLimiterRegistry.key(this.endpoint);
 
     }
 
@@ -112,6 +124,23 @@ public class NettyWebSocketSparqlClient<R, F> implements SparqlClient<R, F> {
         return endpoint;
     }
 
+    /**
+     * The {@link CircuitBreaker} shared by all clients of this endpoint. While it is open,
+     * queries fail immediately with a
+     * {@link com.github.alexishuf.fastersparql.client.exceptions.SparqlClientCircuitOpenException}.
+     */
+    public CircuitBreaker circuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * The {@link EndpointLimiter} shared by all clients of this endpoint host. Each query
+     * (or bind) holds a slot until the first frame of its response arrives.
+     */
+    public EndpointLimiter limiter() {
+        return EndpointLimiterRegistry.get(limiterKey);
+    }
+
     @Override
     public Results<R> query(CharSequence sparql, @Nullable SparqlConfiguration configuration,
                             @Nullable Results<R> bindings, @Nullable BindType bindType) {
@@ -184,7 +213,15 @@ public class NettyWebSocketSparqlClient<R, F> implements SparqlClient<R, F> {
         protected final List<String> vars;
         protected @MonotonicNonNull ChannelHandlerContext ctx;
         private @MonotonicNonNull WsRecycler recycler;
+        /** Non-null iff attached to a stream of a multiplexed session. */
+        protected @Nullable WsStream stream;
+        /** Rows requested downstream but not yet granted via {@code !credit} (multiplexed only) */
+        private final AtomicLong pendingCredit = new AtomicLong();
         protected final CallbackPublisher<String[]> publisher;
+        /** Set when the session is requested, resolved by termination. */
+        private CircuitBreaker.@MonotonicNonNull Permit permit;
+        private volatile boolean gotFrame;
+        private volatile EndpointLimiter.@MonotonicNonNull Ticket ticket;
         private final AtomicReference<HandlerState> state = new AtomicReference<>(HandlerState.CREATED);
 
         public Handler(int id, List<String> vars) {
@@ -203,9 +240,14 @@ public class NettyWebSocketSparqlClient<R, F> implements SparqlClient<R, F> {
                 inEventLoop(AR_BACKPRESSURE, "autoRead(false, onBackpressure)");
             }
             @Override protected void onCancel() {
+                if (permit != null) permit.release();
+                if (ticket != null) ticket.release();
                 inEventLoop(() -> {
                     if (advanceState(HandlerState.CANCELLED)) {
-                        if (ctx != null) {
+                        if (ctx != null && stream != null) {
+                            // do not close the shared channel, server will reply !cancelled
+                            ctx.writeAndFlush(new TextWebSocketFrame(stream.tag("!cancel\n")));
+                        } else if (ctx != null) {
                             if (ctx.channel().isOpen()) {
                                 ctx.writeAndFlush(new TextWebSocketFrame("!cancel\n")).addListener(f -> {
                                     if (f.isSuccess() && ctx != null)
@@ -233,10 +275,11 @@ public class NettyWebSocketSparqlClient<R, F> implements SparqlClient<R, F> {
             assert ctx.executor().inEventLoop() : "Called from outside event loop";
             this.ctx = ctx;
             this.recycler = recycler;
+            this.stream = recycler instanceof WsStream ? (WsStream) recycler : null;
             if (state.get() == HandlerState.CANCELLED) {
                 log.debug("cancelled before attach, will recycle");
                 recycle();
-            } else {
+            } else if (stream == null) {
                 this.ctx.channel().config().setAutoRead(true);
             }
         }
@@ -246,15 +289,23 @@ public class NettyWebSocketSparqlClient<R, F> implements SparqlClient<R, F> {
             assert ctx.executor().inEventLoop() : "Called from outside the event loop";
             this.ctx = null;
             if (!state.get().isTerminal()) {
+                if (permit != null) permit.failure(); // premature end, even after frames
                 String msg = "Remote peer closed WebSocket session before completing results";
                 tryComplete(null, msg);
             }
         }
 
-        @Override public void onError(Throwable cause) { tryComplete(cause, "Unknown"); }
+        @Override public void onError(Throwable cause) {
+            if (permit != null) permit.failure();
+            tryComplete(cause, "Unknown");
+        }
 
         @Override public void onFrame(WebSocketFrame frame) {
             assert ctx.executor().inEventLoop() : "Called from outside the event loop";
+            if (permit != null) permit.responded();
+            if (!gotFrame && ticket != null)
+                ticket.release(); // do not hold the limiter slot while results are consumed
+            gotFrame = true;
             if (frame instanceof TextWebSocketFrame)
                 resultsParser().feed(((TextWebSocketFrame) frame).text());
             else if (!(frame instanceof CloseWebSocketFrame))
@@ -317,6 +368,12 @@ public class NettyWebSocketSparqlClient<R, F> implements SparqlClient<R, F> {
             HandlerState target = cause != null || message != null
                                 ? HandlerState.FAILED : HandlerState.COMPLETED;
             if (advanceState(target)) {
+                if (permit != null) { // no-op if already failed
+                    // after the first frame, errors reported by the server are query errors
+                    if (target == HandlerState.FAILED && !gotFrame) permit.failure();
+                    else                                            permit.success();
+                }
+                if (ticket != null) ticket.release();
                 if (cause == null && message != null) {
                     cause = new SparqlClientServerException(endpoint(), message);
                 } else if (cause != null) {
@@ -331,13 +388,42 @@ public class NettyWebSocketSparqlClient<R, F> implements SparqlClient<R, F> {
             }
         }
 
-        private final Runnable AR_REQUEST = () -> autoRead(true, "request");
-        protected void request(long ignoredN) {
+        private final Runnable AR_REQUEST = () -> {
+            if (stream == null) autoRead(true, "request");
+            else                sendCredit();
+        };
+        protected void request(long n) {
+            pendingCredit.accumulateAndGet(n, (l, r) -> l + r < 0 ? Long.MAX_VALUE : l + r);
             if (advanceState(HandlerState.CREATED, HandlerState.ACTIVE))
-                netty.open(this);
+                (ticket = limiter().ticket(this::open)).enqueue();
             inEventLoop(AR_REQUEST, "autoRead(true, request)");
         }
 
+        /** Called once the {@link EndpointLimiter} allows this query to start. */
+        private void open() {
+            if (isCancelled())
+                return;
+            try {
+                permit = circuitBreaker.acquire(endpoint);
+            } catch (Throwable t) {
+                tryComplete(t, null);
+                return;
+            }
+            netty.open(this);
+        }
+
+        /**
+         * If attached to a multiplexed session, allow the server to send as many rows as
+         * requested downstream since the last call. Must be called after the query has been
+         * sent, since the server only accepts credit for existing streams.
+         */
+        protected void sendCredit() {
+            if (stream == null) return;
+            long n = pendingCredit.getAndSet(0);
+            if (n > 0)
+                sendFrame("!credit +"+n+"\n");
+        }
+
         protected void sendFrame(String message) {
             EventExecutor executor = safeExecutor();
             if (executor == null) {
@@ -348,7 +434,8 @@ public class NettyWebSocketSparqlClient<R, F> implements SparqlClient<R, F> {
                 } else {
                     if (tracing)
                         log.trace("{}: sendFrame({})", this, message.replace("\n", "\\n"));
-                    ctx.writeAndFlush(new TextWebSocketFrame(message));
+                    String tagged = stream == null ? message : stream.tag(message);
+                    ctx.writeAndFlush(new TextWebSocketFrame(tagged));
                 }
             } else {
                 executor.execute(() -> sendFrame(message));
@@ -388,7 +475,10 @@ public class NettyWebSocketSparqlClient<R, F> implements SparqlClient<R, F> {
         }
 
         protected void autoRead(boolean value, String reason) {
-            if (ctx != null) {
+            if (stream != null) {
+                // shared channel: backpressure is done with !credit, see sendCredit()
+                log.trace("{} ignoring autoRead({}, {}): multiplexed", this, value, reason);
+            } else if (ctx != null) {
                 assert ctx.executor().inEventLoop() : "Called from outside the event loop";
                 if (ctx.channel().isOpen()) {
                     ChannelConfig cfg = ctx.channel().config();
@@ -452,6 +542,7 @@ public class NettyWebSocketSparqlClient<R, F> implements SparqlClient<R, F> {
                 assert queryMessage != null;
                 sendFrame(queryMessage);
                 queryMessage = null;
+                sendCredit();
             }
         }
     }
@@ -462,12 +553,14 @@ public class NettyWebSocketSparqlClient<R, F> implements SparqlClient<R, F> {
         private final int[] srcCol;
         private final String[] outVars;
         private final StringBuilder sb = new StringBuilder();
-        private final ConcurrentLinkedQueue<String[]> sent = new ConcurrentLinkedQueue<>();
+        /** Bindings sent but not yet acknowledged by {@code !active-binding} */
+        private final WsBindingLedger<Object> ledger;
 
         public BindingProjector(RowOperations rowOps, List<String> inVars,
-                                CharSequence sparql) {
+                                CharSequence sparql, int ledgerCapacity) {
             this.inVars = inVars;
             this.rowOps = rowOps;
+            this.ledger = new WsBindingLedger<>(ledgerCapacity);
             List<@MinLen(1) String> wantedVars = SparqlUtils.allVars(sparql);
             int size = 0, capacity = Math.min(inVars.size(), wantedVars.size());
             String[] outVars = new String[capacity];
@@ -498,28 +591,38 @@ public class NettyWebSocketSparqlClient<R, F> implements SparqlClient<R, F> {
             return nt;
         }
 
-        public String tsvRow(Object row) {
-            if (row instanceof String[]) {
-                sent.add((String[]) row);
-            } else {
-                String[] full = new String[inVars.size()];
-                for (int i = 0; i < full.length; i++)
-                    full[i] = rowOps.getNT(row, i, inVars.get(i));
-                sent.add(full);
-            }
+        /**
+         * Record {@code row} in the {@link BindingProjector#ledger} and write it projected as
+         * a TSV line into a {@link StringBuilder} that will be reused by the next call.
+         */
+        public CharSequence tsvRow(Object row) {
+            ledger.add(row);
             sb.setLength(0);
             for (int i = 0; i < srcCol.length; i++)
                 sb.append(sanitizeNT(rowOps.getNT(row, srcCol[i], outVars[i]))).append('\t');
             if (srcCol.length > 0)
                 sb.setLength(sb.length()-1);
-            return sb.append('\n').toString();
-        }
-
-        public String[] fullRow(String[] projected) {
-            String[] full = sent.poll();
-            if (full == null)
-                throw new IllegalStateException("Received more projected bindings than sent");
-            assert matches(full, projected) : "not a projection";
+            return sb.append('\n');
+        }
+
+        /**
+         * Remove the oldest binding from the {@link BindingProjector#ledger}.
+         *
+         * @param projected the terms echoed in {@code !active-binding}, if any
+         * @param sequence the binding sequence number echoed in {@code !active-binding} or -1
+         * @return the oldest binding with values for all {@code inVars}
+         */
+        public String[] fullRow(String @Nullable [] projected, long sequence) {
+            Object row = ledger.take(sequence);
+            String[] full;
+            if (row instanceof String[]) {
+                full = (String[]) row;
+            } else {
+                full = new String[inVars.size()];
+                for (int i = 0; i < full.length; i++)
+                    full[i] = rowOps.getNT(row, i, inVars.get(i));
+            }
+            assert projected == null || matches(full, projected) : "not a projection";
             return full;
         }
 
@@ -538,6 +641,16 @@ public class NettyWebSocketSparqlClient<R, F> implements SparqlClient<R, F> {
         private final BindingProjector bProjector;
         private @Nullable String firstMessage;
         private @MonotonicNonNull Subscription bindingsSubscription;
+        private volatile @Nullable WsTextBatcher bindingsBatcher;
+        private final boolean bindingIds = FasterSparqlNettyProperties.wsBindIds();
+        /** Guards {@code bindingsCredit} and {@code bindingsRequested} */
+        private final Object bindingsLock = new Object();
+        /** Bindings requested by the server via {@code !bind-request} but not yet sent */
+        private long bindingsCredit;
+        /** Bindings requested from {@code bindings} but not yet received */
+        private long bindingsRequested;
+        /** Minimum size of a request while other requested bindings are pending */
+        private final int requestThreshold;
 
         private final WebSocketResultsParser resultsParser = new WebSocketResultsParser(new WebSocketResultsParserConsumer() {
             private @MonotonicNonNull String[] binding;
@@ -564,9 +677,13 @@ public class NettyWebSocketSparqlClient<R, F> implements SparqlClient<R, F> {
                     sentHeaders = true;
                     sendFrame(bProjector.tsvHeaders());
                 }
-                if (bindingsSubscription != null)
-                    bindingsSubscription.request(n);
-                else
+                if (bindingsSubscription != null) {
+                    synchronized (bindingsLock) {
+                        long sum = bindingsCredit + n;
+                        bindingsCredit = sum < 0 ? Long.MAX_VALUE : sum;
+                    }
+                    requestBindings();
+                } else
                     assert false : "bindingsSubscription is still after !bind-request";
             }
 
@@ -590,9 +707,17 @@ public class NettyWebSocketSparqlClient<R, F> implements SparqlClient<R, F> {
 
             @Override public void activeBinding(String[] row) {
                 endBinding();
-                if (bindings.vars().isEmpty()) {
-                    binding = new String[0];
-                } else {
+                long sequence = -1;
+                if (row.length == 1 && row[0] != null && row[0].startsWith("#")) {
+                    try {
+                        sequence = Long.parseLong(row[0].substring(1));
+                    } catch (NumberFormatException e) {
+                        String msg = endpoint+" sent bad binding id in !active-binding "+row[0];
+                        throw new InvalidSparqlResultsException(msg);
+                    }
+                    row = null; // no terms to check
+                }
+                if (row != null && !bindings.vars().isEmpty()) {
                     int ac = row.length, ex = bProjector.outVars.length;
                     boolean bad = (ex > 0 && ac != ex)
                                || (ex == 0 && ac != 0
@@ -601,15 +726,19 @@ public class NettyWebSocketSparqlClient<R, F> implements SparqlClient<R, F> {
                         String msg = endpoint+" sent "+ac+" terms in !active-binding, expected "+ex;
                         throw new InvalidSparqlResultsException(msg);
                     }
-                    binding = bProjector.fullRow(row);
                 }
+                binding = bProjector.fullRow(bindings.vars().isEmpty() ? null : row, sequence);
                 empty = true;
+                requestBindings(); // a ledger slot was released
+
             }
             @Override public void end()                       {
                 endBinding();
                 // do not complete if server replied !cancel with !cancelled
                 if (!isCancelled() || !serverCancelled)
                     tryComplete(null, null);
+                else if (stream != null)
+                    recycle(); // no more frames for this stream, release it
             }
             @Override public void cancelled() {
                 serverCancelled = true;
@@ -622,12 +751,61 @@ public class NettyWebSocketSparqlClient<R, F> implements SparqlClient<R, F> {
         });
 
         private final Subscriber<R> bindingsSubscriber = new Subscriber<R>() {
-            @Override public void onNext(R r)                 { sendFrame(bProjector.tsvRow(r)); }
+            @Override public void onNext(R r) {
+                boolean flush;
+                synchronized (bindingsLock) {
+                    --bindingsCredit;
+                    flush = --bindingsRequested <= 0;
+                }
+                sendBindings(bProjector.tsvRow(r), flush);
+            }
             @Override public void onSubscribe(Subscription s) { bindingsSubscription = s; }
             @Override public void onError(Throwable t)        { tryComplete(t, null); }
-            @Override public void onComplete()                { sendFrame("!end\n"); }
+            @Override public void onComplete()                { sendBindings("!end\n", true); }
         };
 
+        /**
+         * Queue {@code tsv} to be sent in the same frame as other bindings. The frame is sent
+         * once it grows large enough, after a short delay or, if {@code flush}, as soon as
+         * possible. Coalescing bindings avoids one frame, write and flush per binding.
+         */
+        private void sendBindings(CharSequence tsv, boolean flush) {
+            WsTextBatcher batcher = bindingsBatcher;
+            if (batcher == null || !batcher.append(tsv, flush)) {
+                log.debug("{}: ignoring sendBindings({}): detached/terminated/cancelled",
+                          this, tsv.toString().replace("\n", "\\n"));
+            }
+        }
+
+        /**
+         * Request from {@code bindings} as many rows as allowed by both the server credit
+         * and the free capacity of the {@link BindingProjector#ledger}. To avoid one
+         * {@link Subscription#request(long)} per {@code !active-binding}, small requests are
+         * deferred while previously requested bindings are still pending.
+         */
+        private void requestBindings() {
+            Subscription subscription = bindingsSubscription;
+            if (subscription == null)
+                return;
+            long n;
+            synchronized (bindingsLock) {
+                long allowed = Math.min(bindingsCredit, bProjector.ledger.free());
+                n = allowed - bindingsRequested;
+                if (n <= 0 || (bindingsRequested > 0 && n < requestThreshold))
+                    return;
+                bindingsRequested += n;
+            }
+            subscription.request(n);
+        }
+
+        private void closeBindingsBatcher() {
+            WsTextBatcher batcher = bindingsBatcher;
+            if (batcher != null) {
+                bindingsBatcher = null;
+                batcher.close();
+            }
+        }
+
         public BindHandler(CharSequence sparql, Results<R> bindings, BindType bindType) {
             super(NEXT_BIND_HANDLER_ID.getAndIncrement(),
                   bindType.resultVars(bindings.vars(), SparqlUtils.publicVars(sparql)));
@@ -635,14 +813,23 @@ public class NettyWebSocketSparqlClient<R, F> implements SparqlClient<R, F> {
             this.bindType = bindType;
             if (!bindType.isJoin())
                 sparql = SparqlUtils.toAsk(sparql);
-            this.bProjector = new BindingProjector(rowOps, bindings.vars(), sparql);
+            int ledgerCapacity = FasterSparqlNettyProperties.wsBindLedger();
+            this.bProjector = new BindingProjector(rowOps, bindings.vars(), sparql, ledgerCapacity);
+            this.requestThreshold = Math.max(1, bProjector.ledger.capacity()/8);
             boolean hasNewline = sparql.charAt(sparql.length() - 1) == '\n';
             this.firstMessage = "!bind " + sparql + (hasNewline ? "" : "\n");
         }
 
         @Override protected WebSocketResultsParser resultsParser() { return resultsParser; }
 
+        @Override public void detach() {
+            closeBindingsBatcher();
+            super.detach();
+        }
+
         @Override protected void onStateChange(HandlerState state) {
+            if (state != HandlerState.ACTIVE)
+                closeBindingsBatcher(); // before super.onStateChange() recycles the channel
             super.onStateChange(state);
             switch (state) {
                 case ACTIVE:
@@ -653,6 +840,8 @@ public class NettyWebSocketSparqlClient<R, F> implements SparqlClient<R, F> {
                     break;
                 case COMPLETED:
                 case FAILED:
+                    bProjector.ledger.clear(); // no more !active-binding will be processed
+                    // fall through
                 case CANCELLED:
                     if (bindingsSubscription != null)
                         bindingsSubscription.cancel();
@@ -664,8 +853,15 @@ public class NettyWebSocketSparqlClient<R, F> implements SparqlClient<R, F> {
             super.attach(ctx, recycler);
             if (this.ctx != null) {
                 assert firstMessage != null;
+                bindingsBatcher = new WsTextBatcher(ctx,
+                        FasterSparqlNettyProperties.wsBindBatchBytes(),
+                        FasterSparqlNettyProperties.wsBindBatchDelayUs(),
+                        stream == null ? null : stream.framePrefix());
                 sendFrame(firstMessage);
                 firstMessage = null;
+                if (bindingIds)
+                    sendFrame("!binding-ids\n");
+                sendCredit();
             }
         }
     }
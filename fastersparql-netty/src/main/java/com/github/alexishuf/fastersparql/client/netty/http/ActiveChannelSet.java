@@ -28,6 +28,12 @@ public class ActiveChannelSet implements AutoCloseable {
     public synchronized Channel setInactive(Channel ch) { active.remove(ch);  return ch; }
     public synchronized void         remove(Channel ch) { open.remove(setInactive(ch)); }
 
+    /** Number of open channels, including active ones. */
+    public synchronized int openCount() { return open.size(); }
+
+    /** Number of channels currently handling a request. */
+    public synchronized int activeCount() { return active.size(); }
+
     @Override public void close() {
         ArrayList<Channel> copy;
         int activeCount;
@@ -2,6 +2,7 @@ package com.github.alexishuf.fastersparql.client.netty.http;
 
 import com.github.alexishuf.fastersparql.client.netty.handler.ReusableHttpClientInboundHandler;
 import com.github.alexishuf.fastersparql.client.netty.util.EventLoopGroupHolder;
+import com.github.alexishuf.fastersparql.client.netty.util.NettyChannelOptions;
 import com.github.alexishuf.fastersparql.client.netty.util.NettyRetryingChannelSupplier;
 import com.github.alexishuf.fastersparql.client.util.Throwing;
 import io.netty.bootstrap.Bootstrap;
@@ -37,9 +38,10 @@ public class PooledNettyHttpClient<H extends ReusableHttpClientInboundHandler>
                                  InetSocketAddress address,
                                  Supplier<? extends ReusableHttpClientInboundHandler> hFactory,
                                  boolean poolFIFO,
-                                 @Nullable SslContext sslContext) {
+                                 @Nullable SslContext sslContext,
+                                 NettyChannelOptions channelOptions) {
         activeChannels = new ActiveChannelSet(address.toString());
-        Bootstrap bootstrap = groupHolder.acquireBootstrap(address);
+        Bootstrap bootstrap = groupHolder.acquireBootstrap(address, channelOptions);
         try {
             this.host = address.getHostString();
             boolean lifo = !poolFIFO;
@@ -81,6 +83,12 @@ public class PooledNettyHttpClient<H extends ReusableHttpClientInboundHandler>
         });
     }
 
+    /** Number of open connections, idle or not. */
+    public int openChannels() { return activeChannels.openCount(); }
+
+    /** Number of connections currently handling a request. */
+    public int activeChannels() { return activeChannels.activeCount(); }
+
     @Override public void close() {
         activeChannels.close();
         groupHolder.release();
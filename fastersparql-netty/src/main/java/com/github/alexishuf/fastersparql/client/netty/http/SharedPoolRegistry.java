@@ -0,0 +1,150 @@
+package com.github.alexishuf.fastersparql.client.netty.http;
+
+import com.github.alexishuf.fastersparql.client.netty.handler.ReusableHttpClientInboundHandler;
+import com.github.alexishuf.fastersparql.client.util.Throwing;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.codec.http.HttpMethod;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide registry of {@link PooledNettyHttpClient}s, so that clients targeting the
+ * same origin (scheme, host and port) with the same TLS and channel settings share idle
+ * connections instead of each keeping its own pool.
+ *
+ * <p>Like {@link com.github.alexishuf.fastersparql.client.netty.util.EventLoopGroupHolder},
+ * pools are reference counted: each {@link SharedPoolRegistry#acquire(String, Supplier)}
+ * yields a {@link Lease} and the pool is closed once all its {@link Lease}s are closed.</p>
+ */
+public final class SharedPoolRegistry {
+    private static final Logger log = LoggerFactory.getLogger(SharedPoolRegistry.class);
+    private static final Map<String, Entry> entries = new HashMap<>();
+
+    private static final class Entry {
+        final String key;
+        final PooledNettyHttpClient<?> pool;
+        int references;
+
+        Entry(String key, PooledNettyHttpClient<?> pool) {
+            this.key = key;
+            this.pool = pool;
+        }
+    }
+
+    /**
+     * Get a {@link Lease} on the pool registered for {@code key}, creating it with
+     * {@code factory} if there is no such pool.
+     *
+     * @param key identifies the origin, the settings and the handler type {@code H}. All
+     *            pools registered under a key must use the same handler type.
+     * @param factory creates the pool if there is none for {@code key}.
+     * @return a new {@link Lease}, which must be {@link Lease#close()}d by the caller
+     */
+    public static <H extends ReusableHttpClientInboundHandler> Lease<H>
+    acquire(String key, Supplier<PooledNettyHttpClient<H>> factory) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                entries.put(key, entry = new Entry(key, factory.get()));
+                log.debug("Created shared pool for {}", key);
+            }
+            ++entry.references;
+            return new Lease<>(entry);
+        }
+    }
+
+    private static void release(Entry entry) {
+        synchronized (entries) {
+            if (--entry.references > 0)
+                return;
+            entries.remove(entry.key);
+        }
+        log.debug("Closing shared pool for {}", entry.key);
+        entry.pool.close();
+    }
+
+    /** Number of shared pools with at least one {@link Lease}. */
+    public static int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /** A snapshot of the number of open {@link Lease}s of each pool, by key. */
+    public static Map<String, Integer> references() {
+        Map<String, Integer> map = new HashMap<>();
+        synchronized (entries) {
+            for (Entry e : entries.values())
+                map.put(e.key, e.references);
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * A reference to a shared {@link PooledNettyHttpClient} owned by a single client, which
+     * also accounts the requests made by that client.
+     */
+    public static final class Lease<H extends ReusableHttpClientInboundHandler>
+            implements NettyHttpClient<H> {
+        private final Entry entry;
+        private final PooledNettyHttpClient<H> pool;
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Lease(Entry entry) {
+            this.entry = entry;
+            //noinspection unchecked
+            this.pool = (PooledNettyHttpClient<H>) entry.pool;
+        }
+
+        /** The key under which the shared pool is registered. */
+        public String key() { return entry.key; }
+
+        /** Number of requests sent through this {@link Lease}. */
+        public long requests() { return requests.get(); }
+
+        /** Number of open {@link Lease}s on the shared pool, including this one. */
+        public int sharedBy() {
+            synchronized (entries) {
+                return entry.references;
+            }
+        }
+
+        /** Open connections in the shared pool. See {@link PooledNettyHttpClient#openChannels()}. */
+        public int openChannels() { return pool.openChannels(); }
+
+        /** See {@link PooledNettyHttpClient#activeChannels()}. */
+        public int activeChannels() { return pool.activeChannels(); }
+
+        @Override
+        public void request(HttpMethod method, CharSequence firstLine,
+                            Throwing.@Nullable Function<ByteBufAllocator, ByteBuf> bodyGenerator,
+                            @Nullable Setup<H> setup) {
+            if (closed.get()) {
+                if (setup != null)
+                    setup.connectionError(new IllegalStateException(this+" is closed"));
+                return;
+            }
+            requests.incrementAndGet();
+            pool.request(method, firstLine, bodyGenerator, setup);
+        }
+
+        @Override public void close() {
+            if (closed.compareAndSet(false, true))
+                release(entry);
+        }
+
+        @Override public String toString() {
+            return "SharedPoolRegistry.Lease["+entry.key+"]";
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.github.alexishuf.fastersparql.client.netty.http;
 import com.github.alexishuf.fastersparql.client.exceptions.SparqlClientServerException;
 import com.github.alexishuf.fastersparql.client.netty.handler.ReusableHttpClientInboundHandler;
 import com.github.alexishuf.fastersparql.client.netty.util.EventLoopGroupHolder;
+import com.github.alexishuf.fastersparql.client.netty.util.NettyChannelOptions;
 import com.github.alexishuf.fastersparql.client.netty.util.NettyRetryingChannelSupplier;
 import com.github.alexishuf.fastersparql.client.util.Throwing;
 import io.netty.bootstrap.Bootstrap;
@@ -33,7 +34,8 @@ public class UnPooledNettyHttpClient<H extends ReusableHttpClientInboundHandler>
 
     public UnPooledNettyHttpClient(EventLoopGroupHolder groupHolder, InetSocketAddress address,
                                    Supplier<? extends ReusableHttpClientInboundHandler> hFactory,
-                                   @Nullable SslContext sslContext) {
+                                   @Nullable SslContext sslContext,
+                                   NettyChannelOptions channelOptions) {
         this.activeChannels = new ActiveChannelSet(address.toString());
         this.host = address.getHostString();
         ChannelInitializer<SocketChannel> initializer = new ChannelInitializer<SocketChannel>() {
@@ -44,7 +46,7 @@ public class UnPooledNettyHttpClient<H extends ReusableHttpClientInboundHandler>
             }
         };
         this.groupHolder = groupHolder;
-        this.bootstrap = groupHolder.acquireBootstrap(address).handler(initializer);
+        this.bootstrap = groupHolder.acquireBootstrap(address, channelOptions).handler(initializer);
     }
 
     static ReusableHttpClientInboundHandler
@@ -0,0 +1,30 @@
+package com.github.alexishuf.fastersparql.client.netty.parser;
+
+import com.github.alexishuf.fastersparql.client.model.Graph;
+import com.github.alexishuf.fastersparql.client.parser.fragment.FragmentParser;
+import com.github.alexishuf.fastersparql.client.util.reactive.FSPublisher;
+import io.netty.buffer.ByteBuf;
+
+/**
+ * A {@link FragmentParser} that can also consume Netty {@link ByteBuf}s.
+ *
+ * <p>When a {@link com.github.alexishuf.fastersparql.client.netty.NettySparqlClient} is
+ * given a {@link ByteBufFragmentParser}, graph responses are not copied into {@code byte[]}s:
+ * each received chunk is delivered as a retained read-only slice of the network buffer.</p>
+ *
+ * @param <F> the resulting Fragment type.
+ */
+public interface ByteBufFragmentParser<F> extends FragmentParser<F> {
+    /**
+     * Create a {@link FSPublisher} that produces {@code F} instances from the {@link ByteBuf}s
+     * produced by {@code source}.
+     *
+     * <p>Every {@link ByteBuf} received from {@code source} is owned by the returned publisher,
+     * which must {@link ByteBuf#release()} it once consumed (or pass ownership downstream,
+     * if {@code F} is {@link ByteBuf}). Received buffers are read-only.</p>
+     *
+     * @param source the source of byte sequences in a RDF graph serialization.
+     * @return A {@link FSPublisher} that produces {@code F} instances from the byte sequences.
+     */
+    FSPublisher<F> parseByteBufs(Graph<ByteBuf> source);
+}
@@ -0,0 +1,47 @@
+package com.github.alexishuf.fastersparql.client.netty.parser;
+
+import com.github.alexishuf.fastersparql.client.model.Graph;
+import com.github.alexishuf.fastersparql.client.parser.fragment.TripleFragmentParser;
+import com.github.alexishuf.fastersparql.client.parser.fragment.TriplesParser;
+import com.github.alexishuf.fastersparql.client.util.reactive.FSPublisher;
+import io.netty.buffer.ByteBuf;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link TripleFragmentParser} that parses triples directly from the network buffers,
+ * without copying them into intermediate {@code byte[]}s. Each buffer is released as soon
+ * as it has been parsed.
+ */
+public class ByteBufTripleFragmentParser extends TripleFragmentParser
+        implements ByteBufFragmentParser<String[]> {
+    public static final ByteBufTripleFragmentParser INSTANCE = new ByteBufTripleFragmentParser();
+
+    @Override public FSPublisher<String[]> parseByteBufs(Graph<ByteBuf> source) {
+        return new TriplesProcessor<ByteBuf>(source, source.charset()) {
+            @Override protected void feed(TriplesParser parser, ByteBuf fragment) {
+                if (fragment.nioBufferCount() == 1) {
+                    parser.feed(fragment.nioBuffer());
+                } else {
+                    for (ByteBuffer bb : fragment.nioBuffers())
+                        parser.feed(bb);
+                }
+            }
+
+            @Override protected void handleOnNext(ByteBuf item) throws Exception {
+                try {
+                    super.handleOnNext(item);
+                } finally {
+                    item.release();
+                }
+            }
+
+            @Override public void onNext(ByteBuf item) {
+                if (terminated.get())
+                    item.release();
+                else
+                    super.onNext(item);
+            }
+        };
+    }
+}
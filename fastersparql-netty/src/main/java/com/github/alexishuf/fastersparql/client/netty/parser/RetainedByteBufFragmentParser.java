@@ -0,0 +1,43 @@
+package com.github.alexishuf.fastersparql.client.netty.parser;
+
+import com.github.alexishuf.fastersparql.client.model.Graph;
+import com.github.alexishuf.fastersparql.client.parser.fragment.ByteArrayFragmentParser;
+import com.github.alexishuf.fastersparql.client.util.reactive.FSPublisher;
+import com.github.alexishuf.fastersparql.client.util.reactive.MappingPublisher;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+/**
+ * Delivers graph serialization fragments as {@link ByteBuf}s without copying.
+ *
+ * <p>Fragments received from the network are retained read-only slices of the network
+ * buffers: <strong>subscribers must {@link ByteBuf#release()} every fragment</strong> once
+ * it has been consumed (e.g., written to a file or another channel). If the subscriber falls
+ * behind, queued fragments are copied (see
+ * {@link com.github.alexishuf.fastersparql.client.netty.util.FasterSparqlNettyProperties#fragmentRetainBytes()}),
+ * so that a slow subscriber does not pin an unbounded amount of network buffers.</p>
+ *
+ * <p>Fragments from non-Netty clients are wrapped into unpooled {@link ByteBuf}s, for which
+ * calling {@link ByteBuf#release()} is harmless.</p>
+ */
+public class RetainedByteBufFragmentParser implements ByteBufFragmentParser<ByteBuf> {
+    public static final RetainedByteBufFragmentParser INSTANCE
+            = new RetainedByteBufFragmentParser();
+
+    @Override public Class<ByteBuf> fragmentClass() {
+        return ByteBuf.class;
+    }
+
+    @Override public FSPublisher<ByteBuf> parseByteBufs(Graph<ByteBuf> source) {
+        return source.publisher();
+    }
+
+    @Override public FSPublisher<ByteBuf> parseStrings(Graph<? extends CharSequence> source) {
+        return new MappingPublisher<>(ByteArrayFragmentParser.INSTANCE.parseStrings(source),
+                                      Unpooled::wrappedBuffer);
+    }
+
+    @Override public FSPublisher<ByteBuf> parseBytes(Graph<byte[]> source) {
+        return new MappingPublisher<>(source.publisher(), Unpooled::wrappedBuffer);
+    }
+}
@@ -0,0 +1,37 @@
+package com.github.alexishuf.fastersparql.client.netty.util;
+
+import com.github.alexishuf.fastersparql.client.model.DownloadOptions;
+import com.github.alexishuf.fastersparql.client.util.GraphDownloader;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCountUtil;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A {@link GraphDownloader} that also accepts {@link ByteBuf} fragments, writing all NIO
+ * buffers of a (possibly composite) {@link ByteBuf} with a single gathering write and
+ * releasing the {@link ByteBuf} afterwards.
+ */
+public class ByteBufGraphDownloader extends GraphDownloader {
+    public ByteBufGraphDownloader(WritableByteChannel dest, DownloadOptions options) {
+        super(dest, options);
+    }
+
+    @Override protected void discard(Object fragment) {
+        ReferenceCountUtil.release(fragment);
+    }
+
+    @Override protected void write(Object fragment) throws IOException {
+        if (fragment instanceof ByteBuf) {
+            ByteBuf bb = (ByteBuf) fragment;
+            try {
+                writeAll(bb.nioBuffers());
+            } finally {
+                bb.release();
+            }
+        } else {
+            super.write(fragment);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.github.alexishuf.fastersparql.client.netty.util;
+
+import com.github.alexishuf.fastersparql.client.util.ItemBuffer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.checkerframework.checker.index.qual.NonNegative;
+
+import java.util.Arrays;
+
+/**
+ * An {@link ItemBuffer} for {@link ByteBuf}s that bounds how much memory from retained
+ * network buffers can be held while a subscriber is slow.
+ *
+ * <p>Buffers are queued as-is while the total readable bytes of queued (not copied) buffers
+ * is below {@code maxRetainedBytes}. Beyond that, the buffer is copied into an unpooled heap
+ * buffer and the original is released, freeing the (possibly pooled) network buffer it
+ * pins.</p>
+ *
+ * <p>Ownership of buffers removed by {@link ByteBufItemBuffer#removeFirst(int)} passes to
+ * whoever removed them (i.e., they are not released). {@link ByteBufItemBuffer#clear()} and
+ * {@link ByteBufItemBuffer#close()} release all buffers still queued.</p>
+ */
+public final class ByteBufItemBuffer implements ItemBuffer<ByteBuf> {
+    private final int maxRetainedBytes;
+    private ByteBuf[] items = new ByteBuf[16];
+    private int[] retained = new int[16];
+    private int first, size;
+    private long retainedBytes;
+    private long copiedBytes;
+
+    public ByteBufItemBuffer(@NonNegative int maxRetainedBytes) {
+        this.maxRetainedBytes = maxRetainedBytes;
+    }
+
+    public ByteBufItemBuffer() {
+        this(FasterSparqlNettyProperties.fragmentRetainBytes());
+    }
+
+    /** Total readable bytes of queued buffers that were not copied. */
+    public long retainedBytes() { return retainedBytes; }
+
+    /** Total bytes copied by {@link ByteBufItemBuffer#add(ByteBuf)} since creation. */
+    public long copiedBytes() { return copiedBytes; }
+
+    @Override public int size() { return size; }
+
+    @Override public void add(ByteBuf item) {
+        if (size == items.length) {
+            int mask = items.length-1;
+            ByteBuf[] newItems = new ByteBuf[items.length*2];
+            int[] newRetained = new int[items.length*2];
+            for (int i = 0; i < size; i++) {
+                newItems[i] = items[(first+i) & mask];
+                newRetained[i] = retained[(first+i) & mask];
+            }
+            items = newItems;
+            retained = newRetained;
+            first = 0;
+        }
+        int bytes = item.readableBytes();
+        if (retainedBytes + bytes > maxRetainedBytes) {
+            ByteBuf copy = Unpooled.copiedBuffer(item);
+            item.release();
+            item = copy;
+            copiedBytes += bytes;
+            bytes = 0;
+        }
+        int idx = (first+size) & (items.length-1);
+        items[idx] = item;
+        retained[idx] = bytes;
+        retainedBytes += bytes;
+        ++size;
+    }
+
+    @Override public ByteBuf get(int i) {
+        if (i < 0 || i >= size)
+            throw new IndexOutOfBoundsException("index="+i+", size="+size);
+        return items[(first+i) & (items.length-1)];
+    }
+
+    @Override public void removeFirst(int n) {
+        if (n < 0 || n > size)
+            throw new IllegalArgumentException("Cannot remove first "+n+" elements out of "+size);
+        int mask = items.length-1;
+        for (int i = 0; i < n; i++) {
+            int idx = (first+i) & mask;
+            items[idx] = null;
+            retainedBytes -= retained[idx];
+        }
+        first = (first+n) & mask;
+        size -= n;
+    }
+
+    @Override public void clear() {
+        int mask = items.length-1;
+        for (int i = 0; i < size; i++)
+            items[(first+i) & mask].release();
+        Arrays.fill(items, null);
+        first = size = 0;
+        retainedBytes = 0;
+    }
+
+    @Override public String toString() {
+        return "ByteBufItemBuffer{size="+size+", retainedBytes="+retainedBytes
+                +", copiedBytes="+copiedBytes+"}";
+    }
+}
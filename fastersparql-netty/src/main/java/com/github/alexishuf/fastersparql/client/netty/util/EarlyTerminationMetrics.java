@@ -0,0 +1,44 @@
+package com.github.alexishuf.fastersparql.client.netty.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of what happened to HTTP responses whose subscriber cancelled before the
+ * response ended.
+ *
+ * See {@link FasterSparqlNettyProperties#cancelDrainBytes()} and
+ * {@link FasterSparqlNettyProperties#cancelPath()}.
+ */
+public final class EarlyTerminationMetrics {
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong serverCancels = new AtomicLong();
+    private final AtomicLong drained = new AtomicLong();
+    private final AtomicLong closed = new AtomicLong();
+    private final AtomicLong wastedBytes = new AtomicLong();
+
+    /** Number of responses whose subscriber cancelled before the response ended. */
+    public long cancelled() { return cancelled.get(); }
+
+    /** Number of cancel requests sent to the server. */
+    public long serverCancels() { return serverCancels.get(); }
+
+    /** Number of cancelled responses read until their end, keeping the connection reusable. */
+    public long drained() { return drained.get(); }
+
+    /** Number of cancelled responses whose connection had to be closed. */
+    public long closed() { return closed.get(); }
+
+    /** Response body bytes that arrived after the subscriber cancelled and were discarded. */
+    public long wastedBytes() { return wastedBytes.get(); }
+
+    public void onCancelled() { cancelled.incrementAndGet(); }
+    public void onServerCancel() { serverCancels.incrementAndGet(); }
+    public void onDrained() { drained.incrementAndGet(); }
+    public void onClosed() { closed.incrementAndGet(); }
+    public void onWasted(long bytes) { wastedBytes.addAndGet(bytes); }
+
+    @Override public String toString() {
+        return "EarlyTerminationMetrics{cancelled="+cancelled+", serverCancels="+serverCancels
+                +", drained="+drained+", closed="+closed+", wastedBytes="+wastedBytes+"}";
+    }
+}
@@ -7,6 +7,7 @@ import com.github.alexishuf.fastersparql.client.util.async.AsyncTask;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
+import io.netty.resolver.AddressResolverGroup;
 import io.netty.util.concurrent.Future;
 import org.checkerframework.checker.index.qual.NonNegative;
 import org.checkerframework.checker.mustcall.qual.MustCall;
@@ -51,6 +52,19 @@ public class EventLoopGroupHolder {
     @SuppressWarnings("unused") public TimeUnit keepAliveTimeUnit() { return keepAliveTimeUnit; }
     private final TimeUnit keepAliveTimeUnit;
 
+    /**
+     * Number of threads of created {@link EventLoopGroup}s. Zero lets Netty choose.
+     */
+    @SuppressWarnings("unused") public @NonNegative int threads() { return threads; }
+    private final @NonNegative int threads;
+
+    /**
+     * io_uring submission queue size for {@link NettyTransport#IO_URING} groups. Zero keeps
+     * the Netty default.
+     */
+    @SuppressWarnings("unused") public @NonNegative int ioUringRingSize() { return ioUringRingSize; }
+    private final @NonNegative int ioUringRingSize;
+
     /**
      * If present, is a scheduled task to shut down the {@link EventLoopGroupHolder#group}
      * after {@link EventLoopGroupHolder#keepAlive()}
@@ -65,22 +79,41 @@ public class EventLoopGroupHolder {
     private @Nullable EventLoopGroup group;
 
     private static NettyTransport chooseTransport() {
-        NettyTransport selected = NettyTransport.NIO;
-        for (NettyTransport transport : NettyTransport.values()) {
-            if (transport.isAvailable()) {
-                selected = transport;
-                break;
-            }
+        NettyTransport selected = FasterSparqlNettyProperties.transport();
+        if (selected != null && !selected.isAvailable()) {
+            log.warn("Configured transport {} is not available", selected);
+            selected = null;
         }
+        if (selected == null)
+            selected = NettyTransport.preferred();
         log.debug("Using "+selected+" for transport");
         return selected;
     }
 
+    /**
+     * Equivalent to {@link EventLoopGroupHolder#EventLoopGroupHolder(NettyTransport, int, TimeUnit, int, int)}
+     * with {@link FasterSparqlNettyProperties#eventLoopThreads()} and
+     * {@link FasterSparqlNettyProperties#ioUringRingSize()}.
+     */
     public EventLoopGroupHolder(@Nullable NettyTransport transport,
                                 int keepAlive, @Nullable TimeUnit keepAliveTimeUnit) {
+        this(transport, keepAlive, keepAliveTimeUnit,
+             FasterSparqlNettyProperties.eventLoopThreads(),
+             FasterSparqlNettyProperties.ioUringRingSize());
+    }
+
+    public EventLoopGroupHolder(@Nullable NettyTransport transport,
+                                int keepAlive, @Nullable TimeUnit keepAliveTimeUnit,
+                                int threads, int ioUringRingSize) {
         this.transport = transport == null ? chooseTransport() : transport;
         if (keepAlive < 0)
             throw new IllegalArgumentException("Negative keepAlive="+keepAlive);
+        if (threads < 0)
+            throw new IllegalArgumentException("Negative threads="+threads);
+        if (ioUringRingSize < 0)
+            throw new IllegalArgumentException("Negative ioUringRingSize="+ioUringRingSize);
+        this.threads = threads;
+        this.ioUringRingSize = ioUringRingSize;
         this.keepAlive = keepAlive;
         this.keepAliveTimeUnit = keepAliveTimeUnit == null ? MILLISECONDS : keepAliveTimeUnit;
     }
@@ -117,7 +150,7 @@ public class EventLoopGroupHolder {
                 log.error("Null {}.group with references={}", this, references);
                 assert false : "group==null with references != 1";
             }
-            group = transport.createGroup();
+            group = transport.createGroup(threads, ioUringRingSize);
             FasterSparql.addShutdownHook(() -> immediateShutdown("FasterSparql.shutdown()"));
         } else if (shutdownTask != null) {
             // if cancel() is too late, the task will see references > 0 and will do nothing
@@ -128,19 +161,30 @@ public class EventLoopGroupHolder {
         return group;
     }
 
+    /**
+     * Equivalent to {@link EventLoopGroupHolder#acquireBootstrap(InetSocketAddress, NettyChannelOptions)}
+     * with {@link NettyChannelOptions#fromProperties()}.
+     */
+    public Bootstrap acquireBootstrap(InetSocketAddress address) {
+        return acquireBootstrap(address, NettyChannelOptions.fromProperties());
+    }
+
     /**
      * Builds a {@link Bootstrap} with the {@link EventLoopGroupHolder#acquire()}d
      * {@link EventLoopGroup}.
      *
-     * <p>Applicable configurations from {@link FasterSparqlProperties} will be set.</p>
+     * <p>Applicable configurations from {@link FasterSparqlProperties} and {@code options}
+     * will be set. Unless disabled by {@link FasterSparqlNettyProperties#dnsEnable()}, the
+     * {@link SharedAddressResolverGroup} will resolve unresolved addresses.</p>
      *
      * <p><strong>{@link EventLoopGroupHolder#release()} must be called once the
      * {@link Bootstrap} is discarded.</strong></p>
      *
      * @param address the {@link Bootstrap#remoteAddress(SocketAddress)}
+     * @param options socket options to set on the {@link Bootstrap}
      * @return A new {@link Bootstrap} bound to the acquired {@link EventLoopGroup}.
      */
-    public Bootstrap acquireBootstrap(InetSocketAddress address) {
+    public Bootstrap acquireBootstrap(InetSocketAddress address, NettyChannelOptions options) {
         EventLoopGroup group = acquire();
         try {
             Bootstrap bootstrap = new Bootstrap().group(group).remoteAddress(address)
@@ -152,7 +196,10 @@ public class EventLoopGroupHolder {
             int soTimeoutMs = FasterSparqlProperties.soTimeoutMs();
             if (soTimeoutMs > 0)
                 bootstrap = bootstrap.option(ChannelOption.SO_TIMEOUT, soTimeoutMs);
-            return bootstrap;
+            AddressResolverGroup<InetSocketAddress> resolver = SharedAddressResolverGroup.get(transport);
+            if (resolver != null)
+                bootstrap = bootstrap.resolver(resolver);
+            return options.apply(bootstrap, transport);
         } catch (Throwable t) {
             release();
             throw t;
@@ -227,6 +274,7 @@ public class EventLoopGroupHolder {
     @Override public String toString() {
         return "EventLoopGroupHolder{" +
                 "transport=" + transport +
+                ", threads=" + threads +
                 ", references=" + references +
                 ", keepAlive=" + keepAlive + keepAliveTimeUnit.name().toLowerCase() +
                 ", group=" + group +
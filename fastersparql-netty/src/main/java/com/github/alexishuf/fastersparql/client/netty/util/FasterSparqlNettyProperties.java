@@ -4,6 +4,8 @@ import com.github.alexishuf.fastersparql.client.netty.NettySparqlClient;
 import com.github.alexishuf.fastersparql.client.util.FasterSparqlProperties;
 import io.netty.channel.EventLoopGroup;
 import io.netty.handler.ssl.SslContextBuilder;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.index.qual.Positive;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.io.File;
@@ -16,9 +18,38 @@ public class FasterSparqlNettyProperties extends FasterSparqlProperties {
     public static final String OCSP = "fastersparql.netty.ssl.ocsp";
     public static final String POOL_ENABLE = "fastersparql.netty.pool.enable";
     public static final String POOL_FIFO = "fastersparql.netty.pool.fifo";
+    public static final String POOL_SHARED = "fastersparql.netty.pool.shared";
     public static final String ELG_SHARED = "fastersparql.netty.eventloopgroup.shared";
     public static final String ELG_KEEPALIVE = "fastersparql.netty.eventloopgroup.keepalive-seconds";
     public static final String WS_MAX_HTTP = "fastersparql.netty.ws.max-http";
+    public static final String WS_BIND_BATCH_BYTES = "fastersparql.netty.ws.bind.batch-bytes";
+    public static final String WS_BIND_BATCH_DELAY_US = "fastersparql.netty.ws.bind.batch-delay-us";
+    public static final String WS_BIND_LEDGER = "fastersparql.netty.ws.bind.ledger";
+    public static final String WS_BIND_IDS = "fastersparql.netty.ws.bind.ids";
+    public static final String WS_MUX_ENABLE = "fastersparql.netty.ws.mux.enable";
+    public static final String WS_MUX_SESSIONS = "fastersparql.netty.ws.mux.sessions";
+    public static final String WS_MUX_STREAMS = "fastersparql.netty.ws.mux.streams";
+    public static final String FRAGMENT_RETAIN_BYTES = "fastersparql.netty.fragment.retain-bytes";
+    public static final String CANCEL_DRAIN_BYTES = "fastersparql.netty.cancel.drain-bytes";
+    public static final String CANCEL_DRAIN_MS = "fastersparql.netty.cancel.drain-ms";
+    public static final String CANCEL_ID_HEADER = "fastersparql.netty.cancel.id-header";
+    public static final String CANCEL_PATH = "fastersparql.netty.cancel.path";
+    public static final String TRANSPORT = "fastersparql.netty.transport";
+    public static final String ELG_THREADS = "fastersparql.netty.eventloopgroup.threads";
+    public static final String IO_URING_RING_SIZE = "fastersparql.netty.io-uring.ring-size";
+    public static final String IO_URING_IOSQE_ASYNC_THRESHOLD = "fastersparql.netty.io-uring.iosqe-async-threshold";
+    public static final String TCP_NODELAY = "fastersparql.netty.tcp.nodelay";
+    public static final String TCP_FASTOPEN_CONNECT = "fastersparql.netty.tcp.fastopen-connect";
+    public static final String SO_RCVBUF = "fastersparql.netty.so.rcvbuf";
+    public static final String SO_SNDBUF = "fastersparql.netty.so.sndbuf";
+    public static final String EPOLL_EDGE_TRIGGERED = "fastersparql.netty.epoll.edge-triggered";
+    public static final String ALLOCATOR = "fastersparql.netty.allocator";
+    public static final String DNS_ENABLE = "fastersparql.netty.dns.enable";
+    public static final String DNS_MIN_TTL = "fastersparql.netty.dns.min-ttl";
+    public static final String DNS_MAX_TTL = "fastersparql.netty.dns.max-ttl";
+    public static final String DNS_NEGATIVE_TTL = "fastersparql.netty.dns.negative-ttl";
+    public static final String DNS_QUERY_TIMEOUT_MS = "fastersparql.netty.dns.query-timeout-ms";
+    public static final String DNS_ROUND_ROBIN = "fastersparql.netty.dns.round-robin";
 
     /* --- --- --- default values --- --- --- */
 
@@ -27,9 +58,38 @@ public class FasterSparqlNettyProperties extends FasterSparqlProperties {
     public static final boolean DEF_OCSP          = false;
     public static final boolean DEF_POOL_ENABLE   = true;
     public static final boolean DEF_POOL_FIFO     = false;
+    public static final boolean DEF_POOL_SHARED   = true;
     public static final boolean DEF_ELG_SHARED    = true;
     public static final int     DEF_ELG_KEEPALIVE = 15;
     public static final int     DEF_WS_MAX_HTTP   = 8192;
+    public static final int     DEF_WS_BIND_BATCH_BYTES = 16*1024;
+    public static final int     DEF_WS_BIND_BATCH_DELAY_US = 200;
+    public static final int     DEF_WS_BIND_LEDGER = 1024;
+    public static final boolean DEF_WS_BIND_IDS = false;
+    public static final boolean DEF_WS_MUX_ENABLE = false;
+    public static final int     DEF_WS_MUX_SESSIONS = 2;
+    public static final int     DEF_WS_MUX_STREAMS = 64;
+    public static final int     DEF_FRAGMENT_RETAIN_BYTES = 1024*1024;
+    public static final int     DEF_CANCEL_DRAIN_BYTES = 64*1024;
+    public static final int     DEF_CANCEL_DRAIN_MS = 2000;
+    public static final String  DEF_CANCEL_ID_HEADER = "";
+    public static final String  DEF_CANCEL_PATH = "";
+    public static final NettyTransport DEF_TRANSPORT = null;
+    public static final int     DEF_ELG_THREADS = 0;
+    public static final int     DEF_IO_URING_RING_SIZE = 0;
+    public static final int     DEF_IO_URING_IOSQE_ASYNC_THRESHOLD = 25;
+    public static final boolean DEF_TCP_NODELAY = true;
+    public static final boolean DEF_TCP_FASTOPEN_CONNECT = false;
+    public static final int     DEF_SO_RCVBUF = 0;
+    public static final int     DEF_SO_SNDBUF = 0;
+    public static final boolean DEF_EPOLL_EDGE_TRIGGERED = true;
+    public static final NettyAllocator DEF_ALLOCATOR = NettyAllocator.DEFAULT;
+    public static final boolean DEF_DNS_ENABLE = true;
+    public static final int     DEF_DNS_MIN_TTL = 0;
+    public static final int     DEF_DNS_MAX_TTL = Integer.MAX_VALUE;
+    public static final int     DEF_DNS_NEGATIVE_TTL = 0;
+    public static final int     DEF_DNS_QUERY_TIMEOUT_MS = 5000;
+    public static final boolean DEF_DNS_ROUND_ROBIN = true;
 
     /* --- --- --- accessors --- --- --- */
 
@@ -101,6 +161,19 @@ public class FasterSparqlNettyProperties extends FasterSparqlProperties {
      */
     public static boolean poolFIFO() { return readBoolean(POOL_FIFO, DEF_POOL_FIFO); }
 
+    /**
+     * If true, {@link NettySparqlClient}s whose endpoints share scheme, host and port (e.g.,
+     * several datasets on one server) will share a single connection pool (see
+     * {@link FasterSparqlNettyProperties#pool()}) instead of each keeping its own idle
+     * connections. Sharing only happens if the {@link EventLoopGroup} is also shared (see
+     * {@link FasterSparqlNettyProperties#shareEventLoopGroup()}).
+     *
+     * The default is {@code true}.
+     *
+     * @return whether clients of the same origin should share a connection pool.
+     */
+    public static boolean sharePool() { return readBoolean(POOL_SHARED, DEF_POOL_SHARED); }
+
     /**
      * If {@code true} (the default), all {@link NettySparqlClient}s will share one single
      * {@link EventLoopGroup}. If false, each client will create its own.
@@ -144,4 +217,325 @@ public class FasterSparqlNettyProperties extends FasterSparqlProperties {
     public static int wsMaxHttpResponse() {
         return readPositiveInt(WS_MAX_HTTP, DEF_WS_MAX_HTTP);
     }
+
+    /**
+     * Bindings sent by the client in the WebSocket protocol are accumulated and sent as a
+     * single multi-row frame once the accumulated TSV reaches this many bytes. Batches are
+     * also sent when the bindings requested by the server via {@code !bind-request} are
+     * exhausted or after {@link FasterSparqlNettyProperties#wsBindBatchDelayUs()}.
+     *
+     * The default is {@link FasterSparqlNettyProperties#DEF_WS_BIND_BATCH_BYTES} (16 KiB).
+     */
+    public static @Positive int wsBindBatchBytes() {
+        return readPositiveInt(WS_BIND_BATCH_BYTES, DEF_WS_BIND_BATCH_BYTES);
+    }
+
+    /**
+     * Maximum number of microseconds a binding may wait in a partial batch (see
+     * {@link FasterSparqlNettyProperties#wsBindBatchBytes()}) before being sent. Zero disables
+     * the wait, sending whatever was accumulated as soon as the event loop runs.
+     *
+     * The default is {@link FasterSparqlNettyProperties#DEF_WS_BIND_BATCH_DELAY_US} (200us).
+     */
+    public static @NonNegative int wsBindBatchDelayUs() {
+        return readNonNegativeInt(WS_BIND_BATCH_DELAY_US, DEF_WS_BIND_BATCH_DELAY_US);
+    }
+
+    /**
+     * Maximum number of bindings a WebSocket client sends ahead of the server, i.e., bindings
+     * sent but not yet acknowledged by an {@code !active-binding} message. Even if the server
+     * requests more bindings, the client will wait for acknowledgements once this limit is
+     * reached, keeping memory usage bounded during long binds.
+     *
+     * The default is {@link FasterSparqlNettyProperties#DEF_WS_BIND_LEDGER}.
+     */
+    public static @Positive int wsBindLedger() {
+        return readPositiveInt(WS_BIND_LEDGER, DEF_WS_BIND_LEDGER);
+    }
+
+    /**
+     * Whether WebSocket clients should send {@code !binding-ids} after {@code !bind}, asking
+     * the server to acknowledge bindings with {@code !active-binding #seq} (the zero-based
+     * position of the binding) instead of echoing the binding terms. The server must support
+     * this extension.
+     *
+     * The default is {@code false}.
+     */
+    public static boolean wsBindIds() { return readBoolean(WS_BIND_IDS, DEF_WS_BIND_IDS); }
+
+    /**
+     * Whether WebSocket clients should multiplex concurrent queries and binds over a few
+     * WebSocket sessions, using the {@code !query#id} protocol extension described in
+     * {@link com.github.alexishuf.fastersparql.client.netty.ws.WsMux}. The server must support
+     * this extension.
+     *
+     * The default is {@code false}: each query or bind takes a whole WebSocket session.
+     */
+    public static boolean wsMux() { return readBoolean(WS_MUX_ENABLE, DEF_WS_MUX_ENABLE); }
+
+    /**
+     * Maximum number of WebSocket sessions a multiplexing (see
+     * {@link FasterSparqlNettyProperties#wsMux()}) client opens to a single endpoint.
+     *
+     * The default is {@link FasterSparqlNettyProperties#DEF_WS_MUX_SESSIONS}.
+     */
+    public static @Positive int wsMuxSessions() {
+        return readPositiveInt(WS_MUX_SESSIONS, DEF_WS_MUX_SESSIONS);
+    }
+
+    /**
+     * A multiplexing (see {@link FasterSparqlNettyProperties#wsMux()}) client opens a new
+     * session only if all its sessions have at least this number of active streams and
+     * {@link FasterSparqlNettyProperties#wsMuxSessions()} was not reached.
+     *
+     * The default is {@link FasterSparqlNettyProperties#DEF_WS_MUX_STREAMS}.
+     */
+    public static @Positive int wsMuxStreams() {
+        return readPositiveInt(WS_MUX_STREAMS, DEF_WS_MUX_STREAMS);
+    }
+
+    /**
+     * When a {@link com.github.alexishuf.fastersparql.client.netty.parser.ByteBufFragmentParser}
+     * is used, graph fragments are delivered as retained slices of the network buffers. If the
+     * subscriber is slow, fragments pile up and each retained slice pins its (pooled) network
+     * buffer. Once the queued slices of a single response reach this many bytes, further queued
+     * fragments are copied into unpooled heap buffers and the network buffers are released.
+     *
+     * The default is {@link FasterSparqlNettyProperties#DEF_FRAGMENT_RETAIN_BYTES} (1 MiB).
+     * Zero will copy every fragment that cannot be immediately delivered.
+     */
+    public static @NonNegative int fragmentRetainBytes() {
+        return readNonNegativeInt(FRAGMENT_RETAIN_BYTES, DEF_FRAGMENT_RETAIN_BYTES);
+    }
+
+    /**
+     * When the subscriber of a {@link NettySparqlClient} query cancels before the response ends,
+     * the client will keep reading (and discarding) the response in the hope that it ends
+     * soon, so that the connection can return to the pool. If more than this number of bytes
+     * arrive after the cancel, the connection is closed.
+     *
+     * The default is {@link FasterSparqlNettyProperties#DEF_CANCEL_DRAIN_BYTES} (64 KiB).
+     * Zero closes the connection as soon as the subscriber cancels.
+     */
+    public static @NonNegative int cancelDrainBytes() {
+        return readNonNegativeInt(CANCEL_DRAIN_BYTES, DEF_CANCEL_DRAIN_BYTES);
+    }
+
+    /**
+     * Maximum time, in milliseconds, that a connection remains draining (see
+     * {@link FasterSparqlNettyProperties#cancelDrainBytes()}) before being closed.
+     *
+     * The default is {@link FasterSparqlNettyProperties#DEF_CANCEL_DRAIN_MS}.
+     */
+    public static @Positive int cancelDrainMs() {
+        return readPositiveInt(CANCEL_DRAIN_MS, DEF_CANCEL_DRAIN_MS);
+    }
+
+    /**
+     * If non-empty, {@link NettySparqlClient} will send a unique query id in this request header
+     * (e.g., {@code X-Query-Id}) so that a cancelled query can be aborted at the server using
+     * {@link FasterSparqlNettyProperties#cancelPath()}.
+     *
+     * The default is {@link FasterSparqlNettyProperties#DEF_CANCEL_ID_HEADER} (disabled).
+     */
+    public static String cancelIdHeader() {
+        return readTrimmedString(CANCEL_ID_HEADER, DEF_CANCEL_ID_HEADER);
+    }
+
+    /**
+     * Path and query (e.g., {@code /sparql/cancel?id={id}}) of the endpoint server to which
+     * {@link NettySparqlClient} will send an empty POST request when the subscriber of a query
+     * cancels before the response ends. The {@code {id}} placeholder is replaced with the id
+     * sent in the {@link FasterSparqlNettyProperties#cancelIdHeader()} header of the cancelled
+     * query.
+     *
+     * The default is {@link FasterSparqlNettyProperties#DEF_CANCEL_PATH} (disabled). Server-side
+     * cancellation is only attempted if both this and
+     * {@link FasterSparqlNettyProperties#cancelIdHeader()} are non-empty.
+     */
+    public static String cancelPath() {
+        return readTrimmedString(CANCEL_PATH, DEF_CANCEL_PATH);
+    }
+
+    /**
+     * Forces the {@link NettyTransport} used by {@link NettySparqlClient}s. Values are
+     * case-insensitive {@link NettyTransport} names (e.g., {@code nio}, {@code epoll},
+     * {@code io_uring}). If the chosen transport is not available, a warning is logged and
+     * {@link NettyTransport#preferred()} is used instead.
+     *
+     * The default is {@code null}, which selects {@link NettyTransport#preferred()}.
+     */
+    public static @Nullable NettyTransport transport() {
+        return readProperty(TRANSPORT, DEF_TRANSPORT, (src, val) -> {
+            String name = val.trim().toUpperCase().replace('-', '_');
+            for (NettyTransport transport : NettyTransport.values()) {
+                if (transport.name().equals(name) || transport.name().replace("_", "").equals(name))
+                    return transport;
+            }
+            throw new IllegalArgumentException(src+"="+val+" is not a NettyTransport");
+        });
+    }
+
+    /**
+     * Number of threads in {@link EventLoopGroup}s created by {@link EventLoopGroupHolder}.
+     *
+     * The default is {@link FasterSparqlNettyProperties#DEF_ELG_THREADS}, which lets Netty
+     * choose (twice the number of available processors, unless the
+     * {@code io.netty.eventLoopThreads} JVM property is set).
+     */
+    public static @NonNegative int eventLoopThreads() {
+        return readNonNegativeInt(ELG_THREADS, DEF_ELG_THREADS);
+    }
+
+    /**
+     * Number of entries in the submission queue of each io_uring event loop, used when the
+     * {@link NettyTransport#IO_URING} transport is selected.
+     *
+     * The default is {@link FasterSparqlNettyProperties#DEF_IO_URING_RING_SIZE}, which keeps
+     * the Netty default (4096, unless the {@code io.netty.iouring.ringSize} JVM property is set).
+     */
+    public static @NonNegative int ioUringRingSize() {
+        return readNonNegativeInt(IO_URING_RING_SIZE, DEF_IO_URING_RING_SIZE);
+    }
+
+    /**
+     * When more than this number of io_uring submissions are pending for a single file
+     * descriptor, they are submitted with {@code IOSQE_ASYNC}. Only used if
+     * {@link FasterSparqlNettyProperties#ioUringRingSize()} is non-zero.
+     *
+     * The default is {@link FasterSparqlNettyProperties#DEF_IO_URING_IOSQE_ASYNC_THRESHOLD},
+     * the same default used by Netty.
+     */
+    public static @NonNegative int ioUringIosqeAsyncThreshold() {
+        return readNonNegativeInt(IO_URING_IOSQE_ASYNC_THRESHOLD,
+                                  DEF_IO_URING_IOSQE_ASYNC_THRESHOLD);
+    }
+
+    /**
+     * Value of the {@code TCP_NODELAY} option (disables Nagle's algorithm) for connections
+     * opened by {@link NettySparqlClient}s.
+     *
+     * The default is {@code true}.
+     */
+    public static boolean tcpNoDelay() { return readBoolean(TCP_NODELAY, DEF_TCP_NODELAY); }
+
+    /**
+     * Whether connections should be opened with {@code TCP_FASTOPEN_CONNECT}, allowing the
+     * first request to travel in the SYN packet when the server supports TCP Fast Open. This
+     * is only applied with the {@link NettyTransport#EPOLL} and {@link NettyTransport#IO_URING}
+     * transports.
+     *
+     * The default is {@code false}.
+     */
+    public static boolean tcpFastOpenConnect() {
+        return readBoolean(TCP_FASTOPEN_CONNECT, DEF_TCP_FASTOPEN_CONNECT);
+    }
+
+    /**
+     * Size, in bytes, of the socket receive buffer ({@code SO_RCVBUF}) of connections opened
+     * by {@link NettySparqlClient}s.
+     *
+     * The default is {@link FasterSparqlNettyProperties#DEF_SO_RCVBUF}, which keeps the
+     * operating system default.
+     */
+    public static @NonNegative int soRcvBuf() {
+        return readNonNegativeInt(SO_RCVBUF, DEF_SO_RCVBUF);
+    }
+
+    /**
+     * Size, in bytes, of the socket send buffer ({@code SO_SNDBUF}) of connections opened
+     * by {@link NettySparqlClient}s.
+     *
+     * The default is {@link FasterSparqlNettyProperties#DEF_SO_SNDBUF}, which keeps the
+     * operating system default.
+     */
+    public static @NonNegative int soSndBuf() {
+        return readNonNegativeInt(SO_SNDBUF, DEF_SO_SNDBUF);
+    }
+
+    /**
+     * Whether channels of the {@link NettyTransport#EPOLL} transport use edge-triggered
+     * (the Netty default) or level-triggered mode. Level-triggered mode lets a channel read
+     * a bounded amount per wake-up without starving other channels.
+     *
+     * The default is {@code true} (edge-triggered).
+     */
+    public static boolean epollEdgeTriggered() {
+        return readBoolean(EPOLL_EDGE_TRIGGERED, DEF_EPOLL_EDGE_TRIGGERED);
+    }
+
+    /**
+     * The {@link io.netty.buffer.ByteBufAllocator} used by connections opened by
+     * {@link NettySparqlClient}s. Values are case-insensitive {@link NettyAllocator} names,
+     * with {@code -} accepted in place of {@code _} (e.g., {@code pooled-direct}).
+     *
+     * The default is {@link NettyAllocator#DEFAULT}.
+     */
+    public static NettyAllocator allocator() {
+        return readProperty(ALLOCATOR, DEF_ALLOCATOR, (src, val) -> {
+            try {
+                return NettyAllocator.valueOf(val.trim().toUpperCase().replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(src+"="+val+" is not a NettyAllocator");
+            }
+        });
+    }
+
+    /**
+     * If {@code true} (the default), host names are resolved by Netty's non-blocking DNS
+     * resolver, once per new connection, with a TTL-aware cache shared by all clients (see
+     * {@link SharedAddressResolverGroup}). {@code /etc/hosts} is still honored.
+     *
+     * If {@code false}, {@link NettySparqlClient} resolves the endpoint host only once, with
+     * the blocking JDK resolver (see
+     * {@link com.github.alexishuf.fastersparql.client.model.SparqlEndpoint#resolvedHost()}).
+     */
+    public static boolean dnsEnable() { return readBoolean(DNS_ENABLE, DEF_DNS_ENABLE); }
+
+    /**
+     * Minimum number of seconds a DNS answer is cached, even if its TTL is lower.
+     *
+     * The default is {@link FasterSparqlNettyProperties#DEF_DNS_MIN_TTL}.
+     */
+    public static @NonNegative int dnsMinTtl() {
+        return readNonNegativeInt(DNS_MIN_TTL, DEF_DNS_MIN_TTL);
+    }
+
+    /**
+     * Maximum number of seconds a DNS answer is cached, even if its TTL is higher. Zero
+     * disables caching.
+     *
+     * The default is {@link FasterSparqlNettyProperties#DEF_DNS_MAX_TTL}, which Netty limits
+     * to 2 years.
+     */
+    public static @NonNegative int dnsMaxTtl() {
+        return readNonNegativeInt(DNS_MAX_TTL, DEF_DNS_MAX_TTL);
+    }
+
+    /**
+     * Number of seconds a failed DNS resolution is cached.
+     *
+     * The default is {@link FasterSparqlNettyProperties#DEF_DNS_NEGATIVE_TTL} (no caching).
+     */
+    public static @NonNegative int dnsNegativeTtl() {
+        return readNonNegativeInt(DNS_NEGATIVE_TTL, DEF_DNS_NEGATIVE_TTL);
+    }
+
+    /**
+     * Timeout, in milliseconds, for a single DNS query.
+     *
+     * The default is {@link FasterSparqlNettyProperties#DEF_DNS_QUERY_TIMEOUT_MS}.
+     */
+    public static @Positive int dnsQueryTimeoutMs() {
+        return readPositiveInt(DNS_QUERY_TIMEOUT_MS, DEF_DNS_QUERY_TIMEOUT_MS);
+    }
+
+    /**
+     * If {@code true} (the default) and a host name has multiple addresses, each new
+     * connection will use the next address, in rotation. If {@code false}, the first
+     * address is always used.
+     */
+    public static boolean dnsRoundRobin() {
+        return readBoolean(DNS_ROUND_ROBIN, DEF_DNS_ROUND_ROBIN);
+    }
 }
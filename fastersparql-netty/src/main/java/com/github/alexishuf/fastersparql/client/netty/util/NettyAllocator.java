@@ -0,0 +1,35 @@
+package com.github.alexishuf.fastersparql.client.netty.util;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+
+/**
+ * {@link ByteBufAllocator} choices for connections opened by
+ * {@link com.github.alexishuf.fastersparql.client.netty.NettySparqlClient}s.
+ */
+public enum NettyAllocator {
+    /** {@link ByteBufAllocator#DEFAULT}, as configured by the {@code io.netty.allocator.*} JVM properties. */
+    DEFAULT,
+    /** {@link PooledByteBufAllocator#DEFAULT}. */
+    POOLED,
+    /** A {@link PooledByteBufAllocator} that always prefers direct buffers. */
+    POOLED_DIRECT,
+    /** {@link UnpooledByteBufAllocator#DEFAULT}. */
+    UNPOOLED;
+
+    private static final class PooledDirectHolder {
+        static final PooledByteBufAllocator INSTANCE = new PooledByteBufAllocator(true);
+    }
+
+    /** The {@link ByteBufAllocator} singleton for this choice. */
+    public ByteBufAllocator allocator() {
+        switch (this) {
+            case DEFAULT:       return ByteBufAllocator.DEFAULT;
+            case POOLED:        return PooledByteBufAllocator.DEFAULT;
+            case POOLED_DIRECT: return PooledDirectHolder.INSTANCE;
+            case UNPOOLED:      return UnpooledByteBufAllocator.DEFAULT;
+            default: throw new UnsupportedOperationException("Unexpected NettyAllocator "+this);
+        }
+    }
+}
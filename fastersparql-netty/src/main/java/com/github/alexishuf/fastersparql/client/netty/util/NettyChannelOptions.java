@@ -0,0 +1,113 @@
+package com.github.alexishuf.fastersparql.client.netty.util;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollMode;
+import org.checkerframework.checker.index.qual.NonNegative;
+
+import java.util.Objects;
+
+/**
+ * Socket-level options set on the {@link Bootstrap}s created by
+ * {@link EventLoopGroupHolder#acquireBootstrap(java.net.InetSocketAddress, NettyChannelOptions)}.
+ *
+ * <p>Options that do not apply to the {@link NettyTransport} in use are silently ignored.</p>
+ */
+public final class NettyChannelOptions {
+    private final boolean tcpNoDelay;
+    private final boolean tcpFastOpenConnect;
+    private final @NonNegative int soRcvBuf;
+    private final @NonNegative int soSndBuf;
+    private final boolean epollEdgeTriggered;
+    private final NettyAllocator allocator;
+
+    /**
+     * Create options from scratch. Prefer {@link NettyChannelOptions#fromProperties()}
+     * or a {@link com.github.alexishuf.fastersparql.client.netty.NettyClientBuilder}.
+     *
+     * @param tcpNoDelay see {@link FasterSparqlNettyProperties#tcpNoDelay()}
+     * @param tcpFastOpenConnect see {@link FasterSparqlNettyProperties#tcpFastOpenConnect()}
+     * @param soRcvBuf see {@link FasterSparqlNettyProperties#soRcvBuf()}
+     * @param soSndBuf see {@link FasterSparqlNettyProperties#soSndBuf()}
+     * @param epollEdgeTriggered see {@link FasterSparqlNettyProperties#epollEdgeTriggered()}
+     * @param allocator see {@link FasterSparqlNettyProperties#allocator()}
+     */
+    public NettyChannelOptions(boolean tcpNoDelay, boolean tcpFastOpenConnect,
+                               @NonNegative int soRcvBuf, @NonNegative int soSndBuf,
+                               boolean epollEdgeTriggered, NettyAllocator allocator) {
+        if (soRcvBuf < 0)
+            throw new IllegalArgumentException("Negative soRcvBuf="+soRcvBuf);
+        if (soSndBuf < 0)
+            throw new IllegalArgumentException("Negative soSndBuf="+soSndBuf);
+        this.tcpNoDelay = tcpNoDelay;
+        this.tcpFastOpenConnect = tcpFastOpenConnect;
+        this.soRcvBuf = soRcvBuf;
+        this.soSndBuf = soSndBuf;
+        this.epollEdgeTriggered = epollEdgeTriggered;
+        this.allocator = allocator == null ? NettyAllocator.DEFAULT : allocator;
+    }
+
+    /** Options with values read from {@link FasterSparqlNettyProperties}. */
+    public static NettyChannelOptions fromProperties() {
+        return new NettyChannelOptions(FasterSparqlNettyProperties.tcpNoDelay(),
+                                       FasterSparqlNettyProperties.tcpFastOpenConnect(),
+                                       FasterSparqlNettyProperties.soRcvBuf(),
+                                       FasterSparqlNettyProperties.soSndBuf(),
+                                       FasterSparqlNettyProperties.epollEdgeTriggered(),
+                                       FasterSparqlNettyProperties.allocator());
+    }
+
+    public boolean tcpNoDelay() { return tcpNoDelay; }
+    public boolean tcpFastOpenConnect() { return tcpFastOpenConnect; }
+    public @NonNegative int soRcvBuf() { return soRcvBuf; }
+    public @NonNegative int soSndBuf() { return soSndBuf; }
+    public boolean epollEdgeTriggered() { return epollEdgeTriggered; }
+    public NettyAllocator allocator() { return allocator; }
+
+    /**
+     * Set the options applicable to {@code transport} on {@code bootstrap}.
+     *
+     * @param bootstrap the {@link Bootstrap} to configure
+     * @param transport the {@link NettyTransport} of the {@link Bootstrap} channels.
+     * @return {@code bootstrap}
+     */
+    public Bootstrap apply(Bootstrap bootstrap, NettyTransport transport) {
+        bootstrap.option(ChannelOption.TCP_NODELAY, tcpNoDelay)
+                 .option(ChannelOption.ALLOCATOR, allocator.allocator());
+        if (soRcvBuf > 0)
+            bootstrap.option(ChannelOption.SO_RCVBUF, soRcvBuf);
+        if (soSndBuf > 0)
+            bootstrap.option(ChannelOption.SO_SNDBUF, soSndBuf);
+        if (tcpFastOpenConnect && (transport == NettyTransport.EPOLL
+                                   || transport == NettyTransport.IO_URING)) {
+            bootstrap.option(ChannelOption.TCP_FASTOPEN_CONNECT, true);
+        }
+        if (transport == NettyTransport.EPOLL) {
+            bootstrap.option(EpollChannelOption.EPOLL_MODE, epollEdgeTriggered
+                             ? EpollMode.EDGE_TRIGGERED : EpollMode.LEVEL_TRIGGERED);
+        }
+        return bootstrap;
+    }
+
+    @Override public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof NettyChannelOptions)) return false;
+        NettyChannelOptions that = (NettyChannelOptions) o;
+        return tcpNoDelay == that.tcpNoDelay && tcpFastOpenConnect == that.tcpFastOpenConnect
+                && soRcvBuf == that.soRcvBuf && soSndBuf == that.soSndBuf
+                && epollEdgeTriggered == that.epollEdgeTriggered && allocator == that.allocator;
+    }
+
+    @Override public int hashCode() {
+        return Objects.hash(tcpNoDelay, tcpFastOpenConnect, soRcvBuf, soSndBuf,
+                            epollEdgeTriggered, allocator);
+    }
+
+    @Override public String toString() {
+        return "NettyChannelOptions{tcpNoDelay="+tcpNoDelay
+                +", tcpFastOpenConnect="+tcpFastOpenConnect
+                +", soRcvBuf="+soRcvBuf+", soSndBuf="+soSndBuf
+                +", epollEdgeTriggered="+epollEdgeTriggered+", allocator="+allocator+"}";
+    }
+}
@@ -2,27 +2,45 @@ package com.github.alexishuf.fastersparql.client.netty.util;
 
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollDatagramChannel;
 import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
 import io.netty.channel.epoll.EpollSocketChannel;
 import io.netty.channel.kqueue.KQueue;
+import io.netty.channel.kqueue.KQueueDatagramChannel;
 import io.netty.channel.kqueue.KQueueEventLoopGroup;
+import io.netty.channel.kqueue.KQueueServerSocketChannel;
 import io.netty.channel.kqueue.KQueueSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.ServerSocketChannel;
 import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.incubator.channel.uring.IOUring;
+import io.netty.incubator.channel.uring.IOUringDatagramChannel;
 import io.netty.incubator.channel.uring.IOUringEventLoopGroup;
+import io.netty.incubator.channel.uring.IOUringServerSocketChannel;
 import io.netty.incubator.channel.uring.IOUringSocketChannel;
 
+import java.util.concurrent.ThreadFactory;
+
 public enum NettyTransport {
     NIO {
         @Override public boolean isAvailable() { return true; }
-        @Override public EventLoopGroup createGroup() {
-            return new NioEventLoopGroup();
+        @Override public EventLoopGroup createGroup(int threads, int ioUringRingSize) {
+            return new NioEventLoopGroup(threads);
         }
         @Override public Class<? extends SocketChannel> channelClass() {
             return NioSocketChannel.class;
         }
+        @Override public Class<? extends ServerSocketChannel> serverChannelClass() {
+            return NioServerSocketChannel.class;
+        }
+        @Override public Class<? extends DatagramChannel> datagramChannelClass() {
+            return NioDatagramChannel.class;
+        }
     },
     IO_URING {
         @Override public boolean isAvailable() {
@@ -31,12 +49,22 @@ public enum NettyTransport {
                 return IOUring.isAvailable();
             } catch (ClassNotFoundException e) { return false; }
         }
-        @Override public EventLoopGroup createGroup() {
-            return new IOUringEventLoopGroup();
+        @Override public EventLoopGroup createGroup(int threads, int ioUringRingSize) {
+            if (ioUringRingSize <= 0)
+                return new IOUringEventLoopGroup(threads);
+            int iosqeAsyncThreshold = FasterSparqlNettyProperties.ioUringIosqeAsyncThreshold();
+            return new IOUringEventLoopGroup(threads, (ThreadFactory) null,
+                                             ioUringRingSize, iosqeAsyncThreshold);
         }
         @Override public Class<? extends SocketChannel> channelClass() {
             return IOUringSocketChannel.class;
         }
+        @Override public Class<? extends ServerSocketChannel> serverChannelClass() {
+            return IOUringServerSocketChannel.class;
+        }
+        @Override public Class<? extends DatagramChannel> datagramChannelClass() {
+            return IOUringDatagramChannel.class;
+        }
     },
     KQUEUE {
         @Override public boolean isAvailable() {
@@ -45,12 +73,18 @@ public enum NettyTransport {
                 return KQueue.isAvailable();
             } catch (ClassNotFoundException e) {return false;}
         }
-        @Override public EventLoopGroup createGroup() {
-            return new KQueueEventLoopGroup();
+        @Override public EventLoopGroup createGroup(int threads, int ioUringRingSize) {
+            return new KQueueEventLoopGroup(threads);
         }
         @Override public Class<? extends SocketChannel> channelClass() {
             return KQueueSocketChannel.class;
         }
+        @Override public Class<? extends ServerSocketChannel> serverChannelClass() {
+            return KQueueServerSocketChannel.class;
+        }
+        @Override public Class<? extends DatagramChannel> datagramChannelClass() {
+            return KQueueDatagramChannel.class;
+        }
     },
     EPOLL {
         @Override public boolean isAvailable() {
@@ -59,15 +93,53 @@ public enum NettyTransport {
                 return Epoll.isAvailable();
             } catch (ClassNotFoundException e) {return false;}
         }
-        @Override public EventLoopGroup createGroup() {
-            return new EpollEventLoopGroup();
+        @Override public EventLoopGroup createGroup(int threads, int ioUringRingSize) {
+            return new EpollEventLoopGroup(threads);
         }
         @Override public Class<? extends SocketChannel> channelClass() {
             return EpollSocketChannel.class;
         }
+        @Override public Class<? extends ServerSocketChannel> serverChannelClass() {
+            return EpollServerSocketChannel.class;
+        }
+        @Override public Class<? extends DatagramChannel> datagramChannelClass() {
+            return EpollDatagramChannel.class;
+        }
     };
 
     abstract public boolean isAvailable();
-    abstract public EventLoopGroup createGroup();
+    /**
+     * Create a new {@link EventLoopGroup} for this transport.
+     *
+     * @param threads number of event loop threads. Zero lets Netty choose.
+     * @param ioUringRingSize size of the io_uring submission queue. Zero keeps the Netty
+     *                        default. Ignored by transports other than {@link NettyTransport#IO_URING}.
+     * @return a new {@link EventLoopGroup}, owned by the caller.
+     */
+    abstract public EventLoopGroup createGroup(int threads, int ioUringRingSize);
     abstract public Class<? extends SocketChannel>  channelClass();
+    abstract public Class<? extends ServerSocketChannel> serverChannelClass();
+    abstract public Class<? extends DatagramChannel> datagramChannelClass();
+
+    /**
+     * Equivalent to {@link NettyTransport#createGroup(int, int)} with
+     * {@link FasterSparqlNettyProperties#eventLoopThreads()} and
+     * {@link FasterSparqlNettyProperties#ioUringRingSize()}.
+     */
+    public EventLoopGroup createGroup() {
+        return createGroup(FasterSparqlNettyProperties.eventLoopThreads(),
+                           FasterSparqlNettyProperties.ioUringRingSize());
+    }
+
+    /** The first available transport, in declaration order. {@link NettyTransport#NIO} is always available. */
+    public static NettyTransport preferred() {
+        NettyTransport selected = NIO;
+        for (NettyTransport transport : values()) {
+            if (transport.isAvailable()) {
+                selected = transport;
+                break;
+            }
+        }
+        return selected;
+    }
 }
@@ -0,0 +1,178 @@
+package com.github.alexishuf.fastersparql.client.netty.util;
+
+import io.netty.channel.EventLoop;
+import io.netty.resolver.AddressResolver;
+import io.netty.resolver.AddressResolverGroup;
+import io.netty.resolver.InetNameResolver;
+import io.netty.resolver.NameResolver;
+import io.netty.resolver.dns.*;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Promise;
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Holds one non-blocking DNS {@link AddressResolverGroup} per {@link NettyTransport}, all
+ * sharing a single TTL-aware cache, so that all clients (and all {@link EventLoop}s) benefit
+ * from previous resolutions of the same host.
+ *
+ * <p>{@link EventLoopGroupHolder#acquireBootstrap(InetSocketAddress, NettyChannelOptions)}
+ * sets the shared group as the {@link io.netty.bootstrap.Bootstrap#resolver(AddressResolverGroup)},
+ * thus unresolved addresses are resolved on each new connection, picking up DNS changes once
+ * the cached answer expires.</p>
+ */
+public class SharedAddressResolverGroup {
+    private static final Logger log = LoggerFactory.getLogger(SharedAddressResolverGroup.class);
+    private static final SharedAddressResolverGroup INSTANCE = new SharedAddressResolverGroup();
+
+    private final EnumMap<NettyTransport, AddressResolverGroup<InetSocketAddress>> groups
+            = new EnumMap<>(NettyTransport.class);
+    private @MonotonicNonNull DnsCache cache;
+    private @MonotonicNonNull DnsCnameCache cnameCache;
+
+    /**
+     * Get the shared {@link AddressResolverGroup} for channels of the given transport.
+     *
+     * @param transport the transport of the {@link io.netty.bootstrap.Bootstrap} that will
+     *                  use the group.
+     * @return the shared group or {@code null} if
+     *         {@link FasterSparqlNettyProperties#dnsEnable()} is {@code false}.
+     */
+    public static @Nullable AddressResolverGroup<InetSocketAddress> get(NettyTransport transport) {
+        return FasterSparqlNettyProperties.dnsEnable() ? INSTANCE.doGet(transport) : null;
+    }
+
+    private synchronized AddressResolverGroup<InetSocketAddress> doGet(NettyTransport transport) {
+        AddressResolverGroup<InetSocketAddress> group = groups.get(transport);
+        if (group == null) {
+            if (cache == null) {
+                cache = new DefaultDnsCache(FasterSparqlNettyProperties.dnsMinTtl(),
+                                            FasterSparqlNettyProperties.dnsMaxTtl(),
+                                            FasterSparqlNettyProperties.dnsNegativeTtl());
+                cnameCache = new DefaultDnsCnameCache(FasterSparqlNettyProperties.dnsMinTtl(),
+                                                      FasterSparqlNettyProperties.dnsMaxTtl());
+                log.debug("Created shared {}", cache);
+            }
+            group = create(builder(transport, cache, cnameCache),
+                           FasterSparqlNettyProperties.dnsRoundRobin());
+            groups.put(transport, group);
+        }
+        return group;
+    }
+
+    /**
+     * Create a {@link DnsNameResolverBuilder} for the given transport, using the given
+     * caches and {@link FasterSparqlNettyProperties#dnsQueryTimeoutMs()}.
+     *
+     * <p>Callers may further customize the builder (e.g., with an in-memory
+     * {@link DnsNameResolverBuilder#hostsFileEntriesResolver(io.netty.resolver.HostsFileEntriesResolver)}
+     * or a {@link DnsNameResolverBuilder#nameServerProvider(DnsServerAddressStreamProvider)})
+     * before calling {@link SharedAddressResolverGroup#create(DnsNameResolverBuilder, boolean)}.</p>
+     */
+    public static DnsNameResolverBuilder builder(NettyTransport transport, DnsCache cache,
+                                                 DnsCnameCache cnameCache) {
+        return new DnsNameResolverBuilder().channelType(transport.datagramChannelClass())
+                .resolveCache(cache).cnameCache(cnameCache)
+                .queryTimeoutMillis(FasterSparqlNettyProperties.dnsQueryTimeoutMs());
+    }
+
+    /**
+     * Create a new (non-shared) {@link AddressResolverGroup} from the given builder.
+     *
+     * @param builder the {@link DnsNameResolverBuilder} with all settings, except the
+     *                {@link EventLoop}.
+     * @param roundRobin if true, each resolution of a name with multiple addresses will yield
+     *                   the next address of that name, in rotation. Else the first address
+     *                   is always used.
+     * @return a new {@link AddressResolverGroup}
+     */
+    public static AddressResolverGroup<InetSocketAddress>
+    create(DnsNameResolverBuilder builder, boolean roundRobin) {
+        if (!roundRobin)
+            return new DnsAddressResolverGroup(builder);
+        RotationCounters next = new RotationCounters();
+        return new DnsAddressResolverGroup(builder) {
+            @Override protected AddressResolver<InetSocketAddress>
+            newAddressResolver(EventLoop eventLoop, NameResolver<InetAddress> resolver) {
+                return new RotatingNameResolver(eventLoop, resolver, next).asAddressResolver();
+            }
+        };
+    }
+
+    /**
+     * Per-host rotation counters, evicting the least recently used host once more than
+     * {@link RotationCounters#MAX_HOSTS} hosts are tracked. An evicted host simply restarts its
+     * rotation from the first address.
+     */
+    static final class RotationCounters {
+        static final int MAX_HOSTS = 1024;
+        private final LinkedHashMap<String, Integer> counters
+                = new LinkedHashMap<String, Integer>(16, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                return size() > MAX_HOSTS;
+            }
+        };
+
+        /** Get the current counter value for {@code host} and increment it. */
+        synchronized int next(String host) {
+            String key = host.toLowerCase(Locale.ROOT);
+            Integer current = counters.get(key);
+            int value = current == null ? 0 : current;
+            counters.put(key, (value+1) & 0x7fffffff);
+            return value;
+        }
+
+        synchronized int size() { return counters.size(); }
+    }
+
+    /**
+     * Resolves all addresses of a name and picks one in rotation. Unlike
+     * {@link RoundRobinDnsAddressResolverGroup}, the choice is not random, thus consecutive
+     * connections to the same host are evenly spread. Each host has its own rotation
+     * counter, so that interleaved resolutions of other hosts do not skew the choice.
+     */
+    private static final class RotatingNameResolver extends InetNameResolver {
+        private final NameResolver<InetAddress> delegate;
+        private final RotationCounters next;
+
+        RotatingNameResolver(EventExecutor executor, NameResolver<InetAddress> delegate,
+                             RotationCounters next) {
+            super(executor);
+            this.delegate = delegate;
+            this.next = next;
+        }
+
+        @Override protected void doResolve(String host, Promise<InetAddress> promise) {
+            delegate.resolveAll(host).addListener(f -> {
+                if (!f.isSuccess()) {
+                    promise.setFailure(f.cause());
+                } else {
+                    @SuppressWarnings("unchecked")
+                    List<InetAddress> list = (List<InetAddress>) f.getNow();
+                    int size = list.size();
+                    if (size == 1) {
+                        promise.setSuccess(list.get(0));
+                    } else {
+                        promise.setSuccess(list.get(next.next(host) % size));
+                    }
+                }
+            });
+        }
+
+        @Override protected void doResolveAll(String host, Promise<List<InetAddress>> promise) {
+            delegate.resolveAll(host, promise);
+        }
+
+        @Override public void close() { delegate.close(); }
+    }
+}
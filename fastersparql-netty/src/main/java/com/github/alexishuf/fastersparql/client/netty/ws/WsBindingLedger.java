@@ -0,0 +1,95 @@
+package com.github.alexishuf.fastersparql.client.netty.ws;
+
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.index.qual.Positive;
+
+/**
+ * A bounded FIFO of bindings sent to a WebSocket server but not yet acknowledged by
+ * a {@code !active-binding} message.
+ *
+ * <p>Each binding receives a sequence number, starting from zero, which matches the position
+ * of the binding in the stream of bindings sent to the server. Since the server processes
+ * bindings in order, acknowledgements always refer to the oldest binding. Senders must not
+ * send more bindings than {@link WsBindingLedger#free()}, thus the ledger capacity bounds how
+ * far the client may run ahead of the server.</p>
+ *
+ * <p>Bindings are stored by reference in a ring buffer: no per-binding copy or node
+ * is allocated. Methods may be called from any thread.</p>
+ */
+public final class WsBindingLedger<R> {
+    private final Object[] ring;
+    private final int mask;
+    private long head, tail;
+
+    /**
+     * Create a ledger for at least {@code capacity} bindings.
+     *
+     * @param capacity minimum capacity. Will be rounded up to a power of 2
+     */
+    public WsBindingLedger(@Positive int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity must be positive");
+        int size = Integer.highestOneBit(Math.min(capacity, 1 << 30));
+        if (size < capacity) size <<= 1;
+        this.ring = new Object[size];
+        this.mask = size-1;
+    }
+
+    /** Maximum number of unacknowledged bindings. */
+    public @Positive int capacity() { return ring.length; }
+
+    /** Number of unacknowledged bindings. */
+    public synchronized @NonNegative int size() { return (int) (tail - head); }
+
+    /** How many bindings can be {@link WsBindingLedger#add(Object)}ed before it is full. */
+    public synchronized @NonNegative int free() { return ring.length - (int) (tail - head); }
+
+    /** Sequence number of the oldest unacknowledged binding or of the next binding if empty. */
+    public synchronized long headSequence() { return head; }
+
+    /**
+     * Store a binding that is about to be sent.
+     *
+     * @param binding the binding row, which will be kept by reference
+     * @return the sequence number of {@code binding}
+     * @throws IllegalStateException if the ledger is full
+     */
+    public synchronized long add(R binding) {
+        if (tail - head == ring.length)
+            throw new IllegalStateException("Ledger full: sent more bindings than allowed");
+        ring[(int) tail & mask] = binding;
+        return tail++;
+    }
+
+    /**
+     * Remove the oldest binding, which the server acknowledged.
+     *
+     * @param sequence the sequence number echoed by the server or {@code -1} if the server
+     *                 did not echo a sequence number.
+     * @return the oldest binding
+     * @throws IllegalStateException if the ledger is empty or if {@code sequence} is not
+     *                               {@code -1} and does not match the oldest binding
+     */
+    public synchronized R take(long sequence) {
+        if (head == tail)
+            throw new IllegalStateException("Received more !active-binding than sent bindings");
+        if (sequence >= 0 && sequence != head)
+            throw new IllegalStateException("Expected !active-binding #"+head+", got #"+sequence);
+        int idx = (int) head & mask;
+        @SuppressWarnings("unchecked") R binding = (R) ring[idx];
+        ring[idx] = null;
+        ++head;
+        return binding;
+    }
+
+    /** Forget all unacknowledged bindings. */
+    public synchronized void clear() {
+        for (long i = head; i < tail; i++)
+            ring[(int) i & mask] = null;
+        head = tail;
+    }
+
+    @Override public synchronized String toString() {
+        return "WsBindingLedger{head="+head+", size="+(tail-head)+", capacity="+ring.length+"}";
+    }
+}
@@ -0,0 +1,110 @@
+package com.github.alexishuf.fastersparql.client.netty.ws;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Helpers for the multiplexing extension of the WebSocket SPARQL protocol.
+ *
+ * <p>A multiplexed session carries many concurrent queries (and binds), each in its own stream
+ * identified by a non-negative integer id chosen by the client. Every frame carries messages of
+ * a single stream and the first line of every frame is a control message whose command is
+ * suffixed with {@code #id}. All further lines in the frame belong to the same stream:</p>
+ *
+ * <pre>
+ *     !query#3 SELECT * WHERE { ?s ?p ?o }
+ *     !bind#4 SELECT * WHERE { ?s ?p ?o }
+ *     !cancel#3
+ *     !end#4
+ * </pre>
+ *
+ * <p>Frames that start with data (TSV rows or bindings) are prefixed with the no-op control
+ * message {@code !stream#id}. Apart from the tag, messages within a stream are the same as in
+ * a non-multiplexed session. In addition, the client sends {@code !credit#id +n} to allow
+ * the server to send {@code n} more result rows in stream {@code id}. The server must not send
+ * rows beyond the granted credit, but control messages are not subject to credit. This replaces
+ * pausing reads on the whole connection, which would stall all other streams.</p>
+ */
+public final class WsMux {
+    /** Command of the no-op control message that only sets the stream of a frame. */
+    public static final String STREAM = "!stream";
+
+    /**
+     * Tag a message to be sent on stream {@code id}.
+     *
+     * @param message one or more lines. If the first starts with {@code !}, its command will
+     *                be suffixed with {@code #id}, else {@link WsMux#framePrefix(int)} is
+     *                prepended.
+     * @param id the stream id
+     * @return the tagged message
+     */
+    public static String tag(CharSequence message, int id) {
+        int len = message.length();
+        if (len == 0 || message.charAt(0) != '!')
+            return framePrefix(id) + message;
+        int end = commandEnd(message, 0, len);
+        StringBuilder sb = new StringBuilder(len + 12);
+        return sb.append(message, 0, end).append('#').append(id)
+                 .append(message, end, len).toString();
+    }
+
+    /** Prefix for frames in stream {@code id} that do not start with a control message. */
+    public static String framePrefix(int id) {
+        return STREAM + "#" + id + "\n";
+    }
+
+    /** A frame of a multiplexed session split into its stream id and untagged contents. */
+    public static final class Tagged {
+        public final int id;
+        public final String message;
+
+        public Tagged(int id, String message) {
+            this.id = id;
+            this.message = message;
+        }
+
+        @Override public String toString() { return "Tagged{id="+id+", message="+message+"}"; }
+    }
+
+    /**
+     * Parse the stream id of a frame and remove the tag.
+     *
+     * @param frame the text of a whole frame
+     * @return the stream id and the frame contents without the tag (and without
+     *         the whole {@code !stream#id} line, if present), or {@code null} if the frame
+     *         does not start with a tagged control message.
+     */
+    public static @Nullable Tagged untag(String frame) {
+        int len = frame.length();
+        if (len == 0 || frame.charAt(0) != '!')
+            return null;
+        int end = commandEnd(frame, 0, len), hash = frame.indexOf('#');
+        if (hash < 0 || hash >= end || hash == end-1)
+            return null;
+        int id = 0;
+        for (int i = hash+1; i < end; i++) {
+            char c = frame.charAt(i);
+            if (c < '0' || c > '9' || id > (Integer.MAX_VALUE-9)/10)
+                return null;
+            id = id*10 + (c - '0');
+        }
+        String message;
+        if (frame.regionMatches(0, STREAM, 0, hash) && hash == STREAM.length()) {
+            int eol = frame.indexOf('\n', end);
+            message = eol < 0 ? "" : frame.substring(eol+1);
+        } else {
+            message = frame.substring(0, hash) + frame.substring(end);
+        }
+        return new Tagged(id, message);
+    }
+
+    private static int commandEnd(CharSequence cs, int begin, int end) {
+        for (int i = begin; i < end; i++) {
+            char c = cs.charAt(i);
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\r')
+                return i;
+        }
+        return end;
+    }
+
+    private WsMux() {}
+}
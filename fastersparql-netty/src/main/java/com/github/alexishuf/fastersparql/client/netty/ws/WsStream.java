@@ -0,0 +1,32 @@
+package com.github.alexishuf.fastersparql.client.netty.ws;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+
+/**
+ * A logical stream within a WebSocket session shared by many {@link WsClientHandler}s.
+ *
+ * <p>When a {@link NettyWsClient} multiplexes handlers over sessions, the {@link WsRecycler}
+ * given to {@link WsClientHandler#attach(ChannelHandlerContext, WsRecycler)} implements this
+ * interface. Such handlers must then:</p>
+ *
+ * <ul>
+ *     <li>{@link WsStream#tag(String)} every frame they write;</li>
+ *     <li>not change {@link Channel#config()} (e.g., auto-read), since the channel is
+ *         shared. Backpressure is done with {@code !credit} messages instead;</li>
+ *     <li>not close the channel. {@link WsRecycler#recycle(Channel)} releases only the
+ *         stream.</li>
+ * </ul>
+ *
+ * See {@link WsMux} for the protocol extension.
+ */
+public interface WsStream extends WsRecycler {
+    /** Id of this stream, unique within its WebSocket session. */
+    int id();
+
+    /** Equivalent to {@link WsMux#tag(CharSequence, int)} with this stream {@link WsStream#id()}. */
+    default String tag(String message) { return WsMux.tag(message, id()); }
+
+    /** Equivalent to {@link WsMux#framePrefix(int)} with this stream {@link WsStream#id()}. */
+    default String framePrefix() { return WsMux.framePrefix(id()); }
+}
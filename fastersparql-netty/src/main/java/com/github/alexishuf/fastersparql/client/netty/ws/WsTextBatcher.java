@@ -0,0 +1,162 @@
+package com.github.alexishuf.fastersparql.client.netty.ws;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.util.concurrent.EventExecutor;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Accumulates lines of text and writes them as multi-line {@link TextWebSocketFrame}s.
+ *
+ * <p>Text is UTF-8 encoded on the calling thread into a direct {@link ByteBuf} that is reused
+ * across frames: each frame is a retained slice of that buffer, thus no per-line
+ * {@link String}, frame or flush is created. A frame is written (from the event loop) once
+ * {@code maxFrameBytes} have accumulated, once {@link WsTextBatcher#append(CharSequence, boolean)}
+ * is asked to flush or once the oldest pending line has waited for {@code maxDelayUs}.</p>
+ *
+ * <p>{@link WsTextBatcher#append(CharSequence, boolean)} may be called from any thread.
+ * Frames are never written after {@link WsTextBatcher#close()}.</p>
+ */
+public final class WsTextBatcher implements AutoCloseable {
+    private final @Positive int maxFrameBytes;
+    private final @NonNegative long maxDelayNanos;
+    private final ChannelHandlerContext ctx;
+    private final byte @Nullable [] framePrefix;
+    private @Nullable ByteBuf buf;
+    private boolean flushQueued, delayedFlushQueued, closed;
+    private long lines, frames;
+
+    private final Runnable flushTask = () -> flush(false);
+    private final Runnable delayedFlushTask = () -> flush(true);
+
+    /**
+     * Create a batcher that writes frames to the given {@link ChannelHandlerContext}.
+     *
+     * @param ctx where to write frames. Buffers are allocated from its allocator
+     * @param maxFrameBytes write a frame once this many bytes are pending
+     * @param maxDelayUs write pending lines after this many microseconds, even if
+     *                   {@code maxFrameBytes} was not reached.
+     */
+    public WsTextBatcher(ChannelHandlerContext ctx, @Positive int maxFrameBytes,
+                         @NonNegative int maxDelayUs) {
+        this(ctx, maxFrameBytes, maxDelayUs, null);
+    }
+
+    /**
+     * Same as {@link WsTextBatcher#WsTextBatcher(ChannelHandlerContext, int, int)}, but
+     * every frame will start with {@code framePrefix} (e.g., a {@link WsStream#framePrefix()}).
+     */
+    public WsTextBatcher(ChannelHandlerContext ctx, @Positive int maxFrameBytes,
+                         @NonNegative int maxDelayUs, @Nullable String framePrefix) {
+        if (maxFrameBytes < 1)
+            throw new IllegalArgumentException("maxFrameBytes must be positive");
+        if (maxDelayUs < 0)
+            throw new IllegalArgumentException("maxDelayUs must be non-negative");
+        this.ctx = ctx;
+        this.maxFrameBytes = maxFrameBytes;
+        this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(maxDelayUs);
+        this.framePrefix = framePrefix == null ? null : framePrefix.getBytes(UTF_8);
+    }
+
+    /** Number of lines appended (and not dropped due to {@link WsTextBatcher#close()}). */
+    public synchronized long lines() { return lines; }
+
+    /** Number of frames written. */
+    public synchronized long frames() { return frames; }
+
+    /**
+     * Append {@code text}, which should contain whole lines, to the current frame.
+     *
+     * @param text the text to append. Will be UTF-8 encoded before this method returns, thus
+     *             it can be a reused mutable {@link CharSequence}
+     * @param flush if true, the current frame (including {@code text}) will be written as soon
+     *              as the event loop runs instead of waiting for more lines.
+     * @return {@code false} iff this batcher is closed and {@code text} was dropped.
+     */
+    public boolean append(CharSequence text, boolean flush) {
+        boolean now, later;
+        synchronized (this) {
+            if (closed)
+                return false;
+            ensureWritable(ByteBufUtil.utf8MaxBytes(text));
+            ByteBufUtil.writeUtf8(buf, text);
+            ++lines;
+            now = !flushQueued && (flush || maxDelayNanos == 0
+                                         || buf.readableBytes() >= maxFrameBytes);
+            later = !now && !flushQueued && !delayedFlushQueued;
+            if      (now)   flushQueued = true;
+            else if (later) delayedFlushQueued = true;
+        }
+        EventExecutor executor = ctx.executor();
+        if (now)
+            executor.execute(flushTask);
+        else if (later)
+            executor.schedule(delayedFlushTask, maxDelayNanos, TimeUnit.NANOSECONDS);
+        return true;
+    }
+
+    /** Drop any pending lines and release the buffer. Further appends will be ignored. */
+    @Override public void close() {
+        ByteBuf buf;
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            buf = this.buf;
+            this.buf = null;
+        }
+        if (buf != null)
+            buf.release();
+    }
+
+    @Override public synchronized String toString() {
+        return "WsTextBatcher{lines="+lines+", frames="+frames
+                +", pending="+(buf == null ? 0 : buf.readableBytes())
+                +(closed ? ", closed" : "")+"}";
+    }
+
+    /* --- --- --- implementation details --- --- --- */
+
+    /**
+     * Ensure at least {@code bytes} can be written to {@link WsTextBatcher#buf} without it
+     * being reallocated, since previously written frames may still be slices of it.
+     * Caller must hold the lock.
+     */
+    private void ensureWritable(int bytes) {
+        ByteBuf old = this.buf;
+        if (old != null && old.writableBytes() >= bytes)
+            return;
+        int pending = old == null ? 0 : old.readableBytes();
+        int capacity = Math.max(4*maxFrameBytes, pending+bytes);
+        ByteBuf buf = ctx.alloc().directBuffer(capacity, capacity);
+        if (old != null) {
+            buf.writeBytes(old, old.readerIndex(), pending);
+            old.release();
+        }
+        this.buf = buf;
+    }
+
+    private void flush(boolean delayed) {
+        assert ctx.executor().inEventLoop() : "flush() called from outside event loop";
+        ByteBuf frame;
+        synchronized (this) {
+            if (delayed) delayedFlushQueued = false;
+            else         flushQueued = false;
+            if (closed || buf == null || !buf.isReadable())
+                return;
+            frame = buf.readRetainedSlice(buf.readableBytes());
+            ++frames;
+        }
+        if (framePrefix != null)
+            frame = Unpooled.wrappedBuffer(Unpooled.wrappedBuffer(framePrefix), frame);
+        ctx.writeAndFlush(new TextWebSocketFrame(frame));
+    }
+}
@@ -0,0 +1,221 @@
+package com.github.alexishuf.fastersparql.client.netty.ws.impl;
+
+import com.github.alexishuf.fastersparql.client.exceptions.SparqlClientServerException;
+import com.github.alexishuf.fastersparql.client.netty.ws.*;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.websocketx.CloseWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link NettyWsClient} that multiplexes many {@link WsClientHandler}s over a few WebSocket
+ * sessions opened by a delegate {@link NettyWsClient}.
+ *
+ * <p>Each handler is attached to a {@link WsStream} of a session (see {@link WsMux} for the
+ * protocol). New handlers go to the session with fewest active streams. A new session is opened
+ * only if all sessions have {@code streamsPerSession} active streams and there are less than
+ * {@code maxSessions} sessions. Idle sessions are kept open until {@link MuxNettyWsClient#close()}.</p>
+ */
+public class MuxNettyWsClient implements NettyWsClient {
+    private static final Logger log = LoggerFactory.getLogger(MuxNettyWsClient.class);
+    private final NettyWsClient delegate;
+    private final @Positive int maxSessions, streamsPerSession;
+    private final List<Session> sessions = new ArrayList<>();
+    private boolean closed;
+
+    public MuxNettyWsClient(NettyWsClient delegate, @Positive int maxSessions,
+                            @Positive int streamsPerSession) {
+        if (maxSessions < 1 || streamsPerSession < 1)
+            throw new IllegalArgumentException("maxSessions and streamsPerSession must be > 0");
+        this.delegate = delegate;
+        this.maxSessions = maxSessions;
+        this.streamsPerSession = streamsPerSession;
+    }
+
+    /** Number of open (or opening) WebSocket sessions. */
+    public synchronized int sessions() { return sessions.size(); }
+
+    @Override public void open(WsClientHandler handler) {
+        Session session = null;
+        boolean isNew = false;
+        synchronized (this) {
+            if (!closed) {
+                for (Session s : sessions) {
+                    if (session == null || s.activeStreams() < session.activeStreams())
+                        session = s;
+                }
+                if (session == null || (session.activeStreams() >= streamsPerSession
+                                        && sessions.size() < maxSessions)) {
+                    sessions.add(session = new Session());
+                    isNew = true;
+                }
+                session.add(handler);
+            }
+        }
+        if (session == null)
+            handler.onError(new IllegalStateException(this+" is closed"));
+        else if (isNew)
+            delegate.open(session);
+    }
+
+    @Override public void close() {
+        List<Session> copy;
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            copy = new ArrayList<>(sessions);
+        }
+        for (Session s : copy)
+            s.close();
+        delegate.close();
+    }
+
+    @Override public String toString() {
+        return "MuxNettyWsClient{delegate="+delegate+", sessions="+sessions()+"}";
+    }
+
+    private synchronized void remove(Session session) {
+        sessions.remove(session);
+    }
+
+    private final class Session implements WsClientHandler {
+        private final Map<Integer, Stream> streams = new HashMap<>();
+        private int nextId;
+        private @Nullable ChannelHandlerContext ctx;
+        private boolean dead;
+
+        synchronized int activeStreams() { return streams.size(); }
+
+        void add(WsClientHandler handler) {
+            Stream stream;
+            ChannelHandlerContext ctx;
+            synchronized (this) {
+                stream = new Stream(nextId++, handler);
+                streams.put(stream.id, stream);
+                ctx = this.ctx;
+            }
+            if (ctx != null)
+                ctx.executor().execute(() -> stream.attach(ctx));
+        }
+
+        void release(Stream stream) {
+            synchronized (this) {
+                if (streams.get(stream.id) == stream)
+                    streams.remove(stream.id);
+            }
+        }
+
+        void close() {
+            ChannelHandlerContext ctx;
+            synchronized (this) { ctx = this.ctx; }
+            if (ctx != null)
+                ctx.close(); // will trigger detach()
+        }
+
+        private List<Stream> drain() {
+            synchronized (this) {
+                dead = true;
+                List<Stream> list = new ArrayList<>(streams.values());
+                streams.clear();
+                return list;
+            }
+        }
+
+        @Override public void attach(ChannelHandlerContext ctx, WsRecycler recycler) {
+            List<Stream> list;
+            synchronized (this) {
+                this.ctx = ctx;
+                list = new ArrayList<>(streams.values());
+            }
+            ctx.channel().config().setAutoRead(true);
+            for (Stream s : list)
+                s.attach(ctx);
+        }
+
+        @Override public void detach() {
+            remove(this);
+            for (Stream s : drain()) {
+                if (s.attached)
+                    s.handler.detach();
+                else
+                    s.handler.onError(new SparqlClientServerException("WebSocket session closed"));
+            }
+        }
+
+        @Override public void onError(Throwable cause) {
+            remove(this);
+            for (Stream s : drain())
+                s.handler.onError(cause);
+        }
+
+        @Override public void onFrame(WebSocketFrame frame) {
+            if (frame instanceof CloseWebSocketFrame)
+                return; // detach() will follow
+            if (!(frame instanceof TextWebSocketFrame)) {
+                log.warn("{}: ignoring unexpected {}", this, frame.getClass().getSimpleName());
+                return;
+            }
+            String text = ((TextWebSocketFrame) frame).text();
+            WsMux.Tagged tagged = WsMux.untag(text);
+            Stream stream;
+            synchronized (this) {
+                stream = tagged == null ? null : streams.get(tagged.id);
+            }
+            if (tagged == null)
+                log.warn("{}: ignoring untagged frame {}", this, text);
+            else if (stream == null)
+                log.debug("{}: ignoring frame for released stream {}", this, tagged.id);
+            else
+                deliver(stream, new TextWebSocketFrame(tagged.message));
+        }
+
+        private void deliver(Stream stream, TextWebSocketFrame frame) {
+            try {
+                stream.handler.onFrame(frame);
+            } finally {
+                frame.release();
+            }
+        }
+
+        @Override public synchronized String toString() {
+            return "MuxSession{streams="+streams.size()+", ch="
+                    +(ctx == null ? (dead ? "[closed]" : "[opening]") : ctx.channel())+"}";
+        }
+
+        private final class Stream implements WsStream {
+            private final int id;
+            private final WsClientHandler handler;
+            private boolean attached;
+
+            Stream(int id, WsClientHandler handler) {
+                this.id = id;
+                this.handler = handler;
+            }
+
+            void attach(ChannelHandlerContext ctx) {
+                assert ctx.executor().inEventLoop() : "attach() called outside event loop";
+                synchronized (Session.this) {
+                    if (attached || streams.get(id) != this) return;
+                    attached = true;
+                }
+                handler.attach(ctx, this);
+            }
+
+            @Override public int id() { return id; }
+
+            @Override public void recycle(Channel channel) { release(this); }
+
+            @Override public String toString() { return Session.this+".stream#"+id; }
+        }
+    }
+}
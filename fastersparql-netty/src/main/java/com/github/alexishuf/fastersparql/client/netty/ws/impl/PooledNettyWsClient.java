@@ -3,6 +3,7 @@ package com.github.alexishuf.fastersparql.client.netty.ws.impl;
 import com.github.alexishuf.fastersparql.client.model.Protocol;
 import com.github.alexishuf.fastersparql.client.netty.http.ActiveChannelSet;
 import com.github.alexishuf.fastersparql.client.netty.util.EventLoopGroupHolder;
+import com.github.alexishuf.fastersparql.client.netty.util.NettyChannelOptions;
 import com.github.alexishuf.fastersparql.client.netty.ws.NettyWsClient;
 import com.github.alexishuf.fastersparql.client.netty.ws.WsClientHandler;
 import com.github.alexishuf.fastersparql.client.netty.ws.WsRecycler;
@@ -31,11 +32,12 @@ public class PooledNettyWsClient implements NettyWsClient {
     private final AtomicBoolean closed = new AtomicBoolean(false);
 
     public PooledNettyWsClient(EventLoopGroupHolder elgHolder, URI uri,
-                               HttpHeaders headers, boolean poolFIFO, @Nullable SslContext sslCtx) {
+                               HttpHeaders headers, boolean poolFIFO, @Nullable SslContext sslCtx,
+                               NettyChannelOptions channelOptions) {
         this.activeChannels = new ActiveChannelSet(uri.toString());
         this.elgHolder = elgHolder;
         InetSocketAddress address = createUnresolved(uri.getHost(), Protocol.port(uri));
-        Bootstrap bootstrap = elgHolder.acquireBootstrap(address);
+        Bootstrap bootstrap = elgHolder.acquireBootstrap(address, channelOptions);
         try {
             boolean lifo = !poolFIFO;
             WsRecycler recycler = this::recycle;
@@ -3,6 +3,7 @@ package com.github.alexishuf.fastersparql.client.netty.ws.impl;
 import com.github.alexishuf.fastersparql.client.exceptions.SparqlClientServerException;
 import com.github.alexishuf.fastersparql.client.model.Protocol;
 import com.github.alexishuf.fastersparql.client.netty.util.EventLoopGroupHolder;
+import com.github.alexishuf.fastersparql.client.netty.util.NettyChannelOptions;
 import com.github.alexishuf.fastersparql.client.netty.util.NettyRetryingChannelSupplier;
 import com.github.alexishuf.fastersparql.client.netty.ws.NettyWsClient;
 import com.github.alexishuf.fastersparql.client.netty.ws.WsClientHandler;
@@ -27,11 +28,12 @@ public class UnpooledNettyWsClient implements NettyWsClient {
     private final AtomicBoolean closed = new AtomicBoolean(false);
 
     public UnpooledNettyWsClient(EventLoopGroupHolder elgHolder, URI uri,
-                                 HttpHeaders headers, @Nullable SslContext sslContext) {
+                                 HttpHeaders headers, @Nullable SslContext sslContext,
+                                 NettyChannelOptions channelOptions) {
         this.elgHolder = elgHolder;
         InetSocketAddress address = createUnresolved(uri.getHost(), Protocol.port(uri));
         WsChannelInitializer initializer = new WsChannelInitializer(sslContext, uri, headers, WsRecycler.CLOSE);
-        this.bootstrap = elgHolder.acquireBootstrap(address).handler(initializer);
+        this.bootstrap = elgHolder.acquireBootstrap(address, channelOptions).handler(initializer);
     }
 
     @Override
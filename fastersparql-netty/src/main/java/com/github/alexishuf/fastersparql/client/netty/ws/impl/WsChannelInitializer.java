@@ -10,6 +10,7 @@ import io.netty.handler.codec.http.HttpClientCodec;
 import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.websocketx.extensions.compression.WebSocketClientCompressionHandler;
+import io.netty.handler.flush.FlushConsolidationHandler;
 import io.netty.handler.ssl.SslContext;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
@@ -36,6 +37,8 @@ class WsChannelInitializer extends ChannelInitializer<Channel> {
         pipe.addLast("http", new HttpClientCodec());
         pipe.addLast("aggregator", new HttpObjectAggregator(maxHttp));
         pipe.addLast("comp", WebSocketClientCompressionHandler.INSTANCE);
+        pipe.addLast("flush", new FlushConsolidationHandler(
+                FlushConsolidationHandler.DEFAULT_EXPLICIT_FLUSH_AFTER_FLUSHES, true));
         pipe.addLast("ws", new WsClientNettyHandler(uri, headers, recycler));
     }
 }
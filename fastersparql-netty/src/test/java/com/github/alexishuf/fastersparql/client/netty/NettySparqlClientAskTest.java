@@ -0,0 +1,161 @@
+package com.github.alexishuf.fastersparql.client.netty;
+
+import com.github.alexishuf.fastersparql.client.BindType;
+import com.github.alexishuf.fastersparql.client.model.Results;
+import com.github.alexishuf.fastersparql.client.model.SparqlEndpoint;
+import com.github.alexishuf.fastersparql.client.parser.fragment.ByteArrayFragmentParser;
+import com.github.alexishuf.fastersparql.client.parser.row.StringArrayRowParser;
+import com.github.alexishuf.fastersparql.client.util.reactive.AsyncIterable;
+import com.github.alexishuf.fastersparql.client.util.reactive.CallbackPublisher;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.*;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.*;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
+
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+class NettySparqlClientAskTest {
+    private static final String SPARQL = "SELECT ?x WHERE { ?x <http://example.org/p> ?o }";
+    private static EventLoopGroup serverGroup;
+    private static Channel serverChannel;
+    private static final Queue<String> queries = new ConcurrentLinkedQueue<>();
+
+    @BeforeAll
+    static void beforeAll() {
+        serverGroup = new NioEventLoopGroup(1);
+        serverChannel = new ServerBootstrap().group(serverGroup)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override protected void initChannel(SocketChannel ch) {
+                        ch.pipeline().addLast(new HttpServerCodec())
+                                     .addLast(new HttpObjectAggregator(65536))
+                                     .addLast(new Handler());
+                    }
+                }).bind(0).syncUninterruptibly().channel();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        serverChannel.close().syncUninterruptibly();
+        serverGroup.shutdownGracefully();
+    }
+
+    /**
+     * Answers an ASK query with true iff the query mentions {@code <yes}. Non-ASK queries and
+     * queries mentioning {@code <error>} get a 400 response.
+     */
+    private static class Handler extends SimpleChannelInboundHandler<FullHttpRequest> {
+        @Override protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest req) {
+            String query = new QueryStringDecoder(req.uri()).parameters().get("query").get(0);
+            queries.add(query);
+            FullHttpResponse res;
+            if (query.trim().startsWith("ASK") && !query.contains("<error>")) {
+                String json = "{\"head\":{}, \"boolean\": "+query.contains("<yes")+"}";
+                res = new DefaultFullHttpResponse(HTTP_1_1, OK,
+                                                  Unpooled.copiedBuffer(json, UTF_8));
+                res.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/sparql-results+json");
+            } else {
+                res = new DefaultFullHttpResponse(HTTP_1_1, HttpResponseStatus.BAD_REQUEST,
+                                                  Unpooled.copiedBuffer("not ASK", UTF_8));
+                res.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/plain");
+            }
+            res.headers().set(HttpHeaderNames.CONTENT_LENGTH, res.content().readableBytes());
+            ctx.writeAndFlush(res);
+        }
+    }
+
+    private static NettySparqlClient<String[], byte[]> client() {
+        int port = ((InetSocketAddress) serverChannel.localAddress()).getPort();
+        SparqlEndpoint ep = SparqlEndpoint.parse("get,json@http://localhost:"+port+"/sparql");
+        return new NettySparqlClient<>(ep, StringArrayRowParser.INSTANCE,
+                                       ByteArrayFragmentParser.INSTANCE);
+    }
+
+    private static final class ListPublisher extends CallbackPublisher<String[]> {
+        private final List<String[]> rows;
+        private boolean fed;
+
+        public ListPublisher(List<String[]> rows) {
+            super("ListPublisher");
+            this.rows = rows;
+        }
+        @Override protected void onRequest(long n) {
+            if (!fed) {
+                fed = true;
+                for (String[] row : rows)
+                    feed(row);
+                complete(null);
+            }
+        }
+        @Override protected void onBackpressure() { }
+        @Override protected void onCancel() { }
+    }
+
+    @Test
+    void testAsk() throws Exception {
+        queries.clear();
+        try (NettySparqlClient<String[], byte[]> client = client()) {
+            assertTrue(client.ask("SELECT ?o WHERE { <yes> <p> ?o }", null).get());
+            assertFalse(client.ask("SELECT ?o WHERE { <no> <p> ?o }", null).get());
+            assertTrue(client.ask("ASK { <yes> <p> ?o }", null).get());
+            ExecutionException e = assertThrows(ExecutionException.class,
+                    () -> client.ask("SELECT * WHERE { <error> <p> ?o }", null).get());
+            assertTrue(e.getCause().getMessage().contains("400"), e.getCause().getMessage());
+        }
+        for (String query : queries.toArray(new String[0]))
+            assertTrue(query.trim().startsWith("ASK"), query);
+    }
+
+    static Stream<Arguments> bindData() {
+        return Stream.of(
+                arguments(BindType.EXISTS, asList("<yes>", "<yes2>")),
+                arguments(BindType.NOT_EXISTS, singletonList("<no>")),
+                arguments(BindType.MINUS, singletonList("<no>"))
+        );
+    }
+
+    @ParameterizedTest @MethodSource("bindData")
+    void testBind(BindType bindType, List<String> expected) {
+        queries.clear();
+        List<String[]> leftRows = asList(new String[]{"<yes>"}, new String[]{"<no>"},
+                                         new String[]{"<yes2>"});
+        Results<String[]> bindings = new Results<>(singletonList("x"), String[].class,
+                                                   new ListPublisher(leftRows));
+        try (NettySparqlClient<String[], byte[]> client = client()) {
+            Results<String[]> results = client.query(SPARQL, null, bindings, bindType);
+            assertEquals(singletonList("x"), results.vars());
+            List<String> actual = new ArrayList<>();
+            AsyncIterable<String[]> it = results.iterable();
+            for (String[] row : it)
+                actual.add(row[0]);
+            assertNull(it.error());
+            assertEquals(expected, actual);
+        }
+        assertEquals(3, queries.size());
+        for (String query : queries)
+            assertTrue(query.trim().startsWith("ASK"), query);
+    }
+}
@@ -0,0 +1,192 @@
+package com.github.alexishuf.fastersparql.client.netty;
+
+import com.github.alexishuf.fastersparql.client.model.SparqlEndpoint;
+import com.github.alexishuf.fastersparql.client.netty.util.EarlyTerminationMetrics;
+import com.github.alexishuf.fastersparql.client.parser.fragment.ByteArrayFragmentParser;
+import com.github.alexishuf.fastersparql.client.parser.row.StringArrayRowParser;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.*;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.*;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static com.github.alexishuf.fastersparql.client.netty.util.FasterSparqlNettyProperties.*;
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+class NettySparqlClientCancelTest {
+    private static final String QUERY = "SELECT ?x WHERE { ?x ?p ?o }";
+    private static final String ID_HEADER = "X-Query-Id";
+    private static EventLoopGroup serverGroup;
+    private static Channel serverChannel;
+    private static final AtomicInteger connections = new AtomicInteger();
+    private static final BlockingQueue<ChannelHandlerContext> pending = new LinkedBlockingQueue<>();
+    private static final Map<String, ChannelHandlerContext> pendingById = new ConcurrentHashMap<>();
+
+    @BeforeAll
+    static void beforeAll() {
+        serverGroup = new NioEventLoopGroup(1);
+        serverChannel = new ServerBootstrap().group(serverGroup)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override protected void initChannel(SocketChannel ch) {
+                        connections.incrementAndGet();
+                        ch.pipeline().addLast(new HttpServerCodec())
+                                     .addLast(new HttpObjectAggregator(65536))
+                                     .addLast(new Handler());
+                    }
+                }).bind(0).syncUninterruptibly().channel();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        serverChannel.close().syncUninterruptibly();
+        serverGroup.shutdownGracefully();
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (String name : Arrays.asList(CANCEL_DRAIN_BYTES, CANCEL_ID_HEADER, CANCEL_PATH))
+            System.clearProperty(name);
+        pending.clear();
+        pendingById.clear();
+    }
+
+    /**
+     * Answers queries with the first row and keeps the response open until
+     * {@link NettySparqlClientCancelTest#finish(ChannelHandlerContext, int)}. A POST to
+     * {@code /cancel?id=ID} finishes the response to the query with that id.
+     */
+    private static class Handler extends SimpleChannelInboundHandler<FullHttpRequest> {
+        @Override protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest req) {
+            if (req.uri().startsWith("/cancel")) {
+                String id = new QueryStringDecoder(req.uri()).parameters().get("id").get(0);
+                ChannelHandlerContext queryCtx = pendingById.remove(id);
+                if (queryCtx != null)
+                    finish(queryCtx, 16);
+                FullHttpResponse res = new DefaultFullHttpResponse(HTTP_1_1, OK);
+                res.headers().set(HttpHeaderNames.CONTENT_LENGTH, 0);
+                ctx.writeAndFlush(res);
+                return;
+            }
+            HttpResponse res = new DefaultHttpResponse(HTTP_1_1, OK);
+            res.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/tab-separated-values");
+            res.headers().set(HttpHeaderNames.TRANSFER_ENCODING, "chunked");
+            ctx.write(res);
+            ctx.writeAndFlush(new DefaultHttpContent(Unpooled.copiedBuffer("?x\n<a>\n", UTF_8)));
+            String id = req.headers().get(ID_HEADER);
+            if (id != null)
+                pendingById.put(id, ctx);
+            pending.add(ctx);
+        }
+    }
+
+    /** Send {@code rows} more rows and end the response. */
+    private static void finish(ChannelHandlerContext ctx, int rows) {
+        ctx.executor().execute(() -> {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < rows; i++)
+                sb.append("<http://example.org/").append(i).append(">\n");
+            ctx.write(new DefaultHttpContent(Unpooled.copiedBuffer(sb, UTF_8)));
+            ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+        });
+    }
+
+    private static NettySparqlClient<String[], byte[]> client() {
+        int port = ((InetSocketAddress) serverChannel.localAddress()).getPort();
+        SparqlEndpoint ep = SparqlEndpoint.parse("get,tsv@http://localhost:"+port+"/sparql");
+        return new NettySparqlClient<>(ep, StringArrayRowParser.INSTANCE,
+                                       ByteArrayFragmentParser.INSTANCE);
+    }
+
+    /** Subscribe to a query and cancel once the first row arrives. */
+    private static void queryAndCancel(NettySparqlClient<String[], ?> client) throws Exception {
+        CompletableFuture<String[]> first = new CompletableFuture<>();
+        client.query(QUERY).publisher().subscribe(new Subscriber<String[]>() {
+            private Subscription subscription;
+            @Override public void onSubscribe(Subscription s) { (subscription = s).request(1); }
+            @Override public void onNext(String[] row) {
+                subscription.cancel();
+                first.complete(row);
+            }
+            @Override public void onError(Throwable t) { first.completeExceptionally(t); }
+            @Override public void onComplete() { first.complete(null); }
+        });
+        assertArrayEquals(new String[]{"<a>"}, first.get(5, TimeUnit.SECONDS));
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        for (long end = System.nanoTime()+TimeUnit.SECONDS.toNanos(5); !condition.getAsBoolean(); ) {
+            assertTrue(System.nanoTime() < end, "timeout");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void testDrainKeepsConnection() throws Exception {
+        try (NettySparqlClient<String[], byte[]> client = client()) {
+            EarlyTerminationMetrics metrics = client.earlyTerminationMetrics();
+            int connectionsBefore = connections.get();
+            for (int i = 1; i <= 3; i++) {
+                queryAndCancel(client);
+                int expected = i;
+                // cancel() reaches the event loop asynchronously, do not let the response end first
+                waitFor(() -> metrics.cancelled() == expected);
+                finish(pending.take(), 100);
+                waitFor(() -> metrics.drained() == expected);
+                assertEquals(0, metrics.closed());
+                assertEquals(0, metrics.serverCancels());
+            }
+            assertTrue(metrics.wastedBytes() > 3*100*20, "wastedBytes="+metrics.wastedBytes());
+            assertEquals(1, connections.get()-connectionsBefore);
+        }
+    }
+
+    @Test
+    void testCloseIfDrainTooLarge() throws Exception {
+        System.setProperty(CANCEL_DRAIN_BYTES, "64");
+        try (NettySparqlClient<String[], byte[]> client = client()) {
+            EarlyTerminationMetrics metrics = client.earlyTerminationMetrics();
+            queryAndCancel(client);
+            waitFor(() -> metrics.cancelled() == 1);
+            finish(pending.take(), 100);
+            waitFor(() -> metrics.closed() == 1);
+            assertEquals(0, metrics.drained());
+        }
+    }
+
+    @Test
+    void testServerCancel() throws Exception {
+        System.setProperty(CANCEL_ID_HEADER, ID_HEADER);
+        System.setProperty(CANCEL_PATH, "/cancel?id={id}");
+        try (NettySparqlClient<String[], byte[]> client = client()) {
+            EarlyTerminationMetrics metrics = client.earlyTerminationMetrics();
+            for (int i = 1; i <= 2; i++) {
+                queryAndCancel(client);
+                int expected = i;
+                // the response only ends if the server receives the cancel request
+                waitFor(() -> metrics.drained() == expected);
+                assertEquals(i, metrics.serverCancels());
+                assertEquals(0, metrics.closed());
+            }
+            assertTrue(pendingById.isEmpty());
+        }
+    }
+}
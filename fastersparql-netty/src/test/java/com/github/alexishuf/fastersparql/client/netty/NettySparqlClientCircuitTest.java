@@ -0,0 +1,174 @@
+package com.github.alexishuf.fastersparql.client.netty;
+
+import com.github.alexishuf.fastersparql.client.exceptions.SparqlClientCircuitOpenException;
+import com.github.alexishuf.fastersparql.client.model.SparqlEndpoint;
+import com.github.alexishuf.fastersparql.client.parser.fragment.ByteArrayFragmentParser;
+import com.github.alexishuf.fastersparql.client.parser.row.StringArrayRowParser;
+import com.github.alexishuf.fastersparql.client.util.FasterSparqlProperties;
+import com.github.alexishuf.fastersparql.client.util.health.CircuitBreaker;
+import com.github.alexishuf.fastersparql.client.util.health.CircuitBreakerRegistry;
+import com.github.alexishuf.fastersparql.client.util.reactive.AsyncIterable;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.*;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.*;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+class NettySparqlClientCircuitTest {
+    private static final String SPARQL = "SELECT ?x WHERE { ?x <http://example.org/p> ?o }";
+    private static EventLoopGroup serverGroup;
+    private static Channel serverChannel;
+    private static final AtomicInteger requests = new AtomicInteger();
+
+    @BeforeAll
+    static void beforeAll() {
+        serverGroup = new NioEventLoopGroup(1);
+        serverChannel = new ServerBootstrap().group(serverGroup)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override protected void initChannel(SocketChannel ch) {
+                        ch.pipeline().addLast(new HttpServerCodec())
+                                     .addLast(new HttpObjectAggregator(65536))
+                                     .addLast(new Handler());
+                    }
+                }).bind(0).syncUninterruptibly().channel();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        serverChannel.close().syncUninterruptibly();
+        serverGroup.shutdownGracefully();
+    }
+
+    /**
+     * Answers requests to {@code /503} with 503, requests to {@code /reset} with a 200 whose
+     * body is cut by closing the connection and all others with 400.
+     */
+    private static class Handler extends SimpleChannelInboundHandler<FullHttpRequest> {
+        @Override protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest req) {
+            requests.incrementAndGet();
+            if (req.uri().startsWith("/reset")) {
+                HttpResponse res = new DefaultHttpResponse(HTTP_1_1, HttpResponseStatus.OK);
+                res.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/sparql-results+json");
+                res.headers().set(HttpHeaderNames.TRANSFER_ENCODING, HttpHeaderValues.CHUNKED);
+                ctx.write(res);
+                String partial = "{\"head\":{\"vars\":[\"x\"]},\"results\":{\"bindings\":[";
+                ctx.writeAndFlush(new DefaultHttpContent(Unpooled.copiedBuffer(partial, UTF_8)))
+                   .addListener(ChannelFutureListener.CLOSE);
+                return;
+            }
+            HttpResponseStatus status = req.uri().startsWith("/503")
+                    ? HttpResponseStatus.SERVICE_UNAVAILABLE : HttpResponseStatus.BAD_REQUEST;
+            FullHttpResponse res = new DefaultFullHttpResponse(HTTP_1_1, status,
+                    Unpooled.copiedBuffer(status.reasonPhrase(), UTF_8));
+            res.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/plain");
+            res.headers().set(HttpHeaderNames.CONTENT_LENGTH, res.content().readableBytes());
+            ctx.writeAndFlush(res);
+        }
+    }
+
+    private static NettySparqlClient<String[], byte[]> client(String path) {
+        int port = ((InetSocketAddress) serverChannel.localAddress()).getPort();
+        String uri = "http://localhost:" + port + path;
+        CircuitBreakerRegistry.remove(uri);
+        System.setProperty(FasterSparqlProperties.CLIENT_CIRCUIT_MIN_CALLS, "4");
+        System.setProperty(FasterSparqlProperties.CLIENT_CIRCUIT_OPEN_MS, "60000");
+        try {
+            return new NettySparqlClient<>(SparqlEndpoint.parse("get,json@" + uri),
+                    StringArrayRowParser.INSTANCE, ByteArrayFragmentParser.INSTANCE);
+        } finally {
+            System.clearProperty(FasterSparqlProperties.CLIENT_CIRCUIT_MIN_CALLS);
+            System.clearProperty(FasterSparqlProperties.CLIENT_CIRCUIT_OPEN_MS);
+        }
+    }
+
+    private static Throwable queryError(NettySparqlClient<String[], byte[]> client) {
+        AsyncIterable<String[]> it = client.query(SPARQL).iterable();
+        assertFalse(it.iterator().hasNext());
+        assertNotNull(it.error());
+        return it.error();
+    }
+
+    @Test
+    void testFailFastOnServerErrors() {
+        try (NettySparqlClient<String[], byte[]> client = client("/503/sparql")) {
+            requests.set(0);
+            for (int i = 0; i < 4; i++)
+                assertFalse(queryError(client) instanceof SparqlClientCircuitOpenException);
+            assertEquals(4, requests.get());
+            assertEquals(CircuitBreaker.State.OPEN, client.circuitBreaker().state());
+            assertEquals(0, client.circuitBreaker().health());
+
+            assertTrue(queryError(client) instanceof SparqlClientCircuitOpenException);
+            ExecutionException e = assertThrows(ExecutionException.class,
+                                                () -> client.ask(SPARQL, null).get());
+            assertTrue(e.getCause() instanceof SparqlClientCircuitOpenException);
+            assertEquals(4, requests.get()); // no request reached the server
+        }
+    }
+
+    @Test
+    void testClientErrorsDoNotOpen() {
+        try (NettySparqlClient<String[], byte[]> client = client("/400/sparql")) {
+            requests.set(0);
+            for (int i = 0; i < 8; i++)
+                assertFalse(queryError(client) instanceof SparqlClientCircuitOpenException);
+            assertEquals(8, requests.get());
+            assertEquals(CircuitBreaker.State.CLOSED, client.circuitBreaker().state());
+            assertEquals(1, client.circuitBreaker().health());
+        }
+    }
+
+    @Test
+    void testResetsAfterResponseStartOpen() {
+        try (NettySparqlClient<String[], byte[]> client = client("/reset/sparql")) {
+            requests.set(0);
+            for (int i = 0; i < 4; i++)
+                assertFalse(queryError(client) instanceof SparqlClientCircuitOpenException);
+            assertEquals(4, requests.get());
+            assertEquals(CircuitBreaker.State.OPEN, client.circuitBreaker().state());
+        }
+    }
+
+    @Test
+    void testConnectionErrorsOpen() throws Exception {
+        int port;
+        try (java.net.ServerSocket socket = new java.net.ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        String uri = "http://localhost:" + port + "/sparql";
+        CircuitBreakerRegistry.remove(uri);
+        System.setProperty(FasterSparqlProperties.CLIENT_CIRCUIT_MIN_CALLS, "2");
+        System.setProperty(FasterSparqlProperties.CLIENT_CONN_RETRIES, "1");
+        System.setProperty(FasterSparqlProperties.CLIENT_CONN_RETRY_WAIT_MS, "10");
+        NettySparqlClient<String[], byte[]> client;
+        try {
+            client = new NettySparqlClient<>(SparqlEndpoint.parse("get,json@" + uri),
+                    StringArrayRowParser.INSTANCE, ByteArrayFragmentParser.INSTANCE);
+        } finally {
+            System.clearProperty(FasterSparqlProperties.CLIENT_CIRCUIT_MIN_CALLS);
+        }
+        try {
+            for (int i = 0; i < 2; i++)
+                assertFalse(queryError(client) instanceof SparqlClientCircuitOpenException);
+            assertTrue(queryError(client) instanceof SparqlClientCircuitOpenException);
+        } finally {
+            System.clearProperty(FasterSparqlProperties.CLIENT_CONN_RETRIES);
+            System.clearProperty(FasterSparqlProperties.CLIENT_CONN_RETRY_WAIT_MS);
+            client.close();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.github.alexishuf.fastersparql.client.netty;
+
+import com.github.alexishuf.fastersparql.client.model.DownloadOptions;
+import com.github.alexishuf.fastersparql.client.model.DownloadStats;
+import com.github.alexishuf.fastersparql.client.model.Graph;
+import com.github.alexishuf.fastersparql.client.model.RDFMediaTypes;
+import com.github.alexishuf.fastersparql.client.model.SparqlEndpoint;
+import com.github.alexishuf.fastersparql.client.netty.parser.ByteBufTripleFragmentParser;
+import com.github.alexishuf.fastersparql.client.netty.parser.RetainedByteBufFragmentParser;
+import com.github.alexishuf.fastersparql.client.parser.fragment.ByteArrayFragmentParser;
+import com.github.alexishuf.fastersparql.client.parser.fragment.FragmentParser;
+import com.github.alexishuf.fastersparql.client.parser.row.StringArrayRowParser;
+import com.github.alexishuf.fastersparql.client.util.reactive.AsyncIterable;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.*;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.*;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.net.InetSocketAddress;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.junit.jupiter.api.Assertions.*;
+
+class NettySparqlClientGraphTest {
+    private static final int TRIPLES = 200;
+    private static final int CHUNK = 37;
+    private static final String QUERY = "CONSTRUCT {?s ?p ?o} WHERE {?s ?p ?o}";
+    private static EventLoopGroup serverGroup;
+    private static Channel serverChannel;
+    private static String data;
+
+    @BeforeAll
+    static void beforeAll() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < TRIPLES; i++)
+            sb.append("<http://example.org/s> <http://example.org/p> \"").append(i).append("\" .\n");
+        data = sb.toString();
+        serverGroup = new NioEventLoopGroup(1);
+        serverChannel = new ServerBootstrap().group(serverGroup)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override protected void initChannel(SocketChannel ch) {
+                        ch.pipeline().addLast(new HttpServerCodec())
+                                     .addLast(new HttpObjectAggregator(65536))
+                                     .addLast(new GraphHandler());
+                    }
+                }).bind(0).syncUninterruptibly().channel();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        serverChannel.close().syncUninterruptibly();
+        serverGroup.shutdownGracefully();
+    }
+
+    /** Answers any request with {@code data} as N-Triples, in chunks of {@code CHUNK} bytes. */
+    private static class GraphHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+        @Override protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest req) {
+            HttpResponse res = new DefaultHttpResponse(HTTP_1_1, OK);
+            res.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/n-triples");
+            res.headers().set(HttpHeaderNames.TRANSFER_ENCODING, "chunked");
+            ctx.write(res);
+            byte[] bytes = data.getBytes(UTF_8);
+            for (int i = 0; i < bytes.length; i += CHUNK) {
+                int len = Math.min(CHUNK, bytes.length - i);
+                ctx.write(new DefaultHttpContent(Unpooled.copiedBuffer(bytes, i, len)));
+            }
+            ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+        }
+    }
+
+    private static <F> NettySparqlClient<String[], F> client(FragmentParser<F> parser) {
+        int port = ((InetSocketAddress) serverChannel.localAddress()).getPort();
+        SparqlEndpoint ep = SparqlEndpoint.parse("http://localhost:"+port+"/sparql");
+        return new NettySparqlClient<>(ep, StringArrayRowParser.INSTANCE, parser);
+    }
+
+    @Test
+    void testRetainedByteBufs() throws Exception {
+        try (NettySparqlClient<String[], ByteBuf> client
+                     = client(RetainedByteBufFragmentParser.INSTANCE)) {
+            for (int repetition = 0; repetition < 3; repetition++) {
+                Graph<ByteBuf> graph = client.queryGraph(QUERY);
+                assertEquals(ByteBuf.class, graph.fragmentClass());
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                AsyncIterable<ByteBuf> it = graph.iterable();
+                for (ByteBuf bb : it) {
+                    assertTrue(bb.isReadOnly());
+                    assertTrue(bb.refCnt() > 0);
+                    bb.readBytes(out, bb.readableBytes());
+                    assertTrue(bb.release());
+                }
+                assertNull(it.error());
+                assertEquals(data, new String(out.toByteArray(), UTF_8));
+            }
+        }
+    }
+
+    @Test
+    void testByteBufTriples() {
+        try (NettySparqlClient<String[], String[]> client
+                     = client(ByteBufTripleFragmentParser.INSTANCE)) {
+            AsyncIterable<String[]> it = client.queryGraph(QUERY).iterable();
+            List<String[]> triples = new ArrayList<>();
+            for (String[] triple : it)
+                triples.add(triple);
+            assertNull(it.error());
+            assertEquals(TRIPLES, triples.size());
+            for (int i = 0; i < TRIPLES; i++) {
+                assertEquals("<http://example.org/s>", triples.get(i)[0]);
+                assertEquals("\""+i+"\"", triples.get(i)[2]);
+            }
+        }
+    }
+
+    @Test
+    void testCopiedBytes() throws Exception {
+        try (NettySparqlClient<String[], byte[]> client
+                     = client(ByteArrayFragmentParser.INSTANCE)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            AsyncIterable<byte[]> it = client.queryGraph(QUERY).iterable();
+            for (byte[] bytes : it)
+                out.write(bytes);
+            assertNull(it.error());
+            assertEquals(data, new String(out.toByteArray(), UTF_8));
+        }
+    }
+
+    @Test
+    void testDownloadGraph() throws Exception {
+        Path path = Files.createTempFile("fastersparql", ".nt");
+        try (NettySparqlClient<String[], String[]> client
+                     = client(ByteBufTripleFragmentParser.INSTANCE)) {
+            for (int repetition = 0; repetition < 3; repetition++) {
+                DownloadStats stats;
+                try (FileChannel ch = FileChannel.open(path, WRITE, TRUNCATE_EXISTING)) {
+                    DownloadOptions options = DownloadOptions.DEFAULT.withCountTriples(true);
+                    stats = client.downloadGraph(QUERY, null, ch, options).get();
+                }
+                assertEquals(data, new String(Files.readAllBytes(path), UTF_8));
+                assertEquals(RDFMediaTypes.NT, stats.mediaType());
+                assertEquals(Files.size(path), stats.bytesWritten());
+                assertEquals(Files.size(path), stats.bytesReceived());
+                assertEquals(TRIPLES, stats.triples());
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.github.alexishuf.fastersparql.client.netty;
+
+import com.github.alexishuf.fastersparql.client.BindType;
+import com.github.alexishuf.fastersparql.client.model.Results;
+import com.github.alexishuf.fastersparql.client.model.SparqlEndpoint;
+import com.github.alexishuf.fastersparql.client.parser.fragment.ByteArrayFragmentParser;
+import com.github.alexishuf.fastersparql.client.parser.row.StringArrayRowParser;
+import com.github.alexishuf.fastersparql.client.util.health.CircuitBreakerRegistry;
+import com.github.alexishuf.fastersparql.client.util.limit.EndpointLimiter;
+import com.github.alexishuf.fastersparql.client.util.limit.EndpointLimiterRegistry;
+import com.github.alexishuf.fastersparql.client.util.reactive.AsyncIterable;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.*;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.*;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.junit.jupiter.api.Assertions.*;
+
+class NettySparqlClientLimitTest {
+    private static final String SPARQL = "SELECT ?x WHERE { ?x <http://example.org/p> ?o }";
+    private static final String LEFT_SPARQL = "SELECT ?x WHERE { ?x <http://example.org/left> ?o }";
+    private static final String RESET_SPARQL = "SELECT ?x WHERE { ?x <http://example.org/reset> ?o }";
+    private static final String LEFT_JSON = "{\"head\":{\"vars\":[\"x\"]},\"results\":{\"bindings\":["
+                                          + "{\"x\":{\"type\":\"literal\",\"value\":\"1\"}},"
+                                          + "{\"x\":{\"type\":\"literal\",\"value\":\"2\"}}";
+    private static final String JSON = "{\"head\":{\"vars\":[\"x\"]},\"results\":{\"bindings\":"
+                                     + "[{\"x\":{\"type\":\"literal\",\"value\":\"1\"}}]}}";
+    private static EventLoopGroup serverGroup;
+    private static Channel serverChannel;
+    private static final AtomicInteger inFlight = new AtomicInteger();
+    private static final AtomicInteger maxInFlight = new AtomicInteger();
+    private static final AtomicBoolean sendTooMany = new AtomicBoolean();
+    private static final AtomicReference<ChannelHandlerContext> openLeft = new AtomicReference<>();
+    private static final AtomicBoolean requestWhileLeftOpen = new AtomicBoolean();
+    private static final AtomicBoolean resetAfterHeader = new AtomicBoolean();
+    private static final Semaphore resetReceived = new Semaphore(0);
+
+    @BeforeAll
+    static void beforeAll() {
+        serverGroup = new NioEventLoopGroup(1);
+        serverChannel = new ServerBootstrap().group(serverGroup)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override protected void initChannel(SocketChannel ch) {
+                        ch.pipeline().addLast(new HttpServerCodec())
+                                     .addLast(new HttpObjectAggregator(65536))
+                                     .addLast(new Handler());
+                    }
+                }).bind(0).syncUninterruptibly().channel();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        serverChannel.close().syncUninterruptibly();
+        serverGroup.shutdownGracefully();
+    }
+
+    /**
+     * Answers with one row after 100ms, tracking concurrent requests. If {@code sendTooMany}
+     * is set, answers the next request immediately with 429 and {@code Retry-After: 1}.
+     *
+     * <p>Queries for {@code <http://example.org/left>} get all rows of a chunked response
+     * whose end (including the end of the JSON document) is only sent once another request
+     * arrives (or after 3 seconds).</p>
+     *
+     * <p>If {@code resetAfterHeader} is set, the next query for
+     * {@code <http://example.org/reset>} gets only the response headers after 50ms and
+     * the connection is reset 20ms later.</p>
+     */
+    private static class Handler extends SimpleChannelInboundHandler<FullHttpRequest> {
+        @Override protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest req) {
+            if (req.uri().contains("left")) {
+                HttpResponse res = new DefaultHttpResponse(HTTP_1_1, HttpResponseStatus.OK);
+                res.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/sparql-results+json");
+                res.headers().set(HttpHeaderNames.TRANSFER_ENCODING, HttpHeaderValues.CHUNKED);
+                ctx.write(res);
+                ctx.writeAndFlush(new DefaultHttpContent(Unpooled.copiedBuffer(LEFT_JSON, UTF_8)));
+                openLeft.set(ctx);
+                ctx.executor().schedule(Handler::endLeft, 3, TimeUnit.SECONDS);
+                return;
+            }
+            if (req.uri().contains("reset") && resetAfterHeader.compareAndSet(true, false)) {
+                resetReceived.release();
+                ctx.executor().schedule(() -> {
+                    HttpResponse res = new DefaultHttpResponse(HTTP_1_1, HttpResponseStatus.OK);
+                    HttpHeaders headers = res.headers();
+                    headers.set(HttpHeaderNames.CONTENT_TYPE, "application/sparql-results+json");
+                    headers.set(HttpHeaderNames.TRANSFER_ENCODING, HttpHeaderValues.CHUNKED);
+                    ctx.writeAndFlush(res);
+                    ctx.executor().schedule(() -> {
+                        ctx.channel().config().setOption(ChannelOption.SO_LINGER, 0);
+                        ctx.close();
+                    }, 20, MILLISECONDS);
+                }, 50, MILLISECONDS);
+                return;
+            }
+            if (openLeft.get() != null) {
+                requestWhileLeftOpen.set(true);
+                endLeft();
+            }
+            if (sendTooMany.compareAndSet(true, false)) {
+                HttpResponseStatus status = HttpResponseStatus.TOO_MANY_REQUESTS;
+                FullHttpResponse res = new DefaultFullHttpResponse(HTTP_1_1, status,
+                        Unpooled.copiedBuffer(status.reasonPhrase(), UTF_8));
+                res.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/plain");
+                res.headers().set(HttpHeaderNames.CONTENT_LENGTH, res.content().readableBytes());
+                res.headers().set(HttpHeaderNames.RETRY_AFTER, "1");
+                ctx.writeAndFlush(res);
+                return;
+            }
+            int current = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(current, Math::max);
+            ctx.executor().schedule(() -> {
+                inFlight.decrementAndGet();
+                FullHttpResponse res = new DefaultFullHttpResponse(HTTP_1_1,
+                        HttpResponseStatus.OK, Unpooled.copiedBuffer(JSON, UTF_8));
+                res.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/sparql-results+json");
+                res.headers().set(HttpHeaderNames.CONTENT_LENGTH, res.content().readableBytes());
+                ctx.writeAndFlush(res);
+            }, 100, MILLISECONDS);
+        }
+
+        private static void endLeft() {
+            ChannelHandlerContext left = openLeft.getAndSet(null);
+            if (left != null) {
+                ByteBuf end = Unpooled.copiedBuffer("]}}", UTF_8);
+                left.writeAndFlush(new DefaultLastHttpContent(end));
+            }
+        }
+    }
+
+    private static String uri() {
+        int port = ((InetSocketAddress) serverChannel.localAddress()).getPort();
+        return "http://localhost:" + port + "/sparql";
+    }
+
+    private static NettySparqlClient<String[], byte[]> client() {
+        return new NettySparqlClient<>(SparqlEndpoint.parse("get,json@" + uri()),
+                StringArrayRowParser.INSTANCE, ByteArrayFragmentParser.INSTANCE);
+    }
+
+    private static List<String[]> query(NettySparqlClient<String[], byte[]> client) {
+        List<String[]> rows = new ArrayList<>();
+        AsyncIterable<String[]> it = client.query(SPARQL).iterable();
+        it.forEach(rows::add);
+        assertNull(it.error());
+        return rows;
+    }
+
+    @Test
+    void testMaxConcurrent() throws Exception {
+        String key = EndpointLimiterRegistry.key(SparqlEndpoint.parse(uri()));
+        EndpointLimiter limiter = EndpointLimiterRegistry.configure(key, 0, 0, 2);
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        try (NettySparqlClient<String[], byte[]> client = client()) {
+            inFlight.set(0);
+            maxInFlight.set(0);
+            List<Future<List<String[]>>> futures = new ArrayList<>();
+            for (int i = 0; i < 6; i++)
+                futures.add(executor.submit(() -> query(client)));
+            for (Future<List<String[]>> future : futures)
+                assertEquals(1, future.get(10, TimeUnit.SECONDS).size());
+            assertTrue(maxInFlight.get() <= 2, "maxInFlight="+maxInFlight.get());
+            assertEquals(6, limiter.granted());
+            assertTrue(limiter.delayed() > 0);
+            assertEquals(0, limiter.active());
+        } finally {
+            executor.shutdownNow();
+            EndpointLimiterRegistry.remove(key);
+            CircuitBreakerRegistry.remove(uri());
+        }
+    }
+
+    @Test
+    void testBindJoinSameHost() {
+        String key = EndpointLimiterRegistry.key(SparqlEndpoint.parse(uri()));
+        EndpointLimiter limiter = EndpointLimiterRegistry.configure(key, 0, 0, 1);
+        try (NettySparqlClient<String[], byte[]> client = client()) {
+            requestWhileLeftOpen.set(false);
+            Results<String[]> left = client.query(LEFT_SPARQL);
+            Results<String[]> joined = client.query(SPARQL, null, left, BindType.JOIN);
+            List<String[]> rows = new ArrayList<>();
+            AsyncIterable<String[]> it = joined.iterable();
+            it.forEach(rows::add);
+            assertNull(it.error());
+            assertEquals(2, rows.size());
+            // bind queries did not wait for the left response to be consumed
+            assertTrue(requestWhileLeftOpen.get());
+            assertEquals(0, limiter.active());
+        } finally {
+            EndpointLimiterRegistry.remove(key);
+            CircuitBreakerRegistry.remove(uri());
+        }
+    }
+
+    @Test
+    void testRetryAfterHeaderWaitsForSlot() throws Exception {
+        String key = EndpointLimiterRegistry.key(SparqlEndpoint.parse(uri()));
+        EndpointLimiter limiter = EndpointLimiterRegistry.configure(key, 0, 0, 1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (NettySparqlClient<String[], byte[]> client = client()) {
+            inFlight.set(0);
+            maxInFlight.set(0);
+            resetReceived.drainPermits();
+            resetAfterHeader.set(true);
+            Future<List<String[]>> reset = executor.submit(() -> {
+                List<String[]> rows = new ArrayList<>();
+                AsyncIterable<String[]> it = client.query(RESET_SPARQL).iterable();
+                it.forEach(rows::add);
+                assertNull(it.error());
+                return rows;
+            });
+            assertTrue(resetReceived.tryAcquire(5, TimeUnit.SECONDS));
+            // queued behind the reset query, granted once its response starts
+            Future<List<String[]>> other = executor.submit(() -> query(client));
+            assertEquals(1, other.get(10, TimeUnit.SECONDS).size());
+            assertEquals(1, reset.get(10, TimeUnit.SECONDS).size());
+            // the retry waited for the slot taken by the other query
+            assertEquals(1, maxInFlight.get());
+            assertEquals(3, limiter.granted());
+            assertEquals(0, limiter.active());
+        } finally {
+            resetAfterHeader.set(false);
+            executor.shutdownNow();
+            EndpointLimiterRegistry.remove(key);
+            CircuitBreakerRegistry.remove(uri());
+        }
+    }
+
+    @Test
+    void testRetryAfter() {
+        String key = EndpointLimiterRegistry.key(SparqlEndpoint.parse(uri()));
+        EndpointLimiterRegistry.remove(key);
+        try (NettySparqlClient<String[], byte[]> client = client()) {
+            sendTooMany.set(true);
+            AsyncIterable<String[]> it = client.query(SPARQL).iterable();
+            assertFalse(it.iterator().hasNext());
+            assertNotNull(it.error());
+
+            long start = System.nanoTime();
+            assertEquals(1, query(client).size());
+            long elapsedMs = NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue(elapsedMs >= 800, "elapsedMs="+elapsedMs);
+        } finally {
+            sendTooMany.set(false);
+            EndpointLimiterRegistry.remove(key);
+            CircuitBreakerRegistry.remove(uri());
+        }
+    }
+}
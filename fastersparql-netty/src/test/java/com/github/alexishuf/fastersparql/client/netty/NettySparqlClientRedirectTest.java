@@ -0,0 +1,207 @@
+package com.github.alexishuf.fastersparql.client.netty;
+
+import com.github.alexishuf.fastersparql.client.model.SparqlEndpoint;
+import com.github.alexishuf.fastersparql.client.parser.fragment.ByteArrayFragmentParser;
+import com.github.alexishuf.fastersparql.client.parser.row.StringArrayRowParser;
+import com.github.alexishuf.fastersparql.client.util.FasterSparqlProperties;
+import com.github.alexishuf.fastersparql.client.util.RedirectCache;
+import com.github.alexishuf.fastersparql.client.util.health.CircuitBreakerRegistry;
+import com.github.alexishuf.fastersparql.client.util.limit.EndpointLimiterRegistry;
+import com.github.alexishuf.fastersparql.client.util.reactive.AsyncIterable;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.*;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.*;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.*;
+
+class NettySparqlClientRedirectTest {
+    private static final String SPARQL = "SELECT ?x WHERE { ?x <http://example.org/p> ?o }";
+    private static final String JSON = "{\"head\":{\"vars\":[\"x\"]},\"results\":{\"bindings\":"
+                                     + "[{\"x\":{\"type\":\"literal\",\"value\":\"1\"}}]}}";
+    private static EventLoopGroup serverGroup;
+    private static Channel origin, target;
+    private static final ConcurrentLinkedQueue<String> requests = new ConcurrentLinkedQueue<>();
+
+    @BeforeAll
+    static void beforeAll() {
+        serverGroup = new NioEventLoopGroup(1);
+        ServerBootstrap bootstrap = new ServerBootstrap().group(serverGroup)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override protected void initChannel(SocketChannel ch) {
+                        ch.pipeline().addLast(new HttpServerCodec())
+                                     .addLast(new HttpObjectAggregator(65536))
+                                     .addLast(new Handler());
+                    }
+                });
+        origin = bootstrap.bind(0).syncUninterruptibly().channel();
+        target = bootstrap.bind(0).syncUninterruptibly().channel();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        origin.close().syncUninterruptibly();
+        target.close().syncUninterruptibly();
+        serverGroup.shutdownGracefully();
+    }
+
+    @AfterEach
+    void tearDown() {
+        requests.clear();
+        RedirectCache.clear();
+        for (Channel ch : new Channel[]{origin, target}) {
+            String base = base(ch);
+            EndpointLimiterRegistry.remove(EndpointLimiterRegistry.key(SparqlEndpoint.parse(base)));
+            for (String path : new String[]{"/moved", "/temp", "/other", "/loop", "/sparql"})
+                CircuitBreakerRegistry.remove(base+path);
+        }
+    }
+
+    private static int port(Channel ch) {
+        return ((InetSocketAddress) ch.localAddress()).getPort();
+    }
+
+    private static String base(Channel ch) {
+        return "http://localhost:"+port(ch);
+    }
+
+    /**
+     * Records {@code METHOD /path} of each request. {@code /sparql} answers with one row,
+     * {@code /moved} permanently redirects to {@code /sparql} on the other server, echoing
+     * the query string, {@code /temp} and {@code /other} redirect with 307 and 303 to
+     * {@code /sparql} and {@code /loop} redirects to itself.
+     */
+    private static class Handler extends SimpleChannelInboundHandler<FullHttpRequest> {
+        @Override protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest req) {
+            QueryStringDecoder decoder = new QueryStringDecoder(req.uri());
+            String path = decoder.path();
+            requests.add(req.method()+" "+path+(decoder.parameters().containsKey("query") ? "?" : ""));
+            int qIdx = req.uri().indexOf('?');
+            String query = qIdx < 0 ? "" : req.uri().substring(qIdx);
+            HttpResponseStatus status;
+            String location;
+            switch (path) {
+                case "/moved":
+                    status = HttpResponseStatus.MOVED_PERMANENTLY;
+                    location = base(target)+"/sparql"+query;
+                    break;
+                case "/temp":
+                    status = HttpResponseStatus.TEMPORARY_REDIRECT;
+                    location = "sparql";
+                    break;
+                case "/other":
+                    status = HttpResponseStatus.SEE_OTHER;
+                    location = "/sparql";
+                    break;
+                case "/loop":
+                    status = HttpResponseStatus.FOUND;
+                    location = "/loop";
+                    break;
+                default:
+                    FullHttpResponse res = new DefaultFullHttpResponse(HTTP_1_1,
+                            HttpResponseStatus.OK, Unpooled.copiedBuffer(JSON, UTF_8));
+                    res.headers().set(HttpHeaderNames.CONTENT_TYPE,
+                                      "application/sparql-results+json");
+                    res.headers().set(HttpHeaderNames.CONTENT_LENGTH,
+                                      res.content().readableBytes());
+                    ctx.writeAndFlush(res);
+                    return;
+            }
+            FullHttpResponse res = new DefaultFullHttpResponse(HTTP_1_1, status,
+                    Unpooled.copiedBuffer("moved", UTF_8));
+            res.headers().set(HttpHeaderNames.LOCATION, location);
+            res.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/plain");
+            res.headers().set(HttpHeaderNames.CONTENT_LENGTH, res.content().readableBytes());
+            ctx.writeAndFlush(res);
+        }
+    }
+
+    private static NettySparqlClient<String[], byte[]> client(String augmentedUri) {
+        return new NettySparqlClient<>(SparqlEndpoint.parse(augmentedUri),
+                StringArrayRowParser.INSTANCE, ByteArrayFragmentParser.INSTANCE);
+    }
+
+    private static List<String[]> query(NettySparqlClient<String[], byte[]> client) {
+        List<String[]> rows = new ArrayList<>();
+        AsyncIterable<String[]> it = client.query(SPARQL).iterable();
+        it.forEach(rows::add);
+        assertNull(it.error());
+        return rows;
+    }
+
+    @Test
+    void testPermanentRedirectIsCached() {
+        String uri = base(origin)+"/moved";
+        try (NettySparqlClient<String[], byte[]> client = client("get,json@"+uri)) {
+            for (int i = 0; i < 3; i++)
+                assertEquals(1, query(client).size());
+            List<String> expected = new ArrayList<>();
+            expected.add("GET /moved?");
+            for (int i = 0; i < 3; i++)
+                expected.add("GET /sparql?");
+            assertEquals(expected, new ArrayList<>(requests));
+            SparqlEndpoint cached = RedirectCache.get(client.endpoint());
+            assertNotNull(cached);
+            assertEquals(base(target)+"/sparql", cached.uri());
+        }
+    }
+
+    @Test
+    void testTemporaryRedirectKeepsMethod() throws Exception {
+        String uri = base(origin)+"/temp";
+        try (NettySparqlClient<String[], byte[]> client = client("post,json@"+uri)) {
+            assertEquals(1, query(client).size());
+            assertEquals(1, query(client).size());
+            assertTrue(client.ask(SPARQL, null).get(5, SECONDS));
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                expected.add("POST /temp");
+                expected.add("POST /sparql");
+            }
+            assertEquals(expected, new ArrayList<>(requests));
+            assertNull(RedirectCache.get(client.endpoint()));
+        }
+    }
+
+    @Test
+    void testSeeOtherSwitchesToGet() {
+        String uri = base(origin)+"/other";
+        try (NettySparqlClient<String[], byte[]> client = client("post,json@"+uri)) {
+            assertEquals(1, query(client).size());
+            assertEquals(asList("POST /other", "GET /sparql?"), new ArrayList<>(requests));
+        }
+    }
+
+    @Test
+    void testRedirectLoop() {
+        String uri = base(origin)+"/loop";
+        try (NettySparqlClient<String[], byte[]> client = client("get,json@"+uri)) {
+            AsyncIterable<String[]> it = client.query(SPARQL).iterable();
+            assertFalse(it.iterator().hasNext());
+            assertNotNull(it.error());
+            assertEquals(FasterSparqlProperties.maxRedirects()+1, requests.size());
+        }
+    }
+
+    private static List<String> asList(String... values) {
+        List<String> list = new ArrayList<>();
+        for (String v : values) list.add(v);
+        return list;
+    }
+}
@@ -0,0 +1,157 @@
+package com.github.alexishuf.fastersparql.client.netty;
+
+import com.github.alexishuf.fastersparql.client.model.SparqlEndpoint;
+import com.github.alexishuf.fastersparql.client.parser.fragment.ByteArrayFragmentParser;
+import com.github.alexishuf.fastersparql.client.parser.row.StringArrayRowParser;
+import com.github.alexishuf.fastersparql.client.util.FasterSparqlProperties;
+import com.github.alexishuf.fastersparql.client.util.health.CircuitBreakerRegistry;
+import com.github.alexishuf.fastersparql.client.util.limit.EndpointLimiterRegistry;
+import com.github.alexishuf.fastersparql.client.util.reactive.AsyncIterable;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.*;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.*;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.*;
+
+class NettySparqlClientRetryTest {
+    private static final String SPARQL = "SELECT ?x WHERE { ?x <http://example.org/p> ?o }";
+    private static final String JSON_HEAD = "{\"head\":{\"vars\":[\"x\"]},\"results\":{\"bindings\":"
+                                          + "[{\"x\":{\"type\":\"literal\",\"value\":\"1\"}}";
+    private static final String JSON = JSON_HEAD + "]}}";
+    private static EventLoopGroup serverGroup;
+    private static Channel serverChannel;
+    private static final AtomicInteger requests = new AtomicInteger();
+    private static final AtomicInteger dropNext = new AtomicInteger();
+    private static final AtomicBoolean truncate = new AtomicBoolean();
+
+    @BeforeAll
+    static void beforeAll() {
+        serverGroup = new NioEventLoopGroup(1);
+        serverChannel = new ServerBootstrap().group(serverGroup)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override protected void initChannel(SocketChannel ch) {
+                        ch.pipeline().addLast(new HttpServerCodec())
+                                     .addLast(new HttpObjectAggregator(65536))
+                                     .addLast(new Handler());
+                    }
+                }).bind(0).syncUninterruptibly().channel();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        serverChannel.close().syncUninterruptibly();
+        serverGroup.shutdownGracefully();
+    }
+
+    @AfterEach
+    void tearDown() {
+        dropNext.set(0);
+        truncate.set(false);
+        requests.set(0);
+        EndpointLimiterRegistry.remove(EndpointLimiterRegistry.key(SparqlEndpoint.parse(uri())));
+        CircuitBreakerRegistry.remove(uri());
+    }
+
+    /**
+     * Closes the connection without answering while {@code dropNext > 0}. If {@code truncate}
+     * is set, sends the first row of a chunked response and then closes the connection.
+     */
+    private static class Handler extends SimpleChannelInboundHandler<FullHttpRequest> {
+        @Override protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest req) {
+            requests.incrementAndGet();
+            if (dropNext.getAndUpdate(i -> Math.max(0, i-1)) > 0) {
+                ctx.close();
+                return;
+            }
+            String ct = "application/sparql-results+json";
+            if (truncate.get()) {
+                HttpResponse res = new DefaultHttpResponse(HTTP_1_1, HttpResponseStatus.OK);
+                res.headers().set(HttpHeaderNames.CONTENT_TYPE, ct);
+                res.headers().set(HttpHeaderNames.TRANSFER_ENCODING, HttpHeaderValues.CHUNKED);
+                ctx.write(res);
+                ctx.writeAndFlush(new DefaultHttpContent(Unpooled.copiedBuffer(JSON_HEAD+",", UTF_8)))
+                   .addListener(f -> ctx.close());
+                return;
+            }
+            FullHttpResponse res = new DefaultFullHttpResponse(HTTP_1_1,
+                    HttpResponseStatus.OK, Unpooled.copiedBuffer(JSON, UTF_8));
+            res.headers().set(HttpHeaderNames.CONTENT_TYPE, ct);
+            res.headers().set(HttpHeaderNames.CONTENT_LENGTH, res.content().readableBytes());
+            ctx.writeAndFlush(res);
+        }
+    }
+
+    private static String uri() {
+        int port = ((InetSocketAddress) serverChannel.localAddress()).getPort();
+        return "http://localhost:" + port + "/sparql";
+    }
+
+    private static NettySparqlClient<String[], byte[]> client() {
+        return new NettySparqlClient<>(SparqlEndpoint.parse("get,json@" + uri()),
+                StringArrayRowParser.INSTANCE, ByteArrayFragmentParser.INSTANCE);
+    }
+
+    @Test
+    void testRetryDroppedConnections() {
+        int retries = FasterSparqlProperties.queryRetries();
+        dropNext.set(retries);
+        try (NettySparqlClient<String[], byte[]> client = client()) {
+            List<String[]> rows = new ArrayList<>();
+            AsyncIterable<String[]> it = client.query(SPARQL).iterable();
+            it.forEach(rows::add);
+            assertNull(it.error());
+            assertEquals(1, rows.size());
+            assertEquals("\"1\"", rows.get(0)[0]);
+            assertEquals(retries+1, requests.get());
+        }
+    }
+
+    @Test
+    void testGiveUpAfterRetries() {
+        dropNext.set(Integer.MAX_VALUE);
+        try (NettySparqlClient<String[], byte[]> client = client()) {
+            AsyncIterable<String[]> it = client.query(SPARQL).iterable();
+            assertFalse(it.iterator().hasNext());
+            assertNotNull(it.error());
+            assertEquals(FasterSparqlProperties.queryRetries()+1, requests.get());
+        }
+    }
+
+    @Test
+    void testNoRetryAfterRow() {
+        truncate.set(true);
+        try (NettySparqlClient<String[], byte[]> client = client()) {
+            List<String[]> rows = new ArrayList<>();
+            client.query(SPARQL).iterable().forEach(rows::add);
+            assertEquals(1, rows.size());
+            assertEquals(1, requests.get());
+        }
+    }
+
+    @Test
+    void testRetryAsk() throws Exception {
+        dropNext.set(1);
+        try (NettySparqlClient<String[], byte[]> client = client()) {
+            assertTrue(client.ask(SPARQL, null).get(5, SECONDS));
+            assertEquals(2, requests.get());
+        }
+    }
+}
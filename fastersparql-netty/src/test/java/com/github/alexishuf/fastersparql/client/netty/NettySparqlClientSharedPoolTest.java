@@ -0,0 +1,146 @@
+package com.github.alexishuf.fastersparql.client.netty;
+
+import com.github.alexishuf.fastersparql.client.model.Protocol;
+import com.github.alexishuf.fastersparql.client.model.SparqlEndpoint;
+import com.github.alexishuf.fastersparql.client.netty.http.SharedPoolRegistry;
+import com.github.alexishuf.fastersparql.client.parser.fragment.ByteArrayFragmentParser;
+import com.github.alexishuf.fastersparql.client.parser.row.StringArrayRowParser;
+import com.github.alexishuf.fastersparql.client.util.health.CircuitBreakerRegistry;
+import com.github.alexishuf.fastersparql.client.util.limit.EndpointLimiterRegistry;
+import com.github.alexishuf.fastersparql.client.util.reactive.AsyncIterable;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.*;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.*;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+class NettySparqlClientSharedPoolTest {
+    private static final String SPARQL = "SELECT ?x WHERE { ?x <http://example.org/p> ?o }";
+    private static final String JSON = "{\"head\":{\"vars\":[\"x\"]},\"results\":{\"bindings\":"
+                                     + "[{\"x\":{\"type\":\"literal\",\"value\":\"1\"}}]}}";
+    private static EventLoopGroup serverGroup;
+    private static Channel serverChannel;
+    private static final AtomicInteger connections = new AtomicInteger();
+    private static final ConcurrentLinkedQueue<String> paths = new ConcurrentLinkedQueue<>();
+
+    @BeforeAll
+    static void beforeAll() {
+        serverGroup = new NioEventLoopGroup(1);
+        serverChannel = new ServerBootstrap().group(serverGroup)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override protected void initChannel(SocketChannel ch) {
+                        connections.incrementAndGet();
+                        ch.pipeline().addLast(new HttpServerCodec())
+                                     .addLast(new HttpObjectAggregator(65536))
+                                     .addLast(new Handler());
+                    }
+                }).bind(0).syncUninterruptibly().channel();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        serverChannel.close().syncUninterruptibly();
+        serverGroup.shutdownGracefully();
+    }
+
+    /** Answers any request with one row and records its path. */
+    private static class Handler extends SimpleChannelInboundHandler<FullHttpRequest> {
+        @Override protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest req) {
+            paths.add(new QueryStringDecoder(req.uri()).path());
+            FullHttpResponse res = new DefaultFullHttpResponse(HTTP_1_1,
+                    HttpResponseStatus.OK, Unpooled.copiedBuffer(JSON, UTF_8));
+            res.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/sparql-results+json");
+            res.headers().set(HttpHeaderNames.CONTENT_LENGTH, res.content().readableBytes());
+            ctx.writeAndFlush(res);
+        }
+    }
+
+    private static String uri(String path) {
+        int port = ((InetSocketAddress) serverChannel.localAddress()).getPort();
+        return "http://localhost:" + port + path;
+    }
+
+    private static NettySparqlClient<String[], byte[]> client(String path) {
+        return new NettySparqlClient<>(SparqlEndpoint.parse("get,json@" + uri(path)),
+                StringArrayRowParser.INSTANCE, ByteArrayFragmentParser.INSTANCE);
+    }
+
+    private static int query(NettySparqlClient<String[], byte[]> client) {
+        List<String[]> rows = new ArrayList<>();
+        AsyncIterable<String[]> it = client.query(SPARQL).iterable();
+        it.forEach(rows::add);
+        assertNull(it.error());
+        try {
+            Thread.sleep(20); // the channel returns to the pool after the publisher completes
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        return rows.size();
+    }
+
+    @Test
+    void testClientsShareConnections() {
+        int poolsBefore = SharedPoolRegistry.size();
+        NettySparqlClient<String[], byte[]> a = client("/a/sparql");
+        NettySparqlClient<String[], byte[]> b = client("/b/sparql");
+        try {
+            connections.set(0);
+            paths.clear();
+            for (int i = 0; i < 3; i++) {
+                assertEquals(1, query(a));
+                assertEquals(1, query(b));
+            }
+            assertEquals(poolsBefore+1, SharedPoolRegistry.size());
+            assertEquals(1, connections.get());
+
+            a.close();
+            assertEquals(1, query(b)); // pool survives while b holds a lease
+            assertEquals(1, connections.get());
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                expected.add("/a/sparql");
+                expected.add("/b/sparql");
+            }
+            expected.add("/b/sparql");
+            assertEquals(expected, new ArrayList<>(paths));
+        } finally {
+            a.close();
+            b.close();
+            EndpointLimiterRegistry.remove(EndpointLimiterRegistry.key(SparqlEndpoint.parse(uri("/a"))));
+            CircuitBreakerRegistry.remove(uri("/a/sparql"));
+            CircuitBreakerRegistry.remove(uri("/b/sparql"));
+        }
+        assertEquals(poolsBefore, SharedPoolRegistry.size());
+    }
+
+    @Test
+    void testSharedPoolKey() {
+        InetSocketAddress address = InetSocketAddress.createUnresolved("example.org", 80);
+        NettyClientBuilder builder = new NettyClientBuilder();
+        String lifo = builder.poolFIFO(false).sharedPoolKey(Protocol.HTTP, address, Object.class);
+        String fifo = builder.poolFIFO(true).sharedPoolKey(Protocol.HTTP, address, Object.class);
+        assertNotEquals(lifo, fifo);
+        assertEquals(fifo, new NettyClientBuilder().poolFIFO(true)
+                .sharedPoolKey(Protocol.HTTP, address, Object.class));
+        assertNotEquals(fifo, builder.sharedPoolKey(Protocol.HTTPS, address, Object.class));
+        assertNotEquals(fifo, builder.sharedPoolKey(Protocol.HTTP, address, String.class));
+        InetSocketAddress other = InetSocketAddress.createUnresolved("example.org", 8080);
+        assertNotEquals(fifo, builder.sharedPoolKey(Protocol.HTTP, other, Object.class));
+    }
+}
@@ -0,0 +1,74 @@
+package com.github.alexishuf.fastersparql.client.netty.util;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ByteBufItemBufferTest {
+    private static ByteBuf buf(String content) {
+        ByteBuf bb = PooledByteBufAllocator.DEFAULT.buffer();
+        bb.writeCharSequence(content, UTF_8);
+        return bb;
+    }
+
+    @Test
+    void testRetainUntilLimit() {
+        ByteBufItemBuffer buffer = new ByteBufItemBuffer(8);
+        ByteBuf a = buf("1234"), b = buf("5678"), c = buf("9abc");
+        buffer.add(a);
+        buffer.add(b);
+        buffer.add(c);
+        assertEquals(3, buffer.size());
+        assertSame(a, buffer.get(0));
+        assertSame(b, buffer.get(1));
+        assertNotSame(c, buffer.get(2));
+        assertEquals(0, c.refCnt(), "copied buffer not released");
+        assertEquals("9abc", buffer.get(2).toString(UTF_8));
+        assertEquals(8, buffer.retainedBytes());
+        assertEquals(4, buffer.copiedBytes());
+
+        buffer.removeFirst(1); // ownership goes to whoever removed
+        assertEquals(1, a.refCnt());
+        assertEquals(4, buffer.retainedBytes());
+        ByteBuf d = buf("defg");
+        buffer.add(d);
+        assertSame(d, buffer.get(2));
+        assertEquals(8, buffer.retainedBytes());
+
+        buffer.close();
+        assertEquals(0, buffer.size());
+        assertEquals(0, b.refCnt());
+        assertEquals(0, d.refCnt());
+        assertEquals(1, a.refCnt());
+        a.release();
+    }
+
+    @Test
+    void testGrow() {
+        ByteBufItemBuffer buffer = new ByteBufItemBuffer(Integer.MAX_VALUE);
+        List<ByteBuf> list = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            ByteBuf bb = buf(Integer.toString(i));
+            list.add(bb);
+            buffer.add(bb);
+            if (i % 3 == 0) {
+                ByteBuf removed = list.remove(0);
+                assertSame(removed, buffer.get(0));
+                buffer.removeFirst(1);
+                removed.release();
+            }
+        }
+        assertEquals(list.size(), buffer.size());
+        for (int i = 0; i < list.size(); i++)
+            assertSame(list.get(i), buffer.get(i));
+        buffer.clear();
+        for (ByteBuf bb : list)
+            assertEquals(0, bb.refCnt());
+    }
+}
@@ -0,0 +1,127 @@
+package com.github.alexishuf.fastersparql.client.netty.util;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollMode;
+import io.netty.util.concurrent.EventExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Map;
+
+import static com.github.alexishuf.fastersparql.client.netty.util.FasterSparqlNettyProperties.*;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.*;
+
+class NettyChannelOptionsTest {
+    @AfterEach
+    void tearDown() {
+        for (String name : Arrays.asList(TRANSPORT, ALLOCATOR, SO_RCVBUF, TCP_NODELAY, ELG_THREADS))
+            System.clearProperty(name);
+    }
+
+    @Test
+    void testFromProperties() {
+        assertEquals(new NettyChannelOptions(true, false, 0, 0, true, NettyAllocator.DEFAULT),
+                     NettyChannelOptions.fromProperties());
+        System.setProperty(TCP_NODELAY, "false");
+        System.setProperty(SO_RCVBUF, "65536");
+        System.setProperty(ALLOCATOR, "pooled-direct");
+        NettyChannelOptions options = NettyChannelOptions.fromProperties();
+        assertFalse(options.tcpNoDelay());
+        assertEquals(65536, options.soRcvBuf());
+        assertEquals(0, options.soSndBuf());
+        assertEquals(NettyAllocator.POOLED_DIRECT, options.allocator());
+
+        System.setProperty(ALLOCATOR, "bogus");
+        assertThrows(IllegalArgumentException.class, FasterSparqlNettyProperties::allocator);
+    }
+
+    @Test
+    void testParseTransport() {
+        assertNull(transport());
+        System.setProperty(TRANSPORT, "io-uring");
+        assertEquals(NettyTransport.IO_URING, transport());
+        System.setProperty(TRANSPORT, " Epoll ");
+        assertEquals(NettyTransport.EPOLL, transport());
+        System.setProperty(TRANSPORT, "iouring");
+        assertEquals(NettyTransport.IO_URING, transport());
+        System.setProperty(TRANSPORT, "bogus");
+        assertThrows(IllegalArgumentException.class, FasterSparqlNettyProperties::transport);
+    }
+
+    @Test
+    void testPooledDirectAllocator() {
+        PooledByteBufAllocator alloc = (PooledByteBufAllocator)NettyAllocator.POOLED_DIRECT.allocator();
+        assertTrue(alloc.isDirectBufferPooled());
+        assertTrue(alloc.buffer().isDirect());
+        assertSame(alloc, NettyAllocator.POOLED_DIRECT.allocator());
+    }
+
+    @Test
+    void testApply() {
+        NettyChannelOptions options = new NettyChannelOptions(false, true, 4096, 8192,
+                                                              false, NettyAllocator.UNPOOLED);
+        for (NettyTransport transport : NettyTransport.values()) {
+            Map<ChannelOption<?>, Object> map = options.apply(new Bootstrap(), transport)
+                                                       .config().options();
+            assertEquals(false, map.get(ChannelOption.TCP_NODELAY));
+            assertEquals(4096, map.get(ChannelOption.SO_RCVBUF));
+            assertEquals(8192, map.get(ChannelOption.SO_SNDBUF));
+            assertSame(NettyAllocator.UNPOOLED.allocator(), map.get(ChannelOption.ALLOCATOR));
+            boolean fastOpen = transport == NettyTransport.EPOLL
+                            || transport == NettyTransport.IO_URING;
+            assertEquals(fastOpen ? true : null, map.get(ChannelOption.TCP_FASTOPEN_CONNECT));
+            assertEquals(transport == NettyTransport.EPOLL ? EpollMode.LEVEL_TRIGGERED : null,
+                         map.get(EpollChannelOption.EPOLL_MODE));
+        }
+
+        Map<ChannelOption<?>, Object> map = new NettyChannelOptions(true, false, 0, 0, true, null)
+                .apply(new Bootstrap(), NettyTransport.EPOLL).config().options();
+        assertEquals(true, map.get(ChannelOption.TCP_NODELAY));
+        assertFalse(map.containsKey(ChannelOption.SO_RCVBUF));
+        assertFalse(map.containsKey(ChannelOption.TCP_FASTOPEN_CONNECT));
+        assertEquals(EpollMode.EDGE_TRIGGERED, map.get(EpollChannelOption.EPOLL_MODE));
+    }
+
+    @Test
+    void testHolderThreadsAndBootstrap() {
+        EventLoopGroupHolder holder = new EventLoopGroupHolder(NettyTransport.preferred(), 0,
+                                                               SECONDS, 3, 0);
+        NettyChannelOptions options = new NettyChannelOptions(true, false, 16384, 0,
+                                                              true, NettyAllocator.POOLED);
+        InetSocketAddress address = InetSocketAddress.createUnresolved("localhost", 80);
+        Bootstrap bootstrap = holder.acquireBootstrap(address, options);
+        try {
+            EventLoopGroup group = bootstrap.config().group();
+            int executors = 0;
+            for (EventExecutor ignored : group)
+                ++executors;
+            assertEquals(3, executors);
+            assertEquals(16384, bootstrap.config().options().get(ChannelOption.SO_RCVBUF));
+        } finally {
+            holder.release();
+        }
+    }
+
+    @Test
+    void testHolderThreadsFromProperty() {
+        System.setProperty(ELG_THREADS, "2");
+        EventLoopGroupHolder holder = new EventLoopGroupHolder(NettyTransport.NIO, 0, SECONDS);
+        assertEquals(2, holder.threads());
+        EventLoopGroup group = holder.acquire();
+        try {
+            int executors = 0;
+            for (EventExecutor ignored : group)
+                ++executors;
+            assertEquals(2, executors);
+        } finally {
+            holder.release();
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.github.alexishuf.fastersparql.client.netty.util;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.*;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.dns.*;
+import io.netty.resolver.AddressResolver;
+import io.netty.resolver.AddressResolverGroup;
+import io.netty.resolver.HostsFileEntriesResolver;
+import io.netty.resolver.ResolvedAddressTypes;
+import io.netty.resolver.dns.*;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.net.InetSocketAddress.createUnresolved;
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SharedAddressResolverGroupTest {
+    private static final String NAME = "rr.example.org";
+    private static final String OTHER_NAME = "rr2.example.org";
+    private static EventLoopGroup group;
+    private static Channel dnsChannel;
+    private static final AtomicInteger queries = new AtomicInteger();
+    private static volatile List<InetAddress> answer = Collections.emptyList();
+    private static volatile int ttl = 60;
+
+    @BeforeAll
+    static void beforeAll() {
+        group = new NioEventLoopGroup(1);
+        dnsChannel = new Bootstrap().group(group).channel(NioDatagramChannel.class)
+                .handler(new ChannelInitializer<NioDatagramChannel>() {
+                    @Override protected void initChannel(NioDatagramChannel ch) {
+                        ch.pipeline().addLast(new DatagramDnsQueryDecoder())
+                                     .addLast(new DatagramDnsResponseEncoder())
+                                     .addLast(new DnsHandler());
+                    }
+                }).bind(InetAddress.getLoopbackAddress(), 0).syncUninterruptibly().channel();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        dnsChannel.close().syncUninterruptibly();
+        group.shutdownGracefully();
+    }
+
+    /**
+     * Answers A queries for {@link SharedAddressResolverGroupTest#NAME} and
+     * {@link SharedAddressResolverGroupTest#OTHER_NAME} with {@code answer}.
+     */
+    private static class DnsHandler extends SimpleChannelInboundHandler<DatagramDnsQuery> {
+        @Override protected void channelRead0(ChannelHandlerContext ctx, DatagramDnsQuery query) {
+            DnsQuestion question = query.recordAt(DnsSection.QUESTION);
+            DatagramDnsResponse response = new DatagramDnsResponse(query.recipient(),
+                                                                   query.sender(), query.id());
+            response.addRecord(DnsSection.QUESTION, question);
+            boolean known = question.name().equals(NAME+".")
+                         || question.name().equals(OTHER_NAME+".");
+            if (known && question.type() == DnsRecordType.A) {
+                queries.incrementAndGet();
+                for (InetAddress address : answer) {
+                    response.addRecord(DnsSection.ANSWER, new DefaultDnsRawRecord(
+                            question.name(), DnsRecordType.A, ttl,
+                            Unpooled.wrappedBuffer(address.getAddress())));
+                }
+            } else {
+                response.setCode(DnsResponseCode.NXDOMAIN);
+            }
+            ctx.writeAndFlush(response);
+        }
+    }
+
+    private static AddressResolverGroup<InetSocketAddress>
+    createGroup(boolean roundRobin, HostsFileEntriesResolver hosts) {
+        DnsNameResolverBuilder builder = SharedAddressResolverGroup.builder(
+                        NettyTransport.NIO, new DefaultDnsCache(), new DefaultDnsCnameCache())
+                .nameServerProvider(new SingletonDnsServerAddressStreamProvider(
+                        (InetSocketAddress) dnsChannel.localAddress()))
+                .resolvedAddressTypes(ResolvedAddressTypes.IPV4_ONLY)
+                .searchDomains(Collections.emptyList())
+                .hostsFileEntriesResolver(hosts);
+        return SharedAddressResolverGroup.create(builder, roundRobin);
+    }
+
+    private static InetAddress ip(String ip) throws UnknownHostException {
+        return InetAddress.getByName(ip);
+    }
+
+    private static List<InetAddress> resolve(AddressResolver<InetSocketAddress> resolver,
+                                             int times) throws Exception {
+        return resolve(resolver, NAME, times);
+    }
+
+    private static List<InetAddress> resolve(AddressResolver<InetSocketAddress> resolver,
+                                             String name, int times) throws Exception {
+        List<InetAddress> list = new ArrayList<>();
+        for (int i = 0; i < times; i++) {
+            InetSocketAddress address = resolver.resolve(createUnresolved(name, 80))
+                                                .get(5, SECONDS);
+            assertEquals(80, address.getPort());
+            list.add(address.getAddress());
+        }
+        return list;
+    }
+
+    @Test
+    void testRoundRobinAndTtl() throws Exception {
+        answer = asList(ip("127.0.0.1"), ip("127.0.0.2"));
+        ttl = 1;
+        queries.set(0);
+        AddressResolverGroup<InetSocketAddress> resolverGroup
+                = createGroup(true, HostsFileEntriesResolver.DEFAULT);
+        try {
+            AddressResolver<InetSocketAddress> resolver = resolverGroup.getResolver(group.next());
+            List<InetAddress> list = resolve(resolver, 4);
+            assertEquals(list.get(0), list.get(2));
+            assertEquals(list.get(1), list.get(3));
+            assertNotEquals(list.get(0), list.get(1));
+            assertEquals(1, queries.get()); // cached
+
+            answer = Collections.singletonList(ip("127.0.0.3"));
+            assertFalse(answer.containsAll(resolve(resolver, 1))); // still cached
+            Thread.sleep(1500); // let the TTL expire
+            assertEquals(asList(ip("127.0.0.3"), ip("127.0.0.3")), resolve(resolver, 2));
+            assertEquals(2, queries.get());
+        } finally {
+            resolverGroup.close();
+        }
+    }
+
+    @Test
+    void testRoundRobinPerHost() throws Exception {
+        answer = asList(ip("127.0.0.1"), ip("127.0.0.2"));
+        ttl = 60;
+        AddressResolverGroup<InetSocketAddress> resolverGroup
+                = createGroup(true, HostsFileEntriesResolver.DEFAULT);
+        try {
+            AddressResolver<InetSocketAddress> resolver = resolverGroup.getResolver(group.next());
+            List<InetAddress> list = new ArrayList<>(), other = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                list.addAll(resolve(resolver, NAME, 1));
+                other.addAll(resolve(resolver, OTHER_NAME, 1));
+            }
+            assertNotEquals(list.get(0), list.get(1));
+            assertEquals(list.subList(0, 2), list.subList(2, 4));
+            assertNotEquals(other.get(0), other.get(1));
+            assertEquals(other.subList(0, 2), other.subList(2, 4));
+        } finally {
+            resolverGroup.close();
+        }
+    }
+
+    @Test
+    void testRotationCountersAreBounded() {
+        SharedAddressResolverGroup.RotationCounters counters
+                = new SharedAddressResolverGroup.RotationCounters();
+        assertEquals(0, counters.next("A.example.org"));
+        assertEquals(1, counters.next("a.example.org"));
+        int max = SharedAddressResolverGroup.RotationCounters.MAX_HOSTS;
+        for (int i = 0; i < max-1; i++)
+            counters.next("h"+i+".example.org");
+        assertEquals(2, counters.next("a.example.org")); // now most recently used
+        counters.next("h"+max+".example.org"); // evicts h0, the least recently used
+        assertEquals(max, counters.size());
+        assertEquals(3, counters.next("a.example.org"));
+        assertEquals(0, counters.next("h0.example.org")); // evicted: restarts rotation
+    }
+
+    @Test
+    void testNoRoundRobin() throws Exception {
+        answer = asList(ip("127.0.0.1"), ip("127.0.0.2"));
+        ttl = 60;
+        AddressResolverGroup<InetSocketAddress> resolverGroup
+                = createGroup(false, HostsFileEntriesResolver.DEFAULT);
+        try {
+            AddressResolver<InetSocketAddress> resolver = resolverGroup.getResolver(group.next());
+            List<InetAddress> list = resolve(resolver, 3);
+            assertEquals(list.get(0), list.get(1));
+            assertEquals(list.get(0), list.get(2));
+        } finally {
+            resolverGroup.close();
+        }
+    }
+
+    @Test
+    void testInMemoryHostsAndConnect() throws Exception {
+        answer = Collections.emptyList();
+        queries.set(0);
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        HostsFileEntriesResolver hosts = (name, types) -> NAME.equals(name) ? loopback : null;
+        AddressResolverGroup<InetSocketAddress> resolverGroup = createGroup(true, hosts);
+        Channel server = new ServerBootstrap().group(group).channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInboundHandlerAdapter())
+                .bind(loopback, 0).syncUninterruptibly().channel();
+        try {
+            int port = ((InetSocketAddress) server.localAddress()).getPort();
+            Channel ch = new Bootstrap().group(group).channel(NioSocketChannel.class)
+                    .handler(new ChannelInboundHandlerAdapter()).resolver(resolverGroup)
+                    .connect(createUnresolved(NAME, port)).syncUninterruptibly().channel();
+            try {
+                assertEquals(loopback, ((InetSocketAddress) ch.remoteAddress()).getAddress());
+            } finally {
+                ch.close().syncUninterruptibly();
+            }
+            assertEquals(0, queries.get());
+        } finally {
+            server.close().syncUninterruptibly();
+            resolverGroup.close();
+        }
+    }
+
+    @Test
+    void testSharedGroupInBootstrap() {
+        AddressResolverGroup<InetSocketAddress> shared
+                = SharedAddressResolverGroup.get(NettyTransport.NIO);
+        assertNotNull(shared);
+        assertSame(shared, SharedAddressResolverGroup.get(NettyTransport.NIO));
+        EventLoopGroupHolder holder = new EventLoopGroupHolder(NettyTransport.NIO, 0, SECONDS);
+        Bootstrap bootstrap = holder.acquireBootstrap(createUnresolved("localhost", 80));
+        try {
+            assertSame(shared, bootstrap.config().resolver());
+        } finally {
+            holder.release();
+        }
+    }
+}
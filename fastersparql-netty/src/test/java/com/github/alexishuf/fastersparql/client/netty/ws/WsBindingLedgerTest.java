@@ -0,0 +1,61 @@
+package com.github.alexishuf.fastersparql.client.netty.ws;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WsBindingLedgerTest {
+    @ParameterizedTest @ValueSource(ints = {1, 2, 3, 4, 5, 1000, 1024})
+    void testCapacity(int capacity) {
+        WsBindingLedger<String> ledger = new WsBindingLedger<>(capacity);
+        assertTrue(ledger.capacity() >= capacity);
+        assertTrue(ledger.capacity() < 2*capacity);
+        assertEquals(0, Integer.bitCount(ledger.capacity()) - 1);
+        assertEquals(ledger.capacity(), ledger.free());
+    }
+
+    @Test
+    void testFifoAcrossWrap() {
+        WsBindingLedger<String> ledger = new WsBindingLedger<>(4);
+        long next = 0;
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 3; i++)
+                assertEquals(next + i, ledger.add("b" + (next + i)));
+            assertEquals(3, ledger.size());
+            assertEquals(1, ledger.free());
+            for (int i = 0; i < 3; i++) {
+                assertEquals(next, ledger.headSequence());
+                assertEquals("b" + next, ledger.take(round % 2 == 0 ? next : -1));
+                ++next;
+            }
+            assertEquals(0, ledger.size());
+        }
+    }
+
+    @Test
+    void testFull() {
+        WsBindingLedger<String> ledger = new WsBindingLedger<>(2);
+        ledger.add("a");
+        ledger.add("b");
+        assertEquals(0, ledger.free());
+        assertThrows(IllegalStateException.class, () -> ledger.add("c"));
+        assertEquals("a", ledger.take(0));
+        assertEquals(2, ledger.add("c"));
+    }
+
+    @Test
+    void testBadTake() {
+        WsBindingLedger<String> ledger = new WsBindingLedger<>(2);
+        assertThrows(IllegalStateException.class, () -> ledger.take(-1));
+        ledger.add("a");
+        ledger.add("b");
+        assertThrows(IllegalStateException.class, () -> ledger.take(1));
+        assertEquals("a", ledger.take(0));
+        ledger.clear();
+        assertEquals(0, ledger.size());
+        assertEquals(2, ledger.headSequence());
+        assertThrows(IllegalStateException.class, () -> ledger.take(2));
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.alexishuf.fastersparql.client.netty.ws;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+class WsMuxTest {
+    static Stream<Arguments> testTag() {
+        return Stream.of(
+                arguments("!query SELECT * WHERE {?s ?p ?o}\n", 3, "!query#3 SELECT * WHERE {?s ?p ?o}\n"),
+                arguments("!cancel\n", 0, "!cancel#0\n"),
+                arguments("!end", 12, "!end#12"),
+                arguments("!bind-request +64\n", 7, "!bind-request#7 +64\n"),
+                arguments("?x\t?y\n", 5, "!stream#5\n?x\t?y\n"),
+                arguments("<a>\t\"1\"\n!end\n", 5, "!stream#5\n<a>\t\"1\"\n!end\n"),
+                arguments("", 1, "!stream#1\n")
+        );
+    }
+
+    @ParameterizedTest @MethodSource
+    void testTag(String message, int id, String expected) {
+        String tagged = WsMux.tag(message, id);
+        assertEquals(expected, tagged);
+        WsMux.Tagged untagged = WsMux.untag(tagged);
+        assertNotNull(untagged);
+        assertEquals(id, untagged.id);
+        assertEquals(message, untagged.message);
+    }
+
+    @ParameterizedTest @ValueSource(strings = {
+            "", "!end\n", "<a>\n", "!end#\n", "!end#x\n", "!end #1\n", "!end#99999999999\n"
+    })
+    void testUntagInvalid(String frame) {
+        assertNull(WsMux.untag(frame));
+    }
+}
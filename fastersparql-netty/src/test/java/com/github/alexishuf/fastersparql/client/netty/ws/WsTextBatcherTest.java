@@ -0,0 +1,120 @@
+package com.github.alexishuf.fastersparql.client.netty.ws;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.junit.jupiter.api.Assertions.*;
+
+class WsTextBatcherTest {
+    private EmbeddedChannel channel;
+    private ChannelHandlerContext ctx;
+
+    @BeforeEach
+    void setUp() {
+        channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+        ctx = channel.pipeline().firstContext();
+    }
+
+    @AfterEach
+    void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    private List<String> frames() {
+        channel.runPendingTasks();
+        List<String> list = new ArrayList<>();
+        for (Object msg; (msg = channel.readOutbound()) != null; ) {
+            TextWebSocketFrame frame = (TextWebSocketFrame) msg;
+            list.add(frame.text());
+            frame.release();
+        }
+        return list;
+    }
+
+    @Test
+    void testFlushOnSize() {
+        try (WsTextBatcher batcher = new WsTextBatcher(ctx, 16, 1_000_000)) {
+            assertTrue(batcher.append("<a>\t\"1\"\n", false));
+            assertEquals(emptyList(), frames());
+            assertTrue(batcher.append("<b>\t\"2\"\n", false));
+            assertEquals(singletonList("<a>\t\"1\"\n<b>\t\"2\"\n"), frames());
+            assertEquals(2, batcher.lines());
+            assertEquals(1, batcher.frames());
+        }
+    }
+
+    @Test
+    void testExplicitFlush() {
+        try (WsTextBatcher batcher = new WsTextBatcher(ctx, 1024, 1_000_000)) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 3; i++) {
+                sb.setLength(0);
+                batcher.append(sb.append("\"").append(i).append("\"\n"), false);
+            }
+            batcher.append("!end\n", true);
+            assertEquals(singletonList("\"0\"\n\"1\"\n\"2\"\n!end\n"), frames());
+        }
+    }
+
+    @Test
+    void testFlushAfterDelay() throws InterruptedException {
+        try (WsTextBatcher batcher = new WsTextBatcher(ctx, 1024, 1_000)) {
+            batcher.append("\"🨂\"\n", false);
+            assertEquals(emptyList(), frames());
+            Thread.sleep(10);
+            channel.runScheduledPendingTasks();
+            assertEquals(singletonList("\"🨂\"\n"), frames());
+        }
+    }
+
+    @Test
+    void testZeroDelay() {
+        try (WsTextBatcher batcher = new WsTextBatcher(ctx, 1024, 0)) {
+            batcher.append("<a>\n", false);
+            batcher.append("<b>\n", false);
+            assertEquals(singletonList("<a>\n<b>\n"), frames());
+            batcher.append("<c>\n", false);
+            assertEquals(singletonList("<c>\n"), frames());
+        }
+    }
+
+    @Test
+    void testManyFramesReuseBuffer() {
+        try (WsTextBatcher batcher = new WsTextBatcher(ctx, 64, 1_000_000)) {
+            List<String> expected = new ArrayList<>(), actual = new ArrayList<>();
+            StringBuilder all = new StringBuilder();
+            for (int i = 0; i < 10_000; i++) {
+                String line = "<http://example.org/" + i + ">\n";
+                all.append(line);
+                batcher.append(line, false);
+                if (i % 100 == 0)
+                    actual.addAll(frames());
+            }
+            batcher.append("!end\n", true);
+            all.append("!end\n");
+            actual.addAll(frames());
+            expected.add(all.toString());
+            assertEquals(expected, singletonList(String.join("", actual)));
+            assertTrue(batcher.frames() < 10_000);
+        }
+    }
+
+    @Test
+    void testDropAfterClose() {
+        WsTextBatcher batcher = new WsTextBatcher(ctx, 1024, 1_000_000);
+        batcher.append("<a>\n", false);
+        batcher.close();
+        assertFalse(batcher.append("<b>\n", true));
+        assertEquals(emptyList(), frames());
+    }
+}
@@ -0,0 +1,152 @@
+package com.github.alexishuf.fastersparql.client.netty.ws.impl;
+
+import com.github.alexishuf.fastersparql.client.netty.ws.*;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MuxNettyWsClientTest {
+    private final List<EmbeddedChannel> channels = new ArrayList<>();
+
+    /** Opens each session on a new {@link EmbeddedChannel}. */
+    private class FakeClient implements NettyWsClient {
+        final List<WsClientHandler> sessions = new ArrayList<>();
+        boolean closed;
+
+        @Override public void open(WsClientHandler handler) {
+            sessions.add(handler);
+        }
+
+        void attach(int session) {
+            EmbeddedChannel ch = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+            channels.add(ch);
+            sessions.get(session).attach(ch.pipeline().firstContext(), WsRecycler.CLOSE);
+            ch.runPendingTasks();
+        }
+
+        @Override public void close() { closed = true; }
+    }
+
+    private static class RecordingHandler implements WsClientHandler {
+        ChannelHandlerContext ctx;
+        WsStream stream;
+        final List<String> frames = new ArrayList<>();
+        boolean detached;
+        Throwable error;
+
+        @Override public void attach(ChannelHandlerContext ctx, WsRecycler recycler) {
+            this.ctx = ctx;
+            this.stream = (WsStream) recycler;
+        }
+        @Override public void detach() { detached = true; }
+        @Override public void onError(Throwable cause) { error = cause; }
+        @Override public void onFrame(WebSocketFrame frame) {
+            frames.add(((TextWebSocketFrame) frame).text());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (EmbeddedChannel ch : channels)
+            ch.finishAndReleaseAll();
+    }
+
+    private static void receive(EmbeddedChannel ch, WsClientHandler session, String text) {
+        TextWebSocketFrame frame = new TextWebSocketFrame(text);
+        try {
+            session.onFrame(frame);
+        } finally {
+            frame.release();
+        }
+        ch.runPendingTasks();
+    }
+
+    @Test
+    void testDispatchToStreams() {
+        FakeClient fake = new FakeClient();
+        MuxNettyWsClient mux = new MuxNettyWsClient(fake, 2, 8);
+        RecordingHandler h1 = new RecordingHandler(), h2 = new RecordingHandler();
+        mux.open(h1);
+        mux.open(h2);
+        assertEquals(1, fake.sessions.size());
+        assertNull(h1.ctx);
+        fake.attach(0);
+        assertNotNull(h1.stream);
+        assertNotNull(h2.stream);
+        assertSame(h1.ctx, h2.ctx);
+        assertNotEquals(h1.stream.id(), h2.stream.id());
+
+        WsClientHandler session = fake.sessions.get(0);
+        EmbeddedChannel ch = channels.get(0);
+        receive(ch, session, "!stream#"+h2.stream.id()+"\n<a>\n<b>\n");
+        receive(ch, session, "!end#"+h1.stream.id()+"\n");
+        receive(ch, session, "!end#99\n");
+        assertEquals(singletonList("!end\n"), h1.frames);
+        assertEquals(singletonList("<a>\n<b>\n"), h2.frames);
+
+        h1.stream.recycle(ch);
+        receive(ch, session, "!end#"+h1.stream.id()+"\n");
+        assertEquals(singletonList("!end\n"), h1.frames);
+        assertTrue(ch.isOpen());
+
+        mux.close();
+        ch.runPendingTasks();
+        assertFalse(ch.isOpen());
+        assertTrue(fake.closed);
+    }
+
+    @Test
+    void testOpenSessionsOnlyWhenBusy() {
+        FakeClient fake = new FakeClient();
+        MuxNettyWsClient mux = new MuxNettyWsClient(fake, 2, 2);
+        List<RecordingHandler> handlers = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            RecordingHandler h = new RecordingHandler();
+            handlers.add(h);
+            mux.open(h);
+        }
+        assertEquals(2, fake.sessions.size());
+        assertEquals(2, mux.sessions());
+        fake.attach(0);
+        fake.attach(1);
+        int onFirst = 0;
+        for (RecordingHandler h : handlers) {
+            assertNotNull(h.stream);
+            if (h.ctx == channels.get(0).pipeline().firstContext()) ++onFirst;
+        }
+        assertEquals(3, onFirst);
+    }
+
+    @Test
+    void testSessionErrorNotifiesStreams() {
+        FakeClient fake = new FakeClient();
+        MuxNettyWsClient mux = new MuxNettyWsClient(fake, 1, 1);
+        RecordingHandler h1 = new RecordingHandler(), h2 = new RecordingHandler();
+        mux.open(h1);
+        mux.open(h2);
+        Exception cause = new Exception("test");
+        fake.sessions.get(0).onError(cause);
+        assertSame(cause, h1.error);
+        assertSame(cause, h2.error);
+        assertEquals(0, mux.sessions());
+
+        RecordingHandler h3 = new RecordingHandler();
+        mux.open(h3);
+        assertEquals(2, fake.sessions.size());
+        fake.attach(1);
+        fake.sessions.get(1).detach();
+        assertTrue(h3.detached);
+        assertEquals(asList(), h3.frames);
+    }
+}
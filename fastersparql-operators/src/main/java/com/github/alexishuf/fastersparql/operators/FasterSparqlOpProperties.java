@@ -6,7 +6,10 @@ import com.github.alexishuf.fastersparql.operators.plan.MergePlan;
 import com.github.alexishuf.fastersparql.operators.reorder.AvoidCartesianJoinReorderStrategy;
 import com.github.alexishuf.fastersparql.operators.reorder.JoinReorderStrategy;
 import com.github.alexishuf.fastersparql.operators.reorder.NullJoinReorderStrategy;
+import com.github.alexishuf.fastersparql.operators.sources.AskSourceSelector;
+import com.github.alexishuf.fastersparql.operators.sources.SourceCapabilityCache;
 import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 @SuppressWarnings("UnusedReturnValue")
 public class FasterSparqlOpProperties extends FasterSparqlProperties {
@@ -19,7 +22,13 @@ public class FasterSparqlOpProperties extends FasterSparqlProperties {
     public static final String OP_JOIN_REORDER_BIND = "fastersparql.op.join.reorder.bind";
     public static final String OP_JOIN_REORDER_HASH = "fastersparql.op.join.reorder.hash";
     public static final String OP_JOIN_REORDER_WCO = "fastersparql.op.join.reorder.wco";
+    public static final String OP_JOIN_SYMMETRIC_MAX_ROWS = "fastersparql.op.join.symmetric.max-rows";
+    public static final String OP_JOIN_DETECT_CYCLIC = "fastersparql.op.join.detect-cyclic";
+    public static final String OP_SPILL_DIR = "fastersparql.op.spill.dir";
     public static final String OP_FILTER_PREFERRED_COMPILER = "fastersparql.op.filter.compiler";
+    public static final String OP_SOURCES_ASK_CONCURRENCY = "fastersparql.op.sources.ask.concurrency";
+    public static final String OP_SOURCES_CACHE_TTL_MS = "fastersparql.op.sources.cache.ttl-ms";
+    public static final String OP_SOURCES_CACHE_FILE = "fastersparql.op.sources.cache.file";
 
     /* --- --- --- default values --- --- --- */
     public static final int DEF_OP_DISTINCT_WINDOW = 16384;
@@ -27,7 +36,13 @@ public class FasterSparqlOpProperties extends FasterSparqlProperties {
     public static final int DEF_OP_BIND_CONCURRENCY = 2;
     public static final String DEF_OP_JOIN_REORDER = "AvoidCartesian";
     public static final String DEF_OP_JOIN_REORDER_WCO = "Null";
+    public static final int DEF_OP_JOIN_SYMMETRIC_MAX_ROWS = 1024*1024;
+    public static final boolean DEF_OP_JOIN_DETECT_CYCLIC = false;
+    public static final String DEF_OP_SPILL_DIR = null;
     public static final String DEF_OP_FILTER_PREFERRED_COMPILER = null;
+    public static final int DEF_OP_SOURCES_ASK_CONCURRENCY = 4;
+    public static final int DEF_OP_SOURCES_CACHE_TTL_MS = 60*60*1000;
+    public static final String DEF_OP_SOURCES_CACHE_FILE = null;
 
 
     /* --- --- --- accessors --- --- --- */
@@ -130,6 +145,44 @@ public class FasterSparqlOpProperties extends FasterSparqlProperties {
         return s;
     }
 
+    /**
+     * Maximum number of rows (summing both operands) that a symmetric hash join keeps
+     * in memory. If the join is allowed to spill (see {@link OperatorFlags#SPILLOVER}), once
+     * this is exceeded, the rows of the larger operand are moved to disk.
+     *
+     * @return a positive ({@code n > 0}) integer.
+     */
+    public static @Positive int symmetricJoinMaxRows() {
+        return readPositiveInt(OP_JOIN_SYMMETRIC_MAX_ROWS, DEF_OP_JOIN_SYMMETRIC_MAX_ROWS);
+    }
+
+    /**
+     * Whether {@link FasterSparqlOps#join(java.util.List, long)} checks if the join graph of
+     * its operands is cyclic and, if so, adds {@link OperatorFlags#CYCLIC} to the flags.
+     *
+     * <p>This is opt-in because {@link OperatorFlags#CYCLIC} makes worst-case optimal joins
+     * win the bidding and such joins materialize all operands, which for remote operands
+     * means downloading them entirely before producing the first row. Callers can also set
+     * {@link OperatorFlags#CYCLIC} explicitly.</p>
+     *
+     * The default is {@link FasterSparqlOpProperties#DEF_OP_JOIN_DETECT_CYCLIC}.
+     */
+    public static boolean detectCyclicJoins() {
+        return readBoolean(OP_JOIN_DETECT_CYCLIC, DEF_OP_JOIN_DETECT_CYCLIC);
+    }
+
+    /**
+     * Directory where operators allowed to spill (see {@link OperatorFlags#SPILLOVER}) will
+     * create their temporary files.
+     *
+     * The default is null, meaning the JVM default temporary directory
+     * ({@code java.io.tmpdir}) is used.
+     */
+    public static @Nullable String spillDir() {
+        String dir = readTrimmedString(OP_SPILL_DIR, DEF_OP_SPILL_DIR);
+        return dir == null || dir.isEmpty() ? null : dir;
+    }
+
     /**
      * Name of the preferred {@link ExprEvaluatorCompilerProvider}.
      *
@@ -139,4 +192,36 @@ public class FasterSparqlOpProperties extends FasterSparqlProperties {
     public static String preferredExprCompiler() {
         return readTrimmedString(OP_FILTER_PREFERRED_COMPILER, null);
     }
+
+    /**
+     * Maximum number of concurrent ASK queries that an {@link AskSourceSelector} will send to
+     * a single endpoint. Probes beyond this limit are queued and dispatched as earlier
+     * probes to the same endpoint complete.
+     *
+     * @return a positive ({@code n > 0}) integer.
+     */
+    public static @Positive int sourcesAskConcurrency() {
+        return readPositiveInt(OP_SOURCES_ASK_CONCURRENCY, DEF_OP_SOURCES_ASK_CONCURRENCY);
+    }
+
+    /**
+     * How long, in milliseconds, an ASK answer stored in a {@link SourceCapabilityCache}
+     * remains valid.
+     *
+     * @return a positive ({@code n > 0}) number of milliseconds.
+     */
+    public static @Positive int sourcesCacheTtlMs() {
+        return readPositiveInt(OP_SOURCES_CACHE_TTL_MS, DEF_OP_SOURCES_CACHE_TTL_MS);
+    }
+
+    /**
+     * Path of the file where a {@link SourceCapabilityCache} loads its entries from and
+     * saves them to.
+     *
+     * The default is null, meaning the cache will only live in memory.
+     */
+    public static @Nullable String sourcesCacheFile() {
+        String path = readTrimmedString(OP_SOURCES_CACHE_FILE, DEF_OP_SOURCES_CACHE_FILE);
+        return path == null || path.isEmpty() ? null : path;
+    }
 }
@@ -18,6 +18,7 @@ import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import static com.github.alexishuf.fastersparql.operators.OperatorFlags.ASYNC;
+import static com.github.alexishuf.fastersparql.operators.OperatorFlags.CYCLIC;
 import static java.util.Arrays.asList;
 
 @SuppressWarnings({"unchecked", "unused"})
@@ -130,11 +131,13 @@ public class FasterSparqlOps {
 
     public static <R> JoinPlan.Builder<R> join(List<? extends Plan<R>> inputs, long flags) {
         Class<? super R> rowClass = inputs.iterator().next().rowClass();
+        if ((flags & CYCLIC) == 0 && FasterSparqlOpProperties.detectCyclicJoins()
+                                  && JoinHelpers.isCyclic(inputs))
+            flags |= CYCLIC;
         return create(Join.class, flags, rowClass).<R>asPlan().operands(inputs);
     }
     public static <R> JoinPlan.Builder<R> join(List<? extends Plan<R>> inputs) {
-        Class<? super R> rowClass = inputs.iterator().next().rowClass();
-        return create(Join.class, ASYNC, rowClass).<R>asPlan().operands(inputs);
+        return join(inputs, ASYNC);
     }
 
     public static <R> JoinPlan.Builder<R> join(Plan<R> left, Plan<R> right, long flags) {
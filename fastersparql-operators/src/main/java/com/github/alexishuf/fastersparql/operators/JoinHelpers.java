@@ -11,10 +11,7 @@ import com.github.alexishuf.fastersparql.operators.plan.Plan;
 import com.github.alexishuf.fastersparql.operators.reorder.JoinReorderStrategy;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
-import java.util.ServiceLoader;
+import java.util.*;
 import java.util.function.Function;
 import java.util.regex.Pattern;
 
@@ -120,6 +117,45 @@ public class JoinHelpers {
         return null;
     }
 
+    /**
+     * Whether the join graph of the given operands is cyclic.
+     *
+     * <p>This applies the GYO reduction over the hypergraph whose hyperedges are the
+     * {@link Plan#publicVars()} of each operand: vars that appear in a single hyperedge are
+     * removed, as are hyperedges that are empty or contained in another hyperedge. The join
+     * is cyclic iff more than one hyperedge survives.</p>
+     *
+     * @param operands the join operands
+     * @return true iff the join graph is cyclic (e.g., a triangle).
+     */
+    public static boolean isCyclic(List<? extends Plan<?>> operands) {
+        if (operands.size() < 3)
+            return false;
+        List<Set<String>> edges = new ArrayList<>(operands.size());
+        for (Plan<?> operand : operands)
+            edges.add(new HashSet<>(operand.publicVars()));
+        for (boolean changed = true; changed && edges.size() > 1; ) {
+            changed = false;
+            Map<String, Integer> occurrences = new HashMap<>();
+            for (Set<String> edge : edges) {
+                for (String var : edge) occurrences.merge(var, 1, Integer::sum);
+            }
+            for (Set<String> edge : edges)
+                changed |= edge.removeIf(v -> occurrences.get(v) == 1);
+            for (int i = 0; i < edges.size(); i++) {
+                Set<String> edge = edges.get(i);
+                boolean contained = edge.isEmpty();
+                for (int j = 0; !contained && j < edges.size(); j++)
+                    contained = j != i && edges.get(j).containsAll(edge);
+                if (contained) {
+                    edges.remove(i--);
+                    changed = true;
+                }
+            }
+        }
+        return edges.size() > 1;
+    }
+
     /**
      * Whether joining the two given operands would yield a cartesian product.
      *
@@ -81,6 +81,21 @@ public class OperatorFlags {
      */
     public static final long ALLOW_UNSOUND     = (0x1 << 11) | ALLOW_DUPLICATES;
 
+    /**
+     * Time until the first result rows are produced matters more than the total time to
+     * produce all rows (e.g., results are shown incrementally to a user).
+     */
+    public static final long LOW_LATENCY       = 0x1 << 12;
+
+    /**
+     * The join graph of the operands is cyclic (e.g., triangles or cliques): after repeatedly
+     * removing variables that appear in a single operand and operands whose variables are a
+     * subset of another operand's variables, more than one operand remains.
+     *
+     * See {@link JoinHelpers#isCyclic(java.util.List)}.
+     */
+    public static final long CYCLIC            = 0x1 << 13;
+
 
     /**
      * These are bits that can be used by user-defined flags.
@@ -26,6 +26,7 @@ public class DistinctProcessor<R> extends AbstractProcessor<R, R> {
     }
 
     @Override protected void onTerminate(@Nullable Throwable error, boolean cancelled) {
+        set.close();
         if (hasGlobalMetricsListeners())
             sendMetrics(plan, new PlanMetrics(plan.name(), rows, start, error, cancelled));
     }
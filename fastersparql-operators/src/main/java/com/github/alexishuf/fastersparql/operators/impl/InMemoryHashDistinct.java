@@ -1,8 +1,11 @@
 package com.github.alexishuf.fastersparql.operators.impl;
 
 import com.github.alexishuf.fastersparql.client.model.Results;
+import com.github.alexishuf.fastersparql.client.model.row.OffHeapRowHashSet;
 import com.github.alexishuf.fastersparql.client.model.row.RowHashSet;
 import com.github.alexishuf.fastersparql.client.model.row.RowOperations;
+import com.github.alexishuf.fastersparql.client.model.row.RowSet;
+import com.github.alexishuf.fastersparql.client.util.FasterSparqlProperties;
 import com.github.alexishuf.fastersparql.operators.BidCosts;
 import com.github.alexishuf.fastersparql.operators.Distinct;
 import com.github.alexishuf.fastersparql.operators.plan.DistinctPlan;
@@ -40,8 +43,9 @@ public class InMemoryHashDistinct implements Distinct {
 
     @Override public <R> Results<R> checkedRun(DistinctPlan<R> plan) {
         Results<R> in = plan.input().execute();
-        DistinctProcessor<R> p
-                = new DistinctProcessor<>(in.publisher(), plan, new RowHashSet<>(rowOps));
+        RowSet<R> set = FasterSparqlProperties.offHeapRows() && rowOps.restoresNT()
+                      ? new OffHeapRowHashSet<>(rowOps, in.vars()) : new RowHashSet<>(rowOps);
+        DistinctProcessor<R> p = new DistinctProcessor<>(in.publisher(), plan, set);
         return new Results<>(in.vars(), in.rowClass(), p);
     }
 }
@@ -0,0 +1,71 @@
+package com.github.alexishuf.fastersparql.operators.impl;
+
+import com.github.alexishuf.fastersparql.client.model.Results;
+import com.github.alexishuf.fastersparql.client.model.row.RowOperations;
+import com.github.alexishuf.fastersparql.operators.BidCosts;
+import com.github.alexishuf.fastersparql.operators.Join;
+import com.github.alexishuf.fastersparql.operators.OperatorFlags;
+import com.github.alexishuf.fastersparql.operators.plan.JoinPlan;
+import com.github.alexishuf.fastersparql.operators.plan.Plan;
+import com.github.alexishuf.fastersparql.operators.providers.JoinProvider;
+import org.checkerframework.checker.index.qual.NonNegative;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.github.alexishuf.fastersparql.operators.FasterSparqlOpProperties.wcoJoinReorder;
+import static com.github.alexishuf.fastersparql.operators.OperatorFlags.*;
+
+/**
+ * A worst-case optimal {@link Join} that executes all operands without bindings and joins
+ * them at once with a {@link LeapfrogTrieJoinPublisher}.
+ *
+ * <p>Since all operands are materialized before the first row is produced, this only wins the
+ * bidding when the join graph is cyclic (see {@link OperatorFlags#CYCLIC}), where pairwise
+ * joins may produce intermediate results much larger than the final result.</p>
+ */
+public final class LeapfrogTrieJoin implements Join {
+    private final RowOperations rowOps;
+
+    public static class Provider implements JoinProvider {
+        @Override public @NonNegative int bid(long flags) {
+            int bid = BidCosts.BUILTIN_COST;
+            if ((flags & CYCLIC) == 0)
+                bid += 4*BidCosts.SLOW_COST;
+            if ((flags & LOW_LATENCY) != 0)
+                bid += BidCosts.SLOW_COST;
+            if ((flags & SPILLOVER) != 0)
+                bid += BidCosts.MINOR_COST;
+            if ((flags & (LARGE_FIRST|LARGE_SECOND)) != 0)
+                bid += 8*BidCosts.OOM_COST;
+            return bid;
+        }
+
+        @Override public Join create(long flags, RowOperations rowOperations) {
+            return new LeapfrogTrieJoin(rowOperations);
+        }
+    }
+
+    public LeapfrogTrieJoin(RowOperations rowOps) {
+        this.rowOps = rowOps;
+    }
+
+    @Override public <R> Class<R> rowClass() {
+        //noinspection unchecked
+        return (Class<R>) rowOps.rowClass();
+    }
+
+    @Override public <R> Results<R> checkedRun(JoinPlan<R> plan) {
+        List<? extends Plan<R>> ops = wcoJoinReorder().reorder(plan.operands(), false);
+        switch (ops.size()) {
+            case 0: return Results.empty(plan.rowClass());
+            case 1: return ops.get(0).execute();
+        }
+        List<Results<R>> operands = new ArrayList<>(ops.size());
+        for (Plan<R> op : ops)
+            operands.add(op.execute());
+        LeapfrogTrieJoinPublisher<R> pub = new LeapfrogTrieJoinPublisher<>(
+                rowOps, operands, plan.publicVars(), plan.name());
+        return new Results<>(pub.outVars(), plan.rowClass(), pub);
+    }
+}
@@ -0,0 +1,531 @@
+package com.github.alexishuf.fastersparql.operators.impl;
+
+import com.github.alexishuf.fastersparql.client.model.Results;
+import com.github.alexishuf.fastersparql.client.model.row.RowOperations;
+import com.github.alexishuf.fastersparql.client.util.reactive.CallbackPublisher;
+import com.github.alexishuf.fastersparql.client.util.reactive.FSPublisher;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A multi-way join of all given {@link Results} using leapfrog triejoin, which is worst-case
+ * optimal and thus avoids the large intermediate results that pairwise joins produce for
+ * cyclic join graphs (e.g., triangles and cliques).
+ *
+ * <p>All operands are fully consumed and materialized: terms are dictionary-encoded into
+ * {@code int}s and the rows of each operand are stored in a {@link SortedTrie} whose columns
+ * follow a global variable order (variables shared by more operands come first). Duplicate
+ * rows are kept as multiplicities, preserving bag semantics. Output rows are then enumerated
+ * lazily, only as downstream requests them.</p>
+ *
+ * <p>Leapfrog triejoin requires join variables to be bound. If any operand has a row with an
+ * unbound variable that is shared with another operand, this falls back to an in-memory
+ * pairwise join that uses SPARQL compatibility semantics.</p>
+ *
+ * <p>All events are processed in the {@link CallbackPublisher#executor()}, to which all
+ * operands are moved.</p>
+ */
+public class LeapfrogTrieJoinPublisher<R> extends CallbackPublisher<R> {
+    private static final Logger log = LoggerFactory.getLogger(LeapfrogTrieJoinPublisher.class);
+    private static final AtomicInteger nextId = new AtomicInteger(1);
+
+    private final RowOperations rowOps;
+    private final List<String> outVars;
+    private final List<Operand> operands;
+    private int pendingOperands;
+    private long demand;
+    private boolean started, terminated, draining, drainAgain;
+    private @Nullable Source source;
+    private Object @Nullable [] pendingValues;
+    private long pendingCopies;
+
+    public LeapfrogTrieJoinPublisher(RowOperations rowOps, List<Results<R>> operands,
+                                     List<String> outVars, @Nullable String name) {
+        super(name == null ? "LeapfrogTrieJoinPublisher-"+nextId.getAndIncrement()
+                           : name+"-LeapfrogTrieJoinPublisher-"+nextId.getAndIncrement());
+        this.rowOps = rowOps;
+        this.outVars = outVars;
+        this.operands = new ArrayList<>(operands.size());
+        for (Results<R> results : operands) {
+            for (String var : results.vars()) {
+                if (!outVars.contains(var))
+                    throw new IllegalArgumentException("outVars do not include "+var);
+            }
+            this.operands.add(new Operand(results.publisher(), results.vars()));
+        }
+        for (String var : outVars) {
+            if (operands.stream().noneMatch(r -> r.vars().contains(var)))
+                throw new IllegalArgumentException("No operand has outVar "+var);
+        }
+        this.pendingOperands = operands.size();
+        // after a failure or cancel, operands may still deliver a few rows
+        silenceFeedAfterCompleteWarnings();
+    }
+
+    /** Variables of the rows produced by this publisher. */
+    public List<String> outVars() { return outVars; }
+
+    /* --- --- --- CallbackPublisher hooks --- --- --- */
+
+    @Override protected void onRequest(long n) {
+        demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+        if (!started) {
+            started = true;
+            if (operands.isEmpty())
+                finish(null);
+            for (Operand operand : operands)
+                operand.start();
+        }
+        drain();
+    }
+
+    @Override protected void onBackpressure() { }
+
+    @Override protected void onCancel() {
+        log.trace("{}.onCancel()", this);
+        terminated = true;
+        for (Operand operand : operands)
+            operand.cancel();
+        release();
+    }
+
+    /* --- --- --- materialization --- --- --- */
+
+    private final class Operand implements Subscriber<R> {
+        final FSPublisher<R> publisher;
+        final List<String> vars;
+        final List<Object[]> rows = new ArrayList<>();
+        @Nullable Subscription upstream;
+        boolean done;
+
+        Operand(FSPublisher<R> publisher, List<String> vars) {
+            this.publisher = publisher;
+            this.vars = vars;
+        }
+
+        void start() {
+            FSPublisher.bind(publisher, executor()).subscribe(this);
+        }
+
+        void cancel() {
+            if (!done) {
+                done = true;
+                if (upstream != null)
+                    upstream.cancel();
+            }
+        }
+
+        @Override public void onSubscribe(Subscription s) {
+            upstream = s;
+            if (terminated) {
+                done = true;
+                s.cancel();
+            } else {
+                // every row is required before the first output row
+                s.request(Long.MAX_VALUE);
+            }
+        }
+
+        @Override public void onNext(R row) {
+            if (terminated || done)
+                return;
+            Object[] values = new Object[vars.size()];
+            for (int i = 0; i < values.length; i++)
+                values[i] = rowOps.get(row, i, vars.get(i));
+            rows.add(values);
+        }
+
+        @Override public void onError(Throwable t) {
+            done = true;
+            finish(t);
+        }
+
+        @Override public void onComplete() {
+            done = true;
+            if (terminated)
+                return;
+            if (rows.isEmpty()) {
+                finish(null); // no other row will have a match
+            } else if (--pendingOperands == 0) {
+                try {
+                    source = build();
+                    drain();
+                } catch (Throwable t) {
+                    finish(t);
+                }
+            }
+        }
+
+        @Override public String toString() {
+            return LeapfrogTrieJoinPublisher.this+".operands["+operands.indexOf(this)+"]";
+        }
+    }
+
+    /** Produces output rows as arrays of values aligned with {@code outVars}. */
+    private interface Source {
+        /** Move to the next output row, returning false if there are no more rows. */
+        boolean next();
+        /** Values of the current output row. */
+        Object[] values();
+        /** How many copies of the current output row must be emitted. */
+        long copies();
+    }
+
+    private Source build() {
+        int nVars = outVars.size();
+        int[] occurrences = new int[nVars];
+        for (Operand operand : operands) {
+            for (String var : operand.vars) ++occurrences[outVars.indexOf(var)];
+        }
+        // unbound join vars cannot be handled by leapfrog triejoin
+        for (Operand operand : operands) {
+            int[] shared = new int[operand.vars.size()];
+            int nShared = 0;
+            for (int i = 0; i < shared.length; i++) {
+                if (occurrences[outVars.indexOf(operand.vars.get(i))] > 1) shared[nShared++] = i;
+            }
+            for (Object[] row : operand.rows) {
+                for (int i = 0; i < nShared; i++) {
+                    if (row[shared[i]] == null) {
+                        log.debug("{}: unbound join var {}, falling back to pairwise join",
+                                  this, operand.vars.get(shared[i]));
+                        return new PairwiseSource(occurrences);
+                    }
+                }
+            }
+        }
+        return new LeapfrogSource(occurrences);
+    }
+
+    /* --- --- --- leapfrog triejoin --- --- --- */
+
+    private final class LeapfrogSource implements Source {
+        /** Index in outVars of the variable at each level of the global variable order */
+        private final int[] levelVar;
+        /** Trie iterators (of operands with that variable) for each level */
+        private final SortedTrie.Iterator[][] levelIterators;
+        /** Iterators of all operands with at least one variable */
+        private final SortedTrie.Iterator[] leaves;
+        private final int[] levelPos, binding;
+        private final boolean[] levelAtEnd;
+        private final List<Object> terms = new ArrayList<>();
+        private final Object[] values;
+        private long factor = 1;
+        private int level = -1;
+        private boolean exhausted, emittedEmpty;
+
+        LeapfrogSource(int[] occurrences) {
+            int nVars = occurrences.length;
+            // global order: vars in more operands first, ties broken by position in outVars
+            Integer[] order = new Integer[nVars];
+            for (int i = 0; i < nVars; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> occurrences[b] - occurrences[a]);
+            levelVar = new int[nVars];
+            int[] varLevel = new int[nVars];
+            for (int l = 0; l < nVars; l++) {
+                levelVar[l] = order[l];
+                varLevel[order[l]] = l;
+            }
+
+            Map<Object, Integer> dictionary = new HashMap<>();
+            terms.add(null); // id 0 is reserved for unbound non-join vars
+            List<List<SortedTrie.Iterator>> perLevel = new ArrayList<>(nVars);
+            for (int l = 0; l < nVars; l++) perLevel.add(new ArrayList<>());
+            List<SortedTrie.Iterator> leaves = new ArrayList<>();
+            for (Operand operand : operands) {
+                int arity = operand.vars.size();
+                if (arity == 0) {
+                    factor *= operand.rows.size();
+                    continue;
+                }
+                // columns of the trie follow the global variable order
+                Integer[] columns = new Integer[arity];
+                for (int i = 0; i < arity; i++) columns[i] = i;
+                int[] levels = new int[arity];
+                for (int i = 0; i < arity; i++)
+                    levels[i] = varLevel[outVars.indexOf(operand.vars.get(i))];
+                Arrays.sort(columns, Comparator.comparingInt(c -> levels[c]));
+                List<int[]> tuples = new ArrayList<>(operand.rows.size());
+                for (Object[] row : operand.rows) {
+                    int[] tuple = new int[arity];
+                    for (int c = 0; c < arity; c++) {
+                        Object term = row[columns[c]];
+                        if (term != null) {
+                            Integer id = dictionary.get(term);
+                            if (id == null) {
+                                dictionary.put(term, id = terms.size());
+                                terms.add(term);
+                            }
+                            tuple[c] = id;
+                        }
+                    }
+                    tuples.add(tuple);
+                }
+                operand.rows.clear();
+                SortedTrie.Iterator it = new SortedTrie(tuples, arity).iterator();
+                leaves.add(it);
+                for (int c = 0; c < arity; c++)
+                    perLevel.get(levels[columns[c]]).add(it);
+            }
+            this.leaves = leaves.toArray(new SortedTrie.Iterator[0]);
+            this.levelIterators = new SortedTrie.Iterator[nVars][];
+            for (int l = 0; l < nVars; l++)
+                levelIterators[l] = perLevel.get(l).toArray(new SortedTrie.Iterator[0]);
+            this.levelPos = new int[nVars];
+            this.binding = new int[nVars];
+            this.levelAtEnd = new boolean[nVars];
+            this.values = new Object[nVars];
+        }
+
+        @Override public boolean next() {
+            if (exhausted)
+                return false;
+            int last = levelVar.length-1;
+            if (last < 0) { // no variables: a single empty row
+                exhausted = emittedEmpty;
+                emittedEmpty = true;
+                return !exhausted && factor > 0;
+            }
+            if (level < 0) {
+                level = 0;
+                open(0);
+            } else {
+                leapNext(level);
+            }
+            while (true) {
+                if (levelAtEnd[level]) {
+                    for (SortedTrie.Iterator it : levelIterators[level]) it.up();
+                    if (level == 0) {
+                        exhausted = true;
+                        return false;
+                    }
+                    leapNext(--level);
+                } else {
+                    binding[level] = levelIterators[level][levelPos[level]].key();
+                    if (level == last)
+                        return true;
+                    open(++level);
+                }
+            }
+        }
+
+        @Override public Object[] values() {
+            for (int l = 0; l < levelVar.length; l++)
+                values[levelVar[l]] = terms.get(binding[l]);
+            return values;
+        }
+
+        @Override public long copies() {
+            long copies = factor;
+            for (SortedTrie.Iterator it : leaves) copies *= it.count();
+            return copies;
+        }
+
+        private void open(int l) {
+            SortedTrie.Iterator[] its = levelIterators[l];
+            boolean atEnd = false;
+            for (SortedTrie.Iterator it : its) {
+                it.open();
+                atEnd |= it.atEnd();
+            }
+            levelAtEnd[l] = atEnd;
+            if (!atEnd) {
+                Arrays.sort(its, Comparator.comparingInt(SortedTrie.Iterator::key));
+                levelPos[l] = 0;
+                search(l);
+            }
+        }
+
+        private void leapNext(int l) {
+            SortedTrie.Iterator[] its = levelIterators[l];
+            SortedTrie.Iterator it = its[levelPos[l]];
+            it.next();
+            if (it.atEnd()) {
+                levelAtEnd[l] = true;
+            } else {
+                levelPos[l] = (levelPos[l]+1) % its.length;
+                search(l);
+            }
+        }
+
+        private void search(int l) {
+            SortedTrie.Iterator[] its = levelIterators[l];
+            int p = levelPos[l], k = its.length;
+            int max = its[(p+k-1) % k].key();
+            while (true) {
+                SortedTrie.Iterator it = its[p];
+                if (it.key() == max)
+                    break;
+                it.seek(max);
+                if (it.atEnd()) {
+                    levelAtEnd[l] = true;
+                    break;
+                }
+                max = it.key();
+                p = (p+1) % k;
+            }
+            levelPos[l] = p;
+        }
+    }
+
+    /* --- --- --- fallback pairwise join --- --- --- */
+
+    private final class PairwiseSource implements Source {
+        private final Iterator<Object[]> iterator;
+        private Object @Nullable [] current;
+
+        PairwiseSource(int[] occurrences) {
+            int nVars = occurrences.length;
+            boolean[] seen = new boolean[nVars];
+            List<Object[]> acc = null;
+            for (Operand operand : operands) {
+                int[] idx = new int[operand.vars.size()];
+                for (int i = 0; i < idx.length; i++)
+                    idx[i] = outVars.indexOf(operand.vars.get(i));
+                if (acc == null) {
+                    acc = new ArrayList<>(operand.rows.size());
+                    for (Object[] row : operand.rows)
+                        acc.add(expand(row, idx, nVars));
+                } else {
+                    acc = join(acc, seen, operand.rows, idx, nVars);
+                }
+                for (int i : idx) seen[i] = true;
+                operand.rows.clear();
+            }
+            this.iterator = acc == null ? Collections.emptyIterator() : acc.iterator();
+        }
+
+        private Object[] expand(Object[] row, int[] idx, int nVars) {
+            Object[] values = new Object[nVars];
+            for (int i = 0; i < idx.length; i++) values[idx[i]] = row[i];
+            return values;
+        }
+
+        private List<Object[]> join(List<Object[]> acc, boolean[] seen, List<Object[]> rows,
+                                    int[] idx, int nVars) {
+            int[] shared = Arrays.stream(idx).filter(i -> seen[i]).toArray();
+            Map<List<Object>, List<Object[]>> table = new HashMap<>();
+            List<Object[]> wildcards = new ArrayList<>();
+            for (Object[] row : rows) {
+                Object[] expanded = expand(row, idx, nVars);
+                List<Object> key = key(expanded, shared);
+                if (key == null) wildcards.add(expanded);
+                else             table.computeIfAbsent(key, k -> new ArrayList<>()).add(expanded);
+            }
+            List<Object[]> result = new ArrayList<>();
+            for (Object[] l : acc) {
+                List<Object> key = key(l, shared);
+                if (key == null) {
+                    for (List<Object[]> bucket : table.values())
+                        mergeCompatible(result, l, bucket, shared);
+                } else {
+                    mergeCompatible(result, l, table.getOrDefault(key, Collections.emptyList()),
+                                    shared);
+                }
+                mergeCompatible(result, l, wildcards, shared);
+            }
+            return result;
+        }
+
+        private @Nullable List<Object> key(Object[] values, int[] shared) {
+            Object[] key = new Object[shared.length];
+            for (int i = 0; i < shared.length; i++) {
+                if ((key[i] = values[shared[i]]) == null) return null;
+            }
+            return Arrays.asList(key);
+        }
+
+        private void mergeCompatible(List<Object[]> dest, Object[] l, List<Object[]> candidates,
+                                     int[] shared) {
+            outer:
+            for (Object[] r : candidates) {
+                for (int i : shared) {
+                    if (l[i] != null && r[i] != null && !l[i].equals(r[i])) continue outer;
+                }
+                Object[] merged = l.clone();
+                for (int i = 0; i < merged.length; i++) {
+                    if (merged[i] == null) merged[i] = r[i];
+                }
+                dest.add(merged);
+            }
+        }
+
+        @Override public boolean next() {
+            current = iterator.hasNext() ? iterator.next() : null;
+            return current != null;
+        }
+
+        @Override public Object[] values() {
+            assert current != null;
+            return current;
+        }
+
+        @Override public long copies() { return 1; }
+    }
+
+    /* --- --- --- emission --- --- --- */
+
+    private void drain() {
+        if (draining) {
+            drainAgain = true;
+            return;
+        }
+        draining = true;
+        try {
+            do {
+                drainAgain = false;
+                while (!terminated && source != null && demand > 0) {
+                    if (pendingCopies > 0) {
+                        assert pendingValues != null;
+                        --pendingCopies;
+                        --demand;
+                        feed(toRow(pendingValues));
+                    } else if (source.next()) {
+                        pendingValues = source.values();
+                        pendingCopies = source.copies();
+                    } else {
+                        finish(null);
+                    }
+                }
+            } while (drainAgain);
+        } catch (Throwable t) {
+            finish(t);
+        } finally {
+            draining = false;
+        }
+    }
+
+    private R toRow(Object[] values) {
+        @SuppressWarnings("unchecked") R row = (R) rowOps.createEmpty(outVars);
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null)
+                rowOps.set(row, i, outVars.get(i), values[i]);
+        }
+        return row;
+    }
+
+    private void finish(@Nullable Throwable cause) {
+        if (terminated)
+            return;
+        log.trace("{}.finish({})", this, Objects.toString(cause));
+        terminated = true;
+        for (Operand operand : operands)
+            operand.cancel();
+        release();
+        complete(cause);
+    }
+
+    private void release() {
+        for (Operand operand : operands)
+            operand.rows.clear();
+        source = null;
+        pendingValues = null;
+        pendingCopies = 0;
+    }
+}
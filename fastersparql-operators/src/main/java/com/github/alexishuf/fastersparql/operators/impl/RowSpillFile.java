@@ -0,0 +1,171 @@
+package com.github.alexishuf.fastersparql.operators.impl;
+
+import com.github.alexishuf.fastersparql.client.model.row.RowOperations;
+import com.github.alexishuf.fastersparql.operators.FasterSparqlOpProperties;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A temporary file where rows are appended and later read back in the same order.
+ *
+ * <p>Each row is stored with a {@code long} tag chosen by the writer. Values are stored in
+ * N-Triples syntax (via {@link RowOperations#getNT(Object, int, String)}) and restored with
+ * {@link RowOperations#set(Object, int, String, Object)}. Thus this is only usable with row
+ * types whose {@link RowOperations#restoresNT()}.</p>
+ *
+ * <p>The file is deleted on {@link RowSpillFile#close()}. Instances are not thread-safe.</p>
+ */
+public final class RowSpillFile<R> implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(RowSpillFile.class);
+
+    private final RowOperations rowOps;
+    private final List<String> vars;
+    private final Path path;
+    private @Nullable DataOutputStream out;
+    private @Nullable DataInputStream in;
+    private long rows;
+    private boolean closed;
+
+    /* --- --- --- read state --- --- --- */
+    private long readTag;
+    private @Nullable R readRow;
+
+    /**
+     * Create a new empty spill file.
+     *
+     * @throws IllegalArgumentException if {@code rowOps} does not
+     *         {@link RowOperations#restoresNT()}.
+     */
+    public RowSpillFile(RowOperations rowOps, List<String> vars) throws IOException {
+        if (!rowOps.restoresNT())
+            throw new IllegalArgumentException(rowOps+" cannot restore rows from N-Triples");
+        this.rowOps = rowOps;
+        this.vars = vars;
+        String dir = FasterSparqlOpProperties.spillDir();
+        if (dir == null) {
+            this.path = Files.createTempFile("fastersparql-spill-", ".rows");
+        } else {
+            Path dirPath = Files.createDirectories(Paths.get(dir));
+            this.path = Files.createTempFile(dirPath, "fastersparql-spill-", ".rows");
+        }
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)));
+    }
+
+    public Path  path() { return path; }
+    public long  rows() { return rows; }
+
+    /**
+     * Append {@code row} with the given {@code tag}.
+     *
+     * @throws IllegalStateException if {@link RowSpillFile#startReading()} was already called.
+     */
+    public void write(R row, long tag) throws IOException {
+        if (out == null)
+            throw new IllegalStateException("write() after startReading() or close()");
+        out.writeLong(tag);
+        for (int i = 0, size = vars.size(); i < size; i++) {
+            String nt = rowOps.getNT(row, i, vars.get(i));
+            if (nt == null) {
+                out.writeInt(-1);
+            } else {
+                byte[] bytes = nt.getBytes(UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+        ++rows;
+    }
+
+    /**
+     * Stop writing and start reading rows from the beginning of the file.
+     */
+    public void startReading() throws IOException {
+        if (closed)
+            throw new IllegalStateException("startReading() after close()");
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+        if (in == null)
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)));
+    }
+
+    /**
+     * Start reading again from the first row. Implies {@link RowSpillFile#startReading()}.
+     */
+    public void rewind() throws IOException {
+        if (in != null) {
+            in.close();
+            in = null;
+        }
+        readRow = null;
+        startReading();
+    }
+
+    /**
+     * Read the next row, which becomes available via {@link RowSpillFile#row()} and
+     * {@link RowSpillFile#tag()}.
+     *
+     * @return {@code false} iff there are no more rows.
+     */
+    public boolean next() throws IOException {
+        if (in == null)
+            throw new IllegalStateException("next() before startReading()");
+        long tag;
+        try {
+            tag = in.readLong();
+        } catch (EOFException e) {
+            readRow = null;
+            return false;
+        }
+        @SuppressWarnings("unchecked") R row = (R) rowOps.createEmpty(vars);
+        for (int i = 0, size = vars.size(); i < size; i++) {
+            int len = in.readInt();
+            if (len >= 0) {
+                byte[] bytes = new byte[len];
+                in.readFully(bytes);
+                rowOps.set(row, i, vars.get(i), new String(bytes, UTF_8));
+            }
+        }
+        readTag = tag;
+        readRow = row;
+        return true;
+    }
+
+    /** The row read by the last successful {@link RowSpillFile#next()}. */
+    public @Nullable R row() { return readRow; }
+
+    /** The tag of the row read by the last successful {@link RowSpillFile#next()}. */
+    public long tag() { return readTag; }
+
+    @Override public void close() {
+        if (closed) return;
+        closed = true;
+        try {
+            if (out != null) out.close();
+            if (in != null) in.close();
+        } catch (IOException e) {
+            log.info("Ignoring failure to close {}", this, e);
+        } finally {
+            out = null;
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("Failed to delete {}", path, e);
+            }
+        }
+    }
+
+    @Override public String toString() {
+        return "RowSpillFile{path="+path+", rows="+rows+"}";
+    }
+}
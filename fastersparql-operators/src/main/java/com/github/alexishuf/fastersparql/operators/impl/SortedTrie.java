@@ -0,0 +1,138 @@
+package com.github.alexishuf.fastersparql.operators.impl;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable set of dictionary-encoded tuples stored column-wise and sorted
+ * lexicographically, allowing trie-like navigation via {@link SortedTrie.Iterator}.
+ *
+ * <p>Duplicate tuples are stored once, with their multiplicity available at
+ * {@link SortedTrie.Iterator#count()}.</p>
+ */
+final class SortedTrie {
+    private final int[][] columns;
+    private final int[] counts;
+    private final int size;
+
+    /**
+     * Build a trie from the given tuples.
+     *
+     * @param tuples list of tuples, each with {@code arity} ids. The list and
+     *               its arrays may be mutated.
+     * @param arity number of columns
+     */
+    SortedTrie(List<int[]> tuples, int arity) {
+        int[][] array = tuples.toArray(new int[0][]);
+        Arrays.sort(array, (a, b) -> {
+            for (int i = 0; i < arity; i++) {
+                int diff = Integer.compare(a[i], b[i]);
+                if (diff != 0) return diff;
+            }
+            return 0;
+        });
+        columns = new int[arity][array.length];
+        int[] counts = new int[array.length];
+        int n = 0;
+        for (int i = 0; i < array.length; i++) {
+            if (n > 0 && Arrays.equals(array[i], array[i-1])) {
+                ++counts[n-1];
+            } else {
+                for (int c = 0; c < arity; c++)
+                    columns[c][n] = array[i][c];
+                counts[n++] = 1;
+            }
+        }
+        this.size = n;
+        this.counts = counts;
+    }
+
+    int arity() { return columns.length; }
+    int  size() { return size; }
+
+    /** Sum of multiplicities of all tuples */
+    long totalCount() {
+        long sum = 0;
+        for (int i = 0; i < size; i++) sum += counts[i];
+        return sum;
+    }
+
+    Iterator iterator() { return new Iterator(); }
+
+    /**
+     * A trie iterator as required by leapfrog triejoin: at each depth it enumerates, in
+     * increasing order, the distinct ids of that column among tuples that share the ids at the
+     * previous depths.
+     */
+    final class Iterator {
+        private final int[] lo, hi, pos;
+        private int depth = -1;
+
+        private Iterator() {
+            int arity = columns.length;
+            lo = new int[arity];
+            hi = new int[arity];
+            pos = new int[arity];
+        }
+
+        /** Descend into the first column or into the children of the current key. */
+        void open() {
+            int d = depth;
+            if (d < 0) {
+                lo[0] = 0;
+                hi[0] = size;
+            } else {
+                lo[d+1] = pos[d];
+                hi[d+1] = upper(d, pos[d], hi[d], key());
+            }
+            pos[d+1] = lo[d+1];
+            depth = d+1;
+        }
+
+        /** Return to the parent depth. */
+        void up() { --depth; }
+
+        boolean atEnd() { return pos[depth] >= hi[depth]; }
+        int       key() { return columns[depth][pos[depth]]; }
+
+        /** Multiplicity of the tuple at the current position. Only valid at the last column. */
+        int count() { return counts[pos[depth]]; }
+
+        /** Move to the next distinct key at the current depth. */
+        void next() {
+            int d = depth;
+            pos[d] = upper(d, pos[d], hi[d], key());
+        }
+
+        /** Move to the least key {@code >= target} at the current depth. */
+        void seek(int target) {
+            int d = depth;
+            pos[d] = lower(d, pos[d], hi[d], target);
+        }
+
+        /** First index in [begin, end) whose value in column d is {@code > key}. */
+        private int upper(int d, int begin, int end, int key) {
+            return lower(d, begin, end, key == Integer.MAX_VALUE ? key : key+1);
+        }
+
+        /** First index in [begin, end) whose value in column d is {@code >= key}. */
+        private int lower(int d, int begin, int end, int key) {
+            int[] col = columns[d];
+            // gallop, since seek targets are usually near
+            int step = 1, b = begin;
+            while (b+step < end && col[b+step] < key) {
+                b += step;
+                step <<= 1;
+            }
+            int l = b, h = Math.min(end, b+step+1);
+            if (l < end && col[l] >= key)
+                return l;
+            while (l < h) {
+                int mid = (l+h) >>> 1;
+                if (col[mid] < key) l = mid+1;
+                else                h = mid;
+            }
+            return l;
+        }
+    }
+}
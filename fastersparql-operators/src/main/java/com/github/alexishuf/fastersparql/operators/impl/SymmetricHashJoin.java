@@ -0,0 +1,72 @@
+package com.github.alexishuf.fastersparql.operators.impl;
+
+import com.github.alexishuf.fastersparql.client.model.Results;
+import com.github.alexishuf.fastersparql.client.model.row.RowOperations;
+import com.github.alexishuf.fastersparql.operators.BidCosts;
+import com.github.alexishuf.fastersparql.operators.FasterSparqlOpProperties;
+import com.github.alexishuf.fastersparql.operators.Join;
+import com.github.alexishuf.fastersparql.operators.OperatorFlags;
+import com.github.alexishuf.fastersparql.operators.plan.JoinPlan;
+import com.github.alexishuf.fastersparql.operators.plan.Plan;
+import com.github.alexishuf.fastersparql.operators.providers.JoinProvider;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.index.qual.Positive;
+
+import static com.github.alexishuf.fastersparql.operators.FasterSparqlOpProperties.hashJoinReorder;
+import static com.github.alexishuf.fastersparql.operators.JoinHelpers.executeReorderedLeftAssociative;
+import static com.github.alexishuf.fastersparql.operators.OperatorFlags.*;
+
+/**
+ * A {@link Join} that executes all operands without bindings and joins them with
+ * {@link SymmetricHashJoinPublisher}s arranged in a left-deep tree.
+ *
+ * <p>Since rows are emitted as soon as both sides of a match have arrived, this has
+ * lower time-to-first-row than bind joins, at the cost of fetching all rows of every
+ * operand. Thus, it only wins the bidding when {@link OperatorFlags#LOW_LATENCY} is set.</p>
+ */
+public final class SymmetricHashJoin implements Join {
+    private final RowOperations rowOps;
+    private final @Positive int maxRows;
+    private final boolean spill;
+
+    public static class Provider implements JoinProvider {
+        @Override public @NonNegative int bid(long flags) {
+            int bid = BidCosts.BUILTIN_COST;
+            if ((flags & LOW_LATENCY) == 0)
+                bid += 2*BidCosts.SLOW_COST;
+            if ((flags & ASYNC) != 0)
+                bid += BidCosts.MINOR_COST;
+            if ((flags & (LARGE_FIRST|LARGE_SECOND)) != 0)
+                bid += (flags & SPILLOVER) != 0 ? 4*BidCosts.SLOW_COST : 8*BidCosts.OOM_COST;
+            return bid;
+        }
+
+        @Override public Join create(long flags, RowOperations rowOperations) {
+            int maxRows = FasterSparqlOpProperties.symmetricJoinMaxRows();
+            return new SymmetricHashJoin(rowOperations, maxRows, (flags & SPILLOVER) != 0);
+        }
+    }
+
+    public SymmetricHashJoin(RowOperations rowOps, @Positive int maxRows, boolean spill) {
+        this.rowOps = rowOps;
+        this.maxRows = maxRows;
+        this.spill = spill;
+    }
+
+    @Override public <R> Class<R> rowClass() {
+        //noinspection unchecked
+        return (Class<R>) rowOps.rowClass();
+    }
+
+    @Override public <R> Results<R> checkedRun(JoinPlan<R> plan) {
+        return executeReorderedLeftAssociative(plan, hashJoinReorder(), false, this::execute);
+    }
+
+    private <R> Results<R> execute(JoinPlan<R> plan) {
+        Plan<R> leftPlan = plan.operands().get(0), rightPlan = plan.operands().get(1);
+        Results<R> left = leftPlan.execute(), right = rightPlan.execute();
+        SymmetricHashJoinPublisher<R> pub
+                = new SymmetricHashJoinPublisher<>(rowOps, left, right, maxRows, spill, plan.name());
+        return new Results<>(pub.outVars(), left.rowClass(), pub);
+    }
+}
@@ -0,0 +1,518 @@
+package com.github.alexishuf.fastersparql.operators.impl;
+
+import com.github.alexishuf.fastersparql.client.model.Results;
+import com.github.alexishuf.fastersparql.client.model.row.RowOperations;
+import com.github.alexishuf.fastersparql.client.util.Merger;
+import com.github.alexishuf.fastersparql.client.util.reactive.CallbackPublisher;
+import com.github.alexishuf.fastersparql.client.util.reactive.FSPublisher;
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongPredicate;
+
+/**
+ * A symmetric (a.k.a. double-pipelined) hash join over two {@link Results}.
+ *
+ * <p>Both operands are consumed concurrently. Every incoming row is probed against the hash
+ * table of the other operand (emitting matches immediately) and then inserted into the hash
+ * table of its own operand. Rows with unbound join variables are kept apart and compared
+ * against every row of the other operand.</p>
+ *
+ * <p>If the number of rows held in memory exceeds {@code maxRows} and spilling is allowed, all
+ * rows of the larger operand are moved to a {@link RowSpillFile} and future rows of that operand
+ * are appended to the file after probing. Rows of the other operand that arrive after the spill
+ * cannot see the spilled rows, thus once both operands complete, the spilled rows are read back
+ * and probed against the rows of the other operand that arrived after them and after the spill.
+ * If the other operand also exceeds {@code maxRows}, it is spilled as well and, after both
+ * complete, a block nested-loop pass over the two files, loading at most {@code maxRows} rows
+ * at a time, emits the pairs that could not be matched while the operands arrived.</p>
+ *
+ * <p>Spilling requires {@link RowOperations#restoresNT()}. For other row types, rows are kept
+ * in memory even if spilling is allowed.</p>
+ *
+ * <p>All events are processed in the {@link CallbackPublisher#executor()}, to which both
+ * operands are moved.</p>
+ */
+public class SymmetricHashJoinPublisher<R> extends CallbackPublisher<R> {
+    private static final Logger log = LoggerFactory.getLogger(SymmetricHashJoinPublisher.class);
+    private static final AtomicInteger nextId = new AtomicInteger(1);
+    private static final int MAX_BATCH = 256;
+    private static final LongPredicate ANY_SEQ = seq -> true;
+
+    private final RowOperations rowOps;
+    private final List<String> outVars;
+    private final String[] joinVars;
+    private final int[] leftJoinIdx, rightFreeIdx;
+    private final Side left, right;
+    private final @Positive int maxRows;
+    private final boolean spill;
+
+    private long demand, nextSeq;
+    private int memoryRows;
+    private boolean started, terminated, warnedMaxRows, refilling, refillAgain;
+    private boolean cleanupBoth, blockLoaded;
+    private @Nullable Side cleanupSide;
+
+    public SymmetricHashJoinPublisher(RowOperations rowOps, Results<R> left, Results<R> right,
+                                      @Positive int maxRows, boolean spill,
+                                      @Nullable String name) {
+        super(name == null ? "SymmetricHashJoinPublisher-"+nextId.getAndIncrement()
+                           : name+"-SymmetricHashJoinPublisher-"+nextId.getAndIncrement());
+        this.rowOps = rowOps;
+        this.maxRows = maxRows;
+        this.spill = spill && rowOps.restoresNT();
+        if (spill && !this.spill)
+            log.debug("{} will not spill: {} cannot restore rows from N-Triples", this, rowOps);
+        List<String> lVars = left.vars(), rVars = right.vars();
+        List<String> rFree = Merger.rightFreeVars(lVars, rVars);
+        this.outVars = new ArrayList<>(lVars.size()+rFree.size());
+        this.outVars.addAll(lVars);
+        this.outVars.addAll(rFree);
+        this.rightFreeIdx = new int[rFree.size()];
+        for (int i = 0; i < rightFreeIdx.length; i++)
+            rightFreeIdx[i] = rVars.indexOf(rFree.get(i));
+        List<String> shared = new ArrayList<>();
+        for (String v : lVars) {
+            if (rVars.contains(v)) shared.add(v);
+        }
+        this.joinVars = shared.toArray(new String[0]);
+        this.leftJoinIdx = new int[joinVars.length];
+        int[] rightJoinIdx = new int[joinVars.length];
+        for (int i = 0; i < joinVars.length; i++) {
+            leftJoinIdx[i] = lVars.indexOf(joinVars[i]);
+            rightJoinIdx[i] = rVars.indexOf(joinVars[i]);
+        }
+        this.left = new Side(left.publisher(), lVars, leftJoinIdx, true);
+        this.right = new Side(right.publisher(), rVars, rightJoinIdx, false);
+        // after a failure or cancel, sides may still deliver a few rows
+        silenceFeedAfterCompleteWarnings();
+    }
+
+    /** Variables of the rows produced by this publisher. */
+    public List<String> outVars() { return outVars; }
+
+    /** How many operands have been spilled to disk (0, 1 or 2). */
+    int spilledOperands() {
+        return (left.spilled == null ? 0 : 1) + (right.spilled == null ? 0 : 1);
+    }
+
+    /* --- --- --- CallbackPublisher hooks --- --- --- */
+
+    @Override protected void onRequest(long n) {
+        demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+        if (!started) {
+            started = true;
+            left.start();
+            right.start();
+        }
+        refill();
+    }
+
+    @Override protected void onBackpressure() { }
+
+    @Override protected void onCancel() {
+        log.trace("{}.onCancel()", this);
+        terminated = true;
+        left.cancel();
+        right.cancel();
+        release();
+    }
+
+    /* --- --- --- implementation --- --- --- */
+
+    private static final class Key {
+        private final Object[] values;
+        private final int hash;
+
+        Key(Object[] values) {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        @Override public boolean equals(Object o) {
+            return o instanceof Key && hash == ((Key) o).hash
+                                    && Arrays.equals(values, ((Key) o).values);
+        }
+
+        @Override public int hashCode() { return hash; }
+    }
+
+    private static final class Stored<T> {
+        final T row;
+        final long seq;
+
+        Stored(T row, long seq) {
+            this.row = row;
+            this.seq = seq;
+        }
+    }
+
+    private final class Side implements Subscriber<R> {
+        final FSPublisher<R> publisher;
+        final List<String> vars;
+        final int[] joinIdx;
+        final boolean isLeft;
+        final Map<Key, List<Stored<R>>> table = new HashMap<>();
+        final List<Stored<R>> wildcards = new ArrayList<>();
+        @Nullable Subscription upstream;
+        @Nullable RowSpillFile<R> spilled;
+        long inFlight, received, spillSeq = Long.MAX_VALUE;
+        int rows;
+        boolean done;
+
+        Side(FSPublisher<R> publisher, List<String> vars, int[] joinIdx, boolean isLeft) {
+            this.publisher = publisher;
+            this.vars = vars;
+            this.joinIdx = joinIdx;
+            this.isLeft = isLeft;
+        }
+
+        Side other() { return isLeft ? right : left; }
+
+        void start() {
+            FSPublisher.bind(publisher, executor()).subscribe(this);
+        }
+
+        void request() {
+            if (!done && upstream != null && inFlight == 0 && demand > 0) {
+                inFlight = Math.min(demand, MAX_BATCH);
+                upstream.request(inFlight);
+            }
+        }
+
+        void cancel() {
+            if (!done) {
+                done = true;
+                if (upstream != null)
+                    upstream.cancel();
+            }
+        }
+
+        @Nullable Key key(R row) {
+            Object[] values = new Object[joinIdx.length];
+            for (int i = 0; i < values.length; i++) {
+                if ((values[i] = rowOps.get(row, joinIdx[i], joinVars[i])) == null)
+                    return null;
+            }
+            return new Key(values);
+        }
+
+        void insert(R row, long seq, @Nullable Key key) {
+            Stored<R> stored = new Stored<>(row, seq);
+            if (key == null) wildcards.add(stored);
+            else             table.computeIfAbsent(key, k -> new ArrayList<>(2)).add(stored);
+            ++rows;
+            ++memoryRows;
+        }
+
+        void spill() throws IOException {
+            RowSpillFile<R> file = new RowSpillFile<>(rowOps, vars);
+            spilled = file;
+            spillSeq = nextSeq;
+            for (List<Stored<R>> list : table.values()) {
+                for (Stored<R> s : list) file.write(s.row, s.seq);
+            }
+            for (Stored<R> s : wildcards) file.write(s.row, s.seq);
+            log.debug("{} spilled {} rows of {} operand to {}",
+                      SymmetricHashJoinPublisher.this, rows, isLeft ? "left" : "right", file);
+            table.clear();
+            wildcards.clear();
+            memoryRows -= rows;
+            rows = 0;
+        }
+
+        void clear() {
+            table.clear();
+            wildcards.clear();
+            if (spilled != null)
+                spilled.close();
+        }
+
+        @Override public void onSubscribe(Subscription s) {
+            upstream = s;
+            if (terminated) {
+                done = true;
+                s.cancel();
+            } else {
+                refill();
+            }
+        }
+
+        @Override public void onNext(R row) {
+            if (inFlight > 0)
+                --inFlight;
+            if (!terminated && !done) {
+                try {
+                    handle(this, row);
+                } catch (Throwable t) {
+                    finish(t);
+                }
+            }
+        }
+
+        @Override public void onError(Throwable t) {
+            done = true;
+            finish(t);
+        }
+
+        @Override public void onComplete() {
+            done = true;
+            sideCompleted(this);
+        }
+
+        @Override public String toString() {
+            return SymmetricHashJoinPublisher.this+(isLeft ? ".left" : ".right");
+        }
+    }
+
+    private void handle(Side side, R row) throws IOException {
+        Side other = side.other();
+        long seq = nextSeq++;
+        ++side.received;
+        Key key = side.key(row);
+        probe(side, row, key, ANY_SEQ);
+        // if the other side completed, no future row will probe this row, unless
+        // it is needed to join with spilled rows from the other side after both complete
+        if (!other.done || other.spilled != null) {
+            if (side.spilled != null) {
+                side.spilled.write(row, seq);
+            } else {
+                side.insert(row, seq, key);
+                checkMemory();
+            }
+        }
+        refill();
+    }
+
+    /**
+     * Emit the merge of {@code row} with every compatible row of {@code side.other()} whose
+     * {@code seq} is accepted by {@code acceptSeq}.
+     */
+    private void probe(Side side, R row, @Nullable Key key, LongPredicate acceptSeq) {
+        Side other = side.other();
+        if (key != null) {
+            List<Stored<R>> bucket = other.table.get(key);
+            if (bucket != null) {
+                for (Stored<R> s : bucket) {
+                    if (acceptSeq.test(s.seq)) emit(side, row, s.row, false);
+                }
+            }
+        } else {
+            for (List<Stored<R>> bucket : other.table.values()) {
+                for (Stored<R> s : bucket) {
+                    if (acceptSeq.test(s.seq) && compatible(side, row, s.row))
+                        emit(side, row, s.row, true);
+                }
+            }
+        }
+        for (Stored<R> s : other.wildcards) {
+            if (acceptSeq.test(s.seq) && compatible(side, row, s.row))
+                emit(side, row, s.row, true);
+        }
+    }
+
+    private boolean compatible(Side side, R row, R otherRow) {
+        Side other = side.other();
+        for (int i = 0; i < joinVars.length; i++) {
+            Object mine = rowOps.get(row, side.joinIdx[i], joinVars[i]);
+            Object theirs = rowOps.get(otherRow, other.joinIdx[i], joinVars[i]);
+            if (mine != null && theirs != null && !mine.equals(theirs))
+                return false;
+        }
+        return true;
+    }
+
+    private void emit(Side side, R row, R otherRow, boolean fillUnbound) {
+        R l = side.isLeft ? row : otherRow, r = side.isLeft ? otherRow : row;
+        R merged = l;
+        if (rightFreeIdx.length > 0 || fillUnbound) {
+            //noinspection unchecked
+            merged = (R) rowOps.createEmpty(outVars);
+            int nLeft = outVars.size() - rightFreeIdx.length;
+            for (int i = 0; i < nLeft; i++) {
+                rowOps.copy(l, i, merged, i, outVars.get(i));
+            }
+            for (int i = 0; i < rightFreeIdx.length; i++) {
+                rowOps.copy(r, rightFreeIdx[i], merged, nLeft+i, outVars.get(nLeft+i));
+            }
+            if (fillUnbound) {
+                for (int i = 0; i < joinVars.length; i++) {
+                    if (rowOps.get(l, leftJoinIdx[i], joinVars[i]) == null)
+                        rowOps.copy(r, right.joinIdx[i], merged, leftJoinIdx[i], joinVars[i]);
+                }
+            }
+        }
+        if (demand > 0)
+            --demand;
+        feed(merged);
+    }
+
+    private void checkMemory() throws IOException {
+        if (memoryRows <= maxRows)
+            return;
+        if (spill && (left.spilled == null || right.spilled == null)) {
+            if      (left.spilled  != null) right.spill();
+            else if (right.spilled != null) left.spill();
+            else                            (left.rows >= right.rows ? left : right).spill();
+        } else if (!warnedMaxRows) {
+            warnedMaxRows = true;
+            log.warn("{}: {} rows in memory exceed the maximum of {}{}", this, memoryRows, maxRows,
+                     spill ? " after spilling both operands" : ", spill not allowed");
+        }
+    }
+
+    private void sideCompleted(Side side) {
+        if (terminated)
+            return;
+        Side other = side.other();
+        if (side.received == 0 && other.spilled == null && side.spilled == null) {
+            other.cancel(); // no row from other side will have a match
+            finish(null);
+        } else if (other.done) {
+            Side spilled = left.spilled != null ? left : (right.spilled != null ? right : null);
+            if (left.spilled != null && right.spilled != null) {
+                try {
+                    left.spilled.startReading();
+                    cleanupBoth = true;
+                    refill();
+                } catch (Throwable t) {
+                    finish(t);
+                }
+            } else if (spilled == null) {
+                finish(null);
+            } else {
+                try {
+                    assert spilled.spilled != null;
+                    spilled.spilled.startReading();
+                    cleanupSide = spilled;
+                    refill();
+                } catch (Throwable t) {
+                    finish(t);
+                }
+            }
+        }
+    }
+
+    private void refill() {
+        if (refilling) {
+            refillAgain = true;
+            return;
+        }
+        refilling = true;
+        try {
+            do {
+                refillAgain = false;
+                if (terminated)
+                    return;
+                if (cleanupBoth) {
+                    cleanupBoth();
+                } else if (cleanupSide != null) {
+                    cleanup(cleanupSide);
+                } else {
+                    left.request();
+                    right.request();
+                }
+            } while (refillAgain);
+        } finally {
+            refilling = false;
+        }
+    }
+
+    private void cleanup(Side spilledSide) {
+        RowSpillFile<R> file = spilledSide.spilled;
+        assert file != null;
+        try {
+            while (demand > 0 && !terminated) {
+                if (!file.next()) {
+                    finish(null);
+                    break;
+                }
+                R row = file.row();
+                assert row != null;
+                long minSeq = Math.max(file.tag(), spilledSide.spillSeq - 1);
+                probe(spilledSide, row, spilledSide.key(row), seq -> seq > minSeq);
+            }
+        } catch (Throwable t) {
+            finish(t);
+        }
+    }
+
+    /**
+     * Join the rows in the spill files of both operands, loading blocks of up to
+     * {@code maxRows} left rows in memory and streaming all right rows against each block.
+     *
+     * <p>A pair was emitted when its later row arrived iff the earlier row was still in
+     * memory, i.e., iff the later row arrived before the earlier row's operand was spilled.
+     * Only the remaining pairs are emitted here.</p>
+     */
+    private void cleanupBoth() {
+        RowSpillFile<R> rFile = right.spilled;
+        assert rFile != null && left.spilled != null;
+        long lSpillSeq = left.spillSeq, rSpillSeq = right.spillSeq;
+        try {
+            while (demand > 0 && !terminated) {
+                if (!blockLoaded) {
+                    if (!loadBlock(left)) {
+                        finish(null);
+                        break;
+                    }
+                    rFile.rewind();
+                    blockLoaded = true;
+                }
+                if (!rFile.next()) {
+                    blockLoaded = false;
+                    continue;
+                }
+                R row = rFile.row();
+                assert row != null;
+                long rSeq = rFile.tag();
+                probe(right, row, right.key(row),
+                      lSeq -> lSeq < rSeq ? rSeq >= lSpillSeq : lSeq >= rSpillSeq);
+            }
+        } catch (Throwable t) {
+            finish(t);
+        }
+    }
+
+    /** Replace the in-memory rows of {@code side} with the next block of its spill file. */
+    private boolean loadBlock(Side side) throws IOException {
+        RowSpillFile<R> file = side.spilled;
+        assert file != null;
+        side.table.clear();
+        side.wildcards.clear();
+        memoryRows -= side.rows;
+        side.rows = 0;
+        while (side.rows < maxRows && file.next()) {
+            R row = file.row();
+            assert row != null;
+            side.insert(row, file.tag(), side.key(row));
+        }
+        return side.rows > 0;
+    }
+
+    private void finish(@Nullable Throwable cause) {
+        if (terminated)
+            return;
+        log.trace("{}.finish({})", this, Objects.toString(cause));
+        terminated = true;
+        if (cause != null) {
+            left.cancel();
+            right.cancel();
+        }
+        release();
+        complete(cause);
+    }
+
+    private void release() {
+        left.clear();
+        right.clear();
+        memoryRows = 0;
+    }
+}
@@ -13,7 +13,9 @@ import org.checkerframework.checker.index.qual.Positive;
 
 import static com.github.alexishuf.fastersparql.operators.FasterSparqlOpProperties.bindJoinReorder;
 import static com.github.alexishuf.fastersparql.operators.JoinHelpers.executeReorderedLeftAssociative;
+import static com.github.alexishuf.fastersparql.operators.OperatorFlags.CYCLIC;
 import static com.github.alexishuf.fastersparql.operators.OperatorFlags.LARGE_FIRST;
+import static com.github.alexishuf.fastersparql.operators.OperatorFlags.LOW_LATENCY;
 import static com.github.alexishuf.fastersparql.operators.OperatorFlags.SMALL_SECOND;
 import static com.github.alexishuf.fastersparql.operators.impl.bind.NativeBindHelper.preferNative;
 
@@ -34,7 +36,10 @@ public final class BindJoin implements Join {
         }
 
         @Override public @NonNegative int bid(long flags) {
-            return bindCost(flags);
+            // must wait for left rows and then for the bound right-side requests
+            int cost = bindCost(flags) + ((flags & LOW_LATENCY) != 0 ? BidCosts.SLOW_COST : 0);
+            // cyclic joins yield large intermediate results when evaluated pairwise
+            return cost + ((flags & CYCLIC) != 0 ? BidCosts.SLOW_COST : 0);
         }
 
         @Override public Join create(long flags, RowOperations rowOperations) {
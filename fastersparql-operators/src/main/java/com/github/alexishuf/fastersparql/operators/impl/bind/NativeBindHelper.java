@@ -4,6 +4,8 @@ import com.github.alexishuf.fastersparql.client.BindType;
 import com.github.alexishuf.fastersparql.client.SparqlClient;
 import com.github.alexishuf.fastersparql.client.model.Results;
 import com.github.alexishuf.fastersparql.client.model.row.RowOperations;
+import com.github.alexishuf.fastersparql.client.util.async.Deadline;
+import com.github.alexishuf.fastersparql.client.util.reactive.DeadlineProcessor;
 import com.github.alexishuf.fastersparql.operators.FasterSparqlOps;
 import com.github.alexishuf.fastersparql.operators.plan.LeafPlan;
 import com.github.alexishuf.fastersparql.operators.plan.MergePlan;
@@ -19,8 +21,14 @@ public class NativeBindHelper {
         if (right instanceof LeafPlan) {
             LeafPlan<R> lp = (LeafPlan<R>) right;
             SparqlClient<R, ?> client = lp.client();
-            if (client.usesBindingAwareProtocol())
-                return client.query(lp.query(), lp.configuration(), left, bindType);
+            if (client.usesBindingAwareProtocol()) {
+                Results<R> r = client.query(lp.query(), lp.configuration(), left, bindType);
+                Deadline deadline = Deadline.current();
+                if (deadline == null)
+                    return r;
+                return new Results<>(r.vars(), r.rowClass(),
+                                     new DeadlineProcessor<>(r.publisher(), deadline));
+            }
         } else if (right instanceof MergePlan || right instanceof UnionPlan) {
             NativeJoinPublisher<R> pub = NativeJoinPublisher.tryCreate(joinPlan, left);
             if (pub != null) {
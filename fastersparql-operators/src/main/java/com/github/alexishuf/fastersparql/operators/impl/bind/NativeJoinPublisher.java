@@ -2,11 +2,15 @@ package com.github.alexishuf.fastersparql.operators.impl.bind;
 
 import com.github.alexishuf.fastersparql.client.BindType;
 import com.github.alexishuf.fastersparql.client.model.Results;
+import com.github.alexishuf.fastersparql.client.model.row.OffHeapRowBuffer;
 import com.github.alexishuf.fastersparql.client.model.row.RowHashWindowSet;
 import com.github.alexishuf.fastersparql.client.model.row.RowOperations;
 import com.github.alexishuf.fastersparql.client.model.row.RowOperationsRegistry;
 import com.github.alexishuf.fastersparql.client.model.row.RowSet;
+import com.github.alexishuf.fastersparql.client.util.FasterSparqlProperties;
+import com.github.alexishuf.fastersparql.client.util.async.Deadline;
 import com.github.alexishuf.fastersparql.client.util.reactive.AbstractProcessor;
+import com.github.alexishuf.fastersparql.client.util.reactive.DeadlineProcessor;
 import com.github.alexishuf.fastersparql.client.util.reactive.FSPublisher;
 import com.github.alexishuf.fastersparql.client.util.reactive.MergePublisher;
 import com.github.alexishuf.fastersparql.client.util.reactive.TeeProcessor;
@@ -26,11 +30,12 @@ import java.util.function.Function;
 public class NativeJoinPublisher<T> extends MergePublisher<T> {
 
     private final BindType bindType;
+    private final Plan<T> joinPlan;
     private final Results<T> left;
     private final List<LeafPlan<T>> right;
     private boolean subscribed = false;
     private final Function<Results<T>, Publisher<T>> decorator;
-
+    private final @Nullable Deadline deadline = Deadline.current();
 
     private NativeJoinPublisher(Plan<T> joinPlan, BindType bindType, Results<T> left,
                                 List<LeafPlan<T>> right,
@@ -38,6 +43,7 @@ public class NativeJoinPublisher<T> extends MergePublisher<T> {
         super("native-"+joinPlan.name(), right.size(), right.size(),
               false, null);
         this.bindType = bindType;
+        this.joinPlan = joinPlan;
         this.left = left;
         this.right = right;
         this.decorator = decorator == null ? Results::publisher : decorator;
@@ -81,12 +87,29 @@ public class NativeJoinPublisher<T> extends MergePublisher<T> {
     @Override public void subscribe(Subscriber<? super T> s) {
         if (!subscribed) {
             subscribed = true;
-            TeeProcessor<T> tee = new TeeProcessor<>(left.publisher())
-                    .errorOnLostItems()
+            TeeProcessor<T> tee;
+            Class<? super T> rowClass = left.rowClass();
+            RowOperations rowOps = FasterSparqlProperties.offHeapRows()
+                                 && !Object.class.equals(rowClass)
+                                 ? RowOperationsRegistry.get().forClass(rowClass) : null;
+            if (rowOps != null && rowOps.restoresNT()) {
+                tee = new TeeProcessor<>(left.publisher(),
+                                         new OffHeapRowBuffer<>(rowOps, left.vars()));
+                useItemBuffer(new OffHeapRowBuffer<>(rowOps, joinPlan.publicVars()));
+            } else {
+                tee = new TeeProcessor<>(left.publisher());
+            }
+            tee.errorOnLostItems()
                     .startAfterSubscribedBy(right.size());
             Results<T> teeRes = new Results<>(left.vars(), left.rowClass(), tee);
             for (LeafPlan<T> r : right) {
-                Results<T> rRes = r.client().query(r.query(), r.configuration(), teeRes, bindType);
+                // requests start at subscribe(), after the execute() that set the deadline
+                Results<T> rRes = Deadline.call(deadline, () -> r.client().query(
+                        r.query(), r.configuration(), teeRes, bindType));
+                if (deadline != null) {
+                    rRes = new Results<>(rRes.vars(), rRes.rowClass(),
+                                         new DeadlineProcessor<>(rRes.publisher(), deadline));
+                }
                 addPublisher(decorator.apply(rRes));
             }
             markCompletable();
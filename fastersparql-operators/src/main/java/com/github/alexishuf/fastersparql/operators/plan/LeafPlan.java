@@ -3,6 +3,8 @@ package com.github.alexishuf.fastersparql.operators.plan;
 import com.github.alexishuf.fastersparql.client.SparqlClient;
 import com.github.alexishuf.fastersparql.client.model.Results;
 import com.github.alexishuf.fastersparql.client.model.SparqlConfiguration;
+import com.github.alexishuf.fastersparql.client.util.async.Deadline;
+import com.github.alexishuf.fastersparql.client.util.reactive.DeadlineProcessor;
 import com.github.alexishuf.fastersparql.client.util.CSUtils;
 import com.github.alexishuf.fastersparql.client.util.sparql.Binding;
 import com.github.alexishuf.fastersparql.client.util.sparql.SparqlUtils;
@@ -102,7 +104,15 @@ public class LeafPlan<R> extends AbstractPlan<R, LeafPlan<R>> {
     }
 
     @Override public Results<R> execute() {
-        return client.query(query, configuration);
+        Deadline deadline = Deadline.current();
+        if (deadline == null)
+            return client.query(query, configuration);
+        Throwable expired = deadline.error();
+        if (expired != null)
+            return Results.error(publicVars(), rowClass, expired);
+        Results<R> results = client.query(query, configuration);
+        return new Results<>(results.vars(), results.rowClass(),
+                             new DeadlineProcessor<>(results.publisher(), deadline));
     }
 
     @Override public Plan<R> bind(Binding binding) {
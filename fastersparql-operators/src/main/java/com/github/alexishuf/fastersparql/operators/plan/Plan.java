@@ -1,6 +1,8 @@
 package com.github.alexishuf.fastersparql.operators.plan;
 
 import com.github.alexishuf.fastersparql.client.model.Results;
+import com.github.alexishuf.fastersparql.client.util.async.Deadline;
+import com.github.alexishuf.fastersparql.client.util.reactive.DeadlineProcessor;
 import com.github.alexishuf.fastersparql.client.util.sparql.Binding;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
@@ -65,6 +67,24 @@ public interface Plan<R> {
      */
     Results<R> execute();
 
+    /**
+     * Same as {@link Plan#execute()}, but stops once {@code deadline} expires or is cancelled.
+     *
+     * <p>The deadline is inherited by every request of this execution, including those
+     * issued later by bind joins. Once it expires, all such requests are cancelled, no new
+     * requests are started and the returned {@link Results} publisher delivers a
+     * {@link com.github.alexishuf.fastersparql.client.exceptions.SparqlClientTimeoutException}
+     * after the rows already produced.</p>
+     *
+     * @param deadline the {@link Deadline} for this execution
+     * @return a non-null {@link Results}.
+     */
+    default Results<R> execute(Deadline deadline) {
+        Results<R> results = deadline.call(this::execute);
+        return new Results<>(results.vars(), results.rowClass(),
+                             new DeadlineProcessor<>(results.publisher(), deadline));
+    }
+
     /**
      * Create a copy of this {@link Plan} replacing the variables with the values they map to.
      *
@@ -0,0 +1,269 @@
+package com.github.alexishuf.fastersparql.operators.sources;
+
+import com.github.alexishuf.fastersparql.client.SparqlClient;
+import com.github.alexishuf.fastersparql.client.util.async.AsyncTask;
+import com.github.alexishuf.fastersparql.client.util.async.CompletableAsyncTask;
+import com.github.alexishuf.fastersparql.client.util.sparql.SparqlUtils;
+import com.github.alexishuf.fastersparql.operators.FasterSparqlOpProperties;
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Selects which of a fixed set of {@link SparqlClient}s may have answers for a graph pattern
+ * by sending {@code ASK} queries to all of them concurrently.
+ *
+ * <p>Answers are stored in a {@link SourceCapabilityCache} keyed by endpoint URI and
+ * {@link AskSourceSelector#shape(CharSequence)} of the pattern, so that patterns differing only
+ * by variable names and whitespace share the same probe. At most
+ * {@link FasterSparqlOpProperties#sourcesAskConcurrency()} probes are in-flight against a single
+ * endpoint and concurrent selections of the same shape share a single in-flight probe.</p>
+ *
+ * <p>A probe that fails is treated as a positive answer (the endpoint is selected), but
+ * such answer is not cached.</p>
+ *
+ * @param <R> the row type of the {@link SparqlClient}s
+ */
+public class AskSourceSelector<R> implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(AskSourceSelector.class);
+
+    private final List<SparqlClient<R, ?>> clients;
+    private final SourceCapabilityCache cache;
+    private final @Positive int endpointConcurrency;
+    private final Map<String, EndpointQueue> queues = new HashMap<>();
+    private final Map<String, CompletableAsyncTask<Boolean>> inFlight = new ConcurrentHashMap<>();
+
+    public AskSourceSelector(Collection<? extends SparqlClient<R, ?>> clients) {
+        this(clients, new SourceCapabilityCache(),
+             FasterSparqlOpProperties.sourcesAskConcurrency());
+    }
+
+    public AskSourceSelector(Collection<? extends SparqlClient<R, ?>> clients,
+                             SourceCapabilityCache cache, @Positive int endpointConcurrency) {
+        if (endpointConcurrency < 1)
+            throw new IllegalArgumentException("endpointConcurrency="+endpointConcurrency+" < 1");
+        this.clients = Collections.unmodifiableList(new ArrayList<>(clients));
+        this.cache = cache;
+        this.endpointConcurrency = endpointConcurrency;
+        for (SparqlClient<R, ?> client : this.clients)
+            queues.computeIfAbsent(client.endpoint().uri(), k -> new EndpointQueue());
+    }
+
+    public List<SparqlClient<R, ?>> clients() { return clients; }
+    public SourceCapabilityCache      cache() { return cache; }
+
+    /**
+     * Get the subset of {@link AskSourceSelector#clients()} that have at least one solution
+     * for the given graph pattern.
+     *
+     * @param pattern a SPARQL graph pattern (e.g., a triple pattern or a BGP) without
+     *                the enclosing braces, or a SELECT/ASK query.
+     * @return an {@link AsyncTask} that completes with the selected clients, in the same
+     *         order they appear in {@link AskSourceSelector#clients()}.
+     */
+    public AsyncTask<List<SparqlClient<R, ?>>> select(CharSequence pattern) {
+        String shape = shape(pattern);
+        CompletableAsyncTask<List<SparqlClient<R, ?>>> result = new CompletableAsyncTask<>();
+        int size = clients.size();
+        boolean[] answers = new boolean[size];
+        AtomicInteger pending = new AtomicInteger(size);
+        if (size == 0)
+            result.complete(Collections.emptyList());
+        for (int i = 0; i < size; i++) {
+            int idx = i;
+            probe(clients.get(i), shape, pattern).whenComplete((ok, err) -> {
+                answers[idx] = err != null || ok;
+                if (pending.decrementAndGet() == 0) {
+                    List<SparqlClient<R, ?>> selected = new ArrayList<>(size);
+                    for (int j = 0; j < size; j++) {
+                        if (answers[j]) selected.add(clients.get(j));
+                    }
+                    result.complete(selected);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Issue probes for all given patterns so that later {@link AskSourceSelector#select(CharSequence)}
+     * calls are answered from the cache.
+     *
+     * @param patterns graph patterns expected to be seen in future queries.
+     * @return an {@link AsyncTask} that completes once all probes completed.
+     */
+    public AsyncTask<?> warmUp(Collection<? extends CharSequence> patterns) {
+        CompletableAsyncTask<Object> task = new CompletableAsyncTask<>();
+        AtomicInteger pending = new AtomicInteger(patterns.size());
+        if (patterns.isEmpty())
+            task.complete(null);
+        for (CharSequence pattern : patterns) {
+            select(pattern).whenComplete((r, t) -> {
+                if (pending.decrementAndGet() == 0) task.complete(null);
+            });
+        }
+        return task;
+    }
+
+    /**
+     * Save the cache. Probes still in flight are not waited for.
+     */
+    @Override public void close() {
+        try {
+            cache.save();
+        } catch (IOException e) {
+            log.error("{}.close(): failed to save {}", this, cache, e);
+        }
+    }
+
+    @Override public String toString() {
+        return "AskSourceSelector{clients="+clients.size()+", cache="+cache+"}";
+    }
+
+    /* --- --- --- pattern shapes --- --- --- */
+
+    private static final Pattern SHAPE_RX = Pattern.compile(
+            "<[^>\\s]*>|\"(?:[^\"\\\\]|\\\\.)*\"|'(?:[^'\\\\]|\\\\.)*'|[?$]([\\p{L}\\p{N}_]+)|(\\s+)");
+
+    /**
+     * Normalizes a graph pattern so that patterns that differ only in variable names or
+     * whitespace have the same shape.
+     *
+     * <p>Variables are renamed to {@code ?v0}, {@code ?v1}, ... in order of first occurrence and
+     * whitespace runs outside IRIs and literals are collapsed into a single space.</p>
+     *
+     * @param pattern the graph pattern (or query)
+     * @return a non-null normalized string.
+     */
+    public static String shape(CharSequence pattern) {
+        Matcher m = SHAPE_RX.matcher(pattern);
+        Map<String, Integer> vars = new HashMap<>();
+        StringBuilder sb = new StringBuilder(pattern.length());
+        int consumed = 0;
+        while (m.find()) {
+            sb.append(pattern, consumed, m.start());
+            if (m.group(1) != null) {
+                Integer id = vars.computeIfAbsent(m.group(1), k -> vars.size());
+                sb.append("?v").append(id);
+            } else if (m.group(2) != null) {
+                sb.append(' ');
+            } else {
+                sb.append(pattern, m.start(), m.end());
+            }
+            consumed = m.end();
+        }
+        return sb.append(pattern, consumed, pattern.length()).toString().trim();
+    }
+
+    /* --- --- --- probes --- --- --- */
+
+    private AsyncTask<Boolean> probe(SparqlClient<R, ?> client, String shape, CharSequence pattern) {
+        String endpoint = client.endpoint().uri();
+        Boolean cached = cache.get(endpoint, shape);
+        if (cached != null) {
+            CompletableAsyncTask<Boolean> task = new CompletableAsyncTask<>();
+            task.complete(cached);
+            return task;
+        }
+        String key = endpoint+'\t'+shape;
+        CompletableAsyncTask<Boolean> task = new CompletableAsyncTask<>();
+        CompletableAsyncTask<Boolean> old = inFlight.putIfAbsent(key, task);
+        if (old != null)
+            return old;
+        // a probe may have completed between cache.get() and putIfAbsent()
+        if ((cached = cache.get(endpoint, shape)) != null) {
+            inFlight.remove(key, task);
+            task.complete(cached);
+            return task;
+        }
+        task.whenComplete((ok, err) -> {
+            // cache before leaving inFlight, else a concurrent probe() could miss both
+            if (err == null)
+                cache.put(endpoint, shape, ok);
+            else
+                log.debug("{}: ASK probe of {} at {} failed", this, shape, endpoint, err);
+            inFlight.remove(key, task);
+        });
+        queues.get(endpoint).offer(new Probe(client, pattern, task));
+        return task;
+    }
+
+    private final class Probe implements Subscriber<R> {
+        private final SparqlClient<R, ?> client;
+        private final CharSequence pattern;
+        private final CompletableAsyncTask<Boolean> task;
+        private @Nullable Subscription subscription;
+
+        Probe(SparqlClient<R, ?> client, CharSequence pattern, CompletableAsyncTask<Boolean> task) {
+            this.client = client;
+            this.pattern = pattern;
+            this.task = task;
+        }
+
+        void start() {
+            try {
+                client.query(SparqlUtils.toAsk(pattern)).publisher().subscribe(this);
+            } catch (Throwable t) {
+                onError(t);
+            }
+        }
+
+        @Override public void onSubscribe(Subscription s) {
+            subscription = s;
+            s.request(1);
+        }
+
+        @Override public void onNext(R row) {
+            if (task.complete(true) && subscription != null)
+                subscription.cancel();
+        }
+
+        @Override public void onError(Throwable t) { task.completeExceptionally(t); }
+        @Override public void onComplete()         { task.complete(false); }
+    }
+
+    private final class EndpointQueue {
+        private final ArrayDeque<Probe> queue = new ArrayDeque<>();
+        private int active;
+        private boolean draining;
+
+        void offer(Probe probe) {
+            synchronized (this) { queue.add(probe); }
+            drain();
+        }
+
+        /* Iterative (instead of recursive) so that probes completing synchronously
+         * within start() do not grow the stack with the length of the queue. */
+        private void drain() {
+            synchronized (this) {
+                if (draining) return;
+                draining = true;
+            }
+            while (true) {
+                Probe probe;
+                synchronized (this) {
+                    if (active >= endpointConcurrency || (probe = queue.poll()) == null) {
+                        draining = false;
+                        return;
+                    }
+                    ++active;
+                }
+                probe.task.whenComplete((ok, err) -> {
+                    synchronized (this) { --active; }
+                    drain();
+                });
+                probe.start();
+            }
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.github.alexishuf.fastersparql.operators.sources;
+
+import com.github.alexishuf.fastersparql.operators.FasterSparqlOpProperties;
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Caches whether an endpoint has answers for a pattern shape (see
+ * {@link AskSourceSelector#shape(CharSequence)}), expiring entries after a TTL.
+ *
+ * <p>If a file is given, entries are loaded from it on construction and written back on
+ * {@link SourceCapabilityCache#save()}. The file has one entry per line, with tab-separated
+ * expiration timestamp (epoch millis), answer ({@code 1} or {@code 0}), endpoint URI and
+ * pattern shape. Tabs, line breaks and backslashes in the last two fields are escaped.</p>
+ */
+public class SourceCapabilityCache {
+    private static final Logger log = LoggerFactory.getLogger(SourceCapabilityCache.class);
+
+    private final @Nullable Path file;
+    private final long ttlMs;
+    private final Map<Key, Entry> map = new ConcurrentHashMap<>();
+
+    private static final class Key {
+        final String endpoint, shape;
+
+        Key(String endpoint, String shape) {
+            this.endpoint = endpoint;
+            this.shape = shape;
+        }
+
+        @Override public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return endpoint.equals(key.endpoint) && shape.equals(key.shape);
+        }
+
+        @Override public int hashCode() { return 31*endpoint.hashCode() + shape.hashCode(); }
+    }
+
+    private static final class Entry {
+        final boolean answer;
+        final long expiresAt;
+
+        Entry(boolean answer, long expiresAt) {
+            this.answer = answer;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Create a cache using {@link FasterSparqlOpProperties#sourcesCacheFile()} and
+     * {@link FasterSparqlOpProperties#sourcesCacheTtlMs()}.
+     */
+    public SourceCapabilityCache() {
+        this(fileFromProperties(), FasterSparqlOpProperties.sourcesCacheTtlMs(),
+             TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Create a cache.
+     *
+     * @param file if non-null, load entries from this file (if it exists) and allow
+     *             {@link SourceCapabilityCache#save()} to persist entries into it.
+     * @param ttl how long an entry remains valid after {@link SourceCapabilityCache#put(String, String, boolean)}
+     * @param ttlUnit {@link TimeUnit} of {@code ttl}
+     */
+    public SourceCapabilityCache(@Nullable Path file, @Positive long ttl, TimeUnit ttlUnit) {
+        if (ttl <= 0)
+            throw new IllegalArgumentException("Non-positive ttl="+ttl);
+        this.file = file;
+        this.ttlMs = ttlUnit.toMillis(ttl);
+        if (file != null && Files.exists(file))
+            load(file);
+    }
+
+    private static @Nullable Path fileFromProperties() {
+        String path = FasterSparqlOpProperties.sourcesCacheFile();
+        return path == null ? null : Paths.get(path);
+    }
+
+    /**
+     * Get the cached answer of {@code ASK {shape}} at {@code endpoint}.
+     *
+     * @return the cached answer or null if there is no entry or the entry expired.
+     */
+    public @Nullable Boolean get(String endpoint, String shape) {
+        Key key = new Key(endpoint, shape);
+        Entry e = map.get(key);
+        if (e == null)
+            return null;
+        if (e.expiresAt <= System.currentTimeMillis()) {
+            map.remove(key, e);
+            return null;
+        }
+        return e.answer;
+    }
+
+    /**
+     * Store the answer of {@code ASK {shape}} at {@code endpoint}.
+     */
+    public void put(String endpoint, String shape, boolean answer) {
+        map.put(new Key(endpoint, shape), new Entry(answer, System.currentTimeMillis()+ttlMs));
+    }
+
+    /** Remove all entries, including non-expired ones. */
+    public void clear() { map.clear(); }
+
+    /** Number of stored entries, which may include expired entries not yet evicted. */
+    public int size() { return map.size(); }
+
+    /** The file given to the constructor, if any. */
+    public @Nullable Path file() { return file; }
+
+    /**
+     * Write all non-expired entries to {@link SourceCapabilityCache#file()}.
+     *
+     * <p>The file is replaced atomically (where supported) so that concurrent readers never
+     * observe a partial file. If there is no file, this is a no-op.</p>
+     *
+     * @throws IOException if the file could not be written.
+     */
+    public void save() throws IOException {
+        if (file == null)
+            return;
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null)
+            Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        long now = System.currentTimeMillis();
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(tmp), UTF_8))) {
+            for (Map.Entry<Key, Entry> e : map.entrySet()) {
+                Entry value = e.getValue();
+                if (value.expiresAt <= now)
+                    continue;
+                w.append(Long.toString(value.expiresAt)).append('\t')
+                 .append(value.answer ? '1' : '0').append('\t');
+                escape(w, e.getKey().endpoint).append('\t');
+                escape(w, e.getKey().shape).append('\n');
+            }
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING,
+                                  StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void load(Path file) {
+        long now = System.currentTimeMillis();
+        int lineNo = 0;
+        try (BufferedReader r = Files.newBufferedReader(file, UTF_8)) {
+            for (String line = r.readLine(); line != null; line = r.readLine()) {
+                ++lineNo;
+                String[] fields = line.split("\t", -1);
+                if (fields.length != 4) {
+                    log.warn("Ignoring malformed line {} of {}", lineNo, file);
+                    continue;
+                }
+                long expiresAt = Long.parseLong(fields[0]);
+                if (expiresAt <= now)
+                    continue;
+                Key key = new Key(unescape(fields[2]), unescape(fields[3]));
+                map.put(key, new Entry(fields[1].equals("1"), expiresAt));
+            }
+        } catch (IOException|NumberFormatException e) {
+            log.warn("Failed to load {} at line {}, will continue with {} entries",
+                     file, lineNo, map.size(), e);
+        }
+    }
+
+    private static Writer escape(Writer w, String s) throws IOException {
+        for (int i = 0, len = s.length(); i < len; i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '\\': w.append("\\\\"); break;
+                case '\t': w.append("\\t"); break;
+                case '\n': w.append("\\n"); break;
+                case '\r': w.append("\\r"); break;
+                default: w.append(c);
+            }
+        }
+        return w;
+    }
+
+    private static String unescape(String s) {
+        if (s.indexOf('\\') < 0)
+            return s;
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0, len = s.length(); i < len; i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i+1 < len) {
+                switch (c = s.charAt(++i)) {
+                    case 't': c = '\t'; break;
+                    case 'n': c = '\n'; break;
+                    case 'r': c = '\r'; break;
+                }
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    @Override public String toString() {
+        return "SourceCapabilityCache{file="+file+", ttlMs="+ttlMs+", size="+map.size()+"}";
+    }
+}
@@ -1,15 +1,19 @@
 package com.github.alexishuf.fastersparql.operators;
 
 import com.github.alexishuf.fastersparql.client.SparqlClient;
+import com.github.alexishuf.fastersparql.operators.impl.LeapfrogTrieJoin;
 import com.github.alexishuf.fastersparql.operators.plan.LeafPlan;
 import com.github.alexishuf.fastersparql.operators.reorder.AvoidCartesianJoinReorderStrategy;
 import com.github.alexishuf.fastersparql.operators.reorder.JoinReorderStrategy;
 import com.github.alexishuf.fastersparql.operators.reorder.NullJoinReorderStrategy;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.stream.Stream;
 
 import static java.util.Arrays.asList;
@@ -43,6 +47,51 @@ class JoinHelpersTest {
         assertEquals(expected, JoinHelpers.isProduct(acc, right, useBind));
     }
 
+    @SuppressWarnings("unused") static Stream<Arguments> testIsCyclic() {
+        return Stream.of(
+        /*  1 */arguments(asList("?x ?p ?y", "?y ?p ?z"), false),
+        /*  2 */arguments(asList("?x ?p ?y", "?y ?p ?z", "?z ?p ?x"), true),
+        /*  3 */arguments(asList("?x ?p ?y", "?y ?p ?z", "?z ?p ?w"), false),
+        /*  4 */arguments(asList("?x ?p ?y", "?x ?q ?z", "?x ?r ?w"), false),
+        /*  5 */arguments(asList("?x ?p ?y", "?y ?p ?z", "?z ?p ?x", "?x ?q ?w"), true),
+        /*  6 */arguments(asList("?x ?p ?y", "?y ?p ?z", "?x ?y ?z"), false),
+        /*  7 */arguments(asList("?a ?p ?b", "?b ?p ?c", "?c ?p ?d", "?d ?p ?a"), true),
+        /*  8 */arguments(asList("?a ?p ?b", "?a ?p ?c", "?a ?p ?d",
+                                 "?b ?p ?c", "?b ?p ?d", "?c ?p ?d"), true),
+        /*  9 */arguments(asList("?x ?p ?y", "?z ?p ?w", "?u ?p ?v"), false)
+        );
+    }
+
+    @ParameterizedTest @MethodSource
+    public void testIsCyclic(List<String> patterns, boolean expected) {
+        List<LeafPlan<String[]>> plans = new ArrayList<>();
+        for (String pattern : patterns) {
+            String sparql = "SELECT * WHERE { "+pattern.replace("?p", "<http://example.org/p>")
+                                                       .replace("?q", "<http://example.org/q>")
+                                                       .replace("?r", "<http://example.org/r>")
+                            +" }";
+            plans.add(LeafPlan.builder(client, sparql).build());
+        }
+        assertEquals(expected, JoinHelpers.isCyclic(plans));
+    }
+
+    @Test
+    void testJoinDetectsCyclicOnlyIfEnabled() {
+        List<LeafPlan<String[]>> triangle = new ArrayList<>();
+        for (String pattern : asList("?x <http://example.org/p> ?y", "?y <http://example.org/p> ?z",
+                                     "?z <http://example.org/p> ?x"))
+            triangle.add(LeafPlan.builder(client, "SELECT * WHERE { "+pattern+" }").build());
+        assertFalse(FasterSparqlOps.join(triangle).build().op() instanceof LeapfrogTrieJoin);
+        long flags = OperatorFlags.ASYNC | OperatorFlags.CYCLIC;
+        assertTrue(FasterSparqlOps.join(triangle, flags).build().op() instanceof LeapfrogTrieJoin);
+        System.setProperty(FasterSparqlOpProperties.OP_JOIN_DETECT_CYCLIC, "true");
+        try {
+            assertTrue(FasterSparqlOps.join(triangle).build().op() instanceof LeapfrogTrieJoin);
+        } finally {
+            System.clearProperty(FasterSparqlOpProperties.OP_JOIN_DETECT_CYCLIC);
+        }
+    }
+
     @SuppressWarnings("unused") static Stream<Arguments> testLoadStrategy() {
         Class<?> n = NullJoinReorderStrategy.class;
         Class<?> a = AvoidCartesianJoinReorderStrategy.class;
@@ -0,0 +1,177 @@
+package com.github.alexishuf.fastersparql.operators.impl;
+
+import com.github.alexishuf.fastersparql.client.model.Results;
+import com.github.alexishuf.fastersparql.client.model.row.RowOperations;
+import com.github.alexishuf.fastersparql.client.model.row.RowOperationsRegistry;
+import com.github.alexishuf.fastersparql.client.util.reactive.FSPublisher;
+import com.github.alexishuf.fastersparql.client.util.reactive.IterableAdapter;
+import com.github.alexishuf.fastersparql.operators.OperatorFlags;
+import com.github.alexishuf.fastersparql.operators.impl.bind.BindJoin;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import reactor.core.publisher.Flux;
+
+import java.util.*;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LeapfrogTrieJoinTest {
+    private static final RowOperations rowOps = RowOperationsRegistry.get().forClass(List.class);
+
+    private static Results<List<String>> results(List<String> vars, List<List<String>> rows) {
+        FSPublisher<List<String>> pub = FSPublisher.bindToAny(Flux.fromIterable(rows));
+        return new Results<>(vars, List.class, pub);
+    }
+
+    private static Map<List<String>, Integer> counts(Iterable<List<String>> rows) {
+        Map<List<String>, Integer> map = new HashMap<>();
+        for (List<String> row : rows)
+            map.put(row, map.getOrDefault(row, 0)+1);
+        return map;
+    }
+
+    private static List<List<String>> run(List<List<String>> varsList,
+                                          List<List<List<String>>> rowsList,
+                                          List<String> outVars) {
+        List<Results<List<String>>> operands = new ArrayList<>();
+        for (int i = 0; i < varsList.size(); i++)
+            operands.add(results(varsList.get(i), rowsList.get(i)));
+        LeapfrogTrieJoinPublisher<List<String>> pub
+                = new LeapfrogTrieJoinPublisher<>(rowOps, operands, outVars, null);
+        IterableAdapter<List<String>> adapter = new IterableAdapter<>(pub);
+        List<List<String>> actual = new ArrayList<>();
+        for (List<String> row : adapter)
+            actual.add(row);
+        assertNull(adapter.error());
+        return actual;
+    }
+
+    /** Nested-loop join of all operands with SPARQL compatibility semantics */
+    private static List<List<String>> expected(List<List<String>> varsList,
+                                               List<List<List<String>>> rowsList,
+                                               List<String> outVars) {
+        List<List<String>> acc = new ArrayList<>();
+        acc.add(Arrays.asList(new String[outVars.size()]));
+        for (int k = 0; k < varsList.size(); k++) {
+            List<String> vars = varsList.get(k);
+            List<List<String>> next = new ArrayList<>();
+            for (List<String> l : acc) {
+                outer:
+                for (List<String> r : rowsList.get(k)) {
+                    List<String> merged = new ArrayList<>(l);
+                    for (int i = 0; i < vars.size(); i++) {
+                        int idx = outVars.indexOf(vars.get(i));
+                        String mine = merged.get(idx), theirs = r.get(i);
+                        if (mine != null && theirs != null && !mine.equals(theirs))
+                            continue outer;
+                        if (mine == null)
+                            merged.set(idx, theirs);
+                    }
+                    next.add(merged);
+                }
+            }
+            acc = next;
+        }
+        return acc;
+    }
+
+    private static void check(List<List<String>> varsList, List<List<List<String>>> rowsList) {
+        List<String> outVars = new ArrayList<>();
+        for (List<String> vars : varsList) {
+            for (String v : vars) if (!outVars.contains(v)) outVars.add(v);
+        }
+        assertEquals(counts(expected(varsList, rowsList, outVars)),
+                     counts(run(varsList, rowsList, outVars)));
+    }
+
+    private static List<List<String>> randomEdges(Random random, int n, int nodes,
+                                                  double nullProbability) {
+        List<List<String>> rows = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            String s = random.nextDouble() < nullProbability ? null : "_:n"+random.nextInt(nodes);
+            String o = random.nextDouble() < nullProbability ? null : "_:n"+random.nextInt(nodes);
+            rows.add(asList(s, o));
+        }
+        return rows;
+    }
+
+    @Test
+    void testTriangle() {
+        List<List<String>> xy = asList(asList("_:1", "_:2"), asList("_:2", "_:3"),
+                                       asList("_:1", "_:3"));
+        List<List<String>> yz = asList(asList("_:2", "_:3"), asList("_:3", "_:1"));
+        List<List<String>> zx = asList(asList("_:3", "_:1"), asList("_:1", "_:2"));
+        List<List<String>> actual = run(asList(asList("x", "y"), asList("y", "z"), asList("z", "x")),
+                                        asList(xy, yz, zx), asList("x", "y", "z"));
+        assertEquals(counts(asList(asList("_:1", "_:2", "_:3"), asList("_:2", "_:3", "_:1"))),
+                     counts(actual));
+    }
+
+    @Test
+    void testBagSemantics() {
+        List<List<String>> xy = asList(asList("_:1", "_:2"), asList("_:1", "_:2"));
+        List<List<String>> yz = asList(asList("_:2", "_:3"), asList("_:2", "_:3"),
+                                       asList("_:2", "_:3"));
+        List<List<String>> zx = asList(asList("_:3", "_:1"));
+        List<List<String>> actual = run(asList(asList("x", "y"), asList("y", "z"), asList("z", "x")),
+                                        asList(xy, yz, zx), asList("x", "y", "z"));
+        assertEquals(6, actual.size());
+        assertEquals(counts(expected(asList(asList("x", "y"), asList("y", "z"), asList("z", "x")),
+                                     asList(xy, yz, zx), asList("x", "y", "z"))),
+                     counts(actual));
+    }
+
+    @Test
+    void testEmptyOperand() {
+        List<List<String>> xy = asList(asList("_:1", "_:2"), asList("_:2", "_:3"));
+        List<List<String>> actual = run(asList(asList("x", "y"), asList("y", "z"), asList("z", "x")),
+                                        asList(xy, xy, emptyList()), asList("x", "y", "z"));
+        assertEquals(emptyList(), actual);
+    }
+
+    @Test
+    void testUnboundNonJoinVar() {
+        check(asList(asList("x", "y", "w"), asList("y", "z"), asList("z", "x")),
+              asList(asList(asList("_:1", "_:2", null), asList("_:1", "_:2", "_:w")),
+                     asList(asList("_:2", "_:3")),
+                     asList(asList("_:3", "_:1"))));
+    }
+
+    @ParameterizedTest @ValueSource(ints = {1, 2, 3, 4, 5, 6, 7, 8})
+    void testRandomTriangles(int seed) {
+        Random random = new Random(seed);
+        double nullProbability = seed % 4 == 0 ? 0.05 : 0;
+        int nodes = 4 + random.nextInt(32);
+        List<List<List<String>>> rows = new ArrayList<>();
+        for (int i = 0; i < 3; i++)
+            rows.add(randomEdges(random, 64 + random.nextInt(128), nodes, nullProbability));
+        check(asList(asList("x", "y"), asList("y", "z"), asList("z", "x")), rows);
+    }
+
+    @ParameterizedTest @ValueSource(ints = {1, 2, 3, 4})
+    void testRandomFourClique(int seed) {
+        Random random = new Random(seed);
+        List<List<String>> vars = asList(asList("a", "b"), asList("a", "c"), asList("a", "d"),
+                                         asList("b", "c"), asList("b", "d"), asList("c", "d"));
+        List<List<List<String>>> rows = new ArrayList<>();
+        for (int i = 0; i < vars.size(); i++)
+            rows.add(randomEdges(random, 64, 8, 0));
+        check(vars, rows);
+    }
+
+    @Test
+    void testBids() {
+        LeapfrogTrieJoin.Provider wco = new LeapfrogTrieJoin.Provider();
+        BindJoin.Provider bind = new BindJoin.Provider();
+        SymmetricHashJoin.Provider symmetric = new SymmetricHashJoin.Provider();
+        assertTrue(bind.bid(0) < wco.bid(0));
+        long flags = OperatorFlags.CYCLIC | OperatorFlags.ASYNC;
+        assertTrue(wco.bid(flags) < bind.bid(flags));
+        assertTrue(wco.bid(flags) < symmetric.bid(flags));
+        flags |= OperatorFlags.LOW_LATENCY;
+        assertTrue(symmetric.bid(flags) < wco.bid(flags));
+    }
+}
@@ -0,0 +1,140 @@
+package com.github.alexishuf.fastersparql.operators.impl;
+
+import com.github.alexishuf.fastersparql.client.model.Results;
+import com.github.alexishuf.fastersparql.client.model.row.RowOperations;
+import com.github.alexishuf.fastersparql.client.model.row.RowOperationsRegistry;
+import com.github.alexishuf.fastersparql.client.model.row.impl.ListOperations;
+import com.github.alexishuf.fastersparql.client.util.reactive.FSPublisher;
+import com.github.alexishuf.fastersparql.client.util.reactive.IterableAdapter;
+import com.github.alexishuf.fastersparql.operators.OperatorFlags;
+import com.github.alexishuf.fastersparql.operators.impl.bind.BindJoin;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import reactor.core.publisher.Flux;
+
+import java.util.*;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SymmetricHashJoinTest {
+    private static final RowOperations rowOps = RowOperationsRegistry.get().forClass(List.class);
+    /** Rows in tests only hold N-Triples strings, thus they can be spilled */
+    private static final RowOperations spillableRowOps = new ListOperations(List.class) {
+        @Override public boolean restoresNT() { return true; }
+    };
+
+    private static Results<List<String>> results(List<String> vars, List<List<String>> rows) {
+        FSPublisher<List<String>> pub = FSPublisher.bindToAny(Flux.fromIterable(rows));
+        return new Results<>(vars, List.class, pub);
+    }
+
+    private static Map<List<String>, Integer> counts(Iterable<List<String>> rows) {
+        Map<List<String>, Integer> map = new HashMap<>();
+        for (List<String> row : rows)
+            map.put(row, map.getOrDefault(row, 0)+1);
+        return map;
+    }
+
+    private static List<List<String>> run(SymmetricHashJoinPublisher<List<String>> pub) {
+        IterableAdapter<List<String>> adapter = new IterableAdapter<>(pub);
+        List<List<String>> actual = new ArrayList<>();
+        for (List<String> row : adapter)
+            actual.add(row);
+        assertNull(adapter.error());
+        return actual;
+    }
+
+    /** Nested-loop join of rows with vars (x, y) and (y, z) */
+    private static List<List<String>> expected(List<List<String>> l, List<List<String>> r) {
+        List<List<String>> list = new ArrayList<>();
+        for (List<String> lRow : l) {
+            for (List<String> rRow : r) {
+                String ly = lRow.get(1), ry = rRow.get(0);
+                if (ly == null || ry == null || ly.equals(ry))
+                    list.add(asList(lRow.get(0), ly == null ? ry : ly, rRow.get(1)));
+            }
+        }
+        return list;
+    }
+
+    @Test
+    void testSimpleJoin() {
+        List<List<String>> l = asList(asList("_:x1", "_:y1"), asList("_:x2", "_:y2"),
+                                      asList("_:x3", "_:y1"));
+        List<List<String>> r = asList(asList("_:y1", "_:z1"), asList("_:y3", "_:z3"),
+                                      asList("_:y1", "_:z2"));
+        SymmetricHashJoinPublisher<List<String>> pub = new SymmetricHashJoinPublisher<>(
+                rowOps, results(asList("x", "y"), l), results(asList("y", "z"), r),
+                1024, false, null);
+        assertEquals(asList("x", "y", "z"), pub.outVars());
+        assertEquals(counts(expected(l, r)), counts(run(pub)));
+    }
+
+    @Test
+    void testUnboundJoinVar() {
+        List<List<String>> l = asList(asList("_:x1", null), asList("_:x2", "_:y2"));
+        List<List<String>> r = asList(asList("_:y2", "_:z1"), asList(null, "_:z2"));
+        SymmetricHashJoinPublisher<List<String>> pub = new SymmetricHashJoinPublisher<>(
+                rowOps, results(asList("x", "y"), l), results(asList("y", "z"), r),
+                1024, false, null);
+        assertEquals(counts(expected(l, r)), counts(run(pub)));
+    }
+
+    @Test
+    void testEmptySide() {
+        List<List<String>> l = new ArrayList<>();
+        for (int i = 0; i < 1000; i++)
+            l.add(asList("_:x"+i, "_:y"+i));
+        SymmetricHashJoinPublisher<List<String>> pub = new SymmetricHashJoinPublisher<>(
+                rowOps, results(asList("x", "y"), l), results(asList("y", "z"), emptyList()),
+                1024, false, null);
+        assertEquals(emptyList(), run(pub));
+    }
+
+    private static List<List<String>> randomRows(Random random, int size, boolean left) {
+        List<List<String>> rows = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String y = random.nextInt(16) == 0 ? null : "_:y"+random.nextInt(64);
+            rows.add(left ? asList("_:x"+i, y) : asList(y, "_:z"+i));
+        }
+        return rows;
+    }
+
+    @ParameterizedTest @ValueSource(ints = {1, 8, 64, 1024, 4096})
+    void testRandomWithSpill(int maxRows) {
+        Random random = new Random(maxRows);
+        List<List<String>> l = randomRows(random, 512, true), r = randomRows(random, 256, false);
+        SymmetricHashJoinPublisher<List<String>> pub = new SymmetricHashJoinPublisher<>(
+                spillableRowOps, results(asList("x", "y"), l), results(asList("y", "z"), r),
+                maxRows, true, null);
+        assertEquals(counts(expected(l, r)), counts(run(pub)));
+        if (maxRows <= 8)
+            assertEquals(2, pub.spilledOperands());
+    }
+
+    @Test
+    void testNoSpillWithoutNTRoundTrip() {
+        Random random = new Random(42);
+        List<List<String>> l = randomRows(random, 512, true), r = randomRows(random, 256, false);
+        assertFalse(rowOps.restoresNT());
+        SymmetricHashJoinPublisher<List<String>> pub = new SymmetricHashJoinPublisher<>(
+                rowOps, results(asList("x", "y"), l), results(asList("y", "z"), r),
+                8, true, null);
+        assertEquals(counts(expected(l, r)), counts(run(pub)));
+        assertEquals(0, pub.spilledOperands());
+    }
+
+    @Test
+    void testBidsUnderLowLatency() {
+        SymmetricHashJoin.Provider symmetric = new SymmetricHashJoin.Provider();
+        BindJoin.Provider bind = new BindJoin.Provider();
+        assertTrue(bind.bid(0) < symmetric.bid(0));
+        long flags = OperatorFlags.LOW_LATENCY;
+        assertTrue(symmetric.bid(flags) < bind.bid(flags));
+        flags |= OperatorFlags.ALL_LARGE;
+        assertTrue(symmetric.bid(flags) > bind.bid(flags));
+    }
+}
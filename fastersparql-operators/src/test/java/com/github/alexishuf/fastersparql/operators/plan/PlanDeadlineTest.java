@@ -0,0 +1,118 @@
+package com.github.alexishuf.fastersparql.operators.plan;
+
+import com.github.alexishuf.fastersparql.client.BindType;
+import com.github.alexishuf.fastersparql.client.exceptions.SparqlClientTimeoutException;
+import com.github.alexishuf.fastersparql.client.model.Results;
+import com.github.alexishuf.fastersparql.client.model.SparqlConfiguration;
+import com.github.alexishuf.fastersparql.client.model.row.RowOperationsRegistry;
+import com.github.alexishuf.fastersparql.client.util.async.Deadline;
+import com.github.alexishuf.fastersparql.client.util.reactive.AsyncIterable;
+import com.github.alexishuf.fastersparql.client.util.reactive.CallbackPublisher;
+import com.github.alexishuf.fastersparql.client.util.sparql.SparqlUtils;
+import com.github.alexishuf.fastersparql.operators.DummySparqlClient;
+import com.github.alexishuf.fastersparql.operators.impl.bind.BindJoin;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlanDeadlineTest {
+    private static final String LEFT = "SELECT ?x WHERE { ?x a <http://example.org/C> }";
+    private static final String RIGHT = "SELECT ?x ?y WHERE { ?x <http://example.org/p> ?y }";
+
+    /**
+     * Answers {@code LEFT} with 3 rows and bound {@code RIGHT} queries with one row only for
+     * {@code ex:1}. Other bound queries never complete.
+     */
+    private static class MockClient extends DummySparqlClient<String[], byte[]> {
+        final AtomicInteger queries = new AtomicInteger(), cancels = new AtomicInteger();
+
+        public MockClient() { super(String[].class, byte[].class); }
+
+        @Override
+        public Results<String[]> query(CharSequence sparqlCS,
+                                       @Nullable SparqlConfiguration configuration,
+                                       @Nullable Results<String[]> bindings,
+                                       @Nullable BindType bindType) {
+            String sparql = sparqlCS.toString();
+            queries.incrementAndGet();
+            List<String[]> rows = new ArrayList<>();
+            boolean complete = true;
+            if (sparql.equals(LEFT)) {
+                for (int i = 1; i <= 3; i++)
+                    rows.add(new String[]{"<http://example.org/"+i+">"});
+            } else if (sparql.contains("<http://example.org/1>")) {
+                rows.add(new String[]{"\"y1\""});
+            } else {
+                complete = false;
+            }
+            boolean completes = complete;
+            CallbackPublisher<String[]> pub = new CallbackPublisher<String[]>("MockClient") {
+                private boolean started;
+                @Override protected void onRequest(long n) {
+                    if (started) return;
+                    started = true;
+                    rows.forEach(this::feed);
+                    if (completes)
+                        complete(null);
+                }
+                @Override protected void onBackpressure() { }
+                @Override protected void onCancel() { cancels.incrementAndGet(); }
+            };
+            return new Results<>(SparqlUtils.publicVars(sparql), String[].class, pub);
+        }
+    }
+
+    private static Plan<String[]> plan(MockClient client) {
+        BindJoin join = new BindJoin(RowOperationsRegistry.get().forClass(String[].class), 4);
+        return join.asPlan(asList(LeafPlan.builder(client, LEFT).build(),
+                                  LeafPlan.builder(client, RIGHT).build()));
+    }
+
+    @Test
+    void testPartialResultsAndTimeout() throws Exception {
+        MockClient client = new MockClient();
+        long start = System.nanoTime();
+        Results<String[]> results = plan(client).execute(Deadline.after(200, MILLISECONDS));
+        List<List<String>> rows = new ArrayList<>();
+        AsyncIterable<String[]> it = results.iterable();
+        it.forEach(r -> rows.add(asList(r)));
+        long elapsedMs = NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(1, rows.size());
+        assertEquals(asList("<http://example.org/1>", "\"y1\""), rows.get(0));
+        assertTrue(it.error() instanceof SparqlClientTimeoutException, "error="+it.error());
+        assertTrue(elapsedMs >= 190, "elapsedMs="+elapsedMs);
+        assertTrue(elapsedMs < 2000, "elapsedMs="+elapsedMs);
+        assertEquals(4, client.queries.get()); // left + 3 binds
+        // both hanging bound requests were cancelled
+        for (int i = 0; i < 100 && client.cancels.get() < 2; i++)
+            Thread.sleep(10);
+        assertTrue(client.cancels.get() >= 2, "cancels="+client.cancels.get());
+    }
+
+    @Test
+    void testExpiredBeforeExecute() {
+        MockClient client = new MockClient();
+        Deadline deadline = Deadline.never();
+        deadline.cancel();
+        AsyncIterable<String[]> it = plan(client).execute(deadline).iterable();
+        assertFalse(it.iterator().hasNext());
+        assertTrue(it.error() instanceof SparqlClientTimeoutException, "error="+it.error());
+        assertEquals(0, client.queries.get());
+    }
+
+    @Test
+    void testNoDeadlineOutsideExecute() {
+        MockClient client = new MockClient();
+        plan(client).execute(Deadline.never());
+        assertNull(Deadline.current());
+    }
+}
@@ -0,0 +1,172 @@
+package com.github.alexishuf.fastersparql.operators.sources;
+
+import com.github.alexishuf.fastersparql.client.BindType;
+import com.github.alexishuf.fastersparql.client.SparqlClient;
+import com.github.alexishuf.fastersparql.client.model.Results;
+import com.github.alexishuf.fastersparql.client.model.SparqlConfiguration;
+import com.github.alexishuf.fastersparql.client.model.SparqlEndpoint;
+import com.github.alexishuf.fastersparql.client.util.reactive.EmptyPublisher;
+import com.github.alexishuf.fastersparql.client.util.reactive.MonoPublisher;
+import com.github.alexishuf.fastersparql.operators.DummySparqlClient;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+class AskSourceSelectorTest {
+    private static final class AskClient extends DummySparqlClient<String[], byte[]> {
+        private final SparqlEndpoint endpoint;
+        private final String accepts;
+        private final AtomicInteger queries = new AtomicInteger();
+
+        AskClient(String uri, String accepts) {
+            super(String[].class, byte[].class);
+            this.endpoint = SparqlEndpoint.parse(uri);
+            this.accepts = accepts;
+        }
+
+        @Override public SparqlEndpoint endpoint() { return endpoint; }
+
+        @Override
+        public Results<String[]> query(CharSequence sparql, @Nullable SparqlConfiguration cfg,
+                                       @Nullable Results<String[]> bindings,
+                                       @Nullable BindType bindType) {
+            queries.incrementAndGet();
+            assertTrue(sparql.toString().startsWith("ASK"), "not an ASK query");
+            if (sparql.toString().contains(accepts))
+                return new Results<>(emptyList(), String[].class, new MonoPublisher<>(new String[0]));
+            return new Results<>(emptyList(), String[].class, new EmptyPublisher<>());
+        }
+    }
+
+    @SuppressWarnings("unused") static Stream<Arguments> testShape() {
+        return Stream.of(
+                arguments("?s ?p ?o", "?v0 ?v1 ?v2"),
+                arguments("?x  ?p\n $x", "?v0 ?v1 ?v0"),
+                arguments("?s <http://example.org/?p> ?o", "?v0 <http://example.org/?p> ?v1"),
+                arguments("?s ?p \"?o  x\"", "?v0 ?v1 \"?o  x\""),
+                arguments(" ?a <p> ?b . ?b <q> ?a ", "?v0 <p> ?v1 . ?v1 <q> ?v0")
+        );
+    }
+
+    @ParameterizedTest @MethodSource
+    void testShape(String pattern, String expected) {
+        assertEquals(expected, AskSourceSelector.shape(pattern));
+    }
+
+    @Test
+    void testSelectAndCache() {
+        AskClient a = new AskClient("http://a.example.org/sparql", "<http://a.example.org/p>");
+        AskClient b = new AskClient("http://b.example.org/sparql", "<http://b.example.org/p>");
+        SourceCapabilityCache cache = new SourceCapabilityCache(null, 1, TimeUnit.HOURS);
+        AskSourceSelector<String[]> selector = new AskSourceSelector<>(asList(a, b), cache, 1);
+
+        List<SparqlClient<String[], ?>> selected;
+        selected = selector.select("?s <http://a.example.org/p> ?o").fetch();
+        assertEquals(singletonList(a), selected);
+        selected = selector.select("?x <http://b.example.org/p> ?y").fetch();
+        assertEquals(singletonList(b), selected);
+        assertEquals(2, a.queries.get());
+        assertEquals(2, b.queries.get());
+
+        // same shape is answered from cache
+        selected = selector.select("?y <http://a.example.org/p> ?z").fetch();
+        assertEquals(singletonList(a), selected);
+        assertEquals(2, a.queries.get());
+        assertEquals(2, b.queries.get());
+    }
+
+    @Test
+    void testConcurrentSelectsShareProbe() throws Exception {
+        for (int round = 0; round < 32; round++) {
+            AskClient a = new AskClient("http://a.example.org/sparql", "<http://a.example.org/p>");
+            SourceCapabilityCache cache = new SourceCapabilityCache(null, 1, TimeUnit.HOURS);
+            AskSourceSelector<String[]> selector
+                    = new AskSourceSelector<>(singletonList(a), cache, 4);
+            int threads = Runtime.getRuntime().availableProcessors()*2;
+            CountDownLatch ready = new CountDownLatch(threads);
+            AtomicInteger mismatches = new AtomicInteger();
+            List<Thread> list = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Thread thread = new Thread(() -> {
+                    ready.countDown();
+                    try {
+                        ready.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < 64; i++) {
+                        String pattern = "?s <http://a.example.org/p> ?o" + i % 2; // same shape
+                        if (!singletonList(a).equals(selector.select(pattern).fetch()))
+                            mismatches.incrementAndGet();
+                    }
+                });
+                thread.start();
+                list.add(thread);
+            }
+            for (Thread thread : list)
+                thread.join();
+            assertEquals(0, mismatches.get());
+            assertEquals(1, a.queries.get());
+        }
+    }
+
+    @Test
+    void testWarmUpManyPatterns() {
+        AskClient a = new AskClient("http://a.example.org/sparql", "<http://a.example.org/");
+        AskClient b = new AskClient("http://b.example.org/sparql", "<http://b.example.org/");
+        SourceCapabilityCache cache = new SourceCapabilityCache(null, 1, TimeUnit.HOURS);
+        AskSourceSelector<String[]> selector = new AskSourceSelector<>(asList(a, b), cache, 2);
+        List<String> patterns = new ArrayList<>();
+        for (int i = 0; i < 4096; i++)
+            patterns.add("?s <http://"+(i%2 == 0 ? "a" : "b")+".example.org/p"+i+"> ?o");
+        selector.warmUp(patterns).fetch();
+        assertEquals(4096, a.queries.get());
+        assertEquals(4096, b.queries.get());
+        assertEquals(2*4096, cache.size());
+        assertEquals(singletonList(b), selector.select("?x <http://b.example.org/p1> ?y").fetch());
+        assertEquals(4096, b.queries.get());
+    }
+
+    @Test
+    void testPersistCache(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("sources.tsv");
+        SourceCapabilityCache cache = new SourceCapabilityCache(file, 1, TimeUnit.HOURS);
+        cache.put("http://a.example.org/sparql", "?v0 <p> \"a\tb\\n\"", true);
+        cache.put("http://b.example.org/sparql", "?v0 <p> \"a\tb\\n\"", false);
+        cache.save();
+
+        SourceCapabilityCache loaded = new SourceCapabilityCache(file, 1, TimeUnit.HOURS);
+        assertEquals(2, loaded.size());
+        assertEquals(true, loaded.get("http://a.example.org/sparql", "?v0 <p> \"a\tb\\n\""));
+        assertEquals(false, loaded.get("http://b.example.org/sparql", "?v0 <p> \"a\tb\\n\""));
+        assertNull(loaded.get("http://c.example.org/sparql", "?v0 <p> \"a\tb\\n\""));
+    }
+
+    @Test
+    void testExpiredEntriesNotLoaded(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("sources.tsv");
+        SourceCapabilityCache cache = new SourceCapabilityCache(file, 50, TimeUnit.MILLISECONDS);
+        cache.put("http://a.example.org/sparql", "?v0 ?v1 ?v2", true);
+        cache.save();
+        Thread.sleep(100);
+        assertNull(cache.get("http://a.example.org/sparql", "?v0 ?v1 ?v2"));
+        assertEquals(0, new SourceCapabilityCache(file, 1, TimeUnit.HOURS).size());
+    }
+}